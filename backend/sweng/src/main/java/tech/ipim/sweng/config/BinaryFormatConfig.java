@@ -0,0 +1,79 @@
+package tech.ipim.sweng.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Risposte in formato binario per i client che le richiedono con l'header {@code Accept}:
+ * {@code application/cbor} o {@code application/x-jackson-smile}.
+ * <p>
+ * Per gli elenchi di note, lo storico delle versioni e l'esportazione il formato binario evita
+ * l'escape delle stringhe e, con Smile, ripete i nomi dei campi con un riferimento di pochi
+ * byte. I convertitori usano una copia dell'{@link ObjectMapper} dell'applicazione, quindi
+ * date e campi sono serializzati come in JSON; sostituiscono quelli predefiniti di Spring
+ * nella stessa posizione, dopo JSON, che resta il formato per {@code Accept: *}{@code /*}.
+ * <p>
+ * {@link #negotiate(String, Collection)} ripete la stessa scelta per le risorse che devono
+ * conoscere il formato prima di scrivere la risposta (ETag delle rappresentazioni, esportazione).
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    public static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory()));
+    }
+
+    /**
+     * Sceglie tra i tipi offerti quello che la negoziazione di Spring sceglie per l'header
+     * {@code Accept}: i tipi accettati sono valutati per qualità decrescente e, a parità,
+     * nell'ordine dell'header; per un tipo generico come {@code *}{@code /*} vince il primo offerto.
+     *
+     * @param accept  header Accept della richiesta, può essere null
+     * @param offered tipi offerti dalla risorsa, in ordine di preferenza
+     * @return tipo offerto scelto, null se l'header è assente o non valido o nessun tipo è accettato
+     */
+    public static MediaType negotiate(String accept, Collection<MediaType> offered) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        types.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                return null;
+            }
+            for (MediaType candidate : offered) {
+                if (type.isCompatibleWith(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+}
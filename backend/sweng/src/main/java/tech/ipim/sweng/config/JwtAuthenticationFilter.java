@@ -31,6 +31,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     /**
      * Filtra ogni richiesta HTTP per verificare la presenza e la validità di un token JWT.
      * Se il token è valido e l'utente non è ancora autenticato, imposta l'autenticazione nel SecurityContext.
+     * Il token viene verificato una sola volta per richiesta (i claims già verificati sono in cache in
+     * {@link JwtUtil}) e i controller leggono l'utente dal SecurityContext.
      *
      * @param request      la richiesta HTTP in arrivo
      * @param response     la risposta HTTP in uscita
@@ -48,47 +50,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
         System.out.println("Auth Header: " + (authorizationHeader != null ? "Present (length=" + authorizationHeader.length() + ")" : "Missing"));
 
-        String username = null;
         String jwt = null;
 
         // Estrae il token JWT dall'header Authorization
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
             System.out.println("WT Token extracted (length=" + jwt.length() + ")");
-            try {
-                username = jwtUtil.extractUsername(jwt);
-                System.out.println("Username extracted: " + username);
-            } catch (Exception e) {
-                System.err.println("Errore parsing JWT: " + e.getMessage());
-                e.printStackTrace();
-            }
         } else {
             System.out.println("No Bearer token found");
         }
 
-        // Se il token è valido e non c'è già un'autenticazione
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            System.out.println("Validating token for user: " + username);
-
-            try {
-                if (jwtUtil.isTokenValid(jwt)) {
-                    // Crea un'autenticazione semplice senza caricare l'utente dal database
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(username, null, new ArrayList<>());
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+        // Se c'è un token e non c'è già un'autenticazione, lo verifica una sola volta
+        if (jwt != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String username = jwtUtil.extractValidUsername(jwt);
+            if (username != null) {
+                // Crea un'autenticazione semplice senza caricare l'utente dal database; il token
+                // resta nelle credenziali così i controller riconoscono la richiesta già verificata
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(username, jwt, new ArrayList<>());
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
 
-                    System.out.println("*********Utente autenticato via JWT: " + username);
-                } else {
-                    System.out.println("**********Token non valido per utente: " + username);
-                }
-            } catch (Exception e) {
-                System.out.println("***********Errore validazione token: " + e.getMessage());
-                e.printStackTrace();
+                System.out.println("*********Utente autenticato via JWT: " + username);
+            } else {
+                System.out.println("**********Token non valido o scaduto");
             }
-        } else if (username == null) {
-            System.out.println(" Username è null - token non estratto");
-        } else {
+        } else if (jwt != null) {
             System.out.println("Utente già autenticato: " + SecurityContextHolder.getContext().getAuthentication().getName());
         }
 
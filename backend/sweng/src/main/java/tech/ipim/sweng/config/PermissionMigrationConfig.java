@@ -0,0 +1,28 @@
+package tech.ipim.sweng.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra {@link PermissionTableMigration} in modo che venga eseguita prima della
+ * creazione dell'EntityManagerFactory, e quindi prima che Hibernate aggiorni lo schema
+ * ({@code spring.jpa.hibernate.ddl-auto=update}) sulle tabelle dei permessi.
+ */
+@Configuration
+public class PermissionMigrationConfig {
+
+    @Bean(initMethod = "migrate")
+    public PermissionTableMigration permissionTableMigration(DataSource dataSource,
+                                                             @Value("${app.permissions.migration.batch-size:1000}") int batchSize) {
+        return new PermissionTableMigration(dataSource, batchSize);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor permissionMigrationBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor("permissionTableMigration");
+    }
+}
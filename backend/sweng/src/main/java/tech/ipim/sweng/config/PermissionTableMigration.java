@@ -0,0 +1,151 @@
+package tech.ipim.sweng.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * Migra le tabelle dei permessi delle note ({@code note_permessi_lettura} e
+ * {@code note_permessi_scrittura}) dal vecchio formato con lo username dell'utente
+ * al nuovo formato con l'id dell'utente come chiave esterna su {@code users}.
+ * <p>
+ * La conversione avviene sulla tabella esistente: viene aggiunta la colonna {@code user_id},
+ * valorizzata a blocchi di note (un commit per blocco, così una migrazione interrotta
+ * riprende dalle righe ancora senza id), poi vengono eliminate le righe di utenti
+ * inesistenti e la colonna {@code username}, e ricreate chiave primaria e chiave esterna.
+ * <p>
+ * Deve essere eseguita prima dell'aggiornamento dello schema di Hibernate: le tabelle già
+ * nel nuovo formato, o non ancora create, vengono ignorate.
+ */
+public class PermissionTableMigration {
+
+    static final String[] TABLES = {"note_permessi_lettura", "note_permessi_scrittura"};
+
+    private final DataSource dataSource;
+    private final int batchSize;
+
+    public PermissionTableMigration(DataSource dataSource, int batchSize) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Migra tutte le tabelle dei permessi ancora nel vecchio formato.
+     */
+    public void migrate() {
+        for (String table : TABLES) {
+            try {
+                migrateTable(table);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Migrazione della tabella " + table + " fallita: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return numero di righe convertite, 0 se la tabella non richiede migrazione
+     */
+    int migrateTable(String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (!hasColumn(metaData, table, "username")) {
+                return 0;
+            }
+            long start = System.currentTimeMillis();
+            System.out.println("Migrazione permessi per id utente: " + table);
+
+            try (Statement statement = connection.createStatement()) {
+                if (!hasColumn(metaData, table, "user_id")) {
+                    statement.execute("ALTER TABLE " + table + " ADD COLUMN user_id BIGINT");
+                }
+            }
+
+            int converted = fillUserIds(connection, table);
+
+            try (Statement statement = connection.createStatement()) {
+                int orphans = statement.executeUpdate("DELETE FROM " + table + " WHERE user_id IS NULL");
+                if (orphans > 0) {
+                    System.out.println("Righe di utenti inesistenti eliminate da " + table + ": " + orphans);
+                }
+                String primaryKey = primaryKeyName(metaData, table);
+                if (primaryKey != null) {
+                    statement.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + primaryKey);
+                }
+                statement.execute("ALTER TABLE " + table + " DROP COLUMN username");
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN user_id SET NOT NULL");
+                statement.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (note_id, user_id)");
+                statement.execute("ALTER TABLE " + table + " ADD CONSTRAINT fk_" + table + "_user "
+                        + "FOREIGN KEY (user_id) REFERENCES users (id)");
+            }
+
+            System.out.println("Migrazione " + table + " completata: " + converted + " righe in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return converted;
+        }
+    }
+
+    private int fillUserIds(Connection connection, String table) throws SQLException {
+        long minNoteId;
+        long maxNoteId;
+        try (Statement statement = connection.createStatement();
+             ResultSet range = statement.executeQuery(
+                     "SELECT MIN(note_id), MAX(note_id) FROM " + table + " WHERE user_id IS NULL")) {
+            range.next();
+            minNoteId = range.getLong(1);
+            if (range.wasNull()) {
+                return 0;
+            }
+            maxNoteId = range.getLong(2);
+        }
+
+        String update = "UPDATE " + table + " SET user_id = "
+                + "(SELECT u.id FROM users u WHERE u.username = " + table + ".username) "
+                + "WHERE user_id IS NULL AND note_id BETWEEN ? AND ?";
+        boolean autoCommit = connection.getAutoCommit();
+        int converted = 0;
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(update)) {
+            for (long from = minNoteId; from <= maxNoteId; from += batchSize) {
+                statement.setLong(1, from);
+                statement.setLong(2, from + batchSize - 1);
+                converted += statement.executeUpdate();
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return converted;
+    }
+
+    private static boolean hasColumn(DatabaseMetaData metaData, String table, String column) throws SQLException {
+        for (String tableName : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet columns = metaData.getColumns(null, null, tableName, null)) {
+                while (columns.next()) {
+                    if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String primaryKeyName(DatabaseMetaData metaData, String table) throws SQLException {
+        for (String tableName : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet keys = metaData.getPrimaryKeys(null, null, tableName)) {
+                if (keys.next()) {
+                    return keys.getString("PK_NAME");
+                }
+            }
+        }
+        return null;
+    }
+}
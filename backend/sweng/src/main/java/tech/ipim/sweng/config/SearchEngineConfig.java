@@ -0,0 +1,62 @@
+package tech.ipim.sweng.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import tech.ipim.sweng.search.InMemoryNoteSearchEngine;
+import tech.ipim.sweng.search.NoteSearchEngine;
+import tech.ipim.sweng.search.PostgresNoteSearchEngine;
+
+/**
+ * Sceglie il motore di ricerca delle note in base alla proprietà {@code app.search.engine}:
+ * <ul>
+ *   <li>{@code postgres}: full-text nativo di PostgreSQL</li>
+ *   <li>{@code memory}: indice invertito in memoria</li>
+ *   <li>{@code auto} (default): PostgreSQL se il datasource è PostgreSQL, altrimenti memoria
+ *   (ad esempio con H2 nel profilo di test)</li>
+ * </ul>
+ */
+@Configuration
+public class SearchEngineConfig {
+
+    @Bean
+    public NoteSearchEngine noteSearchEngine(DataSource dataSource,
+                                             JdbcTemplate jdbcTemplate,
+                                             @Value("${app.search.engine:auto}") String engine,
+                                             @Value("${app.search.postgres.config:simple}") String textSearchConfig) {
+        NoteSearchEngine selected;
+        switch (engine.toLowerCase()) {
+            case "postgres":
+                selected = new PostgresNoteSearchEngine(jdbcTemplate, textSearchConfig);
+                break;
+            case "memory":
+                selected = new InMemoryNoteSearchEngine();
+                break;
+            case "auto":
+                selected = isPostgres(dataSource)
+                        ? new PostgresNoteSearchEngine(jdbcTemplate, textSearchConfig)
+                        : new InMemoryNoteSearchEngine();
+                break;
+            default:
+                throw new IllegalStateException("Motore di ricerca non supportato: " + engine);
+        }
+        System.out.println("Motore di ricerca note: " + selected.getName());
+        return selected;
+    }
+
+    static boolean isPostgres(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            System.err.println("Impossibile determinare il database, uso il motore in memoria: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package tech.ipim.sweng.controller;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import tech.ipim.sweng.dto.NoteResponse;
+import tech.ipim.sweng.dto.ReindexStatusDto;
+import tech.ipim.sweng.service.SearchReindexService;
+import tech.ipim.sweng.util.JwtUtil;
+
+/**
+ * Operazioni di amministrazione, riservate agli utenti elencati in {@code app.admin.usernames}.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(
+        origins = {"http://localhost:4200", "http://127.0.0.1:4200"},
+        allowedHeaders = "*",
+        methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.OPTIONS},
+        allowCredentials = "true"
+)
+public class AdminController {
+
+    private final SearchReindexService searchReindexService;
+    private final JwtUtil jwtUtil;
+    private final Set<String> adminUsernames;
+
+    @Autowired
+    public AdminController(SearchReindexService searchReindexService, JwtUtil jwtUtil,
+                           @Value("${app.admin.usernames:}") String adminUsernames) {
+        this.searchReindexService = searchReindexService;
+        this.jwtUtil = jwtUtil;
+        this.adminUsernames = Arrays.stream(adminUsernames.split(","))
+                .map(String::trim)
+                .filter(username -> !username.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * startReindex
+     * Avvia la ricostruzione completa degli indici di ricerca in background.
+     * Le ricerche e le scritture continuano durante la ricostruzione.
+     *
+     * @param authHeader header Authorization con JWT
+     * @return 202 con lo stato iniziale, 409 se una ricostruzione è già in corso
+     */
+    @PostMapping("/search/reindex")
+    public ResponseEntity<?> startReindex(@RequestHeader("Authorization") String authHeader) {
+        ResponseEntity<?> denied = checkAdmin(authHeader);
+        if (denied != null) {
+            return denied;
+        }
+
+        try {
+            boolean started = searchReindexService.start();
+            ReindexStatusDto status = searchReindexService.getStatus();
+            return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(Map.of(
+                    "success", started,
+                    "message", started ? "Reindicizzazione avviata" : "Reindicizzazione già in corso",
+                    "status", status
+            ));
+        } catch (Exception e) {
+            System.err.println("Errore avvio reindicizzazione: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(NoteResponse.error("Errore durante l'avvio della reindicizzazione"));
+        }
+    }
+
+    /**
+     * getReindexStatus
+     * Restituisce avanzamento, velocità e tempo stimato dell'ultima reindicizzazione.
+     *
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con lo stato della reindicizzazione
+     */
+    @GetMapping("/search/reindex")
+    public ResponseEntity<?> getReindexStatus(@RequestHeader("Authorization") String authHeader) {
+        ResponseEntity<?> denied = checkAdmin(authHeader);
+        if (denied != null) {
+            return denied;
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "status", searchReindexService.getStatus()
+        ));
+    }
+
+    /**
+     * @return risposta di errore se l'utente non è autenticato o non è amministratore, altrimenti null
+     */
+    private ResponseEntity<?> checkAdmin(String authHeader) {
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(NoteResponse.error("Token non valido"));
+        }
+        if (!adminUsernames.contains(username)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(NoteResponse.error("Operazione riservata agli amministratori"));
+        }
+        return null;
+    }
+}
@@ -64,7 +64,7 @@ public class CartellaController {
         
         System.out.println("POST /api/cartelle - Creazione cartella: " + request.getNome());
         
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(CartellaResponse.error("Token non valido"));
@@ -110,7 +110,7 @@ public class CartellaController {
         
         System.out.println("GET /api/cartelle - Recupero cartelle utente");
         
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(CartellaResponse.error("Token non valido"));
@@ -144,7 +144,7 @@ public class CartellaController {
     public ResponseEntity<?> getCartellaById(@PathVariable Long id,
                                             @RequestHeader("Authorization") String authHeader) {
         
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(CartellaResponse.error("Token non valido"));
@@ -183,7 +183,7 @@ public class CartellaController {
                                            BindingResult bindingResult,
                                            @RequestHeader("Authorization") String authHeader) {
         
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(CartellaResponse.error("Token non valido"));
@@ -227,7 +227,7 @@ public class CartellaController {
     public ResponseEntity<?> deleteCartella(@PathVariable Long id,
                                            @RequestHeader("Authorization") String authHeader) {
         
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(CartellaResponse.error("Token non valido"));
@@ -263,7 +263,7 @@ public class CartellaController {
     @GetMapping("/stats")
     public ResponseEntity<?> getCartelleStats(@RequestHeader("Authorization") String authHeader) {
         
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(CartellaResponse.error("Token non valido"));
@@ -286,23 +286,4 @@ public class CartellaController {
                     .body(CartellaResponse.error("Errore durante il recupero delle statistiche"));
         }
     }
-
-    /**
-     * extractUsernameFromAuth
-     * Estrae lo username dal token JWT presente nell'header Authorization.
-     *
-     * @param authHeader header Authorization con JWT
-     * @return username se il token è valido, altrimenti null
-     */
-    private String extractUsernameFromAuth(String authHeader) {
-        try {
-            String token = jwtUtil.extractTokenFromHeader(authHeader);
-            if (token != null && jwtUtil.isTokenValid(token)) {
-                return jwtUtil.extractUsername(token);
-            }
-        } catch (Exception e) {
-            System.err.println("Errore validazione token: " + e.getMessage());
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
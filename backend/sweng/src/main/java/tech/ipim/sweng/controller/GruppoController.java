@@ -0,0 +1,194 @@
+package tech.ipim.sweng.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.validation.Valid;
+import tech.ipim.sweng.dto.CreateGruppoRequest;
+import tech.ipim.sweng.dto.GruppoDto;
+import tech.ipim.sweng.service.GruppoService;
+import tech.ipim.sweng.util.JwtUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/gruppi")
+@CrossOrigin(
+    origins = {"http://localhost:4200", "http://127.0.0.1:4200"},
+    allowedHeaders = "*",
+    methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS},
+    allowCredentials = "true"
+)
+public class GruppoController {
+
+    private final GruppoService gruppoService;
+    private final JwtUtil jwtUtil;
+
+    @Autowired
+    public GruppoController(GruppoService gruppoService, JwtUtil jwtUtil) {
+        this.gruppoService = gruppoService;
+        this.jwtUtil = jwtUtil;
+    }
+
+    /**
+     * Crea un nuovo gruppo di condivisione
+     * POST /api/gruppi
+     *
+     * @param request       nome del gruppo e membri iniziali
+     * @param bindingResult risultato della validazione
+     * @param authHeader    header Authorization con JWT
+     * @return ResponseEntity con il gruppo creato
+     */
+    @PostMapping
+    public ResponseEntity<?> createGruppo(@Valid @RequestBody CreateGruppoRequest request,
+                                          BindingResult bindingResult,
+                                          @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return error(HttpStatus.UNAUTHORIZED, "Token non valido");
+        }
+
+        if (bindingResult.hasErrors()) {
+            Map<String, String> errors = new HashMap<>();
+            bindingResult.getFieldErrors().forEach(error ->
+                    errors.put(error.getField(), error.getDefaultMessage())
+            );
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Errori di validazione",
+                    "errors", errors
+            ));
+        }
+
+        try {
+            GruppoDto gruppo = gruppoService.createGruppo(request, username);
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
+                    "success", true,
+                    "message", "Gruppo creato con successo",
+                    "gruppo", gruppo
+            ));
+        } catch (RuntimeException e) {
+            System.err.println("Errore creazione gruppo: " + e.getMessage());
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    /**
+     * Recupera i gruppi di cui l'utente è membro
+     * GET /api/gruppi
+     *
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con l'elenco dei gruppi
+     */
+    @GetMapping
+    public ResponseEntity<?> getGruppi(@RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return error(HttpStatus.UNAUTHORIZED, "Token non valido");
+        }
+
+        List<GruppoDto> gruppi = gruppoService.getUserGruppi(username);
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "gruppi", gruppi,
+                "count", gruppi.size()
+        ));
+    }
+
+    /**
+     * Aggiunge un membro al gruppo
+     * PUT /api/gruppi/{id}/membri/{membro}
+     *
+     * @param id         ID del gruppo
+     * @param membro     username del nuovo membro
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con il gruppo aggiornato
+     */
+    @PutMapping("/{id}/membri/{membro}")
+    public ResponseEntity<?> addMembro(@PathVariable Long id, @PathVariable String membro,
+                                       @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return error(HttpStatus.UNAUTHORIZED, "Token non valido");
+        }
+
+        try {
+            GruppoDto gruppo = gruppoService.addMembro(id, membro, username);
+            return ResponseEntity.ok(Map.of("success", true, "gruppo", gruppo));
+        } catch (RuntimeException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Rimuove un membro dal gruppo
+     * DELETE /api/gruppi/{id}/membri/{membro}
+     *
+     * @param id         ID del gruppo
+     * @param membro     username del membro da rimuovere
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con il gruppo aggiornato
+     */
+    @DeleteMapping("/{id}/membri/{membro}")
+    public ResponseEntity<?> removeMembro(@PathVariable Long id, @PathVariable String membro,
+                                          @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return error(HttpStatus.UNAUTHORIZED, "Token non valido");
+        }
+
+        try {
+            GruppoDto gruppo = gruppoService.removeMembro(id, membro, username);
+            return ResponseEntity.ok(Map.of("success", true, "gruppo", gruppo));
+        } catch (RuntimeException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Elimina un gruppo e le sue condivisioni
+     * DELETE /api/gruppi/{id}
+     *
+     * @param id         ID del gruppo
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con l'esito dell'eliminazione
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteGruppo(@PathVariable Long id,
+                                          @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return error(HttpStatus.UNAUTHORIZED, "Token non valido");
+        }
+
+        try {
+            gruppoService.deleteGruppo(id, username);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Gruppo eliminato con successo"));
+        } catch (RuntimeException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("success", false, "message", message));
+    }
+}
@@ -1,7 +1,11 @@
 package tech.ipim.sweng.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -16,19 +20,38 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import tech.ipim.sweng.config.BinaryFormatConfig;
+import tech.ipim.sweng.dto.BulkPermissionRequest;
+import tech.ipim.sweng.dto.BulkPermissionResultDto;
 import tech.ipim.sweng.dto.CreateNoteRequest;
+import tech.ipim.sweng.dto.NoteChangesDto;
 import tech.ipim.sweng.dto.LockStatusDto;
+import tech.ipim.sweng.dto.NoteCursor;
 import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.dto.NotePageDto;
 import tech.ipim.sweng.dto.NoteResponse;
+import tech.ipim.sweng.dto.NoteSyncToken;
 import tech.ipim.sweng.dto.NoteVersionDto;
 import tech.ipim.sweng.dto.PermissionDto;
 import tech.ipim.sweng.dto.RestoreVersionRequest;
+import tech.ipim.sweng.dto.SearchHighlightDto;
 import tech.ipim.sweng.dto.UpdateNoteRequest;
 import tech.ipim.sweng.dto.VersionComparisonDto;
+import tech.ipim.sweng.dto.VersionSearchHitDto;
+import tech.ipim.sweng.search.Suggestion;
+import tech.ipim.sweng.service.NoteChangeService;
+import tech.ipim.sweng.service.NoteExportService;
 import tech.ipim.sweng.service.NoteLockService;
 import tech.ipim.sweng.service.NoteService;
+import tech.ipim.sweng.service.NoteSharingService;
 import tech.ipim.sweng.util.JwtUtil;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,15 +67,40 @@ import java.util.Optional;
 )
 public class NoteController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final NoteService noteService;
     private final JwtUtil jwtUtil;
     private final NoteLockService noteLockService;
+    private final NoteSharingService noteSharingService;
+    private final NoteExportService noteExportService;
+    private final NoteChangeService noteChangeService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Se true, gli elenchi richiesti senza {@code limit} né {@code cursor} restituiscono tutte
+     * le note come in passato; se false vengono sempre paginati.
+     */
+    @Value("${app.notes.paging.legacy-unpaged:true}")
+    private boolean legacyUnpaged;
+
+    @Value("${app.notes.paging.default-limit:50}")
+    private int defaultPageLimit;
+
+    @Value("${app.notes.paging.max-limit:200}")
+    private int maxPageLimit;
 
     @Autowired
-    public NoteController(NoteService noteService, JwtUtil jwtUtil, NoteLockService noteLockService) {
+    public NoteController(NoteService noteService, JwtUtil jwtUtil, NoteLockService noteLockService,
+                          NoteSharingService noteSharingService, NoteExportService noteExportService,
+                          NoteChangeService noteChangeService, ObjectMapper objectMapper) {
         this.noteService = noteService;
         this.jwtUtil = jwtUtil;
         this.noteLockService = noteLockService;
+        this.noteSharingService = noteSharingService;
+        this.noteExportService = noteExportService;
+        this.noteChangeService = noteChangeService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -71,7 +119,7 @@ public class NoteController {
 
         System.out.println("POST /api/notes - Creazione nota");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -107,25 +155,42 @@ public class NoteController {
      * getNoteById
      * Recupera una nota specifica per ID.
      *
+     * La risposta porta l'header {@code ETag}: se il client lo rimanda in {@code If-None-Match}
+     * e la nota non è cambiata risponde 304 senza leggere la nota.
+     *
      * @param id ID della nota
+     * @param ifNoneMatch ETag ricevuto in una risposta precedente
+     * @param accept formati accettati dal client: l'ETag è diverso per JSON, CBOR e Smile
      * @param authHeader header Authorization con JWT
      * @return ResponseEntity con nota trovata o errore
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getNoteById(@PathVariable Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
                                          @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
         }
 
         try {
+            // L'ETag è calcolato prima della nota: se cambia nel frattempo, la richiesta
+            // successiva riceve una risposta completa anziché un 304 su dati vecchi
+            String etag = representationEtag(noteService.getNoteEtag(id, username).orElse(null), accept);
+            if (etagMatches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+            }
+
             Optional<NoteDto> note = noteService.getNoteById(id, username);
 
             if (note.isPresent()) {
-                return ResponseEntity.ok(NoteResponse.success("Nota trovata", note.get()));
+                return ResponseEntity.ok()
+                        .eTag(etag)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(NoteResponse.success("Nota trovata", note.get()));
             } else {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(NoteResponse.error("Nota non trovata o non accessibile"));
@@ -140,30 +205,66 @@ public class NoteController {
 
     /**
      * searchNotes
-     * Cerca note per parola chiave.
+     * Cerca note per parola chiave. Con {@code fuzzy=true} la ricerca tollera
+     * errori di battitura usando l'indice di trigrammi.
+     * Nella ricerca esatta la risposta include, per ogni nota, le posizioni delle parole
+     * trovate e un estratto del contenuto ({@code highlights}).
+     *
+     * Con {@code limit} o {@code cursor} la risposta è una pagina ordinata per data di modifica
+     * anziché per rilevanza (vedi {@link #getAllNotes}).
      *
      * @param keyword parola chiave
+     * @param fuzzy true per la ricerca per somiglianza
+     * @param limit dimensione della pagina
+     * @param cursor cursore della pagina da leggere, ricevuto come {@code nextCursor}
      * @param authHeader header Authorization con JWT
      * @return ResponseEntity con elenco note trovate
      */
     @GetMapping("/search")
     public ResponseEntity<?> searchNotes(@RequestParam("q") String keyword,
+                                         @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String cursor,
                                          @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
         }
 
+        Integer pageLimit = pageLimit(limit, cursor);
+        NoteCursor pageCursor;
         try {
-            List<NoteDto> notes = noteService.searchNotes(username, keyword);
+            pageCursor = parseCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(NoteResponse.error(e.getMessage()));
+        }
+
+        try {
+            if (pageLimit != null) {
+                NotePageDto<NoteDto> page = noteService.searchNotesPage(username, keyword, fuzzy, pageCursor, pageLimit);
+                Map<String, Object> response = pageResponse(page);
+                response.put("highlights", fuzzy ? List.of() : noteService.getSearchHighlights(keyword, page.getNotes()));
+                response.put("keyword", keyword);
+                response.put("fuzzy", fuzzy);
+                return ResponseEntity.ok(response);
+            }
+
+            List<NoteDto> notes = fuzzy
+                    ? noteService.searchNotes(username, keyword, true)
+                    : noteService.searchNotes(username, keyword);
+            List<SearchHighlightDto> highlights = fuzzy
+                    ? List.of()
+                    : noteService.getSearchHighlights(keyword, notes);
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "notes", notes,
+                    "highlights", highlights,
                     "count", notes.size(),
-                    "keyword", keyword
+                    "keyword", keyword,
+                    "fuzzy", fuzzy
             ));
 
         } catch (Exception e) {
@@ -173,26 +274,126 @@ public class NoteController {
         }
     }
 
+    /**
+     * searchNoteVersions
+     * Cerca una parola chiave nella cronologia delle versioni delle note leggibili dall'utente.
+     *
+     * @param keyword parola chiave
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con le versioni trovate (id nota e numero di versione)
+     */
+    @GetMapping("/versions/search")
+    public ResponseEntity<?> searchNoteVersions(@RequestParam("q") String keyword,
+                                                @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(NoteResponse.error("Token non valido"));
+        }
+
+        try {
+            List<VersionSearchHitDto> versions = noteService.searchNoteVersions(username, keyword);
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "versions", versions,
+                    "count", versions.size(),
+                    "keyword", keyword
+            ));
+
+        } catch (Exception e) {
+            System.err.println("Errore ricerca versioni: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(NoteResponse.error("Errore durante la ricerca nelle versioni"));
+        }
+    }
+
+    /**
+     * suggest
+     * Suggerisce completamenti per la ricerca mentre l'utente digita,
+     * tra titoli, tag e cartelle delle note accessibili.
+     *
+     * @param prefix prefisso digitato
+     * @param limit numero massimo di suggerimenti (massimo {@value #MAX_SUGGESTIONS})
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con elenco dei suggerimenti
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam("prefix") String prefix,
+                                     @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                     @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(NoteResponse.error("Token non valido"));
+        }
+
+        try {
+            List<Suggestion> suggestions = noteService.suggest(username, prefix,
+                    Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "suggestions", suggestions,
+                    "prefix", prefix
+            ));
+
+        } catch (Exception e) {
+            System.err.println("Errore suggerimenti note: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(NoteResponse.error("Errore durante il recupero dei suggerimenti"));
+        }
+    }
+
     /**
      * getNotesByTag
      * Filtra le note per tag.
      *
      * @param tag tag da cercare
+     * @param limit dimensione della pagina
+     * @param cursor cursore della pagina da leggere, ricevuto come {@code nextCursor}
+     * @param view rappresentazione delle note: full o summary (vedi {@link #getAllNotes})
      * @param authHeader header Authorization con JWT
      * @return ResponseEntity con elenco note filtrate
      */
     @GetMapping("/filter/tag/{tag}")
     public ResponseEntity<?> getNotesByTag(@PathVariable String tag,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "full") String view,
                                            @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
         }
 
+        Integer pageLimit = pageLimit(limit, cursor);
+        NoteCursor pageCursor;
+        boolean summary;
         try {
-            List<NoteDto> notes = noteService.getNotesByTag(username, tag);
+            pageCursor = parseCursor(cursor);
+            summary = isSummaryView(view);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(NoteResponse.error(e.getMessage()));
+        }
+
+        try {
+            if (pageLimit != null) {
+                NotePageDto<?> page = summary
+                        ? noteService.findNoteSummariesPage(username, NoteFilter.forTag(tag), pageCursor, pageLimit)
+                        : noteService.getNotesByTag(username, tag, pageCursor, pageLimit);
+                Map<String, Object> response = pageResponse(page);
+                response.put("tag", tag);
+                return ResponseEntity.ok(response);
+            }
+
+            List<?> notes = summary
+                    ? noteService.findNoteSummaries(username, NoteFilter.forTag(tag))
+                    : noteService.getNotesByTag(username, tag);
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -213,21 +414,48 @@ public class NoteController {
      * Filtra le note per nome cartella.
      *
      * @param cartella nome della cartella
+     * @param limit dimensione della pagina
+     * @param cursor cursore della pagina da leggere, ricevuto come {@code nextCursor}
+     * @param view rappresentazione delle note: full o summary (vedi {@link #getAllNotes})
      * @param authHeader header Authorization con JWT
      * @return ResponseEntity con elenco note filtrate
      */
     @GetMapping("/filter/cartella/{cartella}")
     public ResponseEntity<?> getNotesByCartella(@PathVariable String cartella,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "full") String view,
                                                 @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
         }
 
+        Integer pageLimit = pageLimit(limit, cursor);
+        NoteCursor pageCursor;
+        boolean summary;
         try {
-            List<NoteDto> notes = noteService.getNotesByCartella(username, cartella);
+            pageCursor = parseCursor(cursor);
+            summary = isSummaryView(view);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(NoteResponse.error(e.getMessage()));
+        }
+
+        try {
+            if (pageLimit != null) {
+                NotePageDto<?> page = summary
+                        ? noteService.findNoteSummariesPage(username, NoteFilter.forCartella(cartella), pageCursor, pageLimit)
+                        : noteService.getNotesByCartella(username, cartella, pageCursor, pageLimit);
+                Map<String, Object> response = pageResponse(page);
+                response.put("cartella", cartella);
+                return ResponseEntity.ok(response);
+            }
+
+            List<?> notes = summary
+                    ? noteService.findNoteSummaries(username, NoteFilter.forCartella(cartella))
+                    : noteService.getNotesByCartella(username, cartella);
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -255,7 +483,7 @@ public class NoteController {
     public ResponseEntity<?> duplicateNote(@PathVariable Long id,
                                            @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -289,7 +517,7 @@ public class NoteController {
     public ResponseEntity<?> deleteNote(@PathVariable Long id,
                                         @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -327,7 +555,7 @@ public class NoteController {
     public ResponseEntity<?> removeFromSharing(@PathVariable Long id,
                                                @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -370,7 +598,7 @@ public class NoteController {
 
         System.out.println("PUT /api/notes/" + id + " - Aggiornamento nota con verifica blocco");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -429,7 +657,7 @@ public class NoteController {
     @GetMapping("/stats")
     public ResponseEntity<?> getUserStats(@RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -475,7 +703,7 @@ public class NoteController {
 
         System.out.println("PUT /api/notes/" + id + "/permissions - Modifica permessi nota");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -518,6 +746,62 @@ public class NoteController {
         }
     }
 
+    /**
+     * updatePermissionsBulk
+     * Applica gli stessi permessi a più note dell'utente in un'unica transazione.
+     *
+     * @param request note e permessi da applicare
+     * @param bindingResult risultato validazione
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con l'esito per ogni nota
+     */
+    @PutMapping("/permissions/bulk")
+    public ResponseEntity<?> updatePermissionsBulk(@Valid @RequestBody BulkPermissionRequest request,
+                                                   BindingResult bindingResult,
+                                                   @RequestHeader("Authorization") String authHeader) {
+
+        System.out.println("PUT /api/notes/permissions/bulk - Condivisione multipla");
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(NoteResponse.error("Token non valido"));
+        }
+
+        if (bindingResult.hasErrors()) {
+            Map<String, String> errors = new HashMap<>();
+            bindingResult.getFieldErrors().forEach(error ->
+                    errors.put(error.getField(), error.getDefaultMessage())
+            );
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Errori di validazione",
+                    "errors", errors
+            ));
+        }
+
+        try {
+            List<BulkPermissionResultDto> results = noteSharingService.updatePermissions(request, username);
+            long updated = results.stream().filter(result -> result.getEsito() == BulkPermissionResultDto.Esito.AGGIORNATA).count();
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "results", results,
+                    "updated", updated,
+                    "count", results.size()
+            ));
+
+        } catch (RuntimeException e) {
+            System.err.println("Errore condivisione multipla: " + e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(NoteResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Errore interno condivisione multipla: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(NoteResponse.error("Errore interno del server"));
+        }
+    }
+
     /**
      * compareNoteVersions
      * Confronta due versioni di una nota.
@@ -536,7 +820,7 @@ public class NoteController {
 
         System.out.println("GET /api/notes/" + id + "/compare/" + version1 + "/" + version2 + " - Confronto versioni");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -585,7 +869,7 @@ public class NoteController {
     public ResponseEntity<?> lockNote(@PathVariable Long id,
                                       @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -625,7 +909,7 @@ public class NoteController {
     public ResponseEntity<?> unlockNote(@PathVariable Long id,
                                         @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -658,7 +942,7 @@ public class NoteController {
     public ResponseEntity<?> getLockStatus(@PathVariable Long id,
                                            @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -694,7 +978,7 @@ public class NoteController {
     public ResponseEntity<?> extendLock(@PathVariable Long id,
                                         @RequestHeader("Authorization") String authHeader) {
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -738,7 +1022,7 @@ public class NoteController {
 
         System.out.println("GET /api/notes/" + id + "/versions - Recupero cronologia versioni");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -790,7 +1074,7 @@ public class NoteController {
 
         System.out.println("GET /api/notes/" + id + "/versions/" + versionNumber + " - Recupero versione specifica");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -852,7 +1136,7 @@ public class NoteController {
 
         System.out.println("POST /api/notes/" + id + "/restore - Ripristino versione " + request.getVersionNumber());
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -898,88 +1182,244 @@ public class NoteController {
 
     // METODI HELPER
 
+    /**
+     * Dimensione della pagina richiesta, limitata a {@code app.notes.paging.max-limit}.
+     *
+     * @param limit  dimensione indicata dal client
+     * @param cursor cursore indicato dal client
+     * @return dimensione della pagina, null se la richiesta va servita senza paginazione
+     */
+    private Integer pageLimit(Integer limit, String cursor) {
+        if (limit == null && cursor == null && legacyUnpaged) {
+            return null;
+        }
+        int size = limit == null ? defaultPageLimit : limit;
+        return Math.max(1, Math.min(size, maxPageLimit));
+    }
+
+    private static NoteCursor parseCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : NoteCursor.decode(cursor.trim());
+    }
 
-    private String extractUsernameFromAuth(String authHeader) {
-        try {
-            String token = jwtUtil.extractTokenFromHeader(authHeader);
-            if (token != null && jwtUtil.isTokenValid(token)) {
-                return jwtUtil.extractUsername(token);
+    /**
+     * Errore per gli endpoint in streaming, che devono restituire sempre un corpo
+     * {@link StreamingResponseBody} per essere gestiti in modo asincrono.
+     */
+    private ResponseEntity<StreamingResponseBody> streamingError(HttpServletResponse response, HttpStatus status,
+                                                                 String message) throws IOException {
+        return streaming(response, status, MediaType.APPLICATION_JSON,
+                out -> out.write(objectMapper.writeValueAsBytes(NoteResponse.error(message))));
+    }
+
+    /**
+     * Invia status e header prima di restituire il corpo in streaming: la risposta viene
+     * confermata nel thread della richiesta, così nemmeno gli header aggiunti dai filtri
+     * vengono scritti mentre il corpo è in scrittura nel thread asincrono.
+     * Gli altri header (es. Content-Disposition) vanno impostati su {@code response} prima.
+     */
+    private static ResponseEntity<StreamingResponseBody> streaming(HttpServletResponse response, HttpStatus status,
+                                                                   MediaType contentType, StreamingResponseBody body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(contentType.toString());
+        response.flushBuffer();
+        return ResponseEntity.status(status).body(body);
+    }
+
+    /**
+     * @param view valore del parametro {@code view}
+     * @return true per la rappresentazione ridotta, false per il DTO completo
+     * @throws IllegalArgumentException se il valore non è né full né summary
+     */
+    private static boolean isSummaryView(String view) {
+        if ("summary".equalsIgnoreCase(view.trim())) {
+            return true;
+        }
+        if ("full".equalsIgnoreCase(view.trim())) {
+            return false;
+        }
+        throw new IllegalArgumentException("Vista non valida, usare full o summary");
+    }
+
+    /**
+     * ETag della rappresentazione scelta con l'header {@code Accept}: i corpi JSON, CBOR e Smile
+     * della stessa risorsa sono diversi, quindi un ETag forte non può essere condiviso.
+     * JSON mantiene l'ETag calcolato dal service, CBOR e Smile lo ricevono con un suffisso.
+     */
+    private static String representationEtag(String etag, String accept) {
+        String format = binaryFormat(accept);
+        if (etag == null || format == null) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + format + "\"";
+    }
+
+    /**
+     * Formato binario che la negoziazione di Spring sceglie per l'header {@code Accept}:
+     * i tipi sono valutati per qualità decrescente e, a parità, nell'ordine dell'header;
+     * JSON viene prima dei formati binari per i tipi generici come {@code *}{@code /*}.
+     *
+     * @return "cbor", "smile" oppure null per JSON
+     */
+    private static String binaryFormat(String accept) {
+        MediaType chosen = BinaryFormatConfig.negotiate(accept,
+                List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, BinaryFormatConfig.SMILE));
+        if (MediaType.APPLICATION_CBOR.equals(chosen)) {
+            return "cbor";
+        }
+        return BinaryFormatConfig.SMILE.equals(chosen) ? "smile" : null;
+    }
+
+    /**
+     * Confronta l'header {@code If-None-Match} con l'ETag corrente: l'header può contenere più
+     * ETag separati da virgola, anche deboli ({@code W/}), oppure {@code *}.
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
             }
-        } catch (Exception e) {
-            System.err.println("Errore validazione token: " + e.getMessage());
         }
-        return null;
+        return false;
     }
 
+    private static Map<String, Object> pageResponse(NotePageDto<?> page) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("notes", page.getNotes());
+        response.put("count", page.getNotes().size());
+        response.put("hasMore", page.isHasMore());
+        if (page.getNextCursor() != null) {
+            response.put("nextCursor", page.getNextCursor());
+        }
+        return response;
+    }
 
 
-//  Restituisce tutte le note accessibili dall’utente, con vari filtri.
+
+
+    /**
+     * getAllNotes
+     * Restituisce le note accessibili dall'utente. Tutti i filtri indicati
+     * (ricerca, tag, cartella, autore, intervallo di date, ambito own/shared/all)
+     * vengono applicati insieme in un'unica query.
+     * Con {@code limit} o {@code cursor} (oppure sempre, se {@code app.notes.paging.legacy-unpaged}
+     * è false) la risposta è una pagina ordinata per data di modifica e id decrescenti, con
+     * {@code nextCursor} e {@code hasMore}; senza, restituisce tutte le note.
+     * Con {@code view=summary} ogni nota è una {@link tech.ipim.sweng.dto.NoteSummaryDto}:
+     * anteprima del contenuto, tag, autore e flag dei permessi, senza cartelle né utenti e
+     * gruppi della condivisione, per la dashboard e le schede delle note.
+     * La risposta porta l'header {@code ETag}, che cambia quando cambia una qualsiasi nota
+     * accessibile o l'elenco dei gruppi dell'utente: se il client lo rimanda in
+     * {@code If-None-Match} e nulla è cambiato risponde 304 senza leggere le note.
+     *
+     * @param filter ambito delle note: all, own o shared
+     * @param search testo da cercare in titolo e contenuto
+     * @param tag tag richiesti, tutti presenti (ripetibile)
+     * @param anyTag tag alternativi, almeno uno presente (ripetibile)
+     * @param notTag tag esclusi (ripetibile)
+     * @param cartella cartella richiesta
+     * @param autore username dell'autore
+     * @param dataInizio data di creazione minima (yyyy-MM-dd)
+     * @param dataFine data di creazione massima (yyyy-MM-dd)
+     * @param limit dimensione della pagina
+     * @param cursor cursore della pagina da leggere, ricevuto come {@code nextCursor}
+     * @param view rappresentazione delle note: full (predefinita) o summary
+     * @param ifNoneMatch ETag ricevuto in una risposta precedente
+     * @param accept formati accettati dal client: l'ETag è diverso per JSON, CBOR e Smile
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con elenco note filtrate
+     */
     @GetMapping
     public ResponseEntity<?> getAllNotes(
             @RequestParam(defaultValue = "all") String filter,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) List<String> tag,
+            @RequestParam(required = false) List<String> anyTag,
+            @RequestParam(required = false) List<String> notTag,
             @RequestParam(required = false) String cartella,
             @RequestParam(required = false) String autore,
             @RequestParam(required = false) String dataInizio,
             @RequestParam(required = false) String dataFine,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "full") String view,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
             @RequestHeader("Authorization") String authHeader) {
 
         System.out.println("GET /api/notes - Filtri: "
                 + "filter=" + filter
                 + ", search=" + search
                 + ", tag=" + tag
+                + ", anyTag=" + anyTag
+                + ", notTag=" + notTag
                 + ", cartella=" + cartella
                 + ", autore=" + autore
                 + ", dataInizio=" + dataInizio
                 + ", dataFine=" + dataFine);
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
         }
 
+        NoteFilter noteFilter = new NoteFilter();
+        noteFilter.setFilter(filter);
+        noteFilter.setSearch(search);
+        noteFilter.setTags(tag);
+        noteFilter.setAnyTags(anyTag);
+        noteFilter.setNotTags(notTag);
+        noteFilter.setCartella(cartella);
+        noteFilter.setAutore(autore);
         try {
-            List<NoteDto> notes;
+            noteFilter.setDataInizio(NoteFilter.hasText(dataInizio) ? LocalDate.parse(dataInizio.trim()) : null);
+            noteFilter.setDataFine(NoteFilter.hasText(dataFine) ? LocalDate.parse(dataFine.trim()) : null);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest()
+                    .body(NoteResponse.error("Formato data non valido, usare yyyy-MM-dd"));
+        }
 
-            // Verifica se ci sono filtri specifici
-            if (search != null && !search.trim().isEmpty()) {
-                notes = noteService.searchNotes(username, search);
-            } else if (tag != null && !tag.trim().isEmpty()) {
-                notes = noteService.getNotesByTag(username, tag);
-            } else if (cartella != null && !cartella.trim().isEmpty()) {
-                notes = noteService.getNotesByCartella(username, cartella);
-            } else if (autore != null && !autore.trim().isEmpty()) {
+        Integer pageLimit = pageLimit(limit, cursor);
+        NoteCursor pageCursor;
+        boolean summary;
+        try {
+            pageCursor = parseCursor(cursor);
+            summary = isSummaryView(view);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(NoteResponse.error(e.getMessage()));
+        }
 
-                notes = noteService.getNotesByAutore(username, autore, filter);
-            } else if (dataInizio != null || dataFine != null) {
+        try {
+            String etag = representationEtag(noteService.getNotesEtag(username), accept);
+            if (etagMatches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+            }
 
-                notes = noteService.getNotesByDateRange(username, dataInizio, dataFine, filter);
+            // Tutti i filtri valorizzati vengono combinati in un'unica query
+            Map<String, Object> response;
+            if (pageLimit != null) {
+                response = pageResponse(summary
+                        ? noteService.findNoteSummariesPage(username, noteFilter, pageCursor, pageLimit)
+                        : noteService.findNotesPage(username, noteFilter, pageCursor, pageLimit));
             } else {
-                // Nessun filtro specifico - usa il filtro standard
-                switch (filter) {
-                    case "own":
-                        notes = noteService.getUserNotes(username);
-                        break;
-                    case "shared":
-                        notes = noteService.getAllAccessibleNotes(username)
-                                .stream()
-                                .filter(note -> !note.getAutore().equals(username))
-                                .toList();
-                        break;
-                    default:
-                        notes = noteService.getAllAccessibleNotes(username);
-                }
+                List<?> notes = summary
+                        ? noteService.findNoteSummaries(username, noteFilter)
+                        : noteService.findNotes(username, noteFilter);
+                response = new HashMap<>();
+                response.put("success", true);
+                response.put("notes", notes);
+                response.put("count", notes.size());
             }
 
-            System.out.println("Note trovate: " + notes.size());
-
-            // Prepara la risposta
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("notes", notes);
-            response.put("count", notes.size());
+            System.out.println("Note trovate: " + response.get("count"));
 
 
             if (search != null) {
@@ -988,6 +1428,12 @@ public class NoteController {
             if (tag != null) {
                 response.put("tag", tag);
             }
+            if (anyTag != null) {
+                response.put("anyTag", anyTag);
+            }
+            if (notTag != null) {
+                response.put("notTag", notTag);
+            }
             if (cartella != null) {
                 response.put("cartella", cartella);
             }
@@ -1001,7 +1447,7 @@ public class NoteController {
                 response.put("dataFine", dataFine);
             }
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(response);
 
         } catch (Exception e) {
             System.err.println("Errore recupero note: " + e.getMessage());
@@ -1011,6 +1457,91 @@ public class NoteController {
     }
 
 
+    /**
+     * getNoteChanges
+     * Restituisce le modifiche delle note accessibili dall'utente dopo l'ultima sincronizzazione:
+     * note create, modificate o condivise con l'utente in {@code notes}, id delle note eliminate
+     * o non più condivise in {@code removed}. Senza {@code since}, o con un token più vecchio del
+     * periodo di conservazione del registro, restituisce tutte le note con {@code full} true.
+     * Il {@code syncToken} della risposta va rimandato come {@code since} alla richiesta successiva.
+     *
+     * @param since token ricevuto dalla sincronizzazione precedente
+     * @param authHeader header Authorization con JWT
+     * @return ResponseEntity con le modifiche e il nuovo token
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getNoteChanges(@RequestParam(required = false) String since,
+                                            @RequestHeader("Authorization") String authHeader) {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(NoteResponse.error("Token non valido"));
+        }
+
+        NoteSyncToken token;
+        try {
+            token = NoteFilter.hasText(since) ? NoteSyncToken.decode(since.trim()) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(NoteResponse.error(e.getMessage()));
+        }
+
+        try {
+            NoteChangesDto changes = noteChangeService.getChanges(username, token);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("notes", changes.getNotes());
+            response.put("removed", changes.getRemoved());
+            response.put("count", changes.getNotes().size());
+            response.put("full", changes.isFull());
+            response.put("syncToken", changes.getSyncToken());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            System.err.println("Errore sincronizzazione note: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(NoteResponse.error("Errore durante la sincronizzazione delle note"));
+        }
+    }
+
+    /**
+     * exportNotes
+     * Esporta tutte le note accessibili dall'utente, una per riga in formato NDJSON, oppure
+     * come sequenza di valori CBOR o Smile con {@code format=cbor}, {@code format=smile} o
+     * l'header Accept corrispondente.
+     * La risposta viene scritta in streaming mentre le note sono lette dal database,
+     * senza caricarle tutte in memoria.
+     *
+     * @param format formato dell'esportazione: ndjson, cbor o smile
+     * @param accept header Accept, usato se {@code format} non è indicato
+     * @param authHeader header Authorization con JWT
+     * @param response risposta, confermata con i suoi header prima dello streaming
+     * @return ResponseEntity con il corpo dell'esportazione in streaming
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportNotes(@RequestParam(required = false) String format,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             @RequestHeader("Authorization") String authHeader,
+                                                             HttpServletResponse response) throws IOException {
+
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
+        if (username == null) {
+            return streamingError(response, HttpStatus.UNAUTHORIZED, "Token non valido");
+        }
+
+        NoteExportService.Format exportFormat;
+        try {
+            exportFormat = NoteExportService.Format.of(format, accept);
+        } catch (IllegalArgumentException e) {
+            return streamingError(response, HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"note." + exportFormat.getExtension() + "\"");
+        return streaming(response, HttpStatus.OK, exportFormat.getMediaType(),
+                out -> noteExportService.exportNotes(username, out, exportFormat));
+    }
+
     /**
      * getAvailableAutori
      * Restituisce la lista di autori disponibili per filtrare le note.
@@ -1022,7 +1553,7 @@ public class NoteController {
     public ResponseEntity<?> getAvailableAutori(@RequestHeader("Authorization") String authHeader) {
         System.out.println("GET /api/notes/autori - Recupero autori disponibili");
 
-        String username = extractUsernameFromAuth(authHeader);
+        String username = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
         if (username == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(NoteResponse.error("Token non valido"));
@@ -1040,10 +1571,4 @@ public class NoteController {
                     .body(NoteResponse.error("Errore durante il recupero degli autori"));
         }
     }
-
-
-
 }
-
-
-
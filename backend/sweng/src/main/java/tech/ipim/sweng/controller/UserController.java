@@ -49,7 +49,7 @@ public class UserController {
 
         try {
             // Estrai l'username dell'utente autenticato dal token JWT
-            String currentUsername = extractUsernameFromAuth(authHeader);
+            String currentUsername = JwtUtil.usernameFromHeader(jwtUtil, authHeader);
 
             if (currentUsername == null) {
                 System.out.println("Token non valido o mancante");
@@ -70,17 +70,4 @@ public class UserController {
             return ResponseEntity.status(500).build();
         }
     }
-
-    private String extractUsernameFromAuth(String authHeader) {
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            try {
-                return jwtUtil.extractUsername(token);
-            } catch (Exception e) {
-                System.out.println("Errore estrazione username: " + e.getMessage());
-                return null;
-            }
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package tech.ipim.sweng.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import tech.ipim.sweng.model.TipoPermesso;
+
+/**
+ * Richiesta di condivisione di più note in una sola chiamata.
+ * <p>
+ * A tutte le note indicate vengono applicati lo stesso tipo di permesso e le stesse
+ * liste di utenti in lettura e scrittura, con le stesse regole di {@link PermissionDto}.
+ */
+public class BulkPermissionRequest extends PermissionDto {
+
+    public static final int MAX_NOTES = 1000;
+
+    @NotEmpty(message = "Indicare almeno una nota")
+    @Size(max = MAX_NOTES, message = "Al massimo " + MAX_NOTES + " note per richiesta")
+    private List<Long> noteIds;
+
+    public BulkPermissionRequest() { }
+
+    public BulkPermissionRequest(List<Long> noteIds, TipoPermesso tipoPermesso,
+                                 List<String> utentiLettura, List<String> utentiScrittura) {
+        super(tipoPermesso, utentiLettura, utentiScrittura);
+        this.noteIds = noteIds;
+    }
+
+    public List<Long> getNoteIds() {
+        return noteIds;
+    }
+
+    public void setNoteIds(List<Long> noteIds) {
+        this.noteIds = noteIds;
+    }
+}
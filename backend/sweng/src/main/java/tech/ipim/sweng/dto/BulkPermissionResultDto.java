@@ -0,0 +1,74 @@
+package tech.ipim.sweng.dto;
+
+/**
+ * Esito della condivisione multipla per una singola nota: se i permessi sono stati
+ * modificati, quanti utenti o gruppi sono stati aggiunti e rimossi, oppure perché la nota
+ * è stata saltata.
+ */
+public class BulkPermissionResultDto {
+
+    /**
+     * Esito dell'operazione su una nota
+     */
+    public enum Esito {
+        AGGIORNATA,
+        INVARIATA,
+        NON_TROVATA,
+        NON_AUTORIZZATA
+    }
+
+    private Long noteId;
+    private Esito esito;
+    private int utentiAggiunti;
+    private int utentiRimossi;
+
+    public BulkPermissionResultDto() {
+    }
+
+    public BulkPermissionResultDto(Long noteId, Esito esito, int utentiAggiunti, int utentiRimossi) {
+        this.noteId = noteId;
+        this.esito = esito;
+        this.utentiAggiunti = utentiAggiunti;
+        this.utentiRimossi = utentiRimossi;
+    }
+
+    public static BulkPermissionResultDto skipped(Long noteId, Esito esito) {
+        return new BulkPermissionResultDto(noteId, esito, 0, 0);
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public Esito getEsito() {
+        return esito;
+    }
+
+    public void setEsito(Esito esito) {
+        this.esito = esito;
+    }
+
+    public int getUtentiAggiunti() {
+        return utentiAggiunti;
+    }
+
+    public void setUtentiAggiunti(int utentiAggiunti) {
+        this.utentiAggiunti = utentiAggiunti;
+    }
+
+    public int getUtentiRimossi() {
+        return utentiRimossi;
+    }
+
+    public void setUtentiRimossi(int utentiRimossi) {
+        this.utentiRimossi = utentiRimossi;
+    }
+
+    public boolean isSuccess() {
+        return esito == Esito.AGGIORNATA || esito == Esito.INVARIATA;
+    }
+}
@@ -0,0 +1,47 @@
+package tech.ipim.sweng.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO per la richiesta di creazione di un gruppo di condivisione.
+ * <p>
+ * Campi validati:
+ * <ul>
+ *   <li>{@code nome} - obbligatorio, tra 1 e 100 caratteri, univoco</li>
+ *   <li>{@code membri} - opzionale, username dei membri iniziali (il creatore è sempre membro)</li>
+ * </ul>
+ */
+public class CreateGruppoRequest {
+
+    @NotBlank(message = "Nome gruppo è obbligatorio")
+    @Size(min = 1, max = 100, message = "Nome gruppo deve essere tra 1 e 100 caratteri")
+    private String nome;
+
+    private List<String> membri;
+
+    public CreateGruppoRequest() { }
+
+    public CreateGruppoRequest(String nome, List<String> membri) {
+        this.nome = nome;
+        this.membri = membri;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public List<String> getMembri() {
+        return membri;
+    }
+
+    public void setMembri(List<String> membri) {
+        this.membri = membri;
+    }
+}
@@ -0,0 +1,81 @@
+package tech.ipim.sweng.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.User;
+
+/**
+ * DTO per rappresentare un gruppo di condivisione senza esporre l'entità {@link Gruppo}.
+ * <p>
+ * Campi principali:
+ * <ul>
+ *   <li>{@code id} - identificatore univoco del gruppo</li>
+ *   <li>{@code nome} - nome univoco, usato nei permessi delle note</li>
+ *   <li>{@code proprietario} - username di chi gestisce i membri</li>
+ *   <li>{@code membri} - username dei membri in ordine alfabetico</li>
+ * </ul>
+ */
+public class GruppoDto {
+
+    private Long id;
+    private String nome;
+    private String proprietario;
+    private List<String> membri;
+    private LocalDateTime dataCreazione;
+
+    public GruppoDto() { }
+
+    public GruppoDto(Gruppo gruppo) {
+        this.id = gruppo.getId();
+        this.nome = gruppo.getNome();
+        this.proprietario = gruppo.getProprietario().getUsername();
+        this.membri = gruppo.getMembri().stream().map(User::getUsername).sorted().toList();
+        this.dataCreazione = gruppo.getDataCreazione();
+    }
+
+    public static GruppoDto fromGruppo(Gruppo gruppo) {
+        return new GruppoDto(gruppo);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public String getProprietario() {
+        return proprietario;
+    }
+
+    public void setProprietario(String proprietario) {
+        this.proprietario = proprietario;
+    }
+
+    public List<String> getMembri() {
+        return membri;
+    }
+
+    public void setMembri(List<String> membri) {
+        this.membri = membri;
+    }
+
+    public LocalDateTime getDataCreazione() {
+        return dataCreazione;
+    }
+
+    public void setDataCreazione(LocalDateTime dataCreazione) {
+        this.dataCreazione = dataCreazione;
+    }
+}
@@ -0,0 +1,44 @@
+package tech.ipim.sweng.dto;
+
+import java.util.List;
+
+/**
+ * Modifiche delle note accessibili a un utente dopo un token di sincronizzazione.
+ * <p>
+ * {@code notes} contiene le note create, modificate o condivise con l'utente, {@code removed}
+ * gli id delle note eliminate o non più condivise (possono comparire anche note che il client
+ * non aveva ancora ricevuto, da ignorare). Con {@code full} true le note sono tutte
+ * quelle accessibili e il client sostituisce il proprio elenco: succede alla prima
+ * sincronizzazione e quando il token è più vecchio del periodo di conservazione del registro.
+ * {@code syncToken} va rimandato nella richiesta successiva.
+ */
+public class NoteChangesDto {
+
+    private final List<NoteDto> notes;
+    private final List<Long> removed;
+    private final boolean full;
+    private final String syncToken;
+
+    public NoteChangesDto(List<NoteDto> notes, List<Long> removed, boolean full, String syncToken) {
+        this.notes = notes;
+        this.removed = removed;
+        this.full = full;
+        this.syncToken = syncToken;
+    }
+
+    public List<NoteDto> getNotes() {
+        return notes;
+    }
+
+    public List<Long> getRemoved() {
+        return removed;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public String getSyncToken() {
+        return syncToken;
+    }
+}
@@ -0,0 +1,68 @@
+package tech.ipim.sweng.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Posizione in un elenco di note ordinato per data di modifica e id decrescenti.
+ * <p>
+ * Identifica l'ultima nota restituita: la pagina successiva parte dalle note che la seguono
+ * nell'ordinamento, senza saltare righe con OFFSET. L'id rende l'ordine stabile anche tra
+ * note con la stessa data di modifica. Il client riceve il cursore come stringa opaca
+ * (Base64 URL-safe di {@code dataModifica|id}) e lo rimanda così com'è.
+ */
+public final class NoteCursor {
+
+    /** Ordine delle pagine: data di modifica decrescente, a parità di data id decrescente. */
+    public static final Comparator<NoteCursor> ORDER = Comparator
+            .comparing(NoteCursor::getDataModifica, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(NoteCursor::getId, Comparator.reverseOrder());
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime dataModifica;
+    private final Long id;
+
+    public NoteCursor(LocalDateTime dataModifica, Long id) {
+        this.dataModifica = dataModifica;
+        this.id = id;
+    }
+
+    /**
+     * @param value cursore ricevuto dal client
+     * @return cursore decodificato
+     * @throws IllegalArgumentException se il cursore non è stato prodotto da {@link #encode()}
+     */
+    public static NoteCursor decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cursore non valido");
+            }
+            return new NoteCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.valueOf(decoded.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursore non valido", e);
+        }
+    }
+
+    /**
+     * @return cursore opaco da restituire al client
+     */
+    public String encode() {
+        String raw = dataModifica + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getDataModifica() {
+        return dataModifica;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.TipoPermesso;
 /**
  * DTO per il trasferimento dei dati relativi a una Nota.
  * <p>
@@ -31,6 +32,8 @@ public class NoteDto {
     private String tipoPermesso;
     private Set<String> permessiLettura;
     private Set<String> permessiScrittura;
+    private Set<String> gruppiLettura;
+    private Set<String> gruppiScrittura;
     private boolean canEdit;
     private boolean canDelete;
     private Long versionNumber;
@@ -66,6 +69,8 @@ public NoteDto(Note note, String currentUsername) {
     this.tipoPermesso = note.getTipoPermesso().name();
     this.permessiLettura = note.getPermessiLettura();
     this.permessiScrittura = note.getPermessiScrittura();
+    this.gruppiLettura = note.getNomiGruppiLettura();
+    this.gruppiScrittura = note.getNomiGruppiScrittura();
     this.canView = hasReadAccess;
     this.canEdit = hasWriteAccess;
     this.canDelete = isAutore;
@@ -77,6 +82,63 @@ public NoteDto(Note note, String currentUsername) {
         return new NoteDto(note, currentUsername);
     }
 
+    /**
+     * Costruttore usato dalla proiezione JPQL delle note: riceve solo le colonne scalari.
+     * Le collezioni partono vuote e vengono riempite dalle query per insiemi di note;
+     * i permessi dell'utente corrente vanno poi calcolati con {@link #applyAccess}.
+     */
+    public NoteDto(Long id, String titolo, String contenuto, String autore, LocalDateTime dataCreazione,
+                   LocalDateTime dataModifica, TipoPermesso tipoPermesso, Long versionNumber) {
+        this.id = id;
+        this.titolo = titolo;
+        this.contenuto = contenuto;
+        this.autore = autore;
+        this.dataCreazione = dataCreazione;
+        this.dataModifica = dataModifica;
+        this.tipoPermesso = tipoPermesso.name();
+        this.versionNumber = versionNumber;
+        this.tags = new HashSet<>();
+        this.cartelle = new HashSet<>();
+        this.permessiLettura = new HashSet<>();
+        this.permessiScrittura = new HashSet<>();
+        this.gruppiLettura = new HashSet<>();
+        this.gruppiScrittura = new HashSet<>();
+    }
+
+    /**
+     * Calcola i permessi dell'utente corrente con le stesse regole di
+     * {@link Note#hasReadAccess(String)} e {@link Note#hasWriteAccess(String)}, a partire dalle
+     * collezioni già caricate. Le cartelle restano visibili solo al proprietario.
+     *
+     * @param currentUsername utente corrente
+     * @param gruppiUtente    nomi dei gruppi di cui l'utente è membro
+     */
+    public void applyAccess(String currentUsername, Set<String> gruppiUtente) {
+        boolean isAutore = currentUsername.equals(autore);
+        TipoPermesso tipo = TipoPermesso.valueOf(tipoPermesso);
+        boolean lettore = permessiLettura.contains(currentUsername) || containsAny(gruppiLettura, gruppiUtente);
+        boolean scrittore = permessiScrittura.contains(currentUsername) || containsAny(gruppiScrittura, gruppiUtente);
+
+        this.canView = isAutore
+                || (tipo == TipoPermesso.CONDIVISA_LETTURA && lettore)
+                || (tipo == TipoPermesso.CONDIVISA_SCRITTURA && (lettore || scrittore));
+        this.canEdit = isAutore || (tipo == TipoPermesso.CONDIVISA_SCRITTURA && scrittore);
+        this.canDelete = isAutore;
+        this.isOwner = isAutore;
+        if (!isAutore) {
+            this.cartelle = new HashSet<>();
+        }
+    }
+
+    private static boolean containsAny(Set<String> nomi, Set<String> gruppiUtente) {
+        for (String nome : nomi) {
+            if (gruppiUtente.contains(nome)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // Getters e Setters
     public Long getId() {
         return id;
@@ -166,6 +228,22 @@ public NoteDto(Note note, String currentUsername) {
         this.permessiScrittura = permessiScrittura;
     }
 
+    public Set<String> getGruppiLettura() {
+        return gruppiLettura;
+    }
+
+    public void setGruppiLettura(Set<String> gruppiLettura) {
+        this.gruppiLettura = gruppiLettura;
+    }
+
+    public Set<String> getGruppiScrittura() {
+        return gruppiScrittura;
+    }
+
+    public void setGruppiScrittura(Set<String> gruppiScrittura) {
+        this.gruppiScrittura = gruppiScrittura;
+    }
+
     public boolean isCanEdit() {
         return canEdit;
     }
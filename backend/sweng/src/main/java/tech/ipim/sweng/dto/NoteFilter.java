@@ -0,0 +1,172 @@
+package tech.ipim.sweng.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteri di filtro per l'elenco delle note ({@code GET /api/notes}).
+ * <p>
+ * Tutti i criteri sono opzionali e vengono combinati in AND in un'unica query;
+ * sui tag si possono esprimere condizioni booleane: {@code tags} devono essere presenti tutti,
+ * di {@code anyTags} almeno uno, nessuno di {@code notTags}.
+ * {@code filter} restringe le note a quelle proprie ("own"), condivise con l'utente ("shared")
+ * o tutte le accessibili ("all", default).
+ */
+public class NoteFilter {
+
+    private String filter = "all";
+    private String search;
+    private List<String> tags = new ArrayList<>();
+    private List<String> anyTags = new ArrayList<>();
+    private List<String> notTags = new ArrayList<>();
+    private String cartella;
+    private String autore;
+    private LocalDate dataInizio;
+    private LocalDate dataFine;
+
+    public NoteFilter() { }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public void setSearch(String search) {
+        this.search = search;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = cleanValues(tags);
+    }
+
+    public List<String> getAnyTags() {
+        return anyTags;
+    }
+
+    public void setAnyTags(List<String> anyTags) {
+        this.anyTags = cleanValues(anyTags);
+    }
+
+    public List<String> getNotTags() {
+        return notTags;
+    }
+
+    public void setNotTags(List<String> notTags) {
+        this.notTags = cleanValues(notTags);
+    }
+
+    public String getCartella() {
+        return cartella;
+    }
+
+    public void setCartella(String cartella) {
+        this.cartella = cartella;
+    }
+
+    public String getAutore() {
+        return autore;
+    }
+
+    public void setAutore(String autore) {
+        this.autore = autore;
+    }
+
+    public LocalDate getDataInizio() {
+        return dataInizio;
+    }
+
+    public void setDataInizio(LocalDate dataInizio) {
+        this.dataInizio = dataInizio;
+    }
+
+    public LocalDate getDataFine() {
+        return dataFine;
+    }
+
+    public void setDataFine(LocalDate dataFine) {
+        this.dataFine = dataFine;
+    }
+
+    /**
+     * @param tag tag richiesto
+     * @return filtro sulle note accessibili con il tag indicato
+     */
+    public static NoteFilter forTag(String tag) {
+        NoteFilter filter = new NoteFilter();
+        filter.setTags(List.of(tag));
+        return filter;
+    }
+
+    /**
+     * @param cartella nome della cartella
+     * @return filtro sulle note accessibili nella cartella indicata
+     */
+    public static NoteFilter forCartella(String cartella) {
+        NoteFilter filter = new NoteFilter();
+        filter.setCartella(cartella);
+        return filter;
+    }
+
+    /**
+     * @return true se è presente una ricerca testuale
+     */
+    public boolean hasSearch() {
+        return hasText(search);
+    }
+
+    /**
+     * @return true se è presente almeno un criterio positivo su tag o cartella
+     * (tag obbligatori, tag alternativi o cartella), risolvibile dall'indice di tag e cartelle
+     */
+    public boolean hasTagOrCartellaCriteria() {
+        return !tags.isEmpty() || !anyTags.isEmpty() || hasText(cartella);
+    }
+
+    /**
+     * Restituisce una copia del filtro senza i criteri su tag e cartella,
+     * da usare quando questi sono già stati risolti dall'indice in memoria.
+     *
+     * @return copia del filtro con i soli criteri restanti
+     */
+    public NoteFilter withoutTagAndCartella() {
+        NoteFilter copy = new NoteFilter();
+        copy.setFilter(filter);
+        copy.setSearch(search);
+        copy.setAutore(autore);
+        copy.setDataInizio(dataInizio);
+        copy.setDataFine(dataFine);
+        return copy;
+    }
+
+    /**
+     * @param value valore di un parametro
+     * @return true se il valore non è null né vuoto
+     */
+    public static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static List<String> cleanValues(List<String> values) {
+        List<String> cleaned = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                if (hasText(value) && !cleaned.contains(value.trim())) {
+                    cleaned.add(value.trim());
+                }
+            }
+        }
+        return cleaned;
+    }
+}
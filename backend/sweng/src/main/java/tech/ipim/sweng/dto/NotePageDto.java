@@ -0,0 +1,59 @@
+package tech.ipim.sweng.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagina di note restituita dagli elenchi paginati con cursore.
+ * <p>
+ * {@code nextCursor} è valorizzato solo se ci sono altre note: il client lo rimanda nel
+ * parametro {@code cursor} per leggere la pagina successiva.
+ *
+ * @param <T> rappresentazione delle note: {@link NoteDto} o {@link NoteSummaryDto}
+ */
+public class NotePageDto<T> {
+
+    private final List<T> notes;
+    private final String nextCursor;
+    private final boolean hasMore;
+
+    public NotePageDto(List<T> notes, String nextCursor, boolean hasMore) {
+        this.notes = notes;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Costruisce la pagina dalle chiavi lette con una riga in più del limite, che indica
+     * solo se esiste una pagina successiva: le note vengono lette solo per le chiavi della pagina.
+     *
+     * @param keys   chiavi ordinate secondo {@link NoteCursor#ORDER}, al massimo {@code limit + 1}
+     * @param limit  dimensione della pagina
+     * @param loader legge le note degli id indicati, nello stesso ordine
+     * @param <T>    rappresentazione delle note
+     * @return pagina con il cursore della successiva
+     */
+    public static <T> NotePageDto<T> of(List<NoteCursor> keys, int limit, Function<List<Long>, List<T>> loader) {
+        boolean hasMore = keys.size() > limit;
+        List<NoteCursor> page = hasMore ? keys.subList(0, limit) : keys;
+        String nextCursor = hasMore ? page.get(page.size() - 1).encode() : null;
+        List<T> notes = loader.apply(page.stream().map(NoteCursor::getId).toList());
+        return new NotePageDto<>(List.copyOf(notes), nextCursor, hasMore);
+    }
+
+    public static <T> NotePageDto<T> empty() {
+        return new NotePageDto<>(List.of(), null, false);
+    }
+
+    public List<T> getNotes() {
+        return notes;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,152 @@
+package tech.ipim.sweng.dto;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import tech.ipim.sweng.model.TipoPermesso;
+
+/**
+ * Rappresentazione ridotta di una nota per gli elenchi con {@code view=summary}
+ * (dashboard e schede delle note).
+ * <p>
+ * Rispetto a {@link NoteDto} contiene solo un'anteprima del contenuto e non include
+ * cartelle, utenti e gruppi con cui la nota è condivisa: i permessi dell'utente corrente
+ * sono riassunti nei flag {@code owner}, {@code canEdit} e {@code canDelete}.
+ * Il DTO completo si legge con il dettaglio della nota.
+ */
+public class NoteSummaryDto {
+
+    /** Numero massimo di caratteri del contenuto restituiti nell'anteprima. */
+    public static final int PREVIEW_LENGTH = 120;
+
+    private Long id;
+    private String titolo;
+    private String anteprima;
+    private boolean anteprimaTroncata;
+    private String autore;
+    private LocalDateTime dataModifica;
+    private String tipoPermesso;
+    private Set<String> tags;
+    private boolean isOwner;
+    private boolean canEdit;
+    private boolean canDelete;
+
+    public NoteSummaryDto() { }
+
+    /**
+     * Costruttore usato dalla proiezione JPQL: riceve il contenuto già tagliato a
+     * {@link #PREVIEW_LENGTH} + 1 caratteri, il carattere in più indica solo se l'anteprima
+     * è troncata. I tag vengono aggiunti dopo, i flag con {@link #applyAccess}.
+     */
+    public NoteSummaryDto(Long id, String titolo, String contenuto, String autore,
+                          LocalDateTime dataModifica, TipoPermesso tipoPermesso) {
+        this.id = id;
+        this.titolo = titolo;
+        this.anteprimaTroncata = contenuto != null && contenuto.length() > PREVIEW_LENGTH;
+        this.anteprima = anteprimaTroncata ? contenuto.substring(0, PREVIEW_LENGTH) : contenuto;
+        this.autore = autore;
+        this.dataModifica = dataModifica;
+        this.tipoPermesso = tipoPermesso.name();
+        this.tags = new HashSet<>();
+    }
+
+    /**
+     * @param currentUsername utente corrente
+     * @param scrittore       true se l'utente ha accesso in scrittura alla nota altrui,
+     *                        direttamente o tramite un gruppo
+     */
+    public void applyAccess(String currentUsername, boolean scrittore) {
+        this.isOwner = currentUsername.equals(autore);
+        this.canEdit = isOwner || scrittore;
+        this.canDelete = isOwner;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitolo() {
+        return titolo;
+    }
+
+    public void setTitolo(String titolo) {
+        this.titolo = titolo;
+    }
+
+    public String getAnteprima() {
+        return anteprima;
+    }
+
+    public void setAnteprima(String anteprima) {
+        this.anteprima = anteprima;
+    }
+
+    public boolean isAnteprimaTroncata() {
+        return anteprimaTroncata;
+    }
+
+    public void setAnteprimaTroncata(boolean anteprimaTroncata) {
+        this.anteprimaTroncata = anteprimaTroncata;
+    }
+
+    public String getAutore() {
+        return autore;
+    }
+
+    public void setAutore(String autore) {
+        this.autore = autore;
+    }
+
+    public LocalDateTime getDataModifica() {
+        return dataModifica;
+    }
+
+    public void setDataModifica(LocalDateTime dataModifica) {
+        this.dataModifica = dataModifica;
+    }
+
+    public String getTipoPermesso() {
+        return tipoPermesso;
+    }
+
+    public void setTipoPermesso(String tipoPermesso) {
+        this.tipoPermesso = tipoPermesso;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public boolean isOwner() {
+        return isOwner;
+    }
+
+    public void setIsOwner(boolean isOwner) {
+        this.isOwner = isOwner;
+    }
+
+    public boolean isCanEdit() {
+        return canEdit;
+    }
+
+    public void setCanEdit(boolean canEdit) {
+        this.canEdit = canEdit;
+    }
+
+    public boolean isCanDelete() {
+        return canDelete;
+    }
+
+    public void setCanDelete(boolean canDelete) {
+        this.canDelete = canDelete;
+    }
+}
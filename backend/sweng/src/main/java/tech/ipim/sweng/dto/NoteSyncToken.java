@@ -0,0 +1,62 @@
+package tech.ipim.sweng.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posizione di un client nel registro delle modifiche delle note, restituita da
+ * {@code GET /api/notes/changes} e rimandata nel parametro {@code since} della richiesta successiva.
+ * <p>
+ * Contiene l'ultima modifica già inviata e il momento in cui il token è stato emesso, che
+ * indica se le modifiche successive sono ancora conservate nel registro. Il client lo
+ * riceve come stringa opaca (Base64 URL-safe di {@code emissione|modifica}).
+ */
+public final class NoteSyncToken {
+
+    private static final String SEPARATOR = "|";
+
+    private final long changeId;
+    private final LocalDateTime issuedAt;
+
+    public NoteSyncToken(long changeId, LocalDateTime issuedAt) {
+        this.changeId = changeId;
+        this.issuedAt = issuedAt;
+    }
+
+    /**
+     * @param value token ricevuto dal client
+     * @return token decodificato
+     * @throws IllegalArgumentException se il token non è stato prodotto da {@link #encode()}
+     */
+    public static NoteSyncToken decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Token di sincronizzazione non valido");
+            }
+            return new NoteSyncToken(Long.parseLong(decoded.substring(separator + 1)),
+                    LocalDateTime.parse(decoded.substring(0, separator)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token di sincronizzazione non valido", e);
+        }
+    }
+
+    /**
+     * @return token opaco da restituire al client
+     */
+    public String encode() {
+        String raw = issuedAt + SEPARATOR + changeId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getChangeId() {
+        return changeId;
+    }
+
+    public LocalDateTime getIssuedAt() {
+        return issuedAt;
+    }
+}
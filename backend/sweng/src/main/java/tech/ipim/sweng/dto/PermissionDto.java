@@ -6,7 +6,7 @@ import java.util.List;
  * DTO per la gestione dei permessi di accesso a una risorsa.
  * <p>
  * Contiene il tipo di permesso (es. PRIVATO, CONDIVISO) e le liste
- * degli utenti che hanno permessi di lettura e scrittura.
+ * degli utenti e dei gruppi (per nome) che hanno permessi di lettura e scrittura.
  * <p>
  * Utilizzato per trasferire informazioni sui permessi tra client e server.
  */
@@ -16,6 +16,8 @@ public class PermissionDto {
     private TipoPermesso tipoPermesso;
     private List<String> utentiLettura;
     private List<String> utentiScrittura;
+    private List<String> gruppiLettura;
+    private List<String> gruppiScrittura;
 
     public PermissionDto() { }
 
@@ -48,4 +50,20 @@ public class PermissionDto {
     public void setUtentiScrittura(List<String> utentiScrittura) {
         this.utentiScrittura = utentiScrittura;
     }
+
+    public List<String> getGruppiLettura() {
+        return gruppiLettura;
+    }
+
+    public void setGruppiLettura(List<String> gruppiLettura) {
+        this.gruppiLettura = gruppiLettura;
+    }
+
+    public List<String> getGruppiScrittura() {
+        return gruppiScrittura;
+    }
+
+    public void setGruppiScrittura(List<String> gruppiScrittura) {
+        this.gruppiScrittura = gruppiScrittura;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package tech.ipim.sweng.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con lo stato della reindicizzazione completa degli indici di ricerca.
+ * <p>
+ * Riporta l'avanzamento in blocchi di id e in note elaborate, la velocità media
+ * e una stima del tempo rimanente calcolata sui blocchi già completati.
+ */
+public class ReindexStatusDto {
+
+    /**
+     * Stato della reindicizzazione.
+     */
+    public enum Stato {
+        INATTIVO, IN_CORSO, COMPLETATO, FALLITO
+    }
+
+    private Stato stato;
+    private long totalChunks;
+    private long completedChunks;
+    private long processedNotes;
+    private double percentuale;
+    private double noteAlSecondo;
+    private Long etaSeconds;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errore;
+
+    public ReindexStatusDto() { }
+
+    public static ReindexStatusDto inattivo() {
+        ReindexStatusDto dto = new ReindexStatusDto();
+        dto.setStato(Stato.INATTIVO);
+        return dto;
+    }
+
+    public Stato getStato() {
+        return stato;
+    }
+
+    public void setStato(Stato stato) {
+        this.stato = stato;
+    }
+
+    public long getTotalChunks() {
+        return totalChunks;
+    }
+
+    public void setTotalChunks(long totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    public long getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public void setCompletedChunks(long completedChunks) {
+        this.completedChunks = completedChunks;
+    }
+
+    public long getProcessedNotes() {
+        return processedNotes;
+    }
+
+    public void setProcessedNotes(long processedNotes) {
+        this.processedNotes = processedNotes;
+    }
+
+    public double getPercentuale() {
+        return percentuale;
+    }
+
+    public void setPercentuale(double percentuale) {
+        this.percentuale = percentuale;
+    }
+
+    public double getNoteAlSecondo() {
+        return noteAlSecondo;
+    }
+
+    public void setNoteAlSecondo(double noteAlSecondo) {
+        this.noteAlSecondo = noteAlSecondo;
+    }
+
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getErrore() {
+        return errore;
+    }
+
+    public void setErrore(String errore) {
+        this.errore = errore;
+    }
+}
@@ -0,0 +1,159 @@
+package tech.ipim.sweng.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tech.ipim.sweng.search.TermMatch;
+
+/**
+ * DTO con le corrispondenze di una ricerca all'interno di una nota.
+ * <p>
+ * Riporta gli offset (inizio incluso, fine escluso) delle parole trovate nel titolo e nel
+ * contenuto, più un estratto del contenuto attorno alla prima corrispondenza con i relativi
+ * offset. Il client evidenzia le parti indicate senza interpretare il testo come HTML.
+ * <p>
+ * Gli offset provengono dall'indice di ricerca e sono espressi in unità UTF-16,
+ * come gli indici delle stringhe Java e JavaScript.
+ */
+public class SearchHighlightDto {
+
+    /** Lunghezza massima dell'estratto, esclusi i puntini di sospensione. */
+    static final int SNIPPET_LENGTH = 160;
+    /** Caratteri di contesto mostrati prima della prima corrispondenza. */
+    static final int SNIPPET_CONTEXT = 40;
+    static final String ELLIPSIS = "…";
+
+    private Long noteId;
+    private List<Range> titoloMatches = new ArrayList<>();
+    private List<Range> contenutoMatches = new ArrayList<>();
+    private String snippet;
+    private List<Range> snippetMatches = new ArrayList<>();
+
+    public SearchHighlightDto() { }
+
+    /**
+     * Costruisce le evidenziazioni di una nota a partire dalle occorrenze dell'indice.
+     *
+     * @param noteId    id della nota
+     * @param contenuto contenuto della nota, da cui ritagliare l'estratto
+     * @param matches   occorrenze nel titolo (campo 0) e nel contenuto (campo 1)
+     * @return DTO con offset ed estratto
+     */
+    public static SearchHighlightDto of(Long noteId, String contenuto, List<TermMatch> matches) {
+        SearchHighlightDto dto = new SearchHighlightDto();
+        dto.noteId = noteId;
+        for (TermMatch match : matches) {
+            Range range = new Range(match.getStart(), match.getEnd());
+            if (match.getField() == 0) {
+                dto.titoloMatches.add(range);
+            } else {
+                dto.contenutoMatches.add(range);
+            }
+        }
+        dto.buildSnippet(contenuto == null ? "" : contenuto);
+        return dto;
+    }
+
+    /**
+     * Ritaglia l'estratto attorno alla prima corrispondenza nel contenuto, allineato agli
+     * spazi per non spezzare le parole, e riporta gli offset delle corrispondenze al suo interno.
+     */
+    private void buildSnippet(String text) {
+        int start = 0;
+        if (!contenutoMatches.isEmpty()) {
+            start = Math.max(0, contenutoMatches.get(0).getStart() - SNIPPET_CONTEXT);
+            if (start > 0) {
+                int space = text.indexOf(' ', start);
+                start = space >= 0 && space < contenutoMatches.get(0).getStart() ? space + 1 : start;
+            }
+        }
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        if (end < text.length()) {
+            int space = text.lastIndexOf(' ', end);
+            end = space > start ? space : end;
+        }
+
+        String prefix = start > 0 ? ELLIPSIS : "";
+        String suffix = end < text.length() ? ELLIPSIS : "";
+        snippet = prefix + text.substring(start, end) + suffix;
+
+        int shift = prefix.length() - start;
+        for (Range range : contenutoMatches) {
+            if (range.getStart() >= start && range.getEnd() <= end) {
+                snippetMatches.add(new Range(range.getStart() + shift, range.getEnd() + shift));
+            }
+        }
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public List<Range> getTitoloMatches() {
+        return titoloMatches;
+    }
+
+    public void setTitoloMatches(List<Range> titoloMatches) {
+        this.titoloMatches = titoloMatches;
+    }
+
+    public List<Range> getContenutoMatches() {
+        return contenutoMatches;
+    }
+
+    public void setContenutoMatches(List<Range> contenutoMatches) {
+        this.contenutoMatches = contenutoMatches;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    public List<Range> getSnippetMatches() {
+        return snippetMatches;
+    }
+
+    public void setSnippetMatches(List<Range> snippetMatches) {
+        this.snippetMatches = snippetMatches;
+    }
+
+    /**
+     * Intervallo di testo evidenziato: inizio incluso, fine escluso.
+     */
+    public static class Range {
+
+        private int start;
+        private int end;
+
+        public Range() { }
+
+        public Range(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public void setStart(int start) {
+            this.start = start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public void setEnd(int end) {
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package tech.ipim.sweng.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Risultato della ricerca nella cronologia delle versioni: identifica la versione
+ * (nota e numero di versione) che contiene le parole cercate, con titolo, autore
+ * e data della versione per mostrarla nell'elenco senza caricarne il contenuto.
+ */
+public class VersionSearchHitDto {
+
+    private Long noteId;
+    private Integer versionNumber;
+    private String titolo;
+    private LocalDateTime createdAt;
+    private String createdBy;
+
+    public VersionSearchHitDto() {
+    }
+
+    public VersionSearchHitDto(Long noteId, Integer versionNumber, String titolo, LocalDateTime createdAt, String createdBy) {
+        this.noteId = noteId;
+        this.versionNumber = versionNumber;
+        this.titolo = titolo;
+        this.createdAt = createdAt;
+        this.createdBy = createdBy;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public Integer getVersionNumber() {
+        return versionNumber;
+    }
+
+    public void setVersionNumber(Integer versionNumber) {
+        this.versionNumber = versionNumber;
+    }
+
+    public String getTitolo() {
+        return titolo;
+    }
+
+    public void setTitolo(String titolo) {
+        this.titolo = titolo;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+}
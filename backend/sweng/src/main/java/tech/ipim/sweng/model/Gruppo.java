@@ -0,0 +1,123 @@
+package tech.ipim.sweng.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+/**
+ * Entità JPA che rappresenta un gruppo di utenti con cui condividere le note.
+ * <p>
+ * Una nota condivisa con un gruppo salva una sola riga per il gruppo, indipendentemente dal
+ * numero di membri: l'accesso dei singoli utenti viene risolto tramite l'appartenenza al
+ * gruppo ({@code gruppi_membri}). Aggiungere o rimuovere un membro modifica quindi una sola
+ * riga, senza toccare le note condivise con il gruppo.
+ * <p>
+ * Il nome del gruppo è univoco, perché i permessi delle note fanno riferimento ai gruppi per nome.
+ * Il proprietario gestisce i membri ed è membro del gruppo dalla creazione.
+ */
+
+@Entity
+@Table(name = "gruppi")
+public class Gruppo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 100)
+    @NotBlank(message = "Nome gruppo è obbligatorio")
+    @Size(min = 1, max = 100, message = "Nome gruppo deve essere tra 1 e 100 caratteri")
+    private String nome;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "proprietario_id", nullable = false)
+    private User proprietario;
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "gruppi_membri", joinColumns = @JoinColumn(name = "gruppo_id"),
+            inverseJoinColumns = @JoinColumn(name = "user_id"))
+    private Set<User> membri = new HashSet<>();
+
+    @Column(name = "data_creazione")
+    private LocalDateTime dataCreazione;
+
+    public Gruppo() {
+        this.dataCreazione = LocalDateTime.now();
+    }
+
+    public Gruppo(String nome, User proprietario) {
+        this();
+        this.nome = nome;
+        this.proprietario = proprietario;
+        this.membri.add(proprietario);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    public User getProprietario() {
+        return proprietario;
+    }
+
+    public void setProprietario(User proprietario) {
+        this.proprietario = proprietario;
+    }
+
+    public Set<User> getMembri() {
+        return membri;
+    }
+
+    public void setMembri(Set<User> membri) {
+        this.membri = membri;
+    }
+
+    public LocalDateTime getDataCreazione() {
+        return dataCreazione;
+    }
+
+    public void setDataCreazione(LocalDateTime dataCreazione) {
+        this.dataCreazione = dataCreazione;
+    }
+
+    public boolean isProprietario(String username) {
+        return this.proprietario != null && this.proprietario.getUsername().equals(username);
+    }
+
+    public boolean hasMembro(String username) {
+        return membri.stream().anyMatch(user -> user.getUsername().equals(username));
+    }
+
+    @Override
+    public String toString() {
+        return "Gruppo{"
+                + "id=" + id
+                + ", nome='" + nome + '\''
+                + ", proprietario=" + (proprietario != null ? proprietario.getUsername() : "null")
+                + '}';
+    }
+}
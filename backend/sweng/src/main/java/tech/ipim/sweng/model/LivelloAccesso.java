@@ -0,0 +1,11 @@
+package tech.ipim.sweng.model;
+
+/**
+ * Livello di accesso di un utente o di un gruppo a una nota, materializzato in
+ * {@link NoteAccess} e {@link NoteGroupAccess}.
+ */
+public enum LivelloAccesso {
+    LETTURA,
+    SCRITTURA,
+    PROPRIETARIO
+}
@@ -10,7 +10,10 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
+import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
@@ -18,6 +21,7 @@ import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 /**
@@ -32,15 +36,17 @@ import java.util.Set;
  * - contenuto obbligatorio, max 280 caratteri
  * 
  * Supporta permessi di accesso tramite enumerazione {@link TipoPermesso} e liste di utenti
- * autorizzati a leggere o scrivere.
+ * e di gruppi ({@link Gruppo}) autorizzati a leggere o scrivere.
  * 
  * Supporta un sistema di blocco per evitare modifiche concorrenti (lock con scadenza e utente).
  * 
  * Gestisce versionamento tramite un numero di versione incrementale.
+ * 
+ * L'indice su (data_modifica, id) serve agli elenchi paginati con cursore ({@link tech.ipim.sweng.dto.NoteCursor}).
  */
 
 @Entity
-@Table(name = "notes")
+@Table(name = "notes", indexes = @Index(name = "idx_notes_data_modifica_id", columnList = "data_modifica DESC, id DESC"))
 public class Note {
 
     @Id
@@ -81,15 +87,27 @@ public class Note {
     @Column(name = "tipo_permesso")
     private TipoPermesso tipoPermesso = TipoPermesso.PRIVATA;
 
-    @ElementCollection
-    @CollectionTable(name = "note_permessi_lettura", joinColumns = @JoinColumn(name = "note_id"))
-    @Column(name = "username")
-    private Set<String> permessiLettura = new HashSet<>();
+    // Utenti con cui la nota è condivisa, salvati per id utente (chiave esterna su users)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "note_permessi_lettura", joinColumns = @JoinColumn(name = "note_id"),
+            inverseJoinColumns = @JoinColumn(name = "user_id"))
+    private Set<User> lettori = new HashSet<>();
 
-    @ElementCollection
-    @CollectionTable(name = "note_permessi_scrittura", joinColumns = @JoinColumn(name = "note_id"))
-    @Column(name = "username")
-    private Set<String> permessiScrittura = new HashSet<>();
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "note_permessi_scrittura", joinColumns = @JoinColumn(name = "note_id"),
+            inverseJoinColumns = @JoinColumn(name = "user_id"))
+    private Set<User> scrittori = new HashSet<>();
+
+    // Gruppi con cui la nota è condivisa: una riga per gruppo, qualunque sia il numero di membri
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "note_gruppi_lettura", joinColumns = @JoinColumn(name = "note_id"),
+            inverseJoinColumns = @JoinColumn(name = "gruppo_id"))
+    private Set<Gruppo> gruppiLettura = new HashSet<>();
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "note_gruppi_scrittura", joinColumns = @JoinColumn(name = "note_id"),
+            inverseJoinColumns = @JoinColumn(name = "gruppo_id"))
+    private Set<Gruppo> gruppiScrittura = new HashSet<>();
 
     // Campi per il sistema di blocco
     @Column(name = "is_locked_for_editing")
@@ -203,20 +221,78 @@ public class Note {
         this.tipoPermesso = tipoPermesso;
     }
 
-    public Set<String> getPermessiLettura() {
-        return permessiLettura;
+    public Set<User> getLettori() {
+        return lettori;
+    }
+
+    public void setLettori(Set<User> lettori) {
+        this.lettori = lettori;
+    }
+
+    public Set<User> getScrittori() {
+        return scrittori;
     }
 
-    public void setPermessiLettura(Set<String> permessiLettura) {
-        this.permessiLettura = permessiLettura;
+    public void setScrittori(Set<User> scrittori) {
+        this.scrittori = scrittori;
     }
 
+    /**
+     * @return username degli utenti con permesso di lettura (vista non modificabile)
+     */
+    public Set<String> getPermessiLettura() {
+        return usernames(lettori);
+    }
+
+    /**
+     * @return username degli utenti con permesso di scrittura (vista non modificabile)
+     */
     public Set<String> getPermessiScrittura() {
-        return permessiScrittura;
+        return usernames(scrittori);
+    }
+
+    public Set<Gruppo> getGruppiLettura() {
+        return gruppiLettura;
     }
 
-    public void setPermessiScrittura(Set<String> permessiScrittura) {
-        this.permessiScrittura = permessiScrittura;
+    public void setGruppiLettura(Set<Gruppo> gruppiLettura) {
+        this.gruppiLettura = gruppiLettura;
+    }
+
+    public Set<Gruppo> getGruppiScrittura() {
+        return gruppiScrittura;
+    }
+
+    public void setGruppiScrittura(Set<Gruppo> gruppiScrittura) {
+        this.gruppiScrittura = gruppiScrittura;
+    }
+
+    /**
+     * @return nomi dei gruppi con permesso di lettura (vista non modificabile)
+     */
+    public Set<String> getNomiGruppiLettura() {
+        return nomi(gruppiLettura);
+    }
+
+    /**
+     * @return nomi dei gruppi con permesso di scrittura (vista non modificabile)
+     */
+    public Set<String> getNomiGruppiScrittura() {
+        return nomi(gruppiScrittura);
+    }
+
+    /**
+     * @return username dei membri dei gruppi con cui la nota è condivisa in lettura o scrittura
+     */
+    public Set<String> getMembriGruppi() {
+        Set<String> membri = new HashSet<>();
+        for (Gruppo gruppo : gruppiLettura) {
+            membri.addAll(usernames(gruppo.getMembri()));
+        }
+        for (Gruppo gruppo : gruppiScrittura) {
+            membri.addAll(usernames(gruppo.getMembri()));
+        }
+        return Collections.unmodifiableSet(membri);
     }
 
     // Getters e Setters per il sistema di blocco
@@ -268,7 +344,7 @@ public class Note {
 
         // Solo le note condivise in scrittura permettono la scrittura ad altri
         if (tipoPermesso == TipoPermesso.CONDIVISA_SCRITTURA) {
-            return permessiScrittura.contains(username);
+            return contains(scrittori, username) || hasMembro(gruppiScrittura, username);
         }
 
         // Tutte le altre situazioni: no accesso in scrittura
@@ -288,17 +364,54 @@ public class Note {
 
         // Nota condivisa in lettura: controlla lista lettura
         if (tipoPermesso == TipoPermesso.CONDIVISA_LETTURA) {
-            return permessiLettura.contains(username);
+            return contains(lettori, username) || hasMembro(gruppiLettura, username);
         }
 
         // Nota condivisa in scrittura: controlla ENTRAMBE le liste
         if (tipoPermesso == TipoPermesso.CONDIVISA_SCRITTURA) {
-            return permessiLettura.contains(username) || permessiScrittura.contains(username);
+            return contains(lettori, username) || contains(scrittori, username)
+                    || hasMembro(gruppiLettura, username) || hasMembro(gruppiScrittura, username);
         }
 
         return false;
     }
 
+    /**
+     * Rimuove un utente dalle liste di lettura e scrittura.
+     *
+     * @param username utente da rimuovere
+     * @return true se l'utente era presente in almeno una delle due liste
+     */
+    public boolean removeFromSharing(String username) {
+        boolean removedReader = lettori.removeIf(user -> user.getUsername().equals(username));
+        boolean removedWriter = scrittori.removeIf(user -> user.getUsername().equals(username));
+        return removedReader || removedWriter;
+    }
+
+    private static boolean contains(Set<User> users, String username) {
+        return users.stream().anyMatch(user -> user.getUsername().equals(username));
+    }
+
+    private static boolean hasMembro(Set<Gruppo> gruppi, String username) {
+        return gruppi.stream().anyMatch(gruppo -> gruppo.hasMembro(username));
+    }
+
+    private static Set<String> nomi(Set<Gruppo> gruppi) {
+        Set<String> nomi = new HashSet<>();
+        for (Gruppo gruppo : gruppi) {
+            nomi.add(gruppo.getNome());
+        }
+        return Collections.unmodifiableSet(nomi);
+    }
+
+    private static Set<String> usernames(Set<User> users) {
+        Set<String> usernames = new HashSet<>();
+        for (User user : users) {
+            usernames.add(user.getUsername());
+        }
+        return Collections.unmodifiableSet(usernames);
+    }
+
     // Metodi legacy per compatibilità (se necessari)
     public boolean haPermessoLettura(String username) {
         return hasReadAccess(username);
@@ -0,0 +1,113 @@
+package tech.ipim.sweng.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+/**
+ * Entità JPA che materializza chi può accedere a quale nota.
+ * 
+ * Per ogni nota contiene una riga per l'autore e una per ogni utente con cui è
+ * condivisa, calcolate con le stesse regole di {@link Note#hasReadAccess(String)} e
+ * {@link Note#hasWriteAccess(String)}. Le query sulle note accessibili diventano così un
+ * join sulla chiave primaria (user_id, note_id) invece di una catena di OR con
+ * sottoquery sulle tabelle dei permessi.
+ * 
+ * Le righe sono scritte da NoteService nella stessa transazione che modifica la nota.
+ * 
+ * Campi:
+ * - userId: ID dell'utente
+ * - noteId: ID della nota
+ * - livello: livello di accesso dell'utente alla nota
+ */
+
+@Entity
+@IdClass(NoteAccess.Key.class)
+@Table(name = "note_access", indexes = @Index(name = "idx_note_access_note", columnList = "note_id"))
+public class NoteAccess {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Id
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "access_level", nullable = false, length = 20)
+    private LivelloAccesso livello;
+
+    public NoteAccess() {
+    }
+
+    public NoteAccess(Long userId, Long noteId, LivelloAccesso livello) {
+        this.userId = userId;
+        this.noteId = noteId;
+        this.livello = livello;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public LivelloAccesso getLivello() {
+        return livello;
+    }
+
+    public void setLivello(LivelloAccesso livello) {
+        this.livello = livello;
+    }
+
+    /**
+     * Chiave primaria composta (utente, nota).
+     */
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private Long noteId;
+
+        public Key() {
+        }
+
+        public Key(Long userId, Long noteId) {
+            this.userId = userId;
+            this.noteId = noteId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(userId, other.userId) && Objects.equals(noteId, other.noteId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, noteId);
+        }
+    }
+}
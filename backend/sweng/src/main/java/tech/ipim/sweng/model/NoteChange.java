@@ -0,0 +1,90 @@
+package tech.ipim.sweng.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+/**
+ * Entità JPA che registra una modifica di una nota per la sincronizzazione incrementale
+ * dei client ({@code GET /api/notes/changes}).
+ *
+ * L'id cresce a ogni modifica ed è la posizione nel registro usata dal token di
+ * sincronizzazione. Una riga senza utente indica che la nota è cambiata (creazione,
+ * modifica, nuovi permessi) e vale per chiunque vi abbia accesso; una riga con utente
+ * indica che l'accesso di quell'utente alla nota può essere cambiato: se l'utente non
+ * vede più la nota, il client la riceve tra le note rimosse.
+ *
+ * Le righe più vecchie del periodo di conservazione vengono eliminate periodicamente.
+ *
+ * Campi:
+ * - id: posizione della modifica nel registro
+ * - noteId: ID della nota
+ * - userId: ID dell'utente il cui accesso può essere cambiato, null per le modifiche della nota
+ * - dataModifica: data/ora della modifica
+ */
+
+@Entity
+@Table(name = "note_changes", indexes = {
+        @Index(name = "idx_note_changes_user", columnList = "user_id, id"),
+        @Index(name = "idx_note_changes_data", columnList = "data_modifica")
+})
+public class NoteChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "data_modifica", nullable = false)
+    private LocalDateTime dataModifica;
+
+    public NoteChange() {
+    }
+
+    public NoteChange(Long noteId, Long userId, LocalDateTime dataModifica) {
+        this.noteId = noteId;
+        this.userId = userId;
+        this.dataModifica = dataModifica;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getDataModifica() {
+        return dataModifica;
+    }
+
+    public void setDataModifica(LocalDateTime dataModifica) {
+        this.dataModifica = dataModifica;
+    }
+}
@@ -0,0 +1,111 @@
+package tech.ipim.sweng.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+/**
+ * Entità JPA che materializza quali gruppi possono accedere a quale nota.
+ *
+ * È l'equivalente di {@link NoteAccess} per i gruppi: una riga per ogni gruppo con cui la
+ * nota è condivisa, con il livello calcolato dal tipo di permesso della nota. L'accesso di
+ * un utente tramite gruppo si ottiene unendo queste righe con l'appartenenza ai gruppi,
+ * quindi una condivisione con un gruppo costa una riga per nota e un cambio di membri
+ * non richiede di ricalcolare le note.
+ *
+ * Campi:
+ * - gruppoId: ID del gruppo
+ * - noteId: ID della nota
+ * - livello: livello di accesso dei membri del gruppo alla nota (LETTURA o SCRITTURA)
+ */
+
+@Entity
+@IdClass(NoteGroupAccess.Key.class)
+@Table(name = "note_group_access", indexes = @Index(name = "idx_note_group_access_note", columnList = "note_id"))
+public class NoteGroupAccess {
+
+    @Id
+    @Column(name = "gruppo_id", nullable = false)
+    private Long gruppoId;
+
+    @Id
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "access_level", nullable = false, length = 20)
+    private LivelloAccesso livello;
+
+    public NoteGroupAccess() {
+    }
+
+    public NoteGroupAccess(Long gruppoId, Long noteId, LivelloAccesso livello) {
+        this.gruppoId = gruppoId;
+        this.noteId = noteId;
+        this.livello = livello;
+    }
+
+    public Long getGruppoId() {
+        return gruppoId;
+    }
+
+    public void setGruppoId(Long gruppoId) {
+        this.gruppoId = gruppoId;
+    }
+
+    public Long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(Long noteId) {
+        this.noteId = noteId;
+    }
+
+    public LivelloAccesso getLivello() {
+        return livello;
+    }
+
+    public void setLivello(LivelloAccesso livello) {
+        this.livello = livello;
+    }
+
+    /**
+     * Chiave primaria composta (gruppo, nota).
+     */
+    public static class Key implements Serializable {
+
+        private Long gruppoId;
+        private Long noteId;
+
+        public Key() {
+        }
+
+        public Key(Long gruppoId, Long noteId) {
+            this.gruppoId = gruppoId;
+            this.noteId = noteId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(gruppoId, other.gruppoId) && Objects.equals(noteId, other.noteId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gruppoId, noteId);
+        }
+    }
+}
@@ -40,8 +40,8 @@ public interface CartellaRepository extends JpaRepository<Cartella, Long> {
     List<Cartella> findByUsername(@Param("username") String username);
 
     /**
-     * Trova cartella per ID e username del proprietario
+     * Trova cartella per ID e username del proprietario, caricando il proprietario nella stessa query
      */
-    @Query("SELECT c FROM Cartella c WHERE c.id = :id AND c.proprietario.username = :username")
+    @Query("SELECT c FROM Cartella c JOIN FETCH c.proprietario p WHERE c.id = :id AND p.username = :username")
     Optional<Cartella> findByIdAndUsername(@Param("id") Long id, @Param("username") String username);
 }
\ No newline at end of file
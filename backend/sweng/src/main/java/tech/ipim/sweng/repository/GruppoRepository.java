@@ -0,0 +1,92 @@
+package tech.ipim.sweng.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import tech.ipim.sweng.model.Gruppo;
+
+@Repository
+public interface GruppoRepository extends JpaRepository<Gruppo, Long> {
+
+    /**
+     * Trova un gruppo per nome
+     */
+    Optional<Gruppo> findByNome(String nome);
+
+    /**
+     * Verifica se esiste già un gruppo con lo stesso nome
+     */
+    boolean existsByNome(String nome);
+
+    /**
+     * Trova i gruppi con i nomi indicati, per la configurazione dei permessi delle note
+     */
+    List<Gruppo> findByNomeIn(Collection<String> nomi);
+
+    /**
+     * Trova gli id dei gruppi con i nomi indicati
+     */
+    @Query("SELECT g.id FROM Gruppo g WHERE g.nome IN :nomi")
+    List<Long> findIdsByNomeIn(@Param("nomi") Collection<String> nomi);
+
+    /**
+     * Trova i gruppi di cui l'utente è membro, ordinati per nome
+     */
+    @Query("SELECT g FROM Gruppo g JOIN g.membri m WHERE m.username = :username ORDER BY g.nome")
+    List<Gruppo> findByMembro(@Param("username") String username);
+
+    /**
+     * Recupera i nomi dei gruppi di cui l'utente è membro, per calcolare i permessi nelle proiezioni delle note
+     */
+    @Query("SELECT g.nome FROM Gruppo g JOIN g.membri m WHERE m.username = :username")
+    List<String> findNomiByMembro(@Param("username") String username);
+
+    /**
+     * Recupera gli id dei gruppi di cui l'utente è membro, per l'indice delle appartenenze
+     */
+    @Query("SELECT g.id FROM Gruppo g JOIN g.membri m WHERE m.id = :userId")
+    List<Long> findIdsByMembroId(@Param("userId") Long userId);
+
+    /**
+     * Recupera gli username dei membri dei gruppi indicati
+     */
+    @Query("SELECT DISTINCT m.username FROM Gruppo g JOIN g.membri m WHERE g.id IN :gruppoIds")
+    List<String> findMemberUsernames(@Param("gruppoIds") Collection<Long> gruppoIds);
+
+    /**
+     * Recupera gli id delle note condivise con il gruppo, in lettura o in scrittura
+     */
+    @Query(value = "SELECT note_id FROM note_gruppi_lettura WHERE gruppo_id = :gruppoId "
+            + "UNION SELECT note_id FROM note_gruppi_scrittura WHERE gruppo_id = :gruppoId", nativeQuery = true)
+    List<Long> findSharedNoteIds(@Param("gruppoId") Long gruppoId);
+
+    /**
+     * Rimuove il gruppo dai permessi di lettura di tutte le note
+     */
+    @Modifying
+    @Query(value = "DELETE FROM note_gruppi_lettura WHERE gruppo_id = :gruppoId", nativeQuery = true)
+    void deleteReadShares(@Param("gruppoId") Long gruppoId);
+
+    /**
+     * Rimuove il gruppo dai permessi di scrittura di tutte le note
+     */
+    @Modifying
+    @Query(value = "DELETE FROM note_gruppi_scrittura WHERE gruppo_id = :gruppoId", nativeQuery = true)
+    void deleteWriteShares(@Param("gruppoId") Long gruppoId);
+
+    /**
+     * Aggiorna la data di modifica delle note che erano condivise con un gruppo eliminato,
+     * così che gli ETag delle note e degli elenchi cambino
+     */
+    @Modifying
+    @Query("UPDATE Note n SET n.dataModifica = :dataModifica WHERE n.id IN :noteIds")
+    void touchNotes(@Param("noteIds") Collection<Long> noteIds, @Param("dataModifica") LocalDateTime dataModifica);
+}
@@ -0,0 +1,135 @@
+package tech.ipim.sweng.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import tech.ipim.sweng.model.NoteAccess;
+
+/**
+ * Repository della tabella materializzata {@code note_access}.
+ * <p>
+ * Le righe sono ricalcolate con istruzioni INSERT ... SELECT sulle tabelle delle note e
+ * dei permessi, per una singola nota o per tutte: l'autore ha livello PROPRIETARIO, gli
+ * utenti in scrittura di una nota condivisa in scrittura SCRITTURA, gli utenti in lettura
+ * di una nota condivisa LETTURA. Le istruzioni leggono dal database, quindi la nota
+ * deve essere già stata salvata con flush.
+ */
+@Repository
+public interface NoteAccessRepository extends JpaRepository<NoteAccess, NoteAccess.Key> {
+
+    String INSERT_OWNERS = "INSERT INTO note_access (user_id, note_id, access_level) "
+            + "SELECT n.autore_id, n.id, 'PROPRIETARIO' FROM notes n WHERE n.autore_id IS NOT NULL";
+
+    String INSERT_WRITERS = "INSERT INTO note_access (user_id, note_id, access_level) "
+            + "SELECT p.user_id, n.id, 'SCRITTURA' FROM notes n "
+            + "JOIN note_permessi_scrittura p ON p.note_id = n.id "
+            + "WHERE n.tipo_permesso = 'CONDIVISA_SCRITTURA' AND p.user_id <> n.autore_id";
+
+    String INSERT_READERS = "INSERT INTO note_access (user_id, note_id, access_level) "
+            + "SELECT p.user_id, n.id, 'LETTURA' FROM notes n "
+            + "JOIN note_permessi_lettura p ON p.note_id = n.id "
+            + "WHERE n.tipo_permesso IN ('CONDIVISA_LETTURA', 'CONDIVISA_SCRITTURA') AND p.user_id <> n.autore_id "
+            + "AND NOT EXISTS (SELECT 1 FROM note_access a WHERE a.user_id = p.user_id AND a.note_id = n.id)";
+
+    /**
+     * Recupera utente, livello di accesso e tipo di permesso della nota per tutte le righe
+     * di accesso di una nota, per la cache dei permessi
+     */
+    @Query("SELECT a.userId, a.livello, n.tipoPermesso FROM NoteAccess a JOIN Note n ON n.id = a.noteId WHERE a.noteId = :noteId")
+    List<Object[]> findAclRows(@Param("noteId") Long noteId);
+
+    /**
+     * Recupera, in ordine di id, le note successive ad {@code afterId} senza la riga del proprietario,
+     * per il popolamento della tabella all'avvio
+     */
+    @Query("SELECT n.id FROM Note n WHERE n.id > :afterId AND NOT EXISTS (SELECT a.noteId FROM NoteAccess a "
+            + "WHERE a.noteId = n.id AND a.livello = tech.ipim.sweng.model.LivelloAccesso.PROPRIETARIO) ORDER BY n.id")
+    List<Long> findNoteIdsWithoutOwner(@Param("afterId") long afterId, Pageable page);
+
+    /**
+     * Elimina tutte le righe di accesso di una nota
+     */
+    @Modifying
+    @Query("DELETE FROM NoteAccess a WHERE a.noteId = :noteId")
+    void deleteByNoteId(@Param("noteId") Long noteId);
+
+    @Modifying
+    @Query(value = INSERT_OWNERS + " AND n.id = :noteId", nativeQuery = true)
+    void insertOwner(@Param("noteId") Long noteId);
+
+    @Modifying
+    @Query(value = INSERT_WRITERS + " AND n.id = :noteId", nativeQuery = true)
+    void insertWriters(@Param("noteId") Long noteId);
+
+    @Modifying
+    @Query(value = INSERT_READERS + " AND n.id = :noteId", nativeQuery = true)
+    void insertReaders(@Param("noteId") Long noteId);
+
+    /**
+     * Elimina tutte le righe di accesso delle note indicate
+     */
+    @Modifying
+    @Query("DELETE FROM NoteAccess a WHERE a.noteId IN :noteIds")
+    void deleteByNoteIds(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_OWNERS + " AND n.id IN (:noteIds)", nativeQuery = true)
+    void insertOwners(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_WRITERS + " AND n.id IN (:noteIds)", nativeQuery = true)
+    void insertWriters(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_READERS + " AND n.id IN (:noteIds)", nativeQuery = true)
+    void insertReaders(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_OWNERS, nativeQuery = true)
+    int insertAllOwners();
+
+    @Modifying
+    @Query(value = INSERT_WRITERS, nativeQuery = true)
+    int insertAllWriters();
+
+    @Modifying
+    @Query(value = INSERT_READERS, nativeQuery = true)
+    int insertAllReaders();
+
+    /**
+     * Ricalcola le righe di accesso di una nota dai suoi permessi attuali
+     */
+    default void refresh(Long noteId) {
+        deleteByNoteId(noteId);
+        insertOwner(noteId);
+        insertWriters(noteId);
+        insertReaders(noteId);
+    }
+
+    /**
+     * Ricalcola le righe di accesso di più note con quattro istruzioni in tutto
+     */
+    default void refresh(Collection<Long> noteIds) {
+        deleteByNoteIds(noteIds);
+        insertOwners(noteIds);
+        insertWriters(noteIds);
+        insertReaders(noteIds);
+    }
+
+    /**
+     * Ricalcola le righe di accesso di tutte le note
+     *
+     * @return numero di righe scritte
+     */
+    default int rebuildAll() {
+        deleteAllInBatch();
+        return insertAllOwners() + insertAllWriters() + insertAllReaders();
+    }
+}
@@ -0,0 +1,86 @@
+package tech.ipim.sweng.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import tech.ipim.sweng.model.NoteChange;
+
+/**
+ * Repository del registro delle modifiche {@code note_changes}.
+ * <p>
+ * Le righe per utente sono scritte con istruzioni INSERT ... SELECT sulle tabelle degli
+ * accessi e dei membri dei gruppi, prima che gli accessi cambino: ogni utente che poteva
+ * vedere la nota riceve una riga, anche se poi continua a vederla. Chi legge il registro
+ * scarta queste righe per le note ancora accessibili.
+ */
+@Repository
+public interface NoteChangeRepository extends JpaRepository<NoteChange, Long> {
+
+    String INSERT_CHANGES = "INSERT INTO note_changes (note_id, user_id, data_modifica) ";
+
+    /**
+     * Posizione dell'ultima modifica registrata, 0 se il registro è vuoto
+     */
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM NoteChange c")
+    long findLastId();
+
+    /**
+     * Recupera le note da sincronizzare per l'utente tra le posizioni indicate: le note
+     * accessibili modificate e le note il cui accesso dell'utente può essere cambiato.
+     * Le modifiche delle note che l'utente non vede non vengono lette. Sono incluse anche
+     * le modifiche registrate dopo {@code margin}, per quelle di transazioni non ancora
+     * concluse quando è stata letta la posizione {@code since}.
+     */
+    @Query("SELECT DISTINCT c.noteId FROM NoteChange c WHERE c.id <= :until AND (c.id > :since OR c.dataModifica >= :margin) "
+            + "AND (c.userId = (SELECT u.id FROM User u WHERE u.username = :username) "
+            + "OR (c.userId IS NULL AND c.noteId IN (SELECT a.noteId FROM NoteAccess a JOIN User u ON u.id = a.userId "
+            + "WHERE u.username = :username UNION SELECT ga.noteId FROM NoteGroupAccess ga JOIN Gruppo g ON g.id = ga.gruppoId "
+            + "JOIN g.membri m WHERE m.username = :username)))")
+    List<Long> findChangedNoteIds(@Param("username") String username, @Param("since") long since,
+                                  @Param("margin") LocalDateTime margin, @Param("until") long until);
+
+    /**
+     * Registra, per ogni utente che accede alle note indicate direttamente o tramite un gruppo,
+     * che il suo accesso può cambiare
+     */
+    @Modifying
+    @Query(value = INSERT_CHANGES
+            + "SELECT a.note_id, a.user_id, CAST(:dataModifica AS TIMESTAMP) FROM note_access a WHERE a.note_id IN (:noteIds) "
+            + "UNION SELECT ga.note_id, m.user_id, CAST(:dataModifica AS TIMESTAMP) FROM note_group_access ga "
+            + "JOIN gruppi_membri m ON m.gruppo_id = ga.gruppo_id WHERE ga.note_id IN (:noteIds)", nativeQuery = true)
+    void insertAccessChanges(@Param("noteIds") Collection<Long> noteIds, @Param("dataModifica") LocalDateTime dataModifica);
+
+    /**
+     * Registra, per ogni membro del gruppo, che il suo accesso alle note condivise con il gruppo può cambiare
+     */
+    @Modifying
+    @Query(value = INSERT_CHANGES
+            + "SELECT ga.note_id, m.user_id, CAST(:dataModifica AS TIMESTAMP) FROM note_group_access ga "
+            + "JOIN gruppi_membri m ON m.gruppo_id = ga.gruppo_id WHERE ga.gruppo_id = :gruppoId", nativeQuery = true)
+    void insertGroupChanges(@Param("gruppoId") Long gruppoId, @Param("dataModifica") LocalDateTime dataModifica);
+
+    /**
+     * Registra che l'accesso dell'utente alle note condivise con il gruppo può cambiare
+     */
+    @Modifying
+    @Query(value = INSERT_CHANGES
+            + "SELECT ga.note_id, CAST(:userId AS BIGINT), CAST(:dataModifica AS TIMESTAMP) FROM note_group_access ga WHERE ga.gruppo_id = :gruppoId", nativeQuery = true)
+    void insertMemberChanges(@Param("gruppoId") Long gruppoId, @Param("userId") Long userId,
+                             @Param("dataModifica") LocalDateTime dataModifica);
+
+    /**
+     * Elimina le modifiche registrate prima della data indicata
+     *
+     * @return numero di righe eliminate
+     */
+    @Modifying
+    @Query("DELETE FROM NoteChange c WHERE c.dataModifica < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
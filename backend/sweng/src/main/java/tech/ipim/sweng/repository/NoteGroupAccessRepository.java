@@ -0,0 +1,114 @@
+package tech.ipim.sweng.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import tech.ipim.sweng.model.NoteGroupAccess;
+
+/**
+ * Repository della tabella materializzata {@code note_group_access}.
+ * <p>
+ * Come per {@link NoteAccessRepository}, le righe sono ricalcolate con istruzioni
+ * INSERT ... SELECT sulle tabelle delle note e dei gruppi: i gruppi in scrittura di una
+ * nota condivisa in scrittura hanno livello SCRITTURA, i gruppi in lettura di una nota
+ * condivisa LETTURA. L'appartenenza ai gruppi non compare in questa tabella.
+ */
+@Repository
+public interface NoteGroupAccessRepository extends JpaRepository<NoteGroupAccess, NoteGroupAccess.Key> {
+
+    String INSERT_WRITERS = "INSERT INTO note_group_access (gruppo_id, note_id, access_level) "
+            + "SELECT p.gruppo_id, n.id, 'SCRITTURA' FROM notes n "
+            + "JOIN note_gruppi_scrittura p ON p.note_id = n.id "
+            + "WHERE n.tipo_permesso = 'CONDIVISA_SCRITTURA'";
+
+    String INSERT_READERS = "INSERT INTO note_group_access (gruppo_id, note_id, access_level) "
+            + "SELECT p.gruppo_id, n.id, 'LETTURA' FROM notes n "
+            + "JOIN note_gruppi_lettura p ON p.note_id = n.id "
+            + "WHERE n.tipo_permesso IN ('CONDIVISA_LETTURA', 'CONDIVISA_SCRITTURA') "
+            + "AND NOT EXISTS (SELECT 1 FROM note_group_access a WHERE a.gruppo_id = p.gruppo_id AND a.note_id = n.id)";
+
+    /**
+     * Recupera gruppo e livello di accesso per tutte le righe di una nota, per la cache dei permessi
+     */
+    @Query("SELECT a.gruppoId, a.livello FROM NoteGroupAccess a WHERE a.noteId = :noteId")
+    List<Object[]> findAclRows(@Param("noteId") Long noteId);
+
+    /**
+     * Elimina tutte le righe di accesso di una nota
+     */
+    @Modifying
+    @Query("DELETE FROM NoteGroupAccess a WHERE a.noteId = :noteId")
+    void deleteByNoteId(@Param("noteId") Long noteId);
+
+    /**
+     * Elimina tutte le righe di accesso di un gruppo
+     */
+    @Modifying
+    @Query("DELETE FROM NoteGroupAccess a WHERE a.gruppoId = :gruppoId")
+    void deleteByGruppoId(@Param("gruppoId") Long gruppoId);
+
+    @Modifying
+    @Query(value = INSERT_WRITERS + " AND n.id = :noteId", nativeQuery = true)
+    void insertWriters(@Param("noteId") Long noteId);
+
+    @Modifying
+    @Query(value = INSERT_READERS + " AND n.id = :noteId", nativeQuery = true)
+    void insertReaders(@Param("noteId") Long noteId);
+
+    /**
+     * Elimina tutte le righe di accesso delle note indicate
+     */
+    @Modifying
+    @Query("DELETE FROM NoteGroupAccess a WHERE a.noteId IN :noteIds")
+    void deleteByNoteIds(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_WRITERS + " AND n.id IN (:noteIds)", nativeQuery = true)
+    void insertWriters(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_READERS + " AND n.id IN (:noteIds)", nativeQuery = true)
+    void insertReaders(@Param("noteIds") Collection<Long> noteIds);
+
+    @Modifying
+    @Query(value = INSERT_WRITERS, nativeQuery = true)
+    int insertAllWriters();
+
+    @Modifying
+    @Query(value = INSERT_READERS, nativeQuery = true)
+    int insertAllReaders();
+
+    /**
+     * Ricalcola le righe di accesso di una nota dai suoi gruppi attuali
+     */
+    default void refresh(Long noteId) {
+        deleteByNoteId(noteId);
+        insertWriters(noteId);
+        insertReaders(noteId);
+    }
+
+    /**
+     * Ricalcola le righe di accesso di più note con tre istruzioni in tutto
+     */
+    default void refresh(Collection<Long> noteIds) {
+        deleteByNoteIds(noteIds);
+        insertWriters(noteIds);
+        insertReaders(noteIds);
+    }
+
+    /**
+     * Ricalcola le righe di accesso di tutte le note
+     *
+     * @return numero di righe scritte
+     */
+    default int rebuildAll() {
+        deleteAllInBatch();
+        return insertAllWriters() + insertAllReaders();
+    }
+}
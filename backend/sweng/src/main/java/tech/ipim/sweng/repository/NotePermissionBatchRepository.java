@@ -0,0 +1,112 @@
+package tech.ipim.sweng.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import tech.ipim.sweng.model.TipoPermesso;
+
+/**
+ * Accesso JDBC alle tabelle dei permessi delle note per le modifiche di molte note insieme.
+ * <p>
+ * Al posto di caricare e salvare ogni nota con le sue collezioni, legge le righe attuali
+ * con una query per tabella e scrive solo le differenze con INSERT e DELETE in batch JDBC:
+ * il numero di istruzioni non dipende dal numero di note. Le istruzioni partecipano alla
+ * transazione corrente.
+ */
+@Repository
+public class NotePermissionBatchRepository {
+
+    /**
+     * Tabelle dei permessi, con la colonna dell'utente o del gruppo autorizzato
+     */
+    public enum Tabella {
+        LETTURA("note_permessi_lettura", "user_id"),
+        SCRITTURA("note_permessi_scrittura", "user_id"),
+        GRUPPI_LETTURA("note_gruppi_lettura", "gruppo_id"),
+        GRUPPI_SCRITTURA("note_gruppi_scrittura", "gruppo_id");
+
+        private final String tableName;
+        private final String principalColumn;
+
+        Tabella(String tableName, String principalColumn) {
+            this.tableName = tableName;
+            this.principalColumn = principalColumn;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public NotePermissionBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * @return per ogni nota gli id degli utenti o dei gruppi presenti nella tabella (solo note con almeno una riga)
+     */
+    public Map<Long, Set<Long>> findPrincipalIds(Tabella tabella, Collection<Long> noteIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        namedJdbcTemplate.query("SELECT note_id, " + tabella.principalColumn + " FROM " + tabella.tableName
+                        + " WHERE note_id IN (:noteIds)",
+                new MapSqlParameterSource("noteIds", noteIds),
+                rs -> {
+                    result.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getLong(2));
+                });
+        return result;
+    }
+
+    /**
+     * Inserisce le coppie (id nota, id utente o gruppo) con un unico batch.
+     */
+    public void insert(Tabella tabella, List<long[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + tabella.tableName + " (note_id, " + tabella.principalColumn + ") VALUES (?, ?)",
+                rows, rows.size(), (statement, row) -> {
+                    statement.setLong(1, row[0]);
+                    statement.setLong(2, row[1]);
+                });
+    }
+
+    /**
+     * Elimina le coppie (id nota, id utente o gruppo) con un unico batch.
+     */
+    public void delete(Tabella tabella, List<long[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM " + tabella.tableName + " WHERE note_id = ? AND " + tabella.principalColumn + " = ?",
+                rows, rows.size(), (statement, row) -> {
+                    statement.setLong(1, row[0]);
+                    statement.setLong(2, row[1]);
+                });
+    }
+
+    /**
+     * Imposta tipo di permesso e data di modifica delle note indicate.
+     *
+     * @return numero di note aggiornate
+     */
+    public int updateTipoPermesso(Collection<Long> noteIds, TipoPermesso tipoPermesso, LocalDateTime dataModifica) {
+        if (noteIds.isEmpty()) {
+            return 0;
+        }
+        return namedJdbcTemplate.update("UPDATE notes SET tipo_permesso = :tipo, data_modifica = :data WHERE id IN (:noteIds)",
+                new MapSqlParameterSource("noteIds", noteIds)
+                        .addValue("tipo", tipoPermesso.name())
+                        .addValue("data", Timestamp.valueOf(dataModifica)));
+    }
+}
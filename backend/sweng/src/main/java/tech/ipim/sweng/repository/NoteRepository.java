@@ -1,19 +1,35 @@
 package tech.ipim.sweng.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteSummaryDto;
 import tech.ipim.sweng.model.Note;
 import tech.ipim.sweng.model.User;
 
 @Repository
-public interface NoteRepository extends JpaRepository<Note, Long> {
+public interface NoteRepository extends JpaRepository<Note, Long>, JpaSpecificationExecutor<Note>, NoteRepositoryCustom {
+
+    /**
+     * Limita le note a quelle accessibili a {@code :username}: le righe dell'utente nella tabella
+     * materializzata degli accessi (vedi {@link tech.ipim.sweng.model.NoteAccess}) più le righe dei
+     * gruppi di cui è membro (vedi {@link tech.ipim.sweng.model.NoteGroupAccess}). Le due sorgenti
+     * sono unite in un'unica sottoquery, così una nota accessibile sia direttamente sia tramite
+     * gruppo compare una volta sola. Le note proprie sono quelle con {@code n.autore.username = :username}.
+     */
+    String ACCESSIBLE = "n.id IN (SELECT a.noteId FROM NoteAccess a JOIN User u ON u.id = a.userId WHERE u.username = :username "
+            + "UNION SELECT ga.noteId FROM NoteGroupAccess ga JOIN Gruppo g ON g.id = ga.gruppoId JOIN g.membri m "
+            + "WHERE m.username = :username) ";
 
     /**
      * Trova tutte le note create da un autore ordinate per data modifica decrescente
@@ -23,82 +39,250 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Trova tutte le note accessibili all'utente (autore o con permessi di lettura o scrittura)
      */
-    @Query("SELECT n FROM Note n WHERE "
-            + "n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura) "
-            + "ORDER BY n.dataModifica DESC")
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE + "ORDER BY n.dataModifica DESC")
     List<Note> findAllAccessibleNotes(@Param("username") String username);
 
+    /**
+     * Legge una pagina di id delle note accessibili all'utente in ordine di id, dopo l'id indicato:
+     * l'esportazione scorre così tutte le note a blocchi senza materializzare l'elenco completo
+     */
+    @Query("SELECT n.id FROM Note n WHERE " + ACCESSIBLE + "AND n.id > :afterId ORDER BY n.id")
+    List<Long> findAccessibleIdsAfter(@Param("username") String username, @Param("afterId") long afterId, Pageable page);
+
     /**
      * Trova una nota specifica accessibile all'utente dato l'id della nota
      */
-    @Query("SELECT n FROM Note n WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND n.id = :noteId")
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE + "AND n.id = :noteId")
     Optional<Note> findAccessibleNoteById(@Param("noteId") Long noteId, @Param("username") String username);
 
     /**
-     * Cerca note accessibili all'utente con parole chiave nel titolo o contenuto (case insensitive)
+     * Sottoquery sui gruppi dell'utente, da aggiungere alle colonne dei valori per gli ETag:
+     * entrare o uscire da un gruppo cambia i permessi mostrati senza modificare le note
+     */
+    String USER_GROUPS = "(SELECT COUNT(g) FROM Gruppo g JOIN g.membri m WHERE m.username = :username), "
+            + "(SELECT COALESCE(SUM(g.id), 0) FROM Gruppo g JOIN g.membri m WHERE m.username = :username) ";
+
+    /**
+     * Valore di riferimento degli elenchi dell'utente: numero, somma degli id e data di modifica
+     * più recente delle note accessibili, più i gruppi dell'utente. Cambia se una nota viene
+     * creata, modificata, eliminata, condivisa o non più condivisa con l'utente
+     */
+    @Query("SELECT COUNT(n), COALESCE(SUM(n.id), 0), MAX(n.dataModifica), " + USER_GROUPS + "FROM Note n WHERE " + ACCESSIBLE)
+    List<Object[]> findAccessibleWatermark(@Param("username") String username);
+
+    /**
+     * Versione e data di modifica di una nota accessibile all'utente, più i gruppi dell'utente,
+     * senza leggere titolo e contenuto
+     */
+    @Query("SELECT n.versionNumber, n.dataModifica, " + USER_GROUPS + "FROM Note n WHERE " + ACCESSIBLE + "AND n.id = :noteId")
+    List<Object[]> findAccessibleVersion(@Param("noteId") Long noteId, @Param("username") String username);
+
+    /**
+     * Restituisce, tra gli id indicati, quelli delle note accessibili all'utente
+     */
+    @Query("SELECT n.id FROM Note n WHERE " + ACCESSIBLE + "AND n.id IN :noteIds")
+    List<Long> findAccessibleIdsByIds(@Param("username") String username, @Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Restituisce gli id di tutte le note accessibili all'utente, senza leggere la tabella delle note
+     */
+    @Query("SELECT a.noteId FROM NoteAccess a JOIN User u ON u.id = a.userId WHERE u.username = :username "
+            + "UNION SELECT ga.noteId FROM NoteGroupAccess ga JOIN Gruppo g ON g.id = ga.gruppoId JOIN g.membri m "
+            + "WHERE m.username = :username")
+    List<Long> findAccessibleIds(@Param("username") String username);
+
+    /**
+     * Recupera id, username dell'autore e tipo di permesso delle note indicate,
+     * per verificarne la proprietà senza caricare le entità
+     */
+    @Query("SELECT n.id, n.autore.username, n.tipoPermesso FROM Note n WHERE n.id IN :noteIds")
+    List<Object[]> findOwnersByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Recupera id, titolo e contenuto di tutte le note per la costruzione dell'indice di ricerca
+     */
+    @Query("SELECT n.id, n.titolo, n.contenuto FROM Note n")
+    List<Object[]> findAllSearchableContent();
+
+    /**
+     * Recupera tutte le coppie (id nota, tag) per la costruzione dell'indice di tag
+     */
+    @Query("SELECT n.id, t FROM Note n JOIN n.tags t")
+    List<Object[]> findAllTagPairs();
+
+    /**
+     * Recupera tutte le coppie (id nota, cartella) per la costruzione dell'indice di cartelle
+     */
+    @Query("SELECT n.id, c FROM Note n JOIN n.cartelle c")
+    List<Object[]> findAllCartellaPairs();
+
+    /**
+     * Recupera gli id di tutte le note, per riallineare gli indici ripristinati da disco
+     */
+    @Query("SELECT n.id FROM Note n")
+    List<Long> findAllIds();
+
+    /**
+     * Recupera l'id più basso tra le note, null se non ce ne sono
+     */
+    @Query("SELECT MIN(n.id) FROM Note n")
+    Long findMinId();
+
+    /**
+     * Recupera l'id più alto tra le note, null se non ce ne sono
+     */
+    @Query("SELECT MAX(n.id) FROM Note n")
+    Long findMaxId();
+
+    /**
+     * Recupera id, titolo e contenuto delle note in un intervallo di id, per la reindicizzazione a blocchi
+     */
+    @Query("SELECT n.id, n.titolo, n.contenuto FROM Note n WHERE n.id BETWEEN :fromId AND :toId")
+    List<Object[]> findSearchableContentByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * Recupera le coppie (id nota, tag) delle note in un intervallo di id
+     */
+    @Query("SELECT n.id, t FROM Note n JOIN n.tags t WHERE n.id BETWEEN :fromId AND :toId")
+    List<Object[]> findTagPairsByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * Recupera le coppie (id nota, cartella) delle note in un intervallo di id
+     */
+    @Query("SELECT n.id, c FROM Note n JOIN n.cartelle c WHERE n.id BETWEEN :fromId AND :toId")
+    List<Object[]> findCartellaPairsByIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * Recupera gli id delle note create o modificate a partire dall'istante indicato
+     */
+    @Query("SELECT n.id FROM Note n WHERE n.dataModifica >= :since")
+    List<Long> findIdsModifiedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Proiezione dei campi scalari delle note indicate, senza caricare le entità: le collezioni
+     * del DTO restano vuote e vengono riempite da {@link tech.ipim.sweng.service.NoteReadService}
+     */
+    @Query("SELECT new tech.ipim.sweng.dto.NoteDto(n.id, n.titolo, n.contenuto, a.username, n.dataCreazione, "
+            + "n.dataModifica, n.tipoPermesso, n.versionNumber) FROM Note n JOIN n.autore a WHERE n.id IN :noteIds")
+    List<NoteDto> findDtosByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Proiezione ridotta per gli elenchi riassuntivi: il contenuto arriva già tagliato, con un
+     * carattere oltre l'anteprima per sapere se è stato troncato
+     */
+    @Query("SELECT new tech.ipim.sweng.dto.NoteSummaryDto(n.id, n.titolo, SUBSTRING(n.contenuto, 1, "
+            + (NoteSummaryDto.PREVIEW_LENGTH + 1) + "), a.username, n.dataModifica, n.tipoPermesso) "
+            + "FROM Note n JOIN n.autore a WHERE n.id IN :noteIds")
+    List<NoteSummaryDto> findSummariesByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Restituisce, tra gli id indicati, quelli delle note altrui in cui l'utente ha accesso in
+     * scrittura, direttamente o tramite un gruppo, letti dalle tabelle materializzate degli accessi
+     */
+    @Query("SELECT a.noteId FROM NoteAccess a JOIN User u ON u.id = a.userId WHERE u.username = :username "
+            + "AND a.livello = tech.ipim.sweng.model.LivelloAccesso.SCRITTURA AND a.noteId IN :noteIds "
+            + "UNION SELECT ga.noteId FROM NoteGroupAccess ga JOIN Gruppo g ON g.id = ga.gruppoId JOIN g.membri m "
+            + "WHERE m.username = :username AND ga.livello = tech.ipim.sweng.model.LivelloAccesso.SCRITTURA "
+            + "AND ga.noteId IN :noteIds")
+    List<Long> findWritableIdsByIds(@Param("username") String username, @Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Coppie (id nota, tag) delle note indicate
+     */
+    @Query("SELECT n.id, t FROM Note n JOIN n.tags t WHERE n.id IN :noteIds")
+    List<Object[]> findTagPairsByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Coppie (id nota, cartella) delle sole note dell'utente tra quelle indicate:
+     * le cartelle delle note altrui non vengono mostrate
+     */
+    @Query("SELECT n.id, c FROM Note n JOIN n.cartelle c WHERE n.id IN :noteIds AND n.autore.username = :username")
+    List<Object[]> findOwnCartellaPairsByIds(@Param("username") String username, @Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Coppie (id nota, username) degli utenti con permesso di lettura sulle note indicate
      */
-    @Query("SELECT n FROM Note n WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND (LOWER(n.titolo) LIKE LOWER(CONCAT('%', :keyword, '%')) OR "
-            + "LOWER(n.contenuto) LIKE LOWER(CONCAT('%', :keyword, '%')))")
-    List<Note> searchNotesByKeyword(@Param("username") String username, @Param("keyword") String keyword);
+    @Query("SELECT n.id, u.username FROM Note n JOIN n.lettori u WHERE n.id IN :noteIds")
+    List<Object[]> findReaderPairsByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Coppie (id nota, username) degli utenti con permesso di scrittura sulle note indicate
+     */
+    @Query("SELECT n.id, u.username FROM Note n JOIN n.scrittori u WHERE n.id IN :noteIds")
+    List<Object[]> findWriterPairsByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Coppie (id nota, nome gruppo) dei gruppi con permesso di lettura sulle note indicate
+     */
+    @Query("SELECT n.id, g.nome FROM Note n JOIN n.gruppiLettura g WHERE n.id IN :noteIds")
+    List<Object[]> findReaderGroupPairsByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Coppie (id nota, nome gruppo) dei gruppi con permesso di scrittura sulle note indicate
+     */
+    @Query("SELECT n.id, g.nome FROM Note n JOIN n.gruppiScrittura g WHERE n.id IN :noteIds")
+    List<Object[]> findWriterGroupPairsByIds(@Param("noteIds") Collection<Long> noteIds);
+
+    /**
+     * Recupera id e titolo delle note accessibili all'utente per l'indice di autocompletamento
+     */
+    @Query("SELECT n.id, n.titolo FROM Note n WHERE " + ACCESSIBLE)
+    List<Object[]> findAccessibleTitles(@Param("username") String username);
+
+    /**
+     * Recupera le coppie (id nota, tag) delle note accessibili all'utente per l'indice di autocompletamento
+     */
+    @Query("SELECT n.id, t FROM Note n JOIN n.tags t WHERE " + ACCESSIBLE)
+    List<Object[]> findAccessibleTags(@Param("username") String username);
+
+    /**
+     * Recupera le coppie (id nota, cartella) delle note dell'utente per l'indice di autocompletamento:
+     * le cartelle delle note condivise restano private del proprietario, come in {@code NoteDto}
+     */
+    @Query("SELECT n.id, c FROM Note n JOIN n.cartelle c WHERE n.autore.username = :username")
+    List<Object[]> findOwnCartelle(@Param("username") String username);
 
     /**
      * Trova note accessibili all'utente filtrate per tag specifico
      */
-    @Query("SELECT n FROM Note n JOIN n.tags t WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND t = :tag")
+    @Query("SELECT n FROM Note n JOIN n.tags t WHERE " + ACCESSIBLE + "AND t = :tag")
     List<Note> findNotesByTag(@Param("username") String username, @Param("tag") String tag);
 
     /**
      * Trova note accessibili all'utente filtrate per cartella specifica
      */
-    @Query("SELECT n FROM Note n JOIN n.cartelle c WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND c = :cartella")
+    @Query("SELECT n FROM Note n JOIN n.cartelle c WHERE " + ACCESSIBLE + "AND c = :cartella")
     List<Note> findNotesByCartella(@Param("username") String username, @Param("cartella") String cartella);
 
+    /**
+     * Conta le note accessibili all'utente in una cartella, senza caricarle
+     */
+    @Query("SELECT COUNT(n) FROM Note n JOIN n.cartelle c WHERE " + ACCESSIBLE + "AND c = :cartella")
+    long countNotesByCartella(@Param("username") String username, @Param("cartella") String cartella);
+
+    /**
+     * Conta in una sola query le note accessibili all'utente in ciascuna cartella indicata:
+     * coppie (nome cartella, numero note), senza le cartelle vuote
+     */
+    @Query("SELECT c, COUNT(n) FROM Note n JOIN n.cartelle c WHERE " + ACCESSIBLE + "AND c IN :cartelle GROUP BY c")
+    List<Object[]> countNotesByCartelle(@Param("username") String username, @Param("cartelle") Collection<String> cartelle);
+
     /**
      * Trova note accessibili all'utente create da un autore specifico
      */
-    @Query("SELECT n FROM Note n WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND n.autore.username = :autore")
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE + "AND n.autore.username = :autore")
     List<Note> findNotesByAutore(@Param("username") String username, @Param("autore") String autore);
 
     /**
      * Trova note accessibili all'utente create in un intervallo di date (dataCreazione)
      */
-    @Query("SELECT n FROM Note n WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND n.dataCreazione >= :dataInizio AND n.dataCreazione <= :dataFine")
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE + "AND n.dataCreazione >= :dataInizio AND n.dataCreazione <= :dataFine")
     List<Note> findNotesByDataCreazione(@Param("username") String username, @Param("dataInizio") LocalDateTime dataInizio, @Param("dataFine") LocalDateTime dataFine);
 
     /**
      * Trova note accessibili all'utente modificate in un intervallo di date (dataModifica)
      */
-    @Query("SELECT n FROM Note n WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura)) "
-            + "AND n.dataModifica >= :dataInizio AND n.dataModifica <= :dataFine")
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE + "AND n.dataModifica >= :dataInizio AND n.dataModifica <= :dataFine")
     List<Note> findNotesByDataModifica(@Param("username") String username, @Param("dataInizio") LocalDateTime dataInizio, @Param("dataFine") LocalDateTime dataFine);
 
     /**
@@ -116,9 +300,7 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Conta il numero di note condivise (lettura o scrittura) per un dato utente
      */
-    @Query("SELECT COUNT(n) FROM Note n WHERE "
-            + "n.tipoPermesso IN ('CONDIVISA_LETTURA', 'CONDIVISA_SCRITTURA') AND "
-            + "(:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura)")
+    @Query("SELECT COUNT(n) FROM Note n WHERE " + ACCESSIBLE + "AND n.autore.username <> :username")
     long countSharedNotesForUser(@Param("username") String username);
 
     /**
@@ -136,10 +318,7 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Trova tutti i tag distinti accessibili all'utente
      */
-    @Query("SELECT DISTINCT t FROM Note n JOIN n.tags t WHERE "
-            + "(n.autore.username = :username OR "
-            + "(n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura) OR "
-            + "(n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND :username MEMBER OF n.permessiScrittura))")
+    @Query("SELECT DISTINCT t FROM Note n JOIN n.tags t WHERE " + ACCESSIBLE)
     List<String> findAllTagsByUser(@Param("username") String username);
 
     /**
@@ -151,9 +330,7 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Conta il numero di note condivise accessibili per un dato utente
      */
-    @Query("SELECT COUNT(n) FROM Note n WHERE "
-            + "n.tipoPermesso IN ('CONDIVISA_LETTURA', 'CONDIVISA_SCRITTURA') AND "
-            + "(:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura)")
+    @Query("SELECT COUNT(n) FROM Note n WHERE " + ACCESSIBLE + "AND n.autore.username <> :username")
     long countSharedNotes(@Param("username") String username);
 
     /**
@@ -165,10 +342,7 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Trova tutti gli autori distinti accessibili all'utente
      */
-    @Query("SELECT DISTINCT n.autore.username FROM Note n "
-            + "WHERE n.autore.username = :username "
-            + "OR n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura "
-            + "OR n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND (:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura) "
+    @Query("SELECT DISTINCT n.autore.username FROM Note n WHERE " + ACCESSIBLE
             + "ORDER BY n.autore.username")
     List<String> findDistinctAutoriByAccessibleToUser(@Param("username") String username);
 
@@ -184,19 +358,16 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Trova note condivise filtrate per autore e accessibili all'utente
      */
-    @Query("SELECT n FROM Note n WHERE n.autore.username = :autore "
-            + "AND (n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura "
-            + "OR n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND (:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura)) "
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE
+            + "AND n.autore.username = :autore AND n.autore.username <> :username "
             + "ORDER BY n.dataModifica DESC")
     List<Note> findSharedNotesByAutore(@Param("username") String username, @Param("autore") String autore);
 
     /**
      * Trova tutte le note accessibili filtrate per autore e ordinate per data modifica decrescente
      */
-    @Query("SELECT n FROM Note n WHERE n.autore.username = :autore "
-            + "AND (n.autore.username = :username "
-            + "OR n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura "
-            + "OR n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND (:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura)) "
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE
+            + "AND n.autore.username = :autore "
             + "ORDER BY n.dataModifica DESC")
     List<Note> findAccessibleNotesByAutore(@Param("username") String username, @Param("autore") String autore);
 
@@ -215,9 +386,8 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Trova note condivise accessibili nel range di date specificato, ordinate per data modifica decrescente
      */
-    @Query("SELECT n FROM Note n "
-            + "WHERE (n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura "
-            + "OR n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND (:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura)) "
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE
+            + "AND n.autore.username <> :username "
             + "AND (:startDate IS NULL OR n.dataCreazione >= :startDate) "
             + "AND (:endDate IS NULL OR n.dataCreazione <= :endDate) "
             + "ORDER BY n.dataModifica DESC")
@@ -229,10 +399,7 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     /**
      * Trova tutte le note accessibili all'utente filtrate per range di date, ordinate per data modifica decrescente
      */
-    @Query("SELECT n FROM Note n "
-            + "WHERE (n.autore.username = :username "
-            + "OR n.tipoPermesso = 'CONDIVISA_LETTURA' AND :username MEMBER OF n.permessiLettura "
-            + "OR n.tipoPermesso = 'CONDIVISA_SCRITTURA' AND (:username MEMBER OF n.permessiLettura OR :username MEMBER OF n.permessiScrittura)) "
+    @Query("SELECT n FROM Note n WHERE " + ACCESSIBLE
             + "AND (:startDate IS NULL OR n.dataCreazione >= :startDate) "
             + "AND (:endDate IS NULL OR n.dataCreazione <= :endDate) "
             + "ORDER BY n.dataModifica DESC")
@@ -0,0 +1,36 @@
+package tech.ipim.sweng.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import tech.ipim.sweng.dto.NoteCursor;
+import tech.ipim.sweng.model.Note;
+
+/**
+ * Query di {@link NoteRepository} non esprimibili con i metodi derivati di Spring Data.
+ * <p>
+ * Le query sulle specifiche restituiscono solo le chiavi (data di modifica, id) delle note,
+ * nell'ordine degli elenchi: i DTO vengono poi costruiti con le proiezioni di
+ * {@link tech.ipim.sweng.service.NoteReadService}, senza caricare le entità.
+ */
+public interface NoteRepositoryCustom {
+
+    /**
+     * @param spec filtro sulle note
+     * @return chiavi di tutte le note che soddisfano la specifica, ordinate per data di modifica
+     *         e id decrescenti (vedi {@link NoteCursor#ORDER})
+     */
+    List<NoteCursor> findKeys(Specification<Note> spec);
+
+    /**
+     * Legge le chiavi delle prime note che soddisfano la specifica, nello stesso ordine di
+     * {@link #findKeys(Specification)}, senza query di conteggio.
+     * Per le pagine successive la specifica include {@link NoteSpecifications#before}.
+     *
+     * @param spec  filtro sulle note
+     * @param limit numero massimo di note
+     * @return chiavi nell'ordine delle pagine
+     */
+    List<NoteCursor> findKeys(Specification<Note> spec, int limit);
+}
@@ -0,0 +1,53 @@
+package tech.ipim.sweng.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import tech.ipim.sweng.dto.NoteCursor;
+import tech.ipim.sweng.model.Note;
+
+/**
+ * Implementazione delle query personalizzate di {@link NoteRepository}, individuata da
+ * Spring Data tramite il suffisso {@code Impl}.
+ */
+class NoteRepositoryCustomImpl implements NoteRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<NoteCursor> findKeys(Specification<Note> spec) {
+        return keysQuery(spec).getResultList();
+    }
+
+    @Override
+    public List<NoteCursor> findKeys(Specification<Note> spec, int limit) {
+        return keysQuery(spec)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private TypedQuery<NoteCursor> keysQuery(Specification<Note> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<NoteCursor> query = cb.createQuery(NoteCursor.class);
+        Root<Note> root = query.from(Note.class);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.construct(NoteCursor.class, root.get("dataModifica"), root.get("id")))
+                .orderBy(cb.desc(root.get("dataModifica")), cb.desc(root.get("id")));
+
+        return entityManager.createQuery(query);
+    }
+}
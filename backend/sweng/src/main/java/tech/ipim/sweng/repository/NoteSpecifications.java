@@ -0,0 +1,145 @@
+package tech.ipim.sweng.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+import tech.ipim.sweng.dto.NoteCursor;
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.NoteAccess;
+import tech.ipim.sweng.model.NoteGroupAccess;
+import tech.ipim.sweng.model.User;
+
+/**
+ * Predicati JPA Criteria per interrogare le note combinando più filtri in una sola query.
+ * <p>
+ * {@link #fromFilter(String, NoteFilter)} costruisce il piano completo: il predicato
+ * dei permessi è sempre presente, gli altri filtri vengono aggiunti in AND solo se valorizzati.
+ * Il database restituisce così esattamente le righe richieste, senza filtri in memoria.
+ */
+public final class NoteSpecifications {
+
+    private NoteSpecifications() { }
+
+    /**
+     * Costruisce la specifica che combina permessi e tutti i filtri valorizzati.
+     *
+     * @param username utente che esegue la richiesta
+     * @param filter   criteri di filtro
+     * @return specifica da passare al repository
+     */
+    public static Specification<Note> fromFilter(String username, NoteFilter filter) {
+        Specification<Note> spec = accessibleTo(username);
+
+        String scope = filter.getFilter() == null ? "all" : filter.getFilter().toLowerCase();
+        if ("own".equals(scope)) {
+            spec = spec.and(hasAutore(username));
+        } else if ("shared".equals(scope)) {
+            spec = spec.and(Specification.not(hasAutore(username)));
+        }
+
+        for (String tag : filter.getTags()) {
+            spec = spec.and(hasTag(tag));
+        }
+        if (!filter.getAnyTags().isEmpty()) {
+            spec = spec.and(hasAnyTag(filter.getAnyTags()));
+        }
+        for (String tag : filter.getNotTags()) {
+            spec = spec.and(Specification.not(hasTag(tag)));
+        }
+        if (NoteFilter.hasText(filter.getCartella())) {
+            spec = spec.and(inCartella(filter.getCartella().trim()));
+        }
+        if (NoteFilter.hasText(filter.getAutore())) {
+            spec = spec.and(hasAutore(filter.getAutore().trim()));
+        }
+        if (filter.getDataInizio() != null) {
+            spec = spec.and(createdFrom(filter.getDataInizio()));
+        }
+        if (filter.getDataFine() != null) {
+            spec = spec.and(createdUntil(filter.getDataFine()));
+        }
+        return spec;
+    }
+
+    /**
+     * Note accessibili all'utente: proprie, condivise in lettura con lui
+     * o condivise in scrittura con lui, lette dalla tabella materializzata {@link NoteAccess},
+     * oppure condivise con un gruppo di cui è membro, lette da {@link NoteGroupAccess}.
+     */
+    public static Specification<Note> accessibleTo(String username) {
+        return (root, query, cb) -> {
+            Subquery<Long> accessibleIds = query.subquery(Long.class);
+            Root<NoteAccess> access = accessibleIds.from(NoteAccess.class);
+            Root<User> user = accessibleIds.from(User.class);
+            accessibleIds.select(access.get("noteId")).where(
+                    cb.equal(access.get("userId"), user.get("id")),
+                    cb.equal(user.get("username"), username));
+
+            Subquery<Long> groupIds = query.subquery(Long.class);
+            Root<NoteGroupAccess> groupAccess = groupIds.from(NoteGroupAccess.class);
+            Root<Gruppo> gruppo = groupIds.from(Gruppo.class);
+            Join<Gruppo, User> membro = gruppo.join("membri");
+            groupIds.select(groupAccess.get("noteId")).where(
+                    cb.equal(groupAccess.get("gruppoId"), gruppo.get("id")),
+                    cb.equal(membro.get("username"), username));
+
+            return cb.or(root.get("id").in(accessibleIds), root.get("id").in(groupIds));
+        };
+    }
+
+    public static Specification<Note> hasAutore(String autore) {
+        return (root, query, cb) -> cb.equal(root.get("autore").get("username"), autore);
+    }
+
+    public static Specification<Note> hasTag(String tag) {
+        return (root, query, cb) -> cb.isMember(tag, root.<Collection<String>>get("tags"));
+    }
+
+    public static Specification<Note> hasAnyTag(Collection<String> tags) {
+        return (root, query, cb) -> cb.or(tags.stream()
+                .map(tag -> cb.isMember(tag, root.<Collection<String>>get("tags")))
+                .toArray(Predicate[]::new));
+    }
+
+    public static Specification<Note> inCartella(String cartella) {
+        return (root, query, cb) -> cb.isMember(cartella, root.<Collection<String>>get("cartelle"));
+    }
+
+    /**
+     * Note create a partire dall'inizio del giorno indicato.
+     */
+    public static Specification<Note> createdFrom(LocalDate dataInizio) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dataCreazione"), dataInizio.atStartOfDay());
+    }
+
+    /**
+     * Note create entro la fine del giorno indicato.
+     */
+    public static Specification<Note> createdUntil(LocalDate dataFine) {
+        return (root, query, cb) -> cb.lessThan(root.get("dataCreazione"), dataFine.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Note che seguono il cursore nell'ordine delle pagine (data di modifica e id decrescenti):
+     * modificate prima della nota del cursore, o nello stesso istante ma con id minore.
+     */
+    public static Specification<Note> before(NoteCursor cursor) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("dataModifica"), cursor.getDataModifica()),
+                cb.and(cb.equal(root.get("dataModifica"), cursor.getDataModifica()),
+                        cb.lessThan(root.get("id"), cursor.getId())));
+    }
+
+    public static Specification<Note> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+}
@@ -33,4 +33,11 @@ public interface NoteVersionRepository extends JpaRepository<NoteVersion, Long>
      */
     @Query("SELECT nv FROM NoteVersion nv WHERE nv.note.id = :noteId ORDER BY nv.versionNumber DESC")
     List<NoteVersion> findVersionHistory(@Param("noteId") Long noteId);
+
+    /**
+     * Recupera id, nota, numero, titolo, contenuto, data e autore di tutte le versioni
+     * per la costruzione dell'indice di ricerca sulla cronologia
+     */
+    @Query("SELECT nv.id, nv.note.id, nv.versionNumber, nv.titolo, nv.contenuto, nv.createdAt, nv.createdBy FROM NoteVersion nv")
+    List<Object[]> findAllSearchableContent();
 }
@@ -1,9 +1,13 @@
 package tech.ipim.sweng.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tech.ipim.sweng.model.User;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +20,37 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByUsername(String username);
 
+    /**
+     * Trova l'id di un utente per username, senza caricare l'entità
+     * @param username l'username da cercare
+     * @return Optional contenente l'id se l'utente esiste
+     */
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    /**
+     * Trova gli utenti con gli username indicati; quelli inesistenti vengono ignorati
+     * @param usernames gli username da cercare
+     * @return lista degli utenti trovati
+     */
+    List<User> findByUsernameIn(Collection<String> usernames);
+
+    /**
+     * Trova gli id degli utenti con gli username indicati, senza caricare le entità
+     * @param usernames gli username da cercare
+     * @return id degli utenti trovati
+     */
+    @Query("SELECT u.id FROM User u WHERE u.username IN :usernames")
+    List<Long> findIdsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * Trova gli username degli utenti con gli id indicati
+     * @param ids gli id da cercare
+     * @return username degli utenti trovati
+     */
+    @Query("SELECT u.username FROM User u WHERE u.id IN :ids")
+    List<String> findUsernamesByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Trova un utente per email
      * @param email l'email da cercare
@@ -0,0 +1,89 @@
+package tech.ipim.sweng.search;
+
+import java.util.List;
+
+/**
+ * Motore di ricerca basato sull'{@link InvertedIndex} in memoria, con ordinamento BM25.
+ * <p>
+ * È il motore usato con H2 (profilo di test) e in generale con qualsiasi database
+ * che non sia PostgreSQL. L'indice viene ricostruito all'avvio e mantenuto
+ * aggiornato a ogni modifica delle note.
+ */
+public class InMemoryNoteSearchEngine implements NoteSearchEngine {
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public boolean requiresRebuild() {
+        return true;
+    }
+
+    @Override
+    public boolean appliesPermissions() {
+        return false;
+    }
+
+    @Override
+    public void initialize() {
+        // nessuno schema da preparare: l'indice vive solo in memoria
+    }
+
+    @Override
+    public NoteSearchEngine emptyCopy() {
+        return new InMemoryNoteSearchEngine();
+    }
+
+    @Override
+    public void index(long noteId, String titolo, String contenuto) {
+        index.index(noteId, titolo, contenuto);
+    }
+
+    @Override
+    public void index(TokenizedNote note) {
+        index.index(note.getId(), note.getOccurrences());
+    }
+
+    @Override
+    public void remove(long noteId) {
+        index.remove(noteId);
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+    }
+
+    @Override
+    public List<Long> search(String query) {
+        return index.searchRanked(query);
+    }
+
+    @Override
+    public List<Long> search(String query, String username, int limit) {
+        throw new UnsupportedOperationException("Il motore in memoria non applica i permessi");
+    }
+
+    @Override
+    public List<TermMatch> matches(long noteId, String titolo, String contenuto, String query) {
+        return index.matches(noteId, query);
+    }
+
+    /**
+     * @return numero di note indicizzate
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return numero di termini distinti nel dizionario
+     */
+    public int termCount() {
+        return index.termCount();
+    }
+}
@@ -0,0 +1,623 @@
+package tech.ipim.sweng.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Archivio su disco locale dei dati indicizzati, per ripartire senza rileggere la tabella delle note.
+ * <p>
+ * Vengono salvate le note già scomposte in termini ({@link TokenizedNote}): per ogni nota
+ * le posting list dei suoi termini, con le occorrenze, più tag e cartelle. Il testo delle
+ * note non viene scritto e al ripristino gli indici si popolano senza riscomporlo. Un
+ * segmento apre con il dizionario ordinato dei suoi termini e nelle note ogni termine è
+ * indicato dalla sua posizione nel dizionario, così ogni termine è letto una volta sola.
+ * La cartella viene creata accessibile al solo proprietario (se il file system lo consente).
+ * <p>
+ * Lo stato è formato da un <b>segmento</b> immutabile con tutte le note indicizzate e da un
+ * <b>journal</b> in sola aggiunta con le modifiche successive. I file sono numerati per
+ * generazione: il segmento {@code N} contiene tutto ciò che precede il journal {@code N}.
+ * All'avvio il segmento più recente viene letto tramite memory mapping e i journal dalla
+ * sua generazione in poi vengono riapplicati in ordine.
+ * <p>
+ * Ogni voce del journal ha lunghezza e CRC32: una voce troncata da un arresto improvviso
+ * viene scartata insieme a quelle successive e il file viene accorciato prima di riprendere
+ * le scritture. Il journal non viene sincronizzato su disco a ogni voce: le note restano
+ * comunque nel database, e chi riapre l'archivio riallinea le modifiche più recenti
+ * a partire dall'istante restituito da {@link #restore(Visitor)}.
+ * <p>
+ * La compattazione ({@link #compact()}) chiude il journal corrente, ne apre uno nuovo per
+ * le scritture e fonde in background segmento e journal chiusi in un nuovo segmento,
+ * scritto su file temporaneo e rinominato atomicamente. Fino alla rinomina restano validi
+ * i file precedenti, quindi un'interruzione non perde dati.
+ * <p>
+ * Un segmento viene mappato in un'unica regione, quindi non può superare i 2 GB.
+ */
+public class IndexSegmentStore implements Closeable {
+
+    private static final int SEGMENT_MAGIC = 0x53575347;
+    private static final int FORMAT_VERSION = 2;
+    private static final byte RECORD = 1;
+    private static final byte END = 0;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private final Path directory;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private FileChannel journal;
+    private long journalGeneration;
+    private int journalEntries;
+    private long lastTimestamp;
+
+    /**
+     * Riceve il contenuto dell'archivio durante la lettura, nell'ordine in cui è stato scritto.
+     */
+    public interface Visitor {
+
+        /**
+         * @param note nota indicizzata o reindicizzata
+         */
+        void put(TokenizedNote note);
+
+        /**
+         * @param noteId id della nota rimossa
+         */
+        void remove(long noteId);
+    }
+
+    /**
+     * @param directory cartella dei file di indice, creata se mancante con accesso
+     *                  riservato al proprietario
+     * @throws IOException se la cartella non può essere creata
+     */
+    public IndexSegmentStore(Path directory) throws IOException {
+        this.directory = directory;
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * @return true se esiste un segmento da cui ripartire
+     * @throws IOException se la cartella non è leggibile
+     */
+    public synchronized boolean hasSegment() throws IOException {
+        return !generations(SEGMENT_PREFIX, SEGMENT_SUFFIX).isEmpty();
+    }
+
+    /**
+     * Legge l'ultimo segmento e riapplica i journal successivi, poi apre il journal più
+     * recente per le nuove scritture.
+     *
+     * @param visitor destinatario delle note e delle rimozioni
+     * @return istante (epoch millis) dell'ultima modifica registrata nell'archivio
+     * @throws IOException se non esiste un segmento o se il segmento è danneggiato
+     */
+    public synchronized long restore(Visitor visitor) throws IOException {
+        List<Long> segments = generations(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        if (segments.isEmpty()) {
+            throw new IOException("Nessun segmento di indice in " + directory);
+        }
+        long segmentGeneration = segments.get(segments.size() - 1);
+        long watermark = readSegment(segmentFile(segmentGeneration), visitor);
+
+        long generation = segmentGeneration;
+        int entries = 0;
+        for (long journalGen : generations(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if (journalGen < segmentGeneration) {
+                continue;
+            }
+            Path file = journalFile(journalGen);
+            Replay replay = replayJournal(file, visitor);
+            if (replay.validLength < Files.size(file)) {
+                System.err.println("Journal di indice troncato dopo " + replay.entries + " voci: " + file);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(replay.validLength);
+                }
+            }
+            watermark = Math.max(watermark, replay.lastTimestamp);
+            entries += replay.entries;
+            generation = journalGen;
+        }
+
+        openJournal(generation);
+        journalEntries = entries;
+        lastTimestamp = watermark;
+        return watermark;
+    }
+
+    /**
+     * Scrive un nuovo segmento con tutte le note indicate, apre un journal vuoto
+     * e cancella i file delle generazioni precedenti, compresi quelli non leggibili.
+     *
+     * @param notes     tutte le note indicizzate, lette due volte (dizionario e note)
+     * @param watermark istante (epoch millis) a cui le note sono aggiornate
+     * @throws IOException se il segmento non può essere scritto
+     */
+    public synchronized void writeSegment(Collection<TokenizedNote> notes, long watermark) throws IOException {
+        long generation = Math.max(journalGeneration, latestGeneration()) + 1;
+        Set<String> terms = new TreeSet<>();
+        for (TokenizedNote note : notes) {
+            terms.addAll(note.getTerms());
+        }
+        try (SegmentWriter writer = new SegmentWriter(segmentFile(generation), watermark, terms)) {
+            for (TokenizedNote note : notes) {
+                writer.write(note);
+            }
+            writer.commit();
+        }
+        openJournal(generation);
+        journalEntries = 0;
+        lastTimestamp = watermark;
+        deleteOlderThan(generation);
+    }
+
+    /**
+     * Registra nel journal l'indicizzazione di una nota.
+     *
+     * @param note nota indicizzata
+     * @throws IOException se la scrittura fallisce
+     */
+    public synchronized void appendPut(TokenizedNote note) throws IOException {
+        append(OP_PUT, note.getId(), note);
+    }
+
+    /**
+     * Registra nel journal la rimozione di una nota.
+     *
+     * @param noteId id della nota rimossa
+     * @throws IOException se la scrittura fallisce
+     */
+    public synchronized void appendRemove(long noteId) throws IOException {
+        append(OP_REMOVE, noteId, null);
+    }
+
+    /**
+     * @return numero di voci nei journal non ancora compattati
+     */
+    public synchronized int journalEntries() {
+        return journalEntries;
+    }
+
+    /**
+     * Fonde l'ultimo segmento e i journal chiusi in un nuovo segmento. Le scritture
+     * proseguono su un journal nuovo mentre la fusione è in corso; una seconda chiamata
+     * durante una compattazione non ha effetto.
+     *
+     * @throws IOException se il nuovo segmento non può essere scritto
+     */
+    public void compact() throws IOException {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long sealedGeneration;
+            long watermark;
+            synchronized (this) {
+                sealedGeneration = journalGeneration;
+                watermark = lastTimestamp;
+                openJournal(sealedGeneration + 1);
+                journalEntries = 0;
+            }
+            long newGeneration = sealedGeneration + 1;
+
+            List<Long> segments = generations(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (segments.isEmpty()) {
+                throw new IOException("Nessun segmento di indice da compattare in " + directory);
+            }
+            long baseGeneration = segments.get(segments.size() - 1);
+
+            // ultime versioni delle note modificate nei journal chiusi, null se rimosse
+            Map<Long, TokenizedNote> changes = new LinkedHashMap<>();
+            for (long journalGen : generations(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                if (journalGen >= baseGeneration && journalGen <= sealedGeneration) {
+                    replayJournal(journalFile(journalGen), new Visitor() {
+                        @Override
+                        public void put(TokenizedNote note) {
+                            changes.remove(note.getId());
+                            changes.put(note.getId(), note);
+                        }
+
+                        @Override
+                        public void remove(long noteId) {
+                            changes.remove(noteId);
+                            changes.put(noteId, null);
+                        }
+                    });
+                }
+            }
+
+            // primo passaggio: dizionario dei soli termini delle note che restano
+            Set<String> terms = new TreeSet<>();
+            readSegment(segmentFile(baseGeneration), retained(changes, note -> terms.addAll(note.getTerms())));
+            for (TokenizedNote note : changes.values()) {
+                if (note != null) {
+                    terms.addAll(note.getTerms());
+                }
+            }
+
+            try (SegmentWriter writer = new SegmentWriter(segmentFile(newGeneration), watermark, terms)) {
+                readSegment(segmentFile(baseGeneration), retained(changes, writer::writeUnchecked));
+                for (TokenizedNote note : changes.values()) {
+                    if (note != null) {
+                        writer.write(note);
+                    }
+                }
+                writer.commit();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            synchronized (this) {
+                deleteOlderThan(newGeneration);
+            }
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Chiude il journal corrente.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private void append(byte op, long noteId, TokenizedNote note) throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Journal di indice non aperto");
+        }
+        long timestamp = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op);
+        out.writeLong(timestamp);
+        if (note != null) {
+            writeNote(out, note, null);
+        } else {
+            out.writeLong(noteId);
+        }
+        byte[] payload = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_SIZE + payload.length);
+        entry.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (entry.hasRemaining()) {
+            journal.write(entry);
+        }
+        journalEntries++;
+        lastTimestamp = timestamp;
+    }
+
+    private void openJournal(long generation) throws IOException {
+        close();
+        journal = FileChannel.open(journalFile(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalGeneration = generation;
+    }
+
+    private long latestGeneration() throws IOException {
+        long latest = 0;
+        for (long generation : generations(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            latest = Math.max(latest, generation);
+        }
+        for (long generation : generations(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            latest = Math.max(latest, generation);
+        }
+        return latest;
+    }
+
+    /**
+     * Visitatore che passa a {@code consumer} le note del segmento non modificate nei journal.
+     */
+    private static Visitor retained(Map<Long, TokenizedNote> changes, Consumer<TokenizedNote> consumer) {
+        return new Visitor() {
+            @Override
+            public void put(TokenizedNote note) {
+                if (!changes.containsKey(note.getId())) {
+                    consumer.accept(note);
+                }
+            }
+
+            @Override
+            public void remove(long noteId) {
+                // i segmenti contengono solo note presenti
+            }
+        };
+    }
+
+    private void deleteOlderThan(long generation) throws IOException {
+        for (long segmentGen : generations(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (segmentGen < generation) {
+                Files.deleteIfExists(segmentFile(segmentGen));
+            }
+        }
+        for (long journalGen : generations(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if (journalGen < generation) {
+                Files.deleteIfExists(journalFile(journalGen));
+            }
+        }
+    }
+
+    private static long readSegment(Path file, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segmento di indice oltre i 2 GB: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != SEGMENT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                    throw new IOException("Formato del segmento di indice non riconosciuto: " + file);
+                }
+                long watermark = buffer.getLong();
+                String[] dictionary = new String[buffer.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(buffer);
+                }
+                byte marker = buffer.get();
+                while (marker == RECORD) {
+                    visitor.put(readNote(buffer, dictionary));
+                    marker = buffer.get();
+                }
+                if (marker != END) {
+                    throw new IOException("Segmento di indice danneggiato: " + file);
+                }
+                return watermark;
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Segmento di indice incompleto: " + file, e);
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("Segmento di indice danneggiato: " + file, e);
+            }
+        }
+    }
+
+    private static Replay replayJournal(Path file, Visitor visitor) throws IOException {
+        Replay replay = new Replay();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Journal di indice oltre i 2 GB: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= ENTRY_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int crc = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                CRC32 check = new CRC32();
+                check.update(payload.duplicate());
+                if ((int) check.getValue() != crc) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+
+                byte op = payload.get();
+                long timestamp = payload.getLong();
+                if (op == OP_PUT) {
+                    visitor.put(readNote(payload, null));
+                } else {
+                    visitor.remove(payload.getLong());
+                }
+                replay.entries++;
+                replay.lastTimestamp = timestamp;
+                replay.validLength = buffer.position();
+            }
+        }
+        return replay;
+    }
+
+    /**
+     * Scrive una nota: id, termini con le loro occorrenze, tag e cartelle. Con {@code termIds}
+     * (segmenti) ogni termine è la sua posizione nel dizionario, senza (journal) è scritto per intero.
+     */
+    private static void writeNote(DataOutputStream out, TokenizedNote note, Map<String, Integer> termIds) throws IOException {
+        out.writeLong(note.getId());
+        out.writeInt(note.getOccurrences().size());
+        for (Map.Entry<String, int[]> entry : note.getOccurrences().entrySet()) {
+            if (termIds == null) {
+                writeString(out, entry.getKey());
+            } else {
+                Integer termId = termIds.get(entry.getKey());
+                if (termId == null) {
+                    throw new IOException("Termine assente dal dizionario del segmento: " + entry.getKey());
+                }
+                out.writeInt(termId);
+            }
+            int[] positions = entry.getValue();
+            out.writeInt(positions.length);
+            for (int position : positions) {
+                out.writeInt(position);
+            }
+        }
+        writeStrings(out, note.getTags());
+        writeStrings(out, note.getCartelle());
+    }
+
+    private static TokenizedNote readNote(ByteBuffer buffer, String[] dictionary) {
+        long id = buffer.getLong();
+        int termCount = buffer.getInt();
+        Map<String, int[]> occurrences = new HashMap<>(Math.max(16, termCount * 4 / 3 + 1));
+        for (int i = 0; i < termCount; i++) {
+            String term = dictionary == null ? readString(buffer) : dictionary[buffer.getInt()];
+            int[] positions = new int[buffer.getInt()];
+            for (int j = 0; j < positions.length; j++) {
+                positions[j] = buffer.getInt();
+            }
+            occurrences.put(term, positions);
+        }
+        List<String> tags = readStrings(buffer);
+        List<String> cartelle = readStrings(buffer);
+        return new TokenizedNote(id, occurrences, tags, cartelle);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        List<Long> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    result.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // file estraneo all'archivio
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private Path segmentFile(long generation) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    private Path journalFile(long generation) {
+        return directory.resolve(String.format("%s%012d%s", JOURNAL_PREFIX, generation, JOURNAL_SUFFIX));
+    }
+
+    /**
+     * Esito della lettura di un journal: voci valide, istante dell'ultima e lunghezza
+     * del file fino all'ultima voce integra.
+     */
+    private static final class Replay {
+        private int entries;
+        private long lastTimestamp;
+        private long validLength;
+    }
+
+    /**
+     * Scrive un segmento su file temporaneo, a partire dal dizionario dei termini;
+     * {@link #commit()} lo completa e lo rinomina atomicamente, {@link #close()} senza
+     * commit elimina il file temporaneo.
+     */
+    private static final class SegmentWriter implements Closeable {
+
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private boolean committed;
+
+        SegmentWriter(Path target, long watermark, Collection<String> terms) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(watermark);
+            out.writeInt(terms.size());
+            for (String term : terms) {
+                termIds.put(term, termIds.size());
+                writeString(out, term);
+            }
+        }
+
+        void write(TokenizedNote note) throws IOException {
+            out.writeByte(RECORD);
+            writeNote(out, note, termIds);
+        }
+
+        void writeUnchecked(TokenizedNote note) {
+            try {
+                write(note);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void commit() throws IOException {
+            out.writeByte(END);
+            out.flush();
+            channel.force(true);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
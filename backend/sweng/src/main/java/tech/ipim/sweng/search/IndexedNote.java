@@ -0,0 +1,45 @@
+package tech.ipim.sweng.search;
+
+import java.util.List;
+
+/**
+ * Campi di una nota usati dagli indici di ricerca: titolo e contenuto per il testo,
+ * tag e cartelle per i filtri. Prima di essere indicizzata o salvata su disco viene
+ * scomposta in termini ({@link TokenizedNote}).
+ */
+public final class IndexedNote {
+
+    private final long id;
+    private final String titolo;
+    private final String contenuto;
+    private final List<String> tags;
+    private final List<String> cartelle;
+
+    public IndexedNote(long id, String titolo, String contenuto, List<String> tags, List<String> cartelle) {
+        this.id = id;
+        this.titolo = titolo;
+        this.contenuto = contenuto;
+        this.tags = List.copyOf(tags);
+        this.cartelle = List.copyOf(cartelle);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitolo() {
+        return titolo;
+    }
+
+    public String getContenuto() {
+        return contenuto;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<String> getCartelle() {
+        return cartelle;
+    }
+}
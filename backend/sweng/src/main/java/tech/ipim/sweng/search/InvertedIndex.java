@@ -0,0 +1,338 @@
+package tech.ipim.sweng.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice invertito in memoria: per ogni termine mantiene la posting list
+ * dei documenti (id nota) che lo contengono, con le posizioni delle occorrenze.
+ * La frequenza del termine è il numero di occorrenze; le posizioni (campo, inizio, fine)
+ * permettono di evidenziare le corrispondenze senza rileggere il testo della nota.
+ * <p>
+ * I termini sono ordinati, così una parola della query viene confrontata come prefisso
+ * dei termini indicizzati ("prog" trova "progetto" e "programma") con una sola
+ * visita al sotto-albero, senza scorrere tutti i documenti.
+ * <p>
+ * Un indice diretto (documento → termini) permette di rimuovere o reindicizzare
+ * un documento senza ricostruire l'intero indice. L'accesso è protetto da un
+ * read/write lock: le ricerche procedono in parallelo, gli aggiornamenti sono esclusivi.
+ * <p>
+ * La ricerca ordinata usa il punteggio BM25 calcolato sulle frequenze dei termini
+ * e sulla lunghezza dei documenti.
+ */
+public class InvertedIndex {
+
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    /** Campi per occorrenza nelle posting list: indice del campo, offset di inizio e di fine. */
+    private static final int OCCURRENCE_SIZE = 3;
+
+    private final NavigableMap<String, Map<Long, int[]>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    /**
+     * Indicizza (o reindicizza) un documento a partire dai suoi campi testuali.
+     *
+     * @param docId  identificativo del documento
+     * @param fields campi testuali da indicizzare (es. titolo e contenuto)
+     */
+    public void index(long docId, String... fields) {
+        index(docId, occurrences(fields));
+    }
+
+    /**
+     * Indicizza (o reindicizza) un documento già scomposto in termini, ad esempio letto
+     * da un segmento su disco: il testo non viene riesaminato.
+     *
+     * @param docId       identificativo del documento
+     * @param occurrences per ogni termine le occorrenze (campo, inizio, fine), come da {@link #occurrences(String...)}
+     */
+    public void index(long docId, Map<String, int[]> occurrences) {
+        int length = 0;
+        for (int[] positions : occurrences.values()) {
+            length += positions.length / OCCURRENCE_SIZE;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            for (Map.Entry<String, int[]> entry : occurrences.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(docId, entry.getValue());
+            }
+            documentTerms.put(docId, new HashSet<>(occurrences.keySet()));
+            documentLengths.put(docId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Scompone i campi testuali nei termini dell'indice.
+     *
+     * @param fields campi testuali (es. titolo e contenuto)
+     * @return per ogni termine le occorrenze come terne (indice del campo, inizio, fine)
+     */
+    public static Map<String, int[]> occurrences(String... fields) {
+        Map<String, List<Integer>> occurrences = new HashMap<>();
+        for (int field = 0; field < fields.length; field++) {
+            for (TextTokenizer.Token token : TextTokenizer.tokenizeWithOffsets(fields[field])) {
+                List<Integer> positions = occurrences.computeIfAbsent(token.getTerm(), t -> new ArrayList<>());
+                positions.add(field);
+                positions.add(token.getStart());
+                positions.add(token.getEnd());
+            }
+        }
+        Map<String, int[]> result = new HashMap<>();
+        occurrences.forEach((term, positions) -> result.put(term, positions.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    /**
+     * Rimuove un documento dall'indice.
+     *
+     * @param docId identificativo del documento
+     */
+    public void remove(long docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Svuota completamente l'indice.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca i documenti che contengono tutte le parole della query.
+     * Ogni parola viene confrontata come prefisso dei termini indicizzati.
+     *
+     * @param query testo della ricerca
+     * @return id dei documenti che soddisfano tutte le parole, insieme vuoto se nessuno
+     */
+    public Set<Long> search(String query) {
+        List<String> queryTerms = TextTokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> result = null;
+            for (String queryTerm : new HashSet<>(queryTerms)) {
+                Set<Long> matches = matchPrefix(queryTerm);
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.retainAll(matches);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca i documenti che contengono tutte le parole della query e li ordina
+     * per rilevanza (BM25). A parità di punteggio viene preferito l'id più recente.
+     *
+     * @param query testo della ricerca
+     * @return id dei documenti ordinati per punteggio decrescente
+     */
+    public List<Long> searchRanked(String query) {
+        List<String> queryTerms = TextTokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documentTerms.size();
+            if (documentCount == 0) {
+                return Collections.emptyList();
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / documentCount);
+
+            Map<Long, Double> scores = null;
+            for (String queryTerm : new HashSet<>(queryTerms)) {
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map<Long, int[]> posting : prefixPostings(queryTerm)) {
+                    double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                    posting.forEach((docId, positions) -> {
+                        int tf = positions.length / OCCURRENCE_SIZE;
+                        double lengthRatio = documentLengths.getOrDefault(docId, 0) / averageLength;
+                        double score = idf * tf * (BM25_K1 + 1) / (tf + BM25_K1 * (1 - BM25_B + BM25_B * lengthRatio));
+                        termScores.merge(docId, score, Double::sum);
+                    });
+                }
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+
+            final Map<Long, Double> finalScores = scores;
+            List<Long> ranked = new ArrayList<>(finalScores.keySet());
+            ranked.sort(Comparator.comparing((Long docId) -> finalScores.get(docId)).reversed()
+                    .thenComparing(Comparator.reverseOrder()));
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce le occorrenze in un documento dei termini che corrispondono alle parole
+     * della query (confrontate come prefisso, come nella ricerca). Le posizioni vengono
+     * lette dalle posting list: il testo del documento non viene riesaminato.
+     *
+     * @param docId identificativo del documento
+     * @param query testo della ricerca
+     * @return occorrenze ordinate per campo e posizione, senza sovrapposizioni
+     */
+    public List<TermMatch> matches(long docId, String query) {
+        List<String> queryTerms = TextTokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<TermMatch> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<String> terms = documentTerms.get(docId);
+            if (terms == null) {
+                return Collections.emptyList();
+            }
+            Set<String> matchedTerms = new HashSet<>();
+            for (String queryTerm : new HashSet<>(queryTerms)) {
+                for (String term : prefixTerms(queryTerm)) {
+                    if (terms.contains(term) && matchedTerms.add(term)) {
+                        int[] positions = postings.get(term).get(docId);
+                        for (int i = 0; i < positions.length; i += OCCURRENCE_SIZE) {
+                            matches.add(new TermMatch(positions[i], positions[i + 1], positions[i + 2]));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(TermMatch::getField)
+                .thenComparingInt(TermMatch::getStart)
+                .thenComparing(Comparator.comparingInt(TermMatch::getEnd).reversed()));
+        return TermMatch.merge(matches);
+    }
+
+    /**
+     * Verifica se un documento è presente nell'indice.
+     *
+     * @param docId identificativo del documento
+     * @return true se il documento è indicizzato
+     */
+    public boolean contains(long docId) {
+        lock.readLock().lock();
+        try {
+            return documentTerms.containsKey(docId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return numero di documenti indicizzati
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return numero di termini distinti nel dizionario
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> matchPrefix(String prefix) {
+        Set<Long> matches = new HashSet<>();
+        for (Map<Long, int[]> posting : prefixPostings(prefix)) {
+            matches.addAll(posting.keySet());
+        }
+        return matches;
+    }
+
+    private Iterable<Map<Long, int[]>> prefixPostings(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+
+    private Iterable<String> prefixTerms(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet();
+    }
+
+    private void removeInternal(long docId) {
+        Set<String> terms = documentTerms.remove(docId);
+        if (terms == null) {
+            return;
+        }
+        totalLength -= documentLengths.remove(docId);
+        for (String term : terms) {
+            Map<Long, int[]> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(docId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package tech.ipim.sweng.search;
+
+/**
+ * Insieme degli indici di ricerca sulle note: il motore full-text, l'indice di trigrammi
+ * per la ricerca fuzzy e le bitmap di tag e cartelle. Vengono aggiornati insieme, così
+ * un intero insieme può essere ricostruito a parte e sostituito in un colpo solo.
+ */
+public class NoteIndexes {
+
+    private final NoteSearchEngine engine;
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private final TagBitmapIndex tagIndex = new TagBitmapIndex();
+
+    /**
+     * @param engine motore full-text, vuoto o da popolare
+     */
+    public NoteIndexes(NoteSearchEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Crea un insieme vuoto con un motore dello stesso tipo e configurazione.
+     *
+     * @return nuovo insieme di indici vuoti
+     */
+    public NoteIndexes emptyCopy() {
+        return new NoteIndexes(engine.emptyCopy());
+    }
+
+    /**
+     * Indicizza (o reindicizza) una nota in tutti gli indici.
+     *
+     * @param note campi indicizzati della nota
+     */
+    public void index(IndexedNote note) {
+        index(TokenizedNote.of(note));
+    }
+
+    /**
+     * Indicizza (o reindicizza) una nota già scomposta in termini: il testo viene
+     * scomposto una sola volta per tutti gli indici, o mai se la nota viene dal disco.
+     *
+     * @param note nota scomposta in termini
+     */
+    public void index(TokenizedNote note) {
+        if (engine.requiresRebuild()) {
+            engine.index(note);
+        }
+        trigramIndex.indexTerms(note.getId(), note.getTerms());
+        tagIndex.index(note.getId(), note.getTags(), note.getCartelle());
+    }
+
+    /**
+     * Rimuove una nota da tutti gli indici.
+     *
+     * @param noteId id della nota
+     */
+    public void remove(long noteId) {
+        engine.remove(noteId);
+        trigramIndex.remove(noteId);
+        tagIndex.remove(noteId);
+    }
+
+    /**
+     * Svuota tutti gli indici.
+     */
+    public void clear() {
+        if (engine.requiresRebuild()) {
+            engine.clear();
+        }
+        trigramIndex.clear();
+        tagIndex.clear();
+    }
+
+    public NoteSearchEngine getEngine() {
+        return engine;
+    }
+
+    public TrigramIndex getTrigramIndex() {
+        return trigramIndex;
+    }
+
+    public TagBitmapIndex getTagIndex() {
+        return tagIndex;
+    }
+}
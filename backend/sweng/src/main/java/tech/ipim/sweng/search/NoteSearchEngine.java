@@ -0,0 +1,111 @@
+package tech.ipim.sweng.search;
+
+import java.util.List;
+
+/**
+ * Motore di ricerca full-text sulle note.
+ * <p>
+ * Un motore restituisce soltanto gli id delle note che corrispondono alla query,
+ * già ordinati per rilevanza. Se il motore vive nel database ({@link #appliesPermissions()})
+ * la stessa query applica anche i permessi dell'utente; altrimenti il filtro resta al chiamante.
+ * Le implementazioni disponibili sono {@link InMemoryNoteSearchEngine} (indice invertito
+ * con punteggio BM25) e {@link PostgresNoteSearchEngine} (tsvector, indice GIN e ts_rank).
+ */
+public interface NoteSearchEngine {
+
+    /**
+     * @return nome del motore, usato nei log
+     */
+    String getName();
+
+    /**
+     * Indica se il motore deve essere popolato leggendo le note dal database
+     * all'avvio, come accade per gli indici in memoria.
+     *
+     * @return true se il motore richiede la ricostruzione all'avvio
+     */
+    boolean requiresRebuild();
+
+    /**
+     * Indica se il motore sa limitare la ricerca alle note accessibili a un utente
+     * con {@link #search(String, String, int)}.
+     *
+     * @return true se il motore applica i permessi
+     */
+    boolean appliesPermissions();
+
+    /**
+     * Prepara le strutture del motore all'avvio dell'applicazione, dopo
+     * che lo schema del database è stato creato.
+     */
+    void initialize();
+
+    /**
+     * Crea un motore vuoto con la stessa configurazione, da popolare a parte
+     * durante una reindicizzazione completa.
+     *
+     * @return nuovo motore senza note indicizzate
+     */
+    NoteSearchEngine emptyCopy();
+
+    /**
+     * Indicizza (o reindicizza) una nota.
+     *
+     * @param noteId    id della nota
+     * @param titolo    titolo della nota
+     * @param contenuto contenuto della nota
+     */
+    void index(long noteId, String titolo, String contenuto);
+
+    /**
+     * Indicizza (o reindicizza) una nota già scomposta in termini, ad esempio letta
+     * dai segmenti su disco, senza riesaminarne il testo.
+     *
+     * @param note nota scomposta in termini
+     */
+    void index(TokenizedNote note);
+
+    /**
+     * Rimuove una nota dal motore.
+     *
+     * @param noteId id della nota
+     */
+    void remove(long noteId);
+
+    /**
+     * Svuota il motore.
+     */
+    void clear();
+
+    /**
+     * Cerca le note che contengono tutte le parole della query (come prefisso).
+     *
+     * @param query testo della ricerca
+     * @return id delle note ordinati per rilevanza decrescente
+     */
+    List<Long> search(String query);
+
+    /**
+     * Cerca, tra le note accessibili all'utente, quelle che contengono tutte le parole
+     * della query. Disponibile solo se {@link #appliesPermissions()} è true.
+     *
+     * @param query    testo della ricerca
+     * @param username utente che esegue la ricerca
+     * @param limit    numero massimo di id restituiti
+     * @return id delle note ordinati per rilevanza decrescente, al massimo {@code limit}
+     */
+    List<Long> search(String query, String username, int limit);
+
+    /**
+     * Restituisce le posizioni delle parole della query in una nota, per evidenziarle
+     * nei risultati. Il motore in memoria le legge dalle posting list; un motore senza
+     * posizioni scompone il testo ricevuto, che è solo quello delle note della pagina.
+     *
+     * @param noteId    id della nota
+     * @param titolo    titolo della nota
+     * @param contenuto contenuto della nota
+     * @param query     testo della ricerca
+     * @return occorrenze nel titolo (campo 0) e nel contenuto (campo 1), ordinate
+     */
+    List<TermMatch> matches(long noteId, String titolo, String contenuto, String query);
+}
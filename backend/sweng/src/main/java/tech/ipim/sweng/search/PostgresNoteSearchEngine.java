@@ -0,0 +1,152 @@
+package tech.ipim.sweng.search;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Motore di ricerca che usa il full-text nativo di PostgreSQL.
+ * <p>
+ * All'avvio aggiunge alla tabella {@code notes} una colonna generata {@code search_vector}
+ * (tsvector di titolo e contenuto, con il titolo a peso maggiore) e un indice GIN su di essa.
+ * La colonna è mantenuta dal database a ogni INSERT/UPDATE, quindi il motore non ha dati
+ * in memoria e non va ricostruito all'avvio. Le query usano {@code to_tsquery} con corrispondenza
+ * per prefisso su ogni parola, sono limitate alle note accessibili all'utente tramite le tabelle
+ * {@code note_access} e {@code note_group_access} e ordinano i risultati con {@code ts_rank}.
+ * <p>
+ * Il tsvector conserva solo la posizione ordinale delle parole, non gli offset nel testo:
+ * le evidenziazioni vengono calcolate scomponendo il testo delle sole note della pagina.
+ */
+public class PostgresNoteSearchEngine implements NoteSearchEngine {
+
+    /**
+     * Id delle note accessibili all'utente (primo e secondo parametro: username), con le stesse
+     * regole di {@code NoteRepository.ACCESSIBLE}.
+     */
+    private static final String ACCESSIBLE_IDS = "SELECT a.note_id FROM note_access a JOIN users u ON u.id = a.user_id "
+            + "WHERE u.username = ? "
+            + "UNION SELECT ga.note_id FROM note_group_access ga JOIN gruppi_membri gm ON gm.gruppo_id = ga.gruppo_id "
+            + "JOIN users u ON u.id = gm.user_id WHERE u.username = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String textSearchConfig;
+
+    /**
+     * @param jdbcTemplate     accesso JDBC al database
+     * @param textSearchConfig configurazione text search di PostgreSQL (es. "simple", "italian")
+     */
+    public PostgresNoteSearchEngine(JdbcTemplate jdbcTemplate, String textSearchConfig) {
+        if (!textSearchConfig.matches("[a-z_]+")) {
+            throw new IllegalArgumentException("Configurazione text search non valida: " + textSearchConfig);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.textSearchConfig = textSearchConfig;
+    }
+
+    @Override
+    public String getName() {
+        return "postgres";
+    }
+
+    @Override
+    public boolean requiresRebuild() {
+        // indice e ordinamento sono del database
+        return false;
+    }
+
+    @Override
+    public boolean appliesPermissions() {
+        return true;
+    }
+
+    /**
+     * Crea (se mancanti) la colonna tsvector generata e il relativo indice GIN.
+     */
+    @Override
+    public void initialize() {
+        jdbcTemplate.execute("ALTER TABLE notes ADD COLUMN IF NOT EXISTS search_vector tsvector "
+                + "GENERATED ALWAYS AS ("
+                + "setweight(to_tsvector('" + textSearchConfig + "', coalesce(titolo, '')), 'A') || "
+                + "setweight(to_tsvector('" + textSearchConfig + "', coalesce(contenuto, '')), 'B')"
+                + ") STORED");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_notes_search_vector ON notes USING GIN (search_vector)");
+    }
+
+    @Override
+    public NoteSearchEngine emptyCopy() {
+        return new PostgresNoteSearchEngine(jdbcTemplate, textSearchConfig);
+    }
+
+    @Override
+    public void index(long noteId, String titolo, String contenuto) {
+        // la colonna generata viene aggiornata dal database
+    }
+
+    @Override
+    public void index(TokenizedNote note) {
+        // la colonna generata viene aggiornata dal database
+    }
+
+    @Override
+    public void remove(long noteId) {
+        // la riga eliminata esce dall'indice GIN insieme alla nota
+    }
+
+    @Override
+    public void clear() {
+        // nessun dato in memoria
+    }
+
+    @Override
+    public List<Long> search(String query) {
+        String tsQuery = toTsQuery(query);
+        if (tsQuery.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT n.id FROM notes n, to_tsquery(CAST(? AS regconfig), ?) q "
+                        + "WHERE n.search_vector @@ q "
+                        + "ORDER BY ts_rank(n.search_vector, q) DESC, n.id DESC",
+                Long.class, textSearchConfig, tsQuery);
+    }
+
+    @Override
+    public List<Long> search(String query, String username, int limit) {
+        String tsQuery = toTsQuery(query);
+        if (tsQuery.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+                "SELECT n.id FROM notes n, to_tsquery(CAST(? AS regconfig), ?) q "
+                        + "WHERE n.search_vector @@ q AND n.id IN (" + ACCESSIBLE_IDS + ") "
+                        + "ORDER BY ts_rank(n.search_vector, q) DESC, n.id DESC LIMIT ?",
+                Long.class, textSearchConfig, tsQuery, username, username, limit);
+    }
+
+    @Override
+    public List<TermMatch> matches(long noteId, String titolo, String contenuto, String query) {
+        InvertedIndex page = new InvertedIndex();
+        page.index(noteId, titolo, contenuto);
+        return page.matches(noteId, query);
+    }
+
+    /**
+     * Converte il testo della ricerca in una tsquery: ogni parola diventa un prefisso
+     * ({@code parola:*}) e le parole sono in AND, come nel motore in memoria.
+     * Le parole sono divise dal {@link TextTokenizer}, che lascia solo lettere e cifre, quindi
+     * la query non può contenere operatori tsquery inseriti dall'utente; gli accenti restano,
+     * perché {@code to_tsvector} li conserva nella colonna generata.
+     *
+     * @param query testo della ricerca
+     * @return tsquery, stringa vuota se la query non contiene parole
+     */
+    static String toTsQuery(String query) {
+        return TextTokenizer.tokenizeWithOffsets(query).stream()
+                .map(token -> query.substring(token.getStart(), token.getEnd()).toLowerCase(Locale.ROOT))
+                .distinct()
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
@@ -0,0 +1,143 @@
+package tech.ipim.sweng.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trie di prefissi con conteggio dei riferimenti, usato per l'autocompletamento.
+ * <p>
+ * Le chiavi sono normalizzate con {@link TextTokenizer#normalize(String)} e troncate a
+ * {@value #MAX_KEY_LENGTH} caratteri: oltre quella lunghezza nessuno digita un prefisso,
+ * e il limite mantiene costante il costo di inserimento e ricerca. Ogni nodo terminale
+ * conserva i valori associati alla chiave con il numero di volte in cui sono stati inseriti,
+ * così lo stesso valore aggiunto da più note viene rimosso solo quando l'ultima lo rilascia.
+ * <p>
+ * La classe non è thread-safe: la sincronizzazione è a carico del chiamante.
+ *
+ * @param <V> tipo dei valori associati alle chiavi
+ */
+public class PrefixTrie<V> {
+
+    static final int MAX_KEY_LENGTH = 24;
+
+    private final Node<V> root = new Node<>();
+
+    /**
+     * Associa un valore a una chiave (incrementandone il conteggio se già presente).
+     *
+     * @param key   chiave testuale
+     * @param value valore da associare
+     */
+    public void add(String key, V value) {
+        String normalized = normalizeKey(key);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Node<V> node = root;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.children.computeIfAbsent(normalized.charAt(i), c -> new Node<>());
+        }
+        if (node.values == null) {
+            node.values = new HashMap<>();
+        }
+        node.values.merge(value, 1, Integer::sum);
+    }
+
+    /**
+     * Rilascia un'associazione chiave-valore; il valore sparisce quando il conteggio arriva a zero
+     * e i nodi rimasti vuoti vengono potati.
+     *
+     * @param key   chiave testuale
+     * @param value valore da rilasciare
+     */
+    public void remove(String key, V value) {
+        String normalized = normalizeKey(key);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Deque<Node<V>> path = new ArrayDeque<>();
+        Node<V> node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            path.push(node);
+            node = node.children.get(normalized.charAt(i));
+        }
+        if (node == null || node.values == null) {
+            return;
+        }
+
+        node.values.computeIfPresent(value, (v, count) -> count > 1 ? count - 1 : null);
+        if (node.values.isEmpty()) {
+            node.values = null;
+        }
+
+        for (int i = normalized.length() - 1; i >= 0 && node.isEmpty(); i--) {
+            Node<V> parent = path.pop();
+            parent.children.remove(normalized.charAt(i));
+            node = parent;
+        }
+    }
+
+    /**
+     * Restituisce fino a {@code limit} valori distinti le cui chiavi iniziano con il prefisso,
+     * in ordine alfabetico di chiave. La visita si ferma appena raccolti abbastanza valori.
+     *
+     * @param prefix prefisso digitato
+     * @param limit  numero massimo di valori
+     * @return valori completati
+     */
+    public List<V> complete(String prefix, int limit) {
+        String normalized = normalizeKey(prefix);
+        Node<V> node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.children.get(normalized.charAt(i));
+        }
+        if (node == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Set<V> result = new LinkedHashSet<>();
+        collect(node, result, limit);
+        return new ArrayList<>(result);
+    }
+
+    private void collect(Node<V> node, Set<V> result, int limit) {
+        if (node.values != null) {
+            for (V value : node.values.keySet()) {
+                result.add(value);
+                if (result.size() >= limit) {
+                    return;
+                }
+            }
+        }
+        for (Node<V> child : node.children.values()) {
+            collect(child, result, limit);
+            if (result.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    private static String normalizeKey(String key) {
+        if (key == null) {
+            return "";
+        }
+        String normalized = TextTokenizer.normalize(key.trim());
+        return normalized.length() > MAX_KEY_LENGTH ? normalized.substring(0, MAX_KEY_LENGTH) : normalized;
+    }
+
+    private static final class Node<V> {
+        private final TreeMap<Character, Node<V>> children = new TreeMap<>();
+        private Map<V, Integer> values;
+
+        private boolean isEmpty() {
+            return children.isEmpty() && values == null;
+        }
+    }
+}
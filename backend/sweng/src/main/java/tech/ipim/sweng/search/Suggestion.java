@@ -0,0 +1,54 @@
+package tech.ipim.sweng.search;
+
+import java.util.Objects;
+
+/**
+ * Suggerimento di autocompletamento: il testo da proporre e il campo da cui proviene.
+ */
+public final class Suggestion {
+
+    /**
+     * Campo della nota da cui proviene il suggerimento.
+     */
+    public enum Tipo {
+        TITOLO, TAG, CARTELLA
+    }
+
+    private final String testo;
+    private final Tipo tipo;
+
+    public Suggestion(String testo, Tipo tipo) {
+        this.testo = testo;
+        this.tipo = tipo;
+    }
+
+    public String getTesto() {
+        return testo;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Suggestion)) {
+            return false;
+        }
+        Suggestion other = (Suggestion) o;
+        return testo.equals(other.testo) && tipo == other.tipo;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(testo, tipo);
+    }
+
+    @Override
+    public String toString() {
+        return tipo + ":" + testo;
+    }
+}
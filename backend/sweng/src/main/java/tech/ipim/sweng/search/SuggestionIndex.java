@@ -0,0 +1,130 @@
+package tech.ipim.sweng.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice di autocompletamento delle note accessibili a un singolo utente.
+ * <p>
+ * Titoli, tag e cartelle sono inseriti in un {@link PrefixTrie} sia per intero sia a partire
+ * da ogni parola successiva alla prima, così "prog" completa anche "Riunione di progetto".
+ * Per ogni nota vengono ricordate le chiavi inserite, in modo da poterla aggiornare
+ * o rimuovere senza ricostruire l'indice.
+ */
+public class SuggestionIndex {
+
+    private final PrefixTrie<Suggestion> trie = new PrefixTrie<>();
+    private final Map<Long, List<Entry>> noteEntries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Inserisce (o sostituisce) i suggerimenti provenienti da una nota.
+     *
+     * @param noteId   id della nota
+     * @param titolo   titolo della nota
+     * @param tags     tag della nota
+     * @param cartelle cartelle della nota
+     */
+    public void put(long noteId, String titolo, Collection<String> tags, Collection<String> cartelle) {
+        List<Entry> entries = new ArrayList<>();
+        addEntries(entries, titolo, Suggestion.Tipo.TITOLO);
+        for (String tag : tags) {
+            addEntries(entries, tag, Suggestion.Tipo.TAG);
+        }
+        for (String cartella : cartelle) {
+            addEntries(entries, cartella, Suggestion.Tipo.CARTELLA);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(noteId);
+            for (Entry entry : entries) {
+                trie.add(entry.key, entry.suggestion);
+            }
+            noteEntries.put(noteId, entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rimuove i suggerimenti provenienti da una nota.
+     *
+     * @param noteId id della nota
+     */
+    public void remove(long noteId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(noteId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce fino a {@code limit} suggerimenti che completano il prefisso.
+     *
+     * @param prefix prefisso digitato
+     * @param limit  numero massimo di suggerimenti
+     * @return suggerimenti distinti
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return trie.complete(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return numero di note presenti nell'indice
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return noteEntries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addEntries(List<Entry> entries, String text, Suggestion.Tipo tipo) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String trimmed = text.trim();
+        Suggestion suggestion = new Suggestion(trimmed, tipo);
+        entries.add(new Entry(trimmed, suggestion));
+        for (int i = 1; i < trimmed.length(); i++) {
+            if (!Character.isLetterOrDigit(trimmed.charAt(i - 1)) && Character.isLetterOrDigit(trimmed.charAt(i))) {
+                entries.add(new Entry(trimmed.substring(i), suggestion));
+            }
+        }
+    }
+
+    private void removeInternal(long noteId) {
+        List<Entry> entries = noteEntries.remove(noteId);
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries) {
+            trie.remove(entry.key, entry.suggestion);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Suggestion suggestion;
+
+        private Entry(String key, Suggestion suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+    }
+}
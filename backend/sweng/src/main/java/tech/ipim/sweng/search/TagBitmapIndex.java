@@ -0,0 +1,184 @@
+package tech.ipim.sweng.search;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Indice in memoria di tag e cartelle basato su bitmap compresse (Roaring).
+ * <p>
+ * Per ogni tag e per ogni cartella mantiene la bitmap degli id delle note che li usano.
+ * Le espressioni booleane sui tag (tutti questi, almeno uno di questi, nessuno di questi)
+ * e il filtro per cartella vengono risolti con intersezioni, unioni e differenze di bitmap,
+ * prima di leggere qualsiasi riga dal database.
+ * <p>
+ * Tag e cartelle sono confrontati esattamente come sono salvati, come nelle query sul database.
+ */
+public class TagBitmapIndex {
+
+    private final Map<String, Roaring64NavigableMap> tagBitmaps = new HashMap<>();
+    private final Map<String, Roaring64NavigableMap> cartellaBitmaps = new HashMap<>();
+    private final Map<Long, Set<String>> documentTags = new HashMap<>();
+    private final Map<Long, Set<String>> documentCartelle = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indicizza (o reindicizza) tag e cartelle di una nota.
+     *
+     * @param noteId   id della nota
+     * @param tags     tag della nota
+     * @param cartelle cartelle della nota
+     */
+    public void index(long noteId, Collection<String> tags, Collection<String> cartelle) {
+        Set<String> tagSet = new HashSet<>(tags);
+        Set<String> cartellaSet = new HashSet<>(cartelle);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(noteId);
+            for (String tag : tagSet) {
+                tagBitmaps.computeIfAbsent(tag, t -> new Roaring64NavigableMap()).addLong(noteId);
+            }
+            for (String cartella : cartellaSet) {
+                cartellaBitmaps.computeIfAbsent(cartella, c -> new Roaring64NavigableMap()).addLong(noteId);
+            }
+            documentTags.put(noteId, tagSet);
+            documentCartelle.put(noteId, cartellaSet);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rimuove una nota dall'indice.
+     *
+     * @param noteId id della nota
+     */
+    public void remove(long noteId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(noteId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Svuota completamente l'indice.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            tagBitmaps.clear();
+            cartellaBitmaps.clear();
+            documentTags.clear();
+            documentCartelle.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Valuta un'espressione su tag e cartelle. Serve almeno un criterio positivo
+     * (un tag obbligatorio, un tag alternativo o una cartella): i soli tag esclusi
+     * non delimitano un insieme di note.
+     *
+     * @param allTags  tag che la nota deve avere tutti (AND)
+     * @param anyTags  tag di cui la nota deve averne almeno uno (OR)
+     * @param notTags  tag che la nota non deve avere (NOT)
+     * @param cartella cartella della nota, o null
+     * @return bitmap degli id che soddisfano l'espressione (una copia, modificabile dal chiamante)
+     */
+    public Roaring64NavigableMap evaluate(Collection<String> allTags, Collection<String> anyTags,
+                                          Collection<String> notTags, String cartella) {
+        if (allTags.isEmpty() && anyTags.isEmpty() && cartella == null) {
+            throw new IllegalArgumentException("Serve almeno un tag o una cartella da includere");
+        }
+
+        lock.readLock().lock();
+        try {
+            Roaring64NavigableMap result = null;
+
+            for (String tag : allTags) {
+                result = intersect(result, tagBitmaps.get(tag));
+            }
+            if (cartella != null) {
+                result = intersect(result, cartellaBitmaps.get(cartella));
+            }
+            if (!anyTags.isEmpty()) {
+                Roaring64NavigableMap union = new Roaring64NavigableMap();
+                for (String tag : anyTags) {
+                    Roaring64NavigableMap bitmap = tagBitmaps.get(tag);
+                    if (bitmap != null) {
+                        union.or(bitmap);
+                    }
+                }
+                result = intersect(result, union);
+            }
+            for (String tag : notTags) {
+                Roaring64NavigableMap bitmap = tagBitmaps.get(tag);
+                if (bitmap != null) {
+                    result.andNot(bitmap);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return numero di note indicizzate
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTags.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Interseca il risultato parziale con una bitmap; alla prima chiamata copia la bitmap
+     * per non modificare quella dell'indice.
+     */
+    private static Roaring64NavigableMap intersect(Roaring64NavigableMap current, Roaring64NavigableMap bitmap) {
+        if (bitmap == null) {
+            return new Roaring64NavigableMap();
+        }
+        if (current == null) {
+            Roaring64NavigableMap copy = new Roaring64NavigableMap();
+            copy.or(bitmap);
+            return copy;
+        }
+        current.and(bitmap);
+        return current;
+    }
+
+    private void removeInternal(long noteId) {
+        removeFrom(tagBitmaps, documentTags.remove(noteId), noteId);
+        removeFrom(cartellaBitmaps, documentCartelle.remove(noteId), noteId);
+    }
+
+    private static void removeFrom(Map<String, Roaring64NavigableMap> bitmaps, Set<String> keys, long noteId) {
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Roaring64NavigableMap bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                bitmap.removeLong(noteId);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package tech.ipim.sweng.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Occorrenza di un termine della ricerca in un campo di un documento.
+ * Gli offset si riferiscono al testo originale del campo (inizio incluso, fine escluso).
+ */
+public final class TermMatch {
+
+    private final int field;
+    private final int start;
+    private final int end;
+
+    public TermMatch(int field, int start, int end) {
+        this.field = field;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return indice del campo, nell'ordine in cui i campi sono stati indicizzati
+     */
+    public int getField() {
+        return field;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Unisce le occorrenze sovrapposte o adiacenti dello stesso campo.
+     *
+     * @param sorted occorrenze ordinate per campo e posizione
+     * @return occorrenze senza sovrapposizioni
+     */
+    static List<TermMatch> merge(List<TermMatch> sorted) {
+        List<TermMatch> merged = new ArrayList<>();
+        TermMatch current = null;
+        for (TermMatch match : sorted) {
+            if (current != null && current.field == match.field && match.start <= current.end) {
+                current = new TermMatch(current.field, current.start, Math.max(current.end, match.end));
+            } else {
+                if (current != null) {
+                    merged.add(current);
+                }
+                current = match;
+            }
+        }
+        if (current != null) {
+            merged.add(current);
+        }
+        return merged;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TermMatch)) {
+            return false;
+        }
+        TermMatch other = (TermMatch) o;
+        return field == other.field && start == other.start && end == other.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "TermMatch{field=" + field + ", start=" + start + ", end=" + end + "}";
+    }
+}
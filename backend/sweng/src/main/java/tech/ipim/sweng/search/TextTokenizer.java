@@ -0,0 +1,117 @@
+package tech.ipim.sweng.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tokenizzatore usato dagli indici di ricerca delle note.
+ * <p>
+ * Divide il testo in parole composte da lettere e cifre, le porta in minuscolo
+ * e rimuove gli accenti, così che "Perché" e "perche" producano lo stesso termine.
+ * Lo stesso tokenizzatore viene applicato sia in indicizzazione sia alle query.
+ */
+public final class TextTokenizer {
+
+    private TextTokenizer() { }
+
+    /**
+     * Restituisce i termini normalizzati contenuti nel testo, nell'ordine in cui compaiono.
+     *
+     * @param text testo da tokenizzare (può essere null)
+     * @return lista dei termini, eventualmente vuota
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (Token token : tokenizeWithOffsets(text)) {
+            tokens.add(token.getTerm());
+        }
+        return tokens;
+    }
+
+    /**
+     * Restituisce i termini normalizzati insieme alla loro posizione nel testo originale.
+     * La normalizzazione avviene carattere per carattere, così gli offset restano allineati
+     * al testo anche quando la rimozione degli accenti ne cambierebbe la lunghezza.
+     *
+     * @param text testo da tokenizzare (può essere null)
+     * @return lista dei token con offset di inizio (incluso) e fine (escluso)
+     */
+    public static List<Token> tokenizeWithOffsets(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder current = new StringBuilder();
+        int start = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+                current.append(normalize(new String(Character.toChars(codePoint))));
+            } else if (start >= 0) {
+                tokens.add(new Token(current.toString(), start, i));
+                current.setLength(0);
+                start = -1;
+            }
+            i = next;
+        }
+
+        if (start >= 0) {
+            tokens.add(new Token(current.toString(), start, text.length()));
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Normalizza un singolo termine (minuscolo, senza accenti) senza dividerlo.
+     *
+     * @param text testo da normalizzare
+     * @return testo normalizzato
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Termine normalizzato con la sua posizione nel testo originale.
+     */
+    public static final class Token {
+        private final String term;
+        private final int start;
+        private final int end;
+
+        Token(String term, int start, int end) {
+            this.term = term;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+}
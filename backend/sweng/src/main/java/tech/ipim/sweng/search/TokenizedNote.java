@@ -0,0 +1,72 @@
+package tech.ipim.sweng.search;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nota già scomposta nei termini degli indici: per ogni termine le occorrenze
+ * (campo, inizio, fine) come nelle posting list di {@link InvertedIndex}, più tag e cartelle.
+ * <p>
+ * È l'unità salvata nei segmenti e nel journal di {@link IndexSegmentStore}: al riavvio
+ * gli indici vengono popolati da queste posting list, senza riscomporre il testo, e
+ * sul disco non finisce il testo delle note.
+ */
+public final class TokenizedNote {
+
+    private final long id;
+    private final Map<String, int[]> occurrences;
+    private final List<String> tags;
+    private final List<String> cartelle;
+
+    /**
+     * @param id          id della nota
+     * @param occurrences per ogni termine le occorrenze come terne (campo, inizio, fine)
+     * @param tags        tag della nota
+     * @param cartelle    cartelle della nota
+     */
+    public TokenizedNote(long id, Map<String, int[]> occurrences, List<String> tags, List<String> cartelle) {
+        this.id = id;
+        this.occurrences = Collections.unmodifiableMap(occurrences);
+        this.tags = List.copyOf(tags);
+        this.cartelle = List.copyOf(cartelle);
+    }
+
+    /**
+     * Scompone titolo (campo 0) e contenuto (campo 1) di una nota.
+     *
+     * @param note campi indicizzati della nota
+     * @return nota scomposta in termini
+     */
+    public static TokenizedNote of(IndexedNote note) {
+        return new TokenizedNote(note.getId(), InvertedIndex.occurrences(note.getTitolo(), note.getContenuto()),
+                note.getTags(), note.getCartelle());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return per ogni termine le occorrenze; gli array non vanno modificati
+     */
+    public Map<String, int[]> getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * @return termini distinti della nota
+     */
+    public Set<String> getTerms() {
+        return occurrences.keySet();
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<String> getCartelle() {
+        return cartelle;
+    }
+}
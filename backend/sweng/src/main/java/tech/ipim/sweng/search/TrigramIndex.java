@@ -0,0 +1,248 @@
+package tech.ipim.sweng.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice di trigrammi per la ricerca tollerante agli errori di battitura.
+ * <p>
+ * Ogni termine del vocabolario (titoli e contenuti delle note) viene scomposto nei suoi
+ * trigrammi di caratteri, con due spazi iniziali e uno finale come in pg_trgm
+ * ("casa" → "  c", " ca", "cas", "asa", "sa "). Una parola della query viene confrontata
+ * solo con i termini che condividono almeno un trigramma, e la somiglianza è il rapporto
+ * tra trigrammi comuni e trigrammi totali (Jaccard). I termini sopra soglia vengono poi
+ * risolti nelle note che li contengono, senza mai leggere la tabella delle note.
+ * <p>
+ * Più parole nella query sono combinate in AND; il punteggio di una nota è la somma,
+ * per ogni parola, della somiglianza migliore tra i suoi termini.
+ */
+public class TrigramIndex {
+
+    private final Map<String, Set<String>> trigramTerms = new HashMap<>();
+    private final Map<String, Set<Long>> termDocuments = new HashMap<>();
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indicizza (o reindicizza) un documento a partire dai suoi campi testuali.
+     *
+     * @param docId  identificativo del documento
+     * @param fields campi testuali da indicizzare
+     */
+    public void index(long docId, String... fields) {
+        Set<String> terms = new HashSet<>();
+        for (String field : fields) {
+            terms.addAll(TextTokenizer.tokenize(field));
+        }
+        indexTerms(docId, terms);
+    }
+
+    /**
+     * Indicizza (o reindicizza) un documento a partire dai suoi termini già estratti,
+     * ad esempio letti da un segmento su disco.
+     *
+     * @param docId identificativo del documento
+     * @param terms termini distinti del documento
+     */
+    public void indexTerms(long docId, Collection<String> terms) {
+        Set<String> termSet = new HashSet<>(terms);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            for (String term : termSet) {
+                Set<Long> docs = termDocuments.get(term);
+                if (docs == null) {
+                    docs = new HashSet<>();
+                    termDocuments.put(term, docs);
+                    for (String trigram : trigrams(term)) {
+                        trigramTerms.computeIfAbsent(trigram, t -> new HashSet<>()).add(term);
+                    }
+                }
+                docs.add(docId);
+            }
+            documentTerms.put(docId, termSet);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rimuove un documento dall'indice.
+     *
+     * @param docId identificativo del documento
+     */
+    public void remove(long docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Svuota completamente l'indice.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            trigramTerms.clear();
+            termDocuments.clear();
+            documentTerms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca i documenti che contengono, per ogni parola della query, almeno un termine
+     * con somiglianza di trigrammi non inferiore alla soglia.
+     *
+     * @param query     testo della ricerca
+     * @param threshold somiglianza minima (0-1) perché un termine sia considerato corrispondente
+     * @return id dei documenti ordinati per punteggio decrescente
+     */
+    public List<Long> search(String query, double threshold) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String queryTerm : queryTerms) {
+                Map<Long, Double> wordScores = new HashMap<>();
+                similarTerms(queryTerm, threshold).forEach((term, similarity) -> {
+                    for (Long docId : termDocuments.get(term)) {
+                        wordScores.merge(docId, similarity, Math::max);
+                    }
+                });
+
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    scores.keySet().retainAll(wordScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+
+            final Map<Long, Double> finalScores = scores;
+            List<Long> ranked = new ArrayList<>(finalScores.keySet());
+            ranked.sort(Comparator.comparing((Long docId) -> finalScores.get(docId)).reversed()
+                    .thenComparing(Comparator.reverseOrder()));
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return numero di termini distinti nel vocabolario
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return termDocuments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calcola la somiglianza tra due parole come rapporto tra trigrammi comuni e totali.
+     *
+     * @param a prima parola (già normalizzata)
+     * @param b seconda parola (già normalizzata)
+     * @return somiglianza tra 0 e 1
+     */
+    public static double similarity(String a, String b) {
+        Set<String> trigramsA = trigrams(a);
+        Set<String> trigramsB = trigrams(b);
+        int shared = 0;
+        for (String trigram : trigramsA) {
+            if (trigramsB.contains(trigram)) {
+                shared++;
+            }
+        }
+        return (double) shared / (trigramsA.size() + trigramsB.size() - shared);
+    }
+
+    /**
+     * Trova i termini del vocabolario simili alla parola della query. Solo i termini
+     * che condividono almeno un trigramma vengono considerati.
+     */
+    private Map<String, Double> similarTerms(String queryTerm, double threshold) {
+        Set<String> queryTrigrams = trigrams(queryTerm);
+        Map<String, Integer> sharedCounts = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> terms = trigramTerms.get(trigram);
+            if (terms != null) {
+                for (String term : terms) {
+                    sharedCounts.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+
+        Map<String, Double> similar = new HashMap<>();
+        sharedCounts.forEach((term, shared) -> {
+            int termTrigrams = trigrams(term).size();
+            double similarity = (double) shared / (queryTrigrams.size() + termTrigrams - shared);
+            if (similarity >= threshold) {
+                similar.put(term, similarity);
+            }
+        });
+        return similar;
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private void removeInternal(long docId) {
+        Set<String> terms = documentTerms.remove(docId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Set<Long> docs = termDocuments.get(term);
+            if (docs == null) {
+                continue;
+            }
+            docs.remove(docId);
+            if (docs.isEmpty()) {
+                termDocuments.remove(term);
+                for (String trigram : trigrams(term)) {
+                    Set<String> sameTrigram = trigramTerms.get(trigram);
+                    if (sameTrigram != null) {
+                        sameTrigram.remove(term);
+                        if (sameTrigram.isEmpty()) {
+                            trigramTerms.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
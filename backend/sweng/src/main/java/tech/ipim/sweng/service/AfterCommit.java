@@ -0,0 +1,30 @@
+package tech.ipim.sweng.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Esegue gli aggiornamenti delle strutture in memoria (indici di ricerca, suggerimenti)
+ * solo al commit della transazione corrente, così una modifica annullata non lascia
+ * dati fantasma. Senza transazione attiva l'azione viene eseguita subito.
+ */
+final class AfterCommit {
+
+    private AfterCommit() { }
+
+    /**
+     * @param action aggiornamento da applicare dopo il commit
+     */
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
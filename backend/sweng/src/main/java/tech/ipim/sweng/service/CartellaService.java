@@ -9,10 +9,11 @@ import tech.ipim.sweng.dto.UpdateCartellaRequest;
 import tech.ipim.sweng.model.Cartella;
 import tech.ipim.sweng.model.User;
 import tech.ipim.sweng.repository.CartellaRepository;
-import tech.ipim.sweng.repository.UserRepository;
 import tech.ipim.sweng.repository.NoteRepository;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -21,16 +22,16 @@ import java.util.stream.Collectors;
 public class CartellaService {
 
     private final CartellaRepository cartellaRepository;
-    private final UserRepository userRepository;
     private final NoteRepository noteRepository;
+    private final UserCache userCache;
 
     @Autowired
     public CartellaService(CartellaRepository cartellaRepository, 
-                          UserRepository userRepository,
-                          NoteRepository noteRepository) {
+                          NoteRepository noteRepository,
+                          UserCache userCache) {
         this.cartellaRepository = cartellaRepository;
-        this.userRepository = userRepository;
         this.noteRepository = noteRepository;
+        this.userCache = userCache;
     }
 
     /**
@@ -42,8 +43,7 @@ public class CartellaService {
      * @throws RuntimeException se l'utente non esiste o esiste già una cartella con lo stesso nome
      */
     public CartellaDto createCartella(CreateCartellaRequest request, String username) {
-        User proprietario = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        User proprietario = userCache.getReference(username);
 
         if (cartellaRepository.existsByNomeAndProprietario(request.getNome(), proprietario)) {
             throw new RuntimeException("Esiste già una cartella con il nome: " + request.getNome());
@@ -73,17 +73,24 @@ public class CartellaService {
      */
     @Transactional(readOnly = true)
     public List<CartellaDto> getUserCartelle(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        User user = userCache.getReference(username);
         
         List<Cartella> cartelle = cartellaRepository.findByProprietarioOrderByDataModificaDesc(user);
-        
+        if (cartelle.isEmpty()) {
+            return List.of();
+        }
+
+        // Conta le note di tutte le cartelle con una sola query
+        Map<String, Long> numeroNote = new HashMap<>();
+        List<String> nomi = cartelle.stream().map(Cartella::getNome).toList();
+        for (Object[] row : noteRepository.countNotesByCartelle(username, nomi)) {
+            numeroNote.put((String) row[0], (Long) row[1]);
+        }
+
         return cartelle.stream()
                 .map(cartella -> {
                     CartellaDto dto = CartellaDto.fromCartella(cartella);
-                    // Conta le note in questa cartella
-                    long numeroNote = noteRepository.findNotesByCartella(username, cartella.getNome()).size();
-                    dto.setNumeroNote(numeroNote);
+                    dto.setNumeroNote(numeroNote.getOrDefault(cartella.getNome(), 0L));
                     return dto;
                 })
                 .collect(Collectors.toList());
@@ -103,7 +110,7 @@ public class CartellaService {
         if (cartella.isPresent()) {
             CartellaDto dto = CartellaDto.fromCartella(cartella.get());
             // Conta le note in questa cartella
-            long numeroNote = noteRepository.findNotesByCartella(username, cartella.get().getNome()).size();
+            long numeroNote = noteRepository.countNotesByCartella(username, cartella.get().getNome());
             dto.setNumeroNote(numeroNote);
             return Optional.of(dto);
         }
@@ -144,7 +151,7 @@ public class CartellaService {
         
         CartellaDto dto = CartellaDto.fromCartella(savedCartella);
         // Conta le note in questa cartella
-        long numeroNote = noteRepository.findNotesByCartella(username, savedCartella.getNome()).size();
+        long numeroNote = noteRepository.countNotesByCartella(username, savedCartella.getNome());
         dto.setNumeroNote(numeroNote);
         return dto;
     }
@@ -162,7 +169,7 @@ public class CartellaService {
                 .orElseThrow(() -> new RuntimeException("Cartella non trovata o non accessibile"));
 
         // Verifica se ci sono note in questa cartella
-        long numeroNote = noteRepository.findNotesByCartella(username, cartella.getNome()).size();
+        long numeroNote = noteRepository.countNotesByCartella(username, cartella.getNome());
         if (numeroNote > 0) {
             throw new RuntimeException("Impossibile eliminare la cartella: contiene " + numeroNote + " note. Sposta prima le note.");
         }
@@ -181,8 +188,7 @@ public class CartellaService {
      */
     @Transactional(readOnly = true)
     public CartelleStats getUserCartelleStats(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        User user = userCache.getReference(username);
 
         long numeroCartelle = cartellaRepository.countByProprietario(user);
         List<String> nomiCartelle = cartellaRepository.findByUsername(username)
@@ -0,0 +1,96 @@
+package tech.ipim.sweng.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import tech.ipim.sweng.repository.GruppoRepository;
+
+/**
+ * Indice in memoria delle appartenenze ai gruppi: per ogni utente l'array ordinato degli
+ * id dei gruppi di cui è membro.
+ * <p>
+ * {@link NoteAclCache} lo usa per risolvere l'accesso tramite gruppo senza interrogare il
+ * database a ogni controllo. Aggiungere o rimuovere un membro invalida solo la voce di
+ * quell'utente, al commit della transazione; i permessi delle note non cambiano. Come in
+ * {@link NoteAclCache}, un caricamento iniziato prima di un'invalidazione non viene messo
+ * in cache. Raggiunti {@code app.groups.cache.max-users} utenti l'indice viene svuotato.
+ */
+@Service
+public class GroupMembershipCache {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final GruppoRepository gruppoRepository;
+    private final int maxUsers;
+    private final Map<Long, long[]> groupIds = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    @Autowired
+    public GroupMembershipCache(GruppoRepository gruppoRepository,
+                                @Value("${app.groups.cache.max-users:100000}") int maxUsers) {
+        this.gruppoRepository = gruppoRepository;
+        this.maxUsers = maxUsers;
+    }
+
+    /**
+     * @param userId id dell'utente
+     * @return id ordinati dei gruppi di cui l'utente è membro
+     */
+    public long[] groupIdsOf(long userId) {
+        long[] cached = groupIds.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadEpoch = epoch.get();
+        long[] loaded = sorted(gruppoRepository.findIdsByMembroId(userId));
+        if (groupIds.size() >= maxUsers) {
+            groupIds.clear();
+        }
+        groupIds.put(userId, loaded);
+        // un'invalidazione avvenuta durante il caricamento rende i dati letti non affidabili
+        if (epoch.get() != loadEpoch) {
+            groupIds.remove(userId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalida le appartenenze di un utente al commit della transazione corrente.
+     *
+     * @param userId utente aggiunto o rimosso da un gruppo
+     */
+    public void invalidate(Long userId) {
+        AfterCommit.run(() -> {
+            epoch.incrementAndGet();
+            groupIds.remove(userId);
+        });
+    }
+
+    /**
+     * Invalida le appartenenze di tutti gli utenti al commit della transazione corrente,
+     * ad esempio dopo l'eliminazione di un gruppo.
+     */
+    public void invalidateAll() {
+        AfterCommit.run(() -> {
+            epoch.incrementAndGet();
+            groupIds.clear();
+        });
+    }
+
+    private static long[] sorted(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        long[] result = ids.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+}
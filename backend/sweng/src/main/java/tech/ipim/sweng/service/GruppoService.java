@@ -0,0 +1,181 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import tech.ipim.sweng.dto.CreateGruppoRequest;
+import tech.ipim.sweng.dto.GruppoDto;
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.GruppoRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+import tech.ipim.sweng.repository.UserRepository;
+
+/**
+ * Gestione dei gruppi di condivisione e dei loro membri.
+ * <p>
+ * Aggiungere o rimuovere un membro scrive una sola riga in {@code gruppi_membri}: le note
+ * condivise con il gruppo non vengono toccate. Vengono solo invalidate, al commit, le
+ * appartenenze in cache dell'utente e il suo indice di autocompletamento, perché le note
+ * che può vedere sono cambiate. Nel registro di {@link NoteChangeService} l'utente riceve una
+ * riga per ogni nota condivisa con il gruppo, per la sincronizzazione incrementale.
+ */
+@Service
+@Transactional
+public class GruppoService {
+
+    private final GruppoRepository gruppoRepository;
+    private final UserRepository userRepository;
+    private final NoteGroupAccessRepository noteGroupAccessRepository;
+    private final GroupMembershipCache groupMembershipCache;
+    private final NoteAclCache noteAclCache;
+    private final NoteSuggestionService noteSuggestionService;
+    private final NoteChangeService noteChangeService;
+
+    @Autowired
+    public GruppoService(GruppoRepository gruppoRepository, UserRepository userRepository,
+                         NoteGroupAccessRepository noteGroupAccessRepository, GroupMembershipCache groupMembershipCache,
+                         NoteAclCache noteAclCache, NoteSuggestionService noteSuggestionService,
+                         NoteChangeService noteChangeService) {
+        this.gruppoRepository = gruppoRepository;
+        this.userRepository = userRepository;
+        this.noteGroupAccessRepository = noteGroupAccessRepository;
+        this.groupMembershipCache = groupMembershipCache;
+        this.noteAclCache = noteAclCache;
+        this.noteSuggestionService = noteSuggestionService;
+        this.noteChangeService = noteChangeService;
+    }
+
+    /**
+     * Crea un gruppo con il creatore come proprietario e membro.
+     *
+     * @param request  nome del gruppo ed eventuali membri iniziali
+     * @param username creatore del gruppo
+     * @return DTO del gruppo creato
+     * @throws RuntimeException se l'utente non esiste o il nome è già usato
+     */
+    public GruppoDto createGruppo(CreateGruppoRequest request, String username) {
+        User proprietario = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+
+        String nome = request.getNome().trim();
+        if (gruppoRepository.existsByNome(nome)) {
+            throw new RuntimeException("Esiste già un gruppo con il nome: " + nome);
+        }
+
+        Gruppo gruppo = new Gruppo(nome, proprietario);
+        if (request.getMembri() != null && !request.getMembri().isEmpty()) {
+            gruppo.getMembri().addAll(userRepository.findByUsernameIn(request.getMembri()));
+        }
+        Gruppo savedGruppo = gruppoRepository.save(gruppo);
+
+        for (User membro : savedGruppo.getMembri()) {
+            groupMembershipCache.invalidate(membro.getId());
+        }
+        System.out.println("Gruppo creato: " + nome + " da " + username + " con " + savedGruppo.getMembri().size() + " membri");
+        return GruppoDto.fromGruppo(savedGruppo);
+    }
+
+    /**
+     * @param username utente richiedente
+     * @return gruppi di cui l'utente è membro, ordinati per nome
+     */
+    @Transactional(readOnly = true)
+    public List<GruppoDto> getUserGruppi(String username) {
+        return gruppoRepository.findByMembro(username).stream()
+                .map(GruppoDto::fromGruppo)
+                .toList();
+    }
+
+    /**
+     * Aggiunge un membro al gruppo. Solo il proprietario può gestire i membri.
+     *
+     * @param gruppoId ID del gruppo
+     * @param membro   username del nuovo membro
+     * @param username utente richiedente
+     * @return DTO del gruppo aggiornato
+     */
+    public GruppoDto addMembro(Long gruppoId, String membro, String username) {
+        Gruppo gruppo = findOwnedGruppo(gruppoId, username);
+        User user = userRepository.findByUsername(membro)
+                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + membro));
+
+        if (gruppo.getMembri().add(user)) {
+            membershipChanged(gruppo, user);
+            System.out.println("Utente " + membro + " aggiunto al gruppo " + gruppo.getNome());
+        }
+        return GruppoDto.fromGruppo(gruppo);
+    }
+
+    /**
+     * Rimuove un membro dal gruppo. Il proprietario non può essere rimosso.
+     *
+     * @param gruppoId ID del gruppo
+     * @param membro   username del membro da rimuovere
+     * @param username utente richiedente
+     * @return DTO del gruppo aggiornato
+     */
+    public GruppoDto removeMembro(Long gruppoId, String membro, String username) {
+        Gruppo gruppo = findOwnedGruppo(gruppoId, username);
+        if (gruppo.isProprietario(membro)) {
+            throw new RuntimeException("Il proprietario non può essere rimosso dal gruppo");
+        }
+
+        User user = gruppo.getMembri().stream()
+                .filter(candidate -> candidate.getUsername().equals(membro))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("L'utente non è membro del gruppo"));
+        gruppo.getMembri().remove(user);
+        membershipChanged(gruppo, user);
+        System.out.println("Utente " + membro + " rimosso dal gruppo " + gruppo.getNome());
+        return GruppoDto.fromGruppo(gruppo);
+    }
+
+    /**
+     * Elimina il gruppo e le sue condivisioni. Solo il proprietario può eliminarlo.
+     *
+     * @param gruppoId ID del gruppo
+     * @param username utente richiedente
+     * @return true se eliminazione avvenuta con successo
+     */
+    public boolean deleteGruppo(Long gruppoId, String username) {
+        Gruppo gruppo = findOwnedGruppo(gruppoId, username);
+        List<Long> noteIds = gruppoRepository.findSharedNoteIds(gruppoId);
+        List<String> membri = gruppo.getMembri().stream().map(User::getUsername).toList();
+
+        noteChangeService.groupChanging(gruppoId);
+        noteChangeService.notesChanged(noteIds);
+        gruppoRepository.deleteReadShares(gruppoId);
+        gruppoRepository.deleteWriteShares(gruppoId);
+        if (!noteIds.isEmpty()) {
+            gruppoRepository.touchNotes(noteIds, LocalDateTime.now());
+        }
+        noteGroupAccessRepository.deleteByGruppoId(gruppoId);
+        gruppoRepository.delete(gruppo);
+
+        noteIds.forEach(noteAclCache::invalidate);
+        groupMembershipCache.invalidateAll();
+        noteSuggestionService.accessChanged(membri);
+        System.out.println("Gruppo eliminato: " + gruppo.getNome() + " da " + username + " (" + noteIds.size() + " note condivise)");
+        return true;
+    }
+
+    private Gruppo findOwnedGruppo(Long gruppoId, String username) {
+        Gruppo gruppo = gruppoRepository.findById(gruppoId)
+                .orElseThrow(() -> new RuntimeException("Gruppo non trovato"));
+        if (!gruppo.isProprietario(username)) {
+            throw new RuntimeException("Solo il proprietario può modificare questo gruppo");
+        }
+        return gruppo;
+    }
+
+    private void membershipChanged(Gruppo gruppo, User user) {
+        noteChangeService.memberChanged(gruppo.getId(), user.getId());
+        groupMembershipCache.invalidate(user.getId());
+        noteSuggestionService.accessChanged(List.of(user.getUsername()));
+    }
+}
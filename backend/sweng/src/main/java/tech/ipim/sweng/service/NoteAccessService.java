@@ -0,0 +1,142 @@
+package tech.ipim.sweng.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tech.ipim.sweng.repository.NoteAccessRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+import tech.ipim.sweng.repository.NoteRepository;
+
+/**
+ * Mantiene le tabelle materializzate degli accessi alle note degli utenti ({@code note_access})
+ * e dei gruppi ({@code note_group_access}), su cui si basano tutte le query delle note
+ * accessibili a un utente.
+ * <p>
+ * {@link NoteService} ricalcola le righe di una nota nella stessa transazione in cui la
+ * crea, ne modifica i permessi o la elimina, così la tabella non è mai disallineata
+ * dai permessi salvati. All'avvio, prima che il server accetti richieste, le note senza
+ * la riga del proprietario (database precedente all'introduzione della tabella, o
+ * popolamento interrotto) vengono ricalcolate a blocchi, un commit per blocco.
+ * Ogni ricalcolo invalida anche i permessi della nota in {@link NoteAclCache} e, prima di
+ * toccare le righe, registra in {@link NoteChangeService} chi vedeva la nota, per la
+ * sincronizzazione incrementale dei client.
+ */
+@Service
+public class NoteAccessService implements SmartInitializingSingleton {
+
+    static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final NoteAccessRepository noteAccessRepository;
+    private final NoteGroupAccessRepository noteGroupAccessRepository;
+    private final NoteRepository noteRepository;
+    private final NoteAclCache noteAclCache;
+    private final NoteChangeService noteChangeService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public NoteAccessService(NoteAccessRepository noteAccessRepository, NoteGroupAccessRepository noteGroupAccessRepository,
+                             NoteRepository noteRepository, NoteAclCache noteAclCache, NoteChangeService noteChangeService,
+                             PlatformTransactionManager transactionManager) {
+        this.noteAccessRepository = noteAccessRepository;
+        this.noteGroupAccessRepository = noteGroupAccessRepository;
+        this.noteRepository = noteRepository;
+        this.noteAclCache = noteAclCache;
+        this.noteChangeService = noteChangeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Esegue {@link #backfill()} dopo la creazione dello schema e prima dell'avvio del server web,
+     * così nessuna richiesta vede note senza righe di accesso.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    /**
+     * Popola la tabella degli accessi per le note che non hanno ancora la riga del proprietario,
+     * a blocchi di {@value #BACKFILL_BATCH_SIZE} note in ordine di id.
+     *
+     * @return numero di note ricalcolate
+     */
+    public int backfill() {
+        long start = System.currentTimeMillis();
+        int notes = 0;
+        long afterId = 0;
+        List<Long> batch;
+        do {
+            batch = noteAccessRepository.findNoteIdsWithoutOwner(afterId, PageRequest.ofSize(BACKFILL_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Long> noteIds = batch;
+            transactionTemplate.executeWithoutResult(status -> {
+                noteAccessRepository.refresh(noteIds);
+                noteGroupAccessRepository.refresh(noteIds);
+                noteIds.forEach(noteAclCache::invalidate);
+            });
+            notes += batch.size();
+            afterId = batch.get(batch.size() - 1);
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+
+        if (notes > 0) {
+            System.out.println("Tabella accessi alle note popolata: " + notes + " note in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return notes;
+    }
+
+    /**
+     * Ricalcola gli accessi di una nota dai permessi salvati. Le modifiche in sospeso
+     * vengono prima scritte sul database, perché il ricalcolo legge da lì.
+     *
+     * @param noteId id della nota
+     */
+    @Transactional
+    public void refresh(Long noteId) {
+        noteRepository.flush();
+        noteChangeService.accessChanging(List.of(noteId));
+        noteAccessRepository.refresh(noteId);
+        noteGroupAccessRepository.refresh(noteId);
+        noteAclCache.invalidate(noteId);
+    }
+
+    /**
+     * Ricalcola gli accessi di più note con poche istruzioni complessive.
+     *
+     * @param noteIds id delle note
+     */
+    @Transactional
+    public void refresh(Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) {
+            return;
+        }
+        noteRepository.flush();
+        noteChangeService.accessChanging(noteIds);
+        noteAccessRepository.refresh(noteIds);
+        noteGroupAccessRepository.refresh(noteIds);
+        noteIds.forEach(noteAclCache::invalidate);
+    }
+
+    /**
+     * Elimina gli accessi di una nota eliminata.
+     *
+     * @param noteId id della nota
+     */
+    @Transactional
+    public void remove(Long noteId) {
+        noteChangeService.accessChanging(List.of(noteId));
+        noteAccessRepository.deleteByNoteId(noteId);
+        noteGroupAccessRepository.deleteByNoteId(noteId);
+        noteAclCache.invalidate(noteId);
+    }
+}
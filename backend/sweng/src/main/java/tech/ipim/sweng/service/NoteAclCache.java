@@ -0,0 +1,293 @@
+package tech.ipim.sweng.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import tech.ipim.sweng.model.LivelloAccesso;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.repository.NoteAccessRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+
+/**
+ * Cache in memoria dei permessi delle note, per controllare lettura e scrittura
+ * senza caricare la nota e le sue collezioni di permessi.
+ * <p>
+ * Per ogni nota viene mantenuto un {@link NoteAcl} compatto: id dell'autore, tipo di
+ * permesso e array ordinati degli id degli utenti e dei gruppi in lettura e in scrittura,
+ * letti dalle tabelle degli accessi ({@code note_access} e {@code note_group_access}).
+ * La corrispondenza username → id è risolta con {@link UserCache} e i gruppi di ciascun
+ * utente con {@link GroupMembershipCache}: un cambio di membri di un gruppo non invalida
+ * i permessi delle note.
+ * <p>
+ * Ogni modifica dei permessi incrementa un contatore di epoca e rimuove la nota dalla cache
+ * al commit della transazione. Un caricamento iniziato prima di un'invalidazione viene
+ * scartato se nel frattempo l'epoca è cambiata, così la cache non conserva permessi letti
+ * prima della modifica. Raggiunte {@code app.acl.cache.max-notes} note la cache viene svuotata.
+ */
+@Service
+public class NoteAclCache {
+
+    private final NoteAccessRepository noteAccessRepository;
+    private final NoteGroupAccessRepository noteGroupAccessRepository;
+    private final UserCache userCache;
+    private final GroupMembershipCache groupMembershipCache;
+    private final int maxNotes;
+    private final Map<Long, NoteAcl> acls = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    @Autowired
+    public NoteAclCache(NoteAccessRepository noteAccessRepository, NoteGroupAccessRepository noteGroupAccessRepository,
+                        UserCache userCache, GroupMembershipCache groupMembershipCache,
+                        @Value("${app.acl.cache.max-notes:100000}") int maxNotes) {
+        this.noteAccessRepository = noteAccessRepository;
+        this.noteGroupAccessRepository = noteGroupAccessRepository;
+        this.userCache = userCache;
+        this.groupMembershipCache = groupMembershipCache;
+        this.maxNotes = maxNotes;
+    }
+
+    /**
+     * @param noteId id della nota
+     * @return true se la nota esiste
+     */
+    public boolean exists(Long noteId) {
+        return get(noteId) != null;
+    }
+
+    /**
+     * @param noteId   id della nota
+     * @param username utente da controllare
+     * @return true se l'utente può leggere la nota (stesse regole di {@code Note.hasReadAccess})
+     */
+    public boolean canRead(Long noteId, String username) {
+        NoteAcl acl = get(noteId);
+        Long userId = userCache.findId(username);
+        return acl != null && userId != null && acl.canRead(userId, groupIdsOf(acl, userId));
+    }
+
+    /**
+     * @param noteId   id della nota
+     * @param username utente da controllare
+     * @return true se l'utente può modificare la nota (stesse regole di {@code Note.hasWriteAccess})
+     */
+    public boolean canWrite(Long noteId, String username) {
+        NoteAcl acl = get(noteId);
+        Long userId = userCache.findId(username);
+        return acl != null && userId != null && acl.canWrite(userId, groupIdsOf(acl, userId));
+    }
+
+    /**
+     * Invalida i permessi di una nota al commit della transazione corrente.
+     *
+     * @param noteId id della nota modificata o eliminata
+     */
+    public void invalidate(Long noteId) {
+        AfterCommit.run(() -> {
+            epoch.incrementAndGet();
+            acls.remove(noteId);
+        });
+    }
+
+    /**
+     * Invalida i permessi di tutte le note al commit della transazione corrente.
+     */
+    public void invalidateAll() {
+        AfterCommit.run(() -> {
+            epoch.incrementAndGet();
+            acls.clear();
+        });
+    }
+
+    /**
+     * @return permessi della nota, null se la nota non esiste
+     */
+    NoteAcl get(Long noteId) {
+        if (noteId == null) {
+            return null;
+        }
+        NoteAcl cached = acls.get(noteId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadEpoch = epoch.get();
+        List<Object[]> rows = noteAccessRepository.findAclRows(noteId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        NoteAcl loaded = NoteAcl.fromRows(rows, noteGroupAccessRepository.findAclRows(noteId));
+        if (acls.size() >= maxNotes) {
+            acls.clear();
+        }
+        acls.put(noteId, loaded);
+        // un'invalidazione avvenuta durante il caricamento rende i dati letti non affidabili
+        if (epoch.get() != loadEpoch) {
+            acls.remove(noteId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Gruppi dell'utente, caricati solo se la nota è condivisa con almeno un gruppo.
+     */
+    private long[] groupIdsOf(NoteAcl acl, long userId) {
+        return acl.hasGroups() ? groupMembershipCache.groupIdsOf(userId) : NoteAcl.EMPTY;
+    }
+
+    /**
+     * Permessi di una nota: autore, tipo di permesso e id ordinati di lettori e scrittori,
+     * utenti e gruppi.
+     */
+    static final class NoteAcl {
+
+        private static final long[] EMPTY = new long[0];
+
+        private final long ownerId;
+        private final TipoPermesso tipoPermesso;
+        private final long[] readerIds;
+        private final long[] writerIds;
+        private final long[] readerGroupIds;
+        private final long[] writerGroupIds;
+
+        NoteAcl(long ownerId, TipoPermesso tipoPermesso, long[] readerIds, long[] writerIds) {
+            this(ownerId, tipoPermesso, readerIds, writerIds, EMPTY, EMPTY);
+        }
+
+        NoteAcl(long ownerId, TipoPermesso tipoPermesso, long[] readerIds, long[] writerIds,
+                long[] readerGroupIds, long[] writerGroupIds) {
+            this.ownerId = ownerId;
+            this.tipoPermesso = tipoPermesso;
+            this.readerIds = readerIds;
+            this.writerIds = writerIds;
+            this.readerGroupIds = readerGroupIds;
+            this.writerGroupIds = writerGroupIds;
+        }
+
+        /**
+         * Costruisce i permessi dalle righe (id utente, livello, tipo permesso) di {@code note_access}.
+         *
+         * @return permessi della nota, null se non ci sono righe (nota inesistente)
+         */
+        static NoteAcl fromRows(List<Object[]> rows) {
+            return fromRows(rows, List.of());
+        }
+
+        /**
+         * Costruisce i permessi dalle righe di {@code note_access} e dalle righe
+         * (id gruppo, livello) di {@code note_group_access}.
+         *
+         * @return permessi della nota, null se non ci sono righe utente (nota inesistente)
+         */
+        static NoteAcl fromRows(List<Object[]> rows, List<Object[]> groupRows) {
+            if (rows.isEmpty()) {
+                return null;
+            }
+            long ownerId = -1;
+            TipoPermesso tipoPermesso = (TipoPermesso) rows.get(0)[2];
+            long[] readers = new long[rows.size()];
+            long[] writers = new long[rows.size()];
+            int readerCount = 0;
+            int writerCount = 0;
+            for (Object[] row : rows) {
+                long userId = (Long) row[0];
+                LivelloAccesso livello = (LivelloAccesso) row[1];
+                if (livello == LivelloAccesso.PROPRIETARIO) {
+                    ownerId = userId;
+                } else if (livello == LivelloAccesso.SCRITTURA) {
+                    writers[writerCount++] = userId;
+                } else {
+                    readers[readerCount++] = userId;
+                }
+            }
+            long[] readerGroups = new long[groupRows.size()];
+            long[] writerGroups = new long[groupRows.size()];
+            int readerGroupCount = 0;
+            int writerGroupCount = 0;
+            for (Object[] row : groupRows) {
+                long gruppoId = (Long) row[0];
+                if (row[1] == LivelloAccesso.SCRITTURA) {
+                    writerGroups[writerGroupCount++] = gruppoId;
+                } else {
+                    readerGroups[readerGroupCount++] = gruppoId;
+                }
+            }
+            return new NoteAcl(ownerId, tipoPermesso, sorted(readers, readerCount), sorted(writers, writerCount),
+                    sorted(readerGroups, readerGroupCount), sorted(writerGroups, writerGroupCount));
+        }
+
+        boolean canRead(long userId) {
+            return canRead(userId, EMPTY);
+        }
+
+        boolean canWrite(long userId) {
+            return canWrite(userId, EMPTY);
+        }
+
+        /**
+         * @param userGroupIds id ordinati dei gruppi di cui l'utente è membro
+         */
+        boolean canRead(long userId, long[] userGroupIds) {
+            return userId == ownerId
+                    || Arrays.binarySearch(readerIds, userId) >= 0
+                    || Arrays.binarySearch(writerIds, userId) >= 0
+                    || intersects(readerGroupIds, userGroupIds)
+                    || intersects(writerGroupIds, userGroupIds);
+        }
+
+        /**
+         * @param userGroupIds id ordinati dei gruppi di cui l'utente è membro
+         */
+        boolean canWrite(long userId, long[] userGroupIds) {
+            return userId == ownerId
+                    || Arrays.binarySearch(writerIds, userId) >= 0
+                    || intersects(writerGroupIds, userGroupIds);
+        }
+
+        boolean hasGroups() {
+            return readerGroupIds.length > 0 || writerGroupIds.length > 0;
+        }
+
+        long getOwnerId() {
+            return ownerId;
+        }
+
+        TipoPermesso getTipoPermesso() {
+            return tipoPermesso;
+        }
+
+        /**
+         * @return true se i due array ordinati hanno almeno un id in comune
+         */
+        private static boolean intersects(long[] a, long[] b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] == b[j]) {
+                    return true;
+                }
+                if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return false;
+        }
+
+        private static long[] sorted(long[] ids, int count) {
+            if (count == 0) {
+                return EMPTY;
+            }
+            long[] result = Arrays.copyOf(ids, count);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
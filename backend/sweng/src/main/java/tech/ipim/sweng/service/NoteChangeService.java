@@ -0,0 +1,212 @@
+package tech.ipim.sweng.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import tech.ipim.sweng.dto.NoteChangesDto;
+import tech.ipim.sweng.dto.NoteCursor;
+import tech.ipim.sweng.dto.NoteSyncToken;
+import tech.ipim.sweng.model.NoteChange;
+import tech.ipim.sweng.repository.NoteChangeRepository;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.repository.NoteSpecifications;
+
+/**
+ * Registro delle modifiche delle note per la sincronizzazione incrementale dei client.
+ * <p>
+ * {@link NoteService} registra ogni modifica di una nota, {@link NoteAccessService} e
+ * {@link GruppoService} registrano, prima di cambiare gli accessi, gli utenti che potevano
+ * vedere le note coinvolte. Con il token della sincronizzazione precedente un client riceve
+ * solo le note cambiate e gli id di quelle che non vede più, invece di rileggere tutte le note.
+ * <p>
+ * Le modifiche più vecchie di {@code app.notes.changes.retention-days} giorni vengono
+ * eliminate all'avvio e, in background, ogni {@code app.notes.changes.compact-every}
+ * modifiche registrate; un token emesso prima di quel periodo riceve di nuovo tutte le note.
+ */
+@Service
+@Transactional
+public class NoteChangeService {
+
+    /**
+     * Margine con cui vengono rilette le modifiche registrate poco prima del token, per coprire
+     * transazioni non ancora concluse quando il token è stato emesso.
+     */
+    private static final Duration CATCH_UP_MARGIN = Duration.ofSeconds(30);
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final NoteChangeRepository noteChangeRepository;
+    private final NoteRepository noteRepository;
+    private final NoteReadService noteReadService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final int compactEvery;
+    private final AtomicInteger changesSinceCompaction = new AtomicInteger();
+    private final ExecutorService compactor;
+
+    @Autowired
+    public NoteChangeService(NoteChangeRepository noteChangeRepository, NoteRepository noteRepository,
+                             NoteReadService noteReadService, PlatformTransactionManager transactionManager,
+                             @Value("${app.notes.changes.retention-days:30}") int retentionDays,
+                             @Value("${app.notes.changes.compact-every:1000}") int compactEvery) {
+        this.noteChangeRepository = noteChangeRepository;
+        this.noteRepository = noteRepository;
+        this.noteReadService = noteReadService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = Duration.ofDays(retentionDays);
+        this.compactEvery = compactEvery;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "note-changes-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registra la modifica di una nota, visibile a chiunque vi abbia accesso.
+     *
+     * @param noteId id della nota
+     */
+    public void noteChanged(Long noteId) {
+        notesChanged(List.of(noteId));
+    }
+
+    /**
+     * Registra la modifica di più note.
+     *
+     * @param noteIds id delle note
+     */
+    public void notesChanged(Collection<Long> noteIds) {
+        LocalDateTime now = LocalDateTime.now();
+        noteChangeRepository.saveAll(noteIds.stream().map(noteId -> new NoteChange(noteId, null, now)).toList());
+        recorded(noteIds.size());
+    }
+
+    /**
+     * Registra che gli accessi alle note stanno per essere ricalcolati o eliminati: le note
+     * risultano modificate e ogni utente che le vede ora riceve una riga, così chi perde
+     * l'accesso le riceve tra le note rimosse. Va chiamato prima di modificare le tabelle degli accessi.
+     *
+     * @param noteIds id delle note
+     */
+    public void accessChanging(Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) {
+            return;
+        }
+        noteChangeRepository.insertAccessChanges(noteIds, LocalDateTime.now());
+        notesChanged(noteIds);
+    }
+
+    /**
+     * Registra che l'accesso dei membri del gruppo alle note condivise con il gruppo sta per
+     * cambiare. Va chiamato prima di eliminare le condivisioni o i membri del gruppo.
+     *
+     * @param gruppoId id del gruppo
+     */
+    public void groupChanging(Long gruppoId) {
+        noteChangeRepository.insertGroupChanges(gruppoId, LocalDateTime.now());
+    }
+
+    /**
+     * Registra che l'accesso di un utente aggiunto o rimosso dal gruppo alle note condivise
+     * con il gruppo è cambiato.
+     *
+     * @param gruppoId id del gruppo
+     * @param userId   id dell'utente
+     */
+    public void memberChanged(Long gruppoId, Long userId) {
+        noteChangeRepository.insertMemberChanges(gruppoId, userId, LocalDateTime.now());
+    }
+
+    /**
+     * Restituisce le modifiche delle note accessibili all'utente dopo il token indicato.
+     * La posizione del nuovo token è letta prima delle note: una modifica concorrente viene
+     * inviata di nuovo alla sincronizzazione successiva, mai persa.
+     *
+     * @param username utente richiedente
+     * @param since    token della sincronizzazione precedente, null per la prima
+     * @return note modificate, id delle note rimosse e nuovo token
+     */
+    @Transactional(readOnly = true)
+    public NoteChangesDto getChanges(String username, NoteSyncToken since) {
+        LocalDateTime now = LocalDateTime.now();
+        NoteSyncToken token = new NoteSyncToken(noteChangeRepository.findLastId(), now);
+
+        if (since == null || since.getIssuedAt().isBefore(now.minus(retention))) {
+            List<Long> ids = noteRepository.findKeys(NoteSpecifications.accessibleTo(username)).stream()
+                    .map(NoteCursor::getId)
+                    .toList();
+            return new NoteChangesDto(noteReadService.findByIds(username, ids), List.of(), true, token.encode());
+        }
+
+        List<Long> changedIds = noteChangeRepository.findChangedNoteIds(username, since.getChangeId(),
+                since.getIssuedAt().minus(CATCH_UP_MARGIN), token.getChangeId());
+        Set<Long> accessible = new HashSet<>();
+        for (int from = 0; from < changedIds.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = changedIds.subList(from, Math.min(from + ID_BATCH_SIZE, changedIds.size()));
+            accessible.addAll(noteRepository.findAccessibleIdsByIds(username, batch));
+        }
+
+        List<Long> updatedIds = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+        for (Long noteId : changedIds) {
+            if (accessible.contains(noteId)) {
+                updatedIds.add(noteId);
+            } else {
+                removedIds.add(noteId);
+            }
+        }
+        return new NoteChangesDto(noteReadService.findByIds(username, updatedIds), removedIds, false, token.encode());
+    }
+
+    /**
+     * Elimina le modifiche più vecchie del periodo di conservazione. Viene eseguito
+     * automaticamente all'avvio.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void compact() {
+        int deleted = noteChangeRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            System.out.println("Registro modifiche note compattato: " + deleted + " righe eliminate");
+        }
+    }
+
+    /**
+     * Ferma la compattazione in background.
+     */
+    @PreDestroy
+    public void close() {
+        compactor.shutdown();
+    }
+
+    private void recorded(int count) {
+        if (changesSinceCompaction.addAndGet(count) < compactEvery) {
+            return;
+        }
+        changesSinceCompaction.set(0);
+        AfterCommit.run(() -> compactor.execute(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> compact());
+            } catch (RuntimeException e) {
+                System.err.println("Errore compattazione registro modifiche note: " + e.getMessage());
+            }
+        }));
+    }
+}
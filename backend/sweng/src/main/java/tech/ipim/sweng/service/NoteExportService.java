@@ -0,0 +1,175 @@
+package tech.ipim.sweng.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import tech.ipim.sweng.config.BinaryFormatConfig;
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.repository.NoteRepository;
+
+/**
+ * Esportazione delle note accessibili a un utente in formato NDJSON (un oggetto JSON per riga)
+ * oppure come sequenza di valori CBOR o Smile, uno per nota, senza separatori.
+ * <p>
+ * Le note vengono lette in ordine di id a blocchi di {@value #BATCH_SIZE}: per ogni blocco gli
+ * id accessibili sono letti dopo l'ultimo esportato e i DTO sono costruiti dalle proiezioni di
+ * {@link NoteReadService}, come per gli elenchi, senza caricare entità né collezioni lazy.
+ * Dopo ogni blocco l'output viene svuotato, così la memoria occupata non dipende dal numero
+ * di note esportate. L'esportazione non apre una transazione propria: ogni blocco è letto in
+ * transazioni brevi (quelle del repository e di {@link NoteReadService}), così una connessione
+ * al database non resta occupata mentre l'output viene inviato al client.
+ */
+@Service
+public class NoteExportService {
+
+    /** Note lette e scritte per ogni blocco. */
+    static final int BATCH_SIZE = 500;
+
+    private final NoteRepository noteRepository;
+    private final NoteReadService noteReadService;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    /**
+     * Formati di esportazione con il relativo tipo di contenuto.
+     */
+    public enum Format {
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CBOR(MediaType.parseMediaType("application/cbor-seq"), "cbor"),
+        SMILE(BinaryFormatConfig.SMILE, "smile");
+
+        /** Tipi riconosciuti nell'header Accept, in ordine di preferenza per i tipi generici. */
+        private static final Map<MediaType, Format> ACCEPTED = acceptedTypes();
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        /**
+         * @param format nome del formato (ndjson, cbor o smile); se assente il formato è scelto
+         *               dall'header Accept tenendo conto delle qualità, con NDJSON come predefinito
+         * @param accept header Accept della richiesta, può essere null
+         * @return formato richiesto
+         * @throws IllegalArgumentException se il formato indicato non è supportato
+         */
+        public static Format of(String format, String accept) {
+            if (format != null && !format.isBlank()) {
+                try {
+                    return valueOf(format.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Formato di esportazione non supportato: " + format, e);
+                }
+            }
+            MediaType chosen = BinaryFormatConfig.negotiate(accept, ACCEPTED.keySet());
+            return chosen == null ? NDJSON : ACCEPTED.get(chosen);
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        private static Map<MediaType, Format> acceptedTypes() {
+            Map<MediaType, Format> types = new LinkedHashMap<>();
+            types.put(NDJSON.mediaType, NDJSON);
+            types.put(MediaType.APPLICATION_JSON, NDJSON);
+            types.put(CBOR.mediaType, CBOR);
+            types.put(MediaType.APPLICATION_CBOR, CBOR);
+            types.put(SMILE.mediaType, SMILE);
+            return types;
+        }
+    }
+
+    @Autowired
+    public NoteExportService(NoteRepository noteRepository, NoteReadService noteReadService, ObjectMapper objectMapper) {
+        this.noteRepository = noteRepository;
+        this.noteReadService = noteReadService;
+        this.objectMapper = objectMapper;
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    /**
+     * Scrive le note accessibili all'utente, una per riga, nello stesso formato di {@link NoteDto}.
+     * L'output non viene chiuso.
+     *
+     * @param username utente richiedente
+     * @param out      destinazione dell'esportazione
+     * @return numero di note esportate
+     * @throws IOException se la scrittura sull'output fallisce, ad esempio per la disconnessione del client
+     */
+    public long exportNotes(String username, OutputStream out) throws IOException {
+        return exportNotes(username, out, Format.NDJSON);
+    }
+
+    /**
+     * Scrive le note accessibili all'utente nel formato indicato. L'output non viene chiuso.
+     *
+     * @param username utente richiedente
+     * @param out      destinazione dell'esportazione
+     * @param format   formato dell'esportazione
+     * @return numero di note esportate
+     * @throws IOException se la scrittura sull'output fallisce, ad esempio per la disconnessione del client
+     */
+    public long exportNotes(String username, OutputStream out, Format format) throws IOException {
+        long count = 0;
+        try (SequenceWriter writer = writerFor(format).writeValues(out)) {
+            long afterId = 0;
+            List<Long> ids;
+            do {
+                ids = noteRepository.findAccessibleIdsAfter(username, afterId, PageRequest.ofSize(BATCH_SIZE));
+                for (NoteDto note : noteReadService.findByIds(username, ids)) {
+                    writer.write(note);
+                    count++;
+                }
+                writer.flush();
+                if (!ids.isEmpty()) {
+                    afterId = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == BATCH_SIZE);
+        }
+        if (count > 0 && format == Format.NDJSON) {
+            out.write('\n');
+        }
+        out.flush();
+        System.out.println("Esportate " + count + " note per " + username + " (" + format.getExtension() + ")");
+        return count;
+    }
+
+    private ObjectWriter writerFor(Format format) {
+        switch (format) {
+            case CBOR:
+                return cborMapper.writerFor(NoteDto.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            case SMILE:
+                return smileMapper.writerFor(NoteDto.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            default:
+                return objectMapper.writerFor(NoteDto.class)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .withRootValueSeparator("\n");
+        }
+    }
+}
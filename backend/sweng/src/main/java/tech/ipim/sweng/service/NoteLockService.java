@@ -20,6 +20,9 @@ public class NoteLockService {
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private NoteAclCache noteAclCache;
+
     /**
      * Tenta di bloccare una nota per l'editing da parte di un utente
      * 
@@ -36,7 +39,7 @@ public class NoteLockService {
 
         Note note = noteOpt.get();
 
-        if (!note.hasWriteAccess(username)) {
+        if (!noteAclCache.canWrite(noteId, username)) {
             throw new RuntimeException("Non hai i permessi per modificare questa nota");
         }
 
@@ -181,7 +184,7 @@ public class NoteLockService {
         cleanExpiredLock(note);
 
         if (!note.isLocked()) {
-            boolean canEdit = note.hasWriteAccess(username);
+            boolean canEdit = noteAclCache.canWrite(noteId, username);
             return new LockStatusDto(false, null, null, canEdit);
         }
 
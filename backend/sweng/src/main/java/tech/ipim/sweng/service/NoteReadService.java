@@ -0,0 +1,151 @@
+package tech.ipim.sweng.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteSummaryDto;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.repository.GruppoRepository;
+import tech.ipim.sweng.repository.NoteRepository;
+
+/**
+ * Lettura degli elenchi di note senza caricare le entità {@link tech.ipim.sweng.model.Note}.
+ * <p>
+ * Per ogni blocco di id una proiezione JPQL legge le colonne scalari e costruisce i
+ * {@link NoteDto}; tag, cartelle e permessi arrivano con una query per collezione, come coppie
+ * (id nota, valore). Il numero di query dipende dal numero di blocchi e non dal numero di
+ * note, e il contesto di persistenza resta vuoto: niente entità gestite da controllare al flush.
+ */
+@Service
+@Transactional(readOnly = true)
+public class NoteReadService {
+
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final NoteRepository noteRepository;
+    private final GruppoRepository gruppoRepository;
+
+    @Autowired
+    public NoteReadService(NoteRepository noteRepository, GruppoRepository gruppoRepository) {
+        this.noteRepository = noteRepository;
+        this.gruppoRepository = gruppoRepository;
+    }
+
+    /**
+     * Costruisce i DTO delle note indicate nell'ordine ricevuto. Gli id devono essere già
+     * limitati alle note accessibili all'utente; quelli inesistenti vengono ignorati.
+     *
+     * @param username   utente corrente, per permessi e visibilità delle cartelle
+     * @param orderedIds id delle note nell'ordine desiderato
+     * @return DTO delle note, nello stesso ordine degli id
+     */
+    public List<NoteDto> findByIds(String username, List<Long> orderedIds) {
+        if (orderedIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, NoteDto> dtos = new HashMap<>();
+        for (int from = 0; from < orderedIds.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = orderedIds.subList(from, Math.min(from + ID_BATCH_SIZE, orderedIds.size()));
+            for (NoteDto dto : noteRepository.findDtosByIds(batch)) {
+                dtos.put(dto.getId(), dto);
+            }
+            addPairs(dtos, noteRepository.findTagPairsByIds(batch), NoteDto::getTags);
+            addPairs(dtos, noteRepository.findOwnCartellaPairsByIds(username, batch), NoteDto::getCartelle);
+            addPairs(dtos, noteRepository.findReaderPairsByIds(batch), NoteDto::getPermessiLettura);
+            addPairs(dtos, noteRepository.findWriterPairsByIds(batch), NoteDto::getPermessiScrittura);
+            addPairs(dtos, noteRepository.findReaderGroupPairsByIds(batch), NoteDto::getGruppiLettura);
+            addPairs(dtos, noteRepository.findWriterGroupPairsByIds(batch), NoteDto::getGruppiScrittura);
+        }
+
+        Set<String> gruppiUtente = needsGroups(dtos.values(), username)
+                ? new HashSet<>(gruppoRepository.findNomiByMembro(username))
+                : Set.of();
+
+        List<NoteDto> ordered = new ArrayList<>(dtos.size());
+        for (Long id : orderedIds) {
+            NoteDto dto = dtos.remove(id);
+            if (dto != null) {
+                dto.applyAccess(username, gruppiUtente);
+                ordered.add(dto);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Costruisce le rappresentazioni ridotte delle note indicate, nell'ordine ricevuto, per
+     * gli elenchi con {@code view=summary}. Per ogni blocco di id servono la proiezione con
+     * l'anteprima, i tag e, solo se il blocco contiene note altrui, gli id di quelle che
+     * l'utente può modificare, letti dalle tabelle degli accessi.
+     *
+     * @param username   utente corrente, per i flag dei permessi
+     * @param orderedIds id delle note nell'ordine desiderato, già limitati alle note accessibili
+     * @return note ridotte, nello stesso ordine degli id
+     */
+    public List<NoteSummaryDto> findSummariesByIds(String username, List<Long> orderedIds) {
+        if (orderedIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, NoteSummaryDto> summaries = new HashMap<>();
+        Set<Long> scrivibili = new HashSet<>();
+        for (int from = 0; from < orderedIds.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = orderedIds.subList(from, Math.min(from + ID_BATCH_SIZE, orderedIds.size()));
+            List<Long> altrui = new ArrayList<>();
+            for (NoteSummaryDto summary : noteRepository.findSummariesByIds(batch)) {
+                summaries.put(summary.getId(), summary);
+                if (!username.equals(summary.getAutore())) {
+                    altrui.add(summary.getId());
+                }
+            }
+            addPairs(summaries, noteRepository.findTagPairsByIds(batch), NoteSummaryDto::getTags);
+            if (!altrui.isEmpty()) {
+                scrivibili.addAll(noteRepository.findWritableIdsByIds(username, altrui));
+            }
+        }
+
+        List<NoteSummaryDto> ordered = new ArrayList<>(summaries.size());
+        for (Long id : orderedIds) {
+            NoteSummaryDto summary = summaries.remove(id);
+            if (summary != null) {
+                summary.applyAccess(username, scrivibili.contains(id));
+                ordered.add(summary);
+            }
+        }
+        return ordered;
+    }
+
+    private static <T> void addPairs(Map<Long, T> dtos, List<Object[]> pairs, Function<T, Set<String>> collection) {
+        for (Object[] pair : pairs) {
+            T dto = dtos.get((Long) pair[0]);
+            if (dto != null) {
+                collection.apply(dto).add((String) pair[1]);
+            }
+        }
+    }
+
+    /**
+     * Le appartenenze ai gruppi servono solo per le note altrui condivise con qualche gruppo.
+     */
+    private static boolean needsGroups(Iterable<NoteDto> dtos, String username) {
+        for (NoteDto dto : dtos) {
+            if (!username.equals(dto.getAutore())
+                    && !TipoPermesso.PRIVATA.name().equals(dto.getTipoPermesso())
+                    && (!dto.getGruppiLettura().isEmpty() || !dto.getGruppiScrittura().isEmpty())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,533 @@
+package tech.ipim.sweng.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.annotation.PreDestroy;
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.search.IndexSegmentStore;
+import tech.ipim.sweng.search.IndexedNote;
+import tech.ipim.sweng.search.NoteIndexes;
+import tech.ipim.sweng.search.NoteSearchEngine;
+import tech.ipim.sweng.search.TagBitmapIndex;
+import tech.ipim.sweng.search.TermMatch;
+import tech.ipim.sweng.search.TokenizedNote;
+import tech.ipim.sweng.search.TrigramIndex;
+
+/**
+ * Servizio che mantiene il motore di ricerca su titolo e contenuto delle note.
+ * <p>
+ * Il motore ({@link NoteSearchEngine}) è scelto da {@code SearchEngineConfig}: full-text
+ * nativo con PostgreSQL, indice invertito in memoria negli altri casi.
+ * Accanto al motore viene mantenuto un {@link TrigramIndex} in memoria per la ricerca
+ * tollerante agli errori di battitura (soglia {@code app.search.fuzzy.threshold})
+ * e un {@link TagBitmapIndex} per i filtri booleani su tag e cartelle.
+ * <p>
+ * Gli indici vengono preparati all'avvio dell'applicazione e aggiornato da {@link NoteService}
+ * a ogni creazione, modifica, ripristino, duplicazione ed eliminazione. Gli aggiornamenti
+ * sono applicati solo al commit della transazione, così una modifica annullata non
+ * lascia termini fantasma nell'indice.
+ * <p>
+ * I tre indici formano un {@link NoteIndexes}: una reindicizzazione completa
+ * ({@link SearchReindexService}) ne popola uno nuovo a parte e lo sostituisce al termine,
+ * mentre le scritture continuano ad aggiornare sia quello corrente sia quello in costruzione.
+ * <p>
+ * La ricerca restituisce soltanto gli id delle note accessibili all'utente, al massimo
+ * {@code app.search.max-results}: il motore PostgreSQL applica i permessi nella stessa query,
+ * per gli indici in memoria gli id candidati vengono intersecati con la bitmap delle note
+ * accessibili, letta con una sola query.
+ * <p>
+ * Con {@code app.search.index.dir} valorizzato i dati indicizzati sono salvati anche su disco
+ * ({@link IndexSegmentStore}): un segmento con le posting list di tutte le note e un journal
+ * con le modifiche successive. Al riavvio gli indici vengono ripristinati da questi file,
+ * senza riscomporre il testo, e dal database si
+ * rileggono solo le note modificate dopo l'ultima voce registrata, più quelle create o
+ * eliminate mentre l'applicazione era ferma. Raggiunte {@code app.search.index.compact-after}
+ * voci, il journal viene fuso in un nuovo segmento in background.
+ */
+@Service
+public class NoteSearchService {
+
+    /**
+     * Margine con cui vengono rilette dal database le note modificate prima dell'ultima
+     * voce su disco, per coprire transazioni in corso al momento dell'arresto.
+     */
+    private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(5);
+    private static final int CATCH_UP_BATCH_SIZE = 1000;
+
+    private final NoteRepository noteRepository;
+    private final double fuzzyThreshold;
+    private final int maxResults;
+    private final int compactAfter;
+    private final IndexSegmentStore segmentStore;
+    private final ExecutorService compactor;
+    private final Object writeLock = new Object();
+    private volatile NoteIndexes indexes;
+    private ReindexRebuild rebuild;
+
+    @Autowired
+    public NoteSearchService(NoteRepository noteRepository, NoteSearchEngine engine,
+                             @Value("${app.search.fuzzy.threshold:0.3}") double fuzzyThreshold,
+                             @Value("${app.search.max-results:1000}") int maxResults,
+                             @Value("${app.search.index.dir:}") String indexDir,
+                             @Value("${app.search.index.compact-after:10000}") int compactAfter) {
+        this.noteRepository = noteRepository;
+        this.indexes = new NoteIndexes(engine);
+        this.fuzzyThreshold = fuzzyThreshold;
+        this.maxResults = maxResults;
+        this.compactAfter = compactAfter;
+        this.segmentStore = openSegmentStore(indexDir);
+        this.compactor = segmentStore == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Prepara il motore di ricerca e costruisce gli indici in memoria. Se su disco c'è un
+     * segmento gli indici vengono ripristinati da lì, altrimenti sono ricostruiti leggendo
+     * titolo, contenuto, tag e cartelle di tutte le note. Viene eseguito automaticamente all'avvio.
+     * <p>
+     * Come nella reindicizzazione completa, gli indici sono popolati a parte e sostituiti
+     * a quelli correnti sotto il lock delle scritture: le richieste già servite non vedono
+     * indici svuotati o a metà, e le note salvate nel frattempo non vanno perse.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        indexes.getEngine().initialize();
+
+        if (segmentStore != null && restoreFromDisk(start)) {
+            return;
+        }
+
+        ReindexRebuild startup = beginRebuild();
+        List<IndexedNote> notes;
+        try {
+            notes = loadAllNotes();
+            startup.applyChunk(notes);
+            completeRebuild(startup, start);
+        } catch (RuntimeException e) {
+            abortRebuild(startup);
+            throw e;
+        }
+
+        System.out.println("Indici di ricerca costruiti (motore " + indexes.getEngine().getName() + "): " + notes.size()
+                + " note, " + indexes.getTrigramIndex().termCount() + " termini in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Indicizza (o reindicizza) una nota al commit della transazione corrente.
+     *
+     * @param note nota salvata
+     */
+    public void indexNote(Note note) {
+        if (note.getId() == null) {
+            return;
+        }
+        final TokenizedNote snapshot = TokenizedNote.of(toIndexedNote(note));
+        AfterCommit.run(() -> {
+            synchronized (writeLock) {
+                indexes.index(snapshot);
+                if (rebuild != null) {
+                    rebuild.putLive(snapshot);
+                }
+                if (segmentStore != null) {
+                    try {
+                        segmentStore.appendPut(snapshot);
+                    } catch (IOException e) {
+                        System.err.println("Errore scrittura journal di indice: " + e.getMessage());
+                    }
+                }
+            }
+            compactIfNeeded();
+        });
+    }
+
+    /**
+     * Rimuove una nota dall'indice al commit della transazione corrente.
+     *
+     * @param noteId id della nota eliminata
+     */
+    public void removeNote(Long noteId) {
+        if (noteId == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            synchronized (writeLock) {
+                indexes.remove(noteId);
+                if (rebuild != null) {
+                    rebuild.removeLive(noteId);
+                }
+                if (segmentStore != null) {
+                    try {
+                        segmentStore.appendRemove(noteId);
+                    } catch (IOException e) {
+                        System.err.println("Errore scrittura journal di indice: " + e.getMessage());
+                    }
+                }
+            }
+            compactIfNeeded();
+        });
+    }
+
+    /**
+     * Restituisce gli id delle note che contengono tutte le parole della ricerca
+     * nel titolo o nel contenuto, ordinati per rilevanza e senza applicare i permessi.
+     *
+     * @param keyword testo della ricerca
+     * @return id candidati ordinati per rilevanza
+     */
+    public List<Long> findRankedIds(String keyword) {
+        return indexes.getEngine().search(keyword);
+    }
+
+    /**
+     * Restituisce gli id delle note accessibili all'utente che contengono tutte le parole
+     * della ricerca, ordinati per rilevanza, al massimo {@code app.search.max-results}.
+     *
+     * @param keyword  testo della ricerca
+     * @param username utente che esegue la ricerca
+     * @return id accessibili ordinati per rilevanza
+     */
+    public List<Long> findRankedIds(String keyword, String username) {
+        NoteSearchEngine engine = indexes.getEngine();
+        if (engine.appliesPermissions()) {
+            return engine.search(keyword, username, maxResults);
+        }
+        return retainAccessible(engine.search(keyword), username);
+    }
+
+    /**
+     * Restituisce le posizioni delle parole della ricerca nel titolo e nel contenuto
+     * di una nota della pagina di risultati.
+     *
+     * @param noteId    id della nota
+     * @param titolo    titolo della nota
+     * @param contenuto contenuto della nota
+     * @param keyword   testo della ricerca
+     * @return occorrenze ordinate per campo e posizione
+     */
+    public List<TermMatch> findMatches(long noteId, String titolo, String contenuto, String keyword) {
+        return indexes.getEngine().matches(noteId, titolo, contenuto, keyword);
+    }
+
+    /**
+     * Restituisce gli id delle note che contengono, per ogni parola della ricerca,
+     * un termine simile secondo l'indice di trigrammi, ordinati per somiglianza.
+     *
+     * @param keyword testo della ricerca, anche con errori di battitura
+     * @return id candidati ordinati per somiglianza
+     */
+    public List<Long> findFuzzyIds(String keyword) {
+        return indexes.getTrigramIndex().search(keyword, fuzzyThreshold);
+    }
+
+    /**
+     * Come {@link #findFuzzyIds(String)}, limitato alle note accessibili all'utente
+     * e ad {@code app.search.max-results} id.
+     *
+     * @param keyword  testo della ricerca, anche con errori di battitura
+     * @param username utente che esegue la ricerca
+     * @return id accessibili ordinati per somiglianza
+     */
+    public List<Long> findFuzzyIds(String keyword, String username) {
+        return retainAccessible(findFuzzyIds(keyword), username);
+    }
+
+    /**
+     * Legge con una sola query gli id di tutte le note accessibili all'utente.
+     *
+     * @param username utente
+     * @return bitmap degli id accessibili
+     */
+    public Roaring64NavigableMap findAccessibleIds(String username) {
+        Roaring64NavigableMap accessible = new Roaring64NavigableMap();
+        for (Long noteId : noteRepository.findAccessibleIds(username)) {
+            accessible.addLong(noteId);
+        }
+        return accessible;
+    }
+
+    /**
+     * Risolve i criteri su tag (tutti, almeno uno, nessuno) e cartella del filtro
+     * con le bitmap in memoria, senza applicare i permessi.
+     *
+     * @param filter filtro con almeno un criterio positivo su tag o cartella
+     * @return bitmap degli id candidati
+     */
+    public Roaring64NavigableMap findIdsByTagsAndCartella(NoteFilter filter) {
+        String cartella = NoteFilter.hasText(filter.getCartella()) ? filter.getCartella().trim() : null;
+        return indexes.getTagIndex().evaluate(filter.getTags(), filter.getAnyTags(), filter.getNotTags(), cartella);
+    }
+
+    /**
+     * Avvia una reindicizzazione completa su un nuovo insieme di indici vuoti. Fino al
+     * completamento le ricerche usano gli indici correnti, mentre le scritture vengono
+     * applicate a entrambi.
+     *
+     * @return ricostruzione da popolare
+     * @throws IllegalStateException se un'altra reindicizzazione è in corso
+     */
+    ReindexRebuild beginRebuild() {
+        return beginRebuild(segmentStore != null);
+    }
+
+    private ReindexRebuild beginRebuild(boolean keepNotes) {
+        synchronized (writeLock) {
+            if (rebuild != null) {
+                throw new IllegalStateException("Reindicizzazione già in corso");
+            }
+            rebuild = new ReindexRebuild(indexes.emptyCopy(), keepNotes);
+            return rebuild;
+        }
+    }
+
+    /**
+     * Sostituisce atomicamente gli indici correnti con quelli ricostruiti e, se gli indici
+     * sono salvati su disco, scrive un nuovo segmento con le note ricostruite.
+     *
+     * @param completed ricostruzione terminata
+     * @param startedAt istante (epoch millis) di inizio della ricostruzione
+     */
+    void completeRebuild(ReindexRebuild completed, long startedAt) {
+        synchronized (writeLock) {
+            install(completed);
+            if (segmentStore != null) {
+                try {
+                    segmentStore.writeSegment(completed.getNotes(), startedAt);
+                } catch (IOException e) {
+                    System.err.println("Impossibile salvare il segmento di indice: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sostituisce gli indici correnti con quelli ricostruiti. Va chiamato sotto {@code writeLock}.
+     */
+    private void install(ReindexRebuild completed) {
+        if (rebuild != completed) {
+            throw new IllegalStateException("Reindicizzazione non più attiva");
+        }
+        indexes = completed.getIndexes();
+        rebuild = null;
+    }
+
+    /**
+     * Abbandona una ricostruzione fallita: gli indici correnti restano invariati.
+     *
+     * @param aborted ricostruzione da abbandonare
+     */
+    void abortRebuild(ReindexRebuild aborted) {
+        synchronized (writeLock) {
+            if (rebuild == aborted) {
+                rebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Chiude il journal su disco e ferma la compattazione in background.
+     */
+    @PreDestroy
+    public void close() {
+        if (segmentStore == null) {
+            return;
+        }
+        compactor.shutdown();
+        try {
+            segmentStore.close();
+        } catch (IOException e) {
+            System.err.println("Errore chiusura journal di indice: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ripristina gli indici dai file su disco e rilegge dal database solo le note cambiate
+     * dopo l'ultima voce registrata. Gli indici ripristinati sostituiscono quelli correnti
+     * solo al termine, come in {@link #rebuildIndex()}.
+     *
+     * @return false se non c'è un segmento o non è leggibile: gli indici vanno ricostruiti
+     */
+    private boolean restoreFromDisk(long start) {
+        ReindexRebuild restoring = null;
+        try {
+            if (!segmentStore.hasSegment()) {
+                return false;
+            }
+            restoring = beginRebuild(false);
+            ReindexRebuild target = restoring;
+            Set<Long> restoredIds = new HashSet<>();
+            long watermark = segmentStore.restore(new IndexSegmentStore.Visitor() {
+                @Override
+                public void put(TokenizedNote note) {
+                    target.apply(note);
+                    restoredIds.add(note.getId());
+                }
+
+                @Override
+                public void remove(long noteId) {
+                    target.applyRemove(noteId);
+                    restoredIds.remove(noteId);
+                }
+            });
+            int restored = restoredIds.size();
+            int caughtUp = catchUp(target, restoredIds, watermark);
+            synchronized (writeLock) {
+                install(target);
+            }
+
+            System.out.println("Indici di ricerca ripristinati da disco (motore " + indexes.getEngine().getName() + "): "
+                    + restored + " note, " + caughtUp + " riallineate dal database in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (IOException | RuntimeException e) {
+            if (restoring != null) {
+                abortRebuild(restoring);
+            }
+            System.err.println("Impossibile ripristinare gli indici da disco, ricostruzione dal database: "
+                    + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Riallinea gli indici ripristinati con il database: reindicizza le note modificate
+     * dopo l'istante indicato o assenti dai file, rimuove quelle non più presenti.
+     * Ogni correzione viene registrata anche nel journal, sotto il lock delle scritture e solo
+     * se la nota non è già stata aggiornata da una scrittura più recente.
+     *
+     * @return numero di note reindicizzate o rimosse
+     */
+    private int catchUp(ReindexRebuild target, Set<Long> restoredIds, long watermark) throws IOException {
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(watermark), ZoneId.systemDefault())
+                .minus(CATCH_UP_MARGIN);
+        Set<Long> stale = new HashSet<>(noteRepository.findIdsModifiedSince(since));
+        Set<Long> existing = new HashSet<>(noteRepository.findAllIds());
+        for (Long noteId : existing) {
+            if (!restoredIds.contains(noteId)) {
+                stale.add(noteId);
+            }
+        }
+
+        int changes = 0;
+        for (Long noteId : restoredIds) {
+            if (!existing.contains(noteId)) {
+                synchronized (writeLock) {
+                    if (target.applyRemove(noteId)) {
+                        segmentStore.appendRemove(noteId);
+                    }
+                }
+                changes++;
+            }
+        }
+        List<Long> ids = new ArrayList<>(stale);
+        for (int from = 0; from < ids.size(); from += CATCH_UP_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + CATCH_UP_BATCH_SIZE));
+            for (Note note : noteRepository.findAllById(batch)) {
+                TokenizedNote snapshot = TokenizedNote.of(toIndexedNote(note));
+                synchronized (writeLock) {
+                    if (target.apply(snapshot)) {
+                        segmentStore.appendPut(snapshot);
+                    }
+                }
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private List<Long> retainAccessible(List<Long> rankedIds, String username) {
+        if (rankedIds.isEmpty()) {
+            return rankedIds;
+        }
+        Roaring64NavigableMap accessible = findAccessibleIds(username);
+        return rankedIds.stream().filter(accessible::contains).limit(maxResults).toList();
+    }
+
+    private void compactIfNeeded() {
+        if (segmentStore == null || segmentStore.journalEntries() < compactAfter) {
+            return;
+        }
+        compactor.execute(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                segmentStore.compact();
+                System.out.println("Segmento di indice compattato in " + (System.currentTimeMillis() - start) + " ms");
+            } catch (IOException e) {
+                System.err.println("Errore compattazione segmento di indice: " + e.getMessage());
+            }
+        });
+    }
+
+    private List<IndexedNote> loadAllNotes() {
+        return toIndexedNotes(noteRepository.findAllSearchableContent(),
+                noteRepository.findAllTagPairs(), noteRepository.findAllCartellaPairs());
+    }
+
+    /**
+     * Combina le righe (id, titolo, contenuto) con le coppie (id, tag) e (id, cartella).
+     */
+    static List<IndexedNote> toIndexedNotes(List<Object[]> rows, List<Object[]> tagPairs, List<Object[]> cartellaPairs) {
+        Map<Long, List<String>> tags = groupByNote(tagPairs);
+        Map<Long, List<String>> cartelle = groupByNote(cartellaPairs);
+        List<IndexedNote> notes = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            long noteId = (Long) row[0];
+            notes.add(new IndexedNote(noteId, (String) row[1], (String) row[2],
+                    tags.getOrDefault(noteId, List.of()), cartelle.getOrDefault(noteId, List.of())));
+        }
+        return notes;
+    }
+
+    static IndexedNote toIndexedNote(Note note) {
+        return new IndexedNote(note.getId(), note.getTitolo(), note.getContenuto(),
+                new ArrayList<>(note.getTags()), new ArrayList<>(note.getCartelle()));
+    }
+
+    private static IndexSegmentStore openSegmentStore(String indexDir) {
+        if (indexDir == null || indexDir.isBlank()) {
+            return null;
+        }
+        try {
+            return new IndexSegmentStore(Paths.get(indexDir));
+        } catch (IOException e) {
+            System.err.println("Cartella degli indici non utilizzabile (" + indexDir + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<Long, List<String>> groupByNote(List<Object[]> pairs) {
+        Map<Long, List<String>> grouped = new HashMap<>();
+        for (Object[] pair : pairs) {
+            grouped.computeIfAbsent((Long) pair[0], id -> new ArrayList<>()).add((String) pair[1]);
+        }
+        return grouped;
+    }
+}
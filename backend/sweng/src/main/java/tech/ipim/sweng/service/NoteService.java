@@ -1,42 +1,79 @@
 package tech.ipim.sweng.service;
 
-import java.time.LocalDate;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Function;
 
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
 import tech.ipim.sweng.dto.CreateNoteRequest;
+import tech.ipim.sweng.dto.NoteCursor;
 import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.dto.NotePageDto;
+import tech.ipim.sweng.dto.NoteSummaryDto;
 import tech.ipim.sweng.dto.NoteVersionDto;
 import tech.ipim.sweng.dto.PermissionDto;
+import tech.ipim.sweng.dto.SearchHighlightDto;
 import tech.ipim.sweng.dto.UpdateNoteRequest;
 import tech.ipim.sweng.dto.VersionComparisonDto;
+import tech.ipim.sweng.dto.VersionSearchHitDto;
+import tech.ipim.sweng.model.Gruppo;
 import tech.ipim.sweng.model.Note;
 import tech.ipim.sweng.model.NoteVersion;
 import tech.ipim.sweng.model.TipoPermesso;
 import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.GruppoRepository;
 import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.repository.NoteSpecifications;
 import tech.ipim.sweng.repository.UserRepository;
+import tech.ipim.sweng.search.Suggestion;
 
 @Service
 @Transactional
 public class NoteService {
 
+    private static final int ID_BATCH_SIZE = 1000;
+
     private final NoteRepository noteRepository;
     private final UserRepository userRepository;
     private final NoteVersionService noteVersionService;
+    private final NoteSearchService noteSearchService;
+    private final NoteSuggestionService noteSuggestionService;
+    private final NoteAccessService noteAccessService;
+    private final NoteAclCache noteAclCache;
+    private final GruppoRepository gruppoRepository;
+    private final NoteReadService noteReadService;
+    private final NoteChangeService noteChangeService;
+    private final UserCache userCache;
 
     @Autowired
-    public NoteService(NoteRepository noteRepository, UserRepository userRepository, NoteVersionService noteVersionService) {
+    public NoteService(NoteRepository noteRepository, UserRepository userRepository, NoteVersionService noteVersionService,
+                       NoteSearchService noteSearchService, NoteSuggestionService noteSuggestionService,
+                       NoteAccessService noteAccessService, NoteAclCache noteAclCache, GruppoRepository gruppoRepository,
+                       NoteReadService noteReadService, NoteChangeService noteChangeService, UserCache userCache) {
         this.noteRepository = noteRepository;
         this.userRepository = userRepository;
         this.noteVersionService = noteVersionService;
+        this.noteSearchService = noteSearchService;
+        this.noteSuggestionService = noteSuggestionService;
+        this.noteAccessService = noteAccessService;
+        this.noteAclCache = noteAclCache;
+        this.gruppoRepository = gruppoRepository;
+        this.noteReadService = noteReadService;
+        this.noteChangeService = noteChangeService;
+        this.userCache = userCache;
     }
     
     /**
@@ -54,8 +91,7 @@ public class NoteService {
         System.out.println("User: " + username);
         System.out.println("Request: " + request.getTitolo());
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        User user = userCache.getReference(username);
 
         Note note = new Note(request.getTitolo(), request.getContenuto(), user);
 
@@ -76,13 +112,6 @@ public class NoteService {
             System.out.println("Utenti scrittura ricevuti: " + request.getPermessi().getUtentiScrittura());
 
 
-            if (note.getPermessiLettura() == null) {
-                note.setPermessiLettura(new HashSet<>());
-            }
-            if (note.getPermessiScrittura() == null) {
-                note.setPermessiScrittura(new HashSet<>());
-            }
-
             configurePermissions(note, request.getPermessi());
 
             // Verifica IMMEDIATA dopo configurazione
@@ -95,8 +124,8 @@ public class NoteService {
         } else {
             System.out.println("Nessun permesso ricevuto, impostazione PRIVATA");
             note.setTipoPermesso(TipoPermesso.PRIVATA);
-            note.setPermessiLettura(new HashSet<>());
-            note.setPermessiScrittura(new HashSet<>());
+            note.setLettori(new HashSet<>());
+            note.setScrittori(new HashSet<>());
         }
 
 
@@ -112,9 +141,12 @@ public class NoteService {
         System.out.println("Tipo permesso POST-save: " + savedNote.getTipoPermesso());
         System.out.println("Permessi lettura POST-save: " + savedNote.getPermessiLettura());
         System.out.println("Permessi scrittura POST-save: " + savedNote.getPermessiScrittura());
+        noteAccessService.refresh(savedNote.getId());
 
         // Crea la prima versione
         noteVersionService.createVersion(savedNote, username, "Creazione nota");
+        noteSearchService.indexNote(savedNote);
+        noteSuggestionService.noteChanged(savedNote);
 
 
         Note reloadedNote = noteRepository.findById(savedNote.getId()).orElse(null);
@@ -137,11 +169,9 @@ public class NoteService {
      * @return lista di DTO delle note accessibili
      */
 
+    @Transactional(readOnly = true)
     public List<NoteDto> getAllAccessibleNotes(String username) {
-        List<Note> notes = noteRepository.findAllAccessibleNotes(username);
-        return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
-                .toList();
+        return noteReadService.findByIds(username, ids(noteRepository.findKeys(NoteSpecifications.accessibleTo(username))));
     }
 
     /**
@@ -152,30 +182,62 @@ public class NoteService {
      */
 
     public List<NoteDto> getUserNotes(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        if (userCache.findId(username) == null) {
+            throw new RuntimeException("Utente non trovato: " + username);
+        }
 
-        List<Note> notes = noteRepository.findByAutoreOrderByDataModificaDesc(user);
-        return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
-                .toList();
+        return noteReadService.findByIds(username, ids(noteRepository.findKeys(NoteSpecifications.hasAutore(username))));
     }
 
     /**
      * Recupera una singola nota accessibile all'utente per ID.
+     * Come per gli elenchi, il DTO è costruito dalle proiezioni di {@link NoteReadService}:
+     * il numero di query non dipende da quante collezioni della nota sono valorizzate.
      * 
      * @param noteId ID della nota
      * @param username nome utente richiedente
      * @return Optional contenente il DTO della nota se accessibile
      */
 
+    @Transactional(readOnly = true)
     public Optional<NoteDto> getNoteById(Long noteId, String username) {
-        Optional<Note> note = noteRepository.findAccessibleNoteById(noteId, username);
-        return note.map(n -> NoteDto.fromNote(n, username));
+        List<Long> accessible = noteRepository.findAccessibleIdsByIds(username, List.of(noteId));
+        return noteReadService.findByIds(username, accessible).stream().findFirst();
+    }
+
+    /**
+     * ETag forte degli elenchi di note dell'utente, calcolato con una query di aggregazione
+     * sulle note accessibili (numero, somma degli id, ultima modifica) e sui gruppi dell'utente,
+     * senza leggere titoli e contenuti. Il valore è lo stesso per tutti gli elenchi: filtri,
+     * pagina e vista fanno parte dell'URL, che il client usa già per distinguerli.
+     *
+     * @param username nome utente richiedente
+     * @return ETag tra virgolette
+     */
+    @Transactional(readOnly = true)
+    public String getNotesEtag(String username) {
+        return etag("notes", username, noteRepository.findAccessibleWatermark(username).get(0));
+    }
+
+    /**
+     * ETag forte di una nota per l'utente, dai soli numero di versione e data di modifica
+     * della nota e dai gruppi dell'utente.
+     *
+     * @param noteId ID della nota
+     * @param username nome utente richiedente
+     * @return ETag tra virgolette, vuoto se la nota non esiste o non è accessibile
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getNoteEtag(Long noteId, String username) {
+        return noteRepository.findAccessibleVersion(noteId, username).stream()
+                .findFirst()
+                .map(row -> etag("note:" + noteId, username, row));
     }
 
     /**
      * Cerca note accessibili contenenti una parola chiave nel titolo o contenuto.
+     * Le note sono risolte dal motore di ricerca, già ordinate per rilevanza e limitate
+     * a quelle accessibili all'utente; dal database vengono caricate solo quelle.
      * 
      * @param username nome utente richiedente
      * @param keyword parola chiave per la ricerca
@@ -183,12 +245,140 @@ public class NoteService {
      */
 
     public List<NoteDto> searchNotes(String username, String keyword) {
-        List<Note> notes = noteRepository.searchNotesByKeyword(username, keyword.trim());
+        return searchNotes(username, keyword, false);
+    }
+
+    /**
+     * Cerca note accessibili per parola chiave, opzionalmente in modalità tollerante
+     * agli errori di battitura: in quel caso le parole vengono confrontate con l'indice
+     * di trigrammi e trovano anche termini simili ("progeto" trova "progetto").
+     *
+     * @param username nome utente richiedente
+     * @param keyword parola chiave per la ricerca
+     * @param fuzzy true per la ricerca per somiglianza
+     * @return lista di DTO delle note trovate, ordinate per rilevanza
+     */
+    public List<NoteDto> searchNotes(String username, String keyword, boolean fuzzy) {
+        List<Long> rankedIds = fuzzy
+                ? noteSearchService.findFuzzyIds(keyword.trim(), username)
+                : noteSearchService.findRankedIds(keyword.trim(), username);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+
+        return noteReadService.findByIds(username, rankedIds);
+    }
+
+    /**
+     * Pagina dei risultati di una ricerca. A differenza di {@link #searchNotes(String, String, boolean)}
+     * le note sono ordinate per data di modifica e id decrescenti, l'unico ordine in cui una
+     * pagina può riprendere da un cursore senza ricalcolare le precedenti.
+     *
+     * @param username nome utente richiedente
+     * @param keyword  parola chiave per la ricerca
+     * @param fuzzy    true per la ricerca per somiglianza
+     * @param cursor   posizione da cui riprendere, null per la prima pagina
+     * @param limit    dimensione della pagina
+     * @return pagina di note trovate
+     */
+    @Transactional(readOnly = true)
+    public NotePageDto<NoteDto> searchNotesPage(String username, String keyword, boolean fuzzy, NoteCursor cursor, int limit) {
+        List<Long> rankedIds = fuzzy
+                ? noteSearchService.findFuzzyIds(keyword.trim(), username)
+                : noteSearchService.findRankedIds(keyword.trim(), username);
+        List<NoteCursor> keys = findPageKeys(NoteSpecifications.accessibleTo(username), rankedIds, cursor, limit);
+        return NotePageDto.of(keys, limit, ids -> noteReadService.findByIds(username, ids));
+    }
+
+    /**
+     * Calcola le evidenziazioni dei risultati di una ricerca: offset delle parole trovate
+     * nel titolo e nel contenuto ed estratto del contenuto attorno alla prima corrispondenza.
+     * Le posizioni sono calcolate dal motore di ricerca solo per le note della pagina.
+     *
+     * @param keyword parola chiave della ricerca
+     * @param notes   note restituite dalla ricerca
+     * @return evidenziazioni nello stesso ordine delle note
+     */
+    public List<SearchHighlightDto> getSearchHighlights(String keyword, List<NoteDto> notes) {
         return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
+                .map(note -> SearchHighlightDto.of(note.getId(), note.getContenuto(),
+                        noteSearchService.findMatches(note.getId(), note.getTitolo(), note.getContenuto(), keyword.trim())))
+                .toList();
+    }
+
+    /**
+     * Cerca le parole indicate nella cronologia delle versioni, restituendo solo le versioni
+     * delle note che l'utente può leggere oggi. Le versioni vengono trovate dall'indice in
+     * memoria; dal database si leggono solo gli id accessibili tra le note coinvolte.
+     *
+     * @param username nome utente richiedente
+     * @param keyword parola chiave per la ricerca
+     * @return versioni trovate (nota e numero di versione), ordinate per rilevanza
+     */
+    @Transactional(readOnly = true)
+    public List<VersionSearchHitDto> searchNoteVersions(String username, String keyword) {
+        List<VersionSearchHitDto> hits = noteVersionService.searchVersions(keyword.trim());
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> noteIds = hits.stream().map(VersionSearchHitDto::getNoteId).distinct().toList();
+        Set<Long> accessibleIds = new HashSet<>();
+        for (int from = 0; from < noteIds.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = noteIds.subList(from, Math.min(from + ID_BATCH_SIZE, noteIds.size()));
+            accessibleIds.addAll(noteRepository.findAccessibleIdsByIds(username, batch));
+        }
+
+        return hits.stream()
+                .filter(hit -> accessibleIds.contains(hit.getNoteId()))
                 .toList();
     }
 
+    /**
+     * Suggerisce completamenti del prefisso digitato tra titoli, tag e cartelle
+     * delle note accessibili all'utente, senza interrogare il database.
+     *
+     * @param username nome utente richiedente
+     * @param prefix prefisso digitato
+     * @param limit numero massimo di suggerimenti
+     * @return suggerimenti distinti
+     */
+    public List<Suggestion> suggest(String username, String prefix, int limit) {
+        return noteSuggestionService.suggest(username, prefix, limit);
+    }
+
+    /**
+     * Filtra gli id indicati con la query ricevuta, mantenendo il loro ordine. Gli id vengono
+     * interrogati a blocchi per non superare il numero massimo di parametri di una singola query.
+     *
+     * @param orderedIds id delle note nell'ordine desiderato
+     * @param loader     query che restituisce gli id validi di un blocco
+     * @return id validi, nello stesso ordine ricevuto
+     */
+    private List<Long> retainInOrder(List<Long> orderedIds, Function<List<Long>, List<Long>> loader) {
+        Set<Long> retained = new HashSet<>();
+        for (int from = 0; from < orderedIds.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = orderedIds.subList(from, Math.min(from + ID_BATCH_SIZE, orderedIds.size()));
+            retained.addAll(loader.apply(batch));
+        }
+        return orderedIds.stream().filter(retained::contains).toList();
+    }
+
+    /**
+     * L'utente fa parte dell'ETag perché i permessi mostrati nelle note dipendono da chi le legge.
+     */
+    private static String etag(String risorsa, String username, Object[] values) {
+        StringBuilder key = new StringBuilder(risorsa).append('|').append(username);
+        for (Object value : values) {
+            key.append('|').append(value);
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private static List<Long> ids(List<NoteCursor> keys) {
+        return keys.stream().map(NoteCursor::getId).toList();
+    }
+
     /**
      * Recupera le note accessibili associate a un determinato tag.
      * 
@@ -198,10 +388,7 @@ public class NoteService {
      */
 
     public List<NoteDto> getNotesByTag(String username, String tag) {
-        List<Note> notes = noteRepository.findNotesByTag(username, tag);
-        return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
-                .toList();
+        return findNotes(username, NoteFilter.forTag(tag));
     }
 
     /**
@@ -213,10 +400,33 @@ public class NoteService {
      */
 
     public List<NoteDto> getNotesByCartella(String username, String cartella) {
-        List<Note> notes = noteRepository.findNotesByCartella(username, cartella);
-        return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
-                .toList();
+        return findNotes(username, NoteFilter.forCartella(cartella));
+    }
+
+    /**
+     * Pagina delle note accessibili associate a un tag.
+     *
+     * @param username nome utente richiedente
+     * @param tag      tag con cui filtrare le note
+     * @param cursor   posizione da cui riprendere, null per la prima pagina
+     * @param limit    dimensione della pagina
+     * @return pagina di note filtrate per tag
+     */
+    public NotePageDto<NoteDto> getNotesByTag(String username, String tag, NoteCursor cursor, int limit) {
+        return findNotesPage(username, NoteFilter.forTag(tag), cursor, limit);
+    }
+
+    /**
+     * Pagina delle note accessibili associate a una cartella.
+     *
+     * @param username nome utente richiedente
+     * @param cartella nome della cartella per il filtro
+     * @param cursor   posizione da cui riprendere, null per la prima pagina
+     * @param limit    dimensione della pagina
+     * @return pagina di note filtrate per cartella
+     */
+    public NotePageDto<NoteDto> getNotesByCartella(String username, String cartella, NoteCursor cursor, int limit) {
+        return findNotesPage(username, NoteFilter.forCartella(cartella), cursor, limit);
     }
 
     /**
@@ -233,16 +443,12 @@ public class NoteService {
         Note originalNote = noteRepository.findById(noteId)
                 .orElseThrow(() -> new RuntimeException("Nota non trovata: " + noteId));
 
-        boolean hasAccess = originalNote.getAutore().getUsername().equals(username)
-                || originalNote.getPermessiLettura().contains(username)
-                || originalNote.getPermessiScrittura().contains(username);
-
-        if (!hasAccess) {
+        // permessi letti dalla cache: i membri dei gruppi della nota non vengono caricati
+        if (!noteAclCache.canRead(noteId, username)) {
             throw new RuntimeException("Non hai accesso a questa nota");
         }
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        User user = userCache.getReference(username);
 
         Note duplicatedNote = new Note(
                 originalNote.getTitolo() + " (copia)",
@@ -254,8 +460,11 @@ public class NoteService {
         duplicatedNote.setCartelle(new HashSet<>(originalNote.getCartelle()));
 
         Note savedNote = noteRepository.save(duplicatedNote);
+        noteAccessService.refresh(savedNote.getId());
 
         noteVersionService.createVersion(savedNote, username, "Duplicazione da nota ID: " + noteId);
+        noteSearchService.indexNote(savedNote);
+        noteSuggestionService.noteChanged(savedNote);
 
         System.out.println("Nota duplicata con successo: " + savedNote.getId() + " da " + username);
 
@@ -282,7 +491,10 @@ public class NoteService {
 
         noteVersionService.deleteAllVersionsForNote(noteId);
 
+        noteAccessService.remove(noteId);
         noteRepository.delete(note);
+        noteSearchService.removeNote(noteId);
+        noteSuggestionService.noteRemoved(noteId);
         System.out.println("Nota eliminata: " + noteId + " da " + username);
         return true;
     }
@@ -304,18 +516,15 @@ public class NoteService {
             throw new RuntimeException("Il proprietario non può rimuoversi dalla propria nota");
         }
 
-        boolean hasAccess = note.getPermessiLettura().contains(username)
-                || note.getPermessiScrittura().contains(username);
-
-        if (!hasAccess) {
+        if (!note.removeFromSharing(username)) {
             throw new RuntimeException("L'utente non ha accesso a questa nota");
         }
 
-        note.getPermessiLettura().remove(username);
-        note.getPermessiScrittura().remove(username);
         note.setDataModifica(LocalDateTime.now());
 
         noteRepository.save(note);
+        noteAccessService.refresh(noteId);
+        noteSuggestionService.noteChanged(note);
         System.out.println("Utente " + username + " rimosso dalla condivisione della nota " + noteId);
     }
 
@@ -335,10 +544,8 @@ public class NoteService {
         Note note = noteRepository.findById(noteId)
                 .orElseThrow(() -> new RuntimeException("Nota non trovata"));
 
-        boolean canEdit = note.getAutore().getUsername().equals(username)
-                || note.getPermessiScrittura().contains(username);
-
-        if (!canEdit) {
+        // permessi letti dalla cache: i membri dei gruppi della nota non vengono caricati
+        if (!noteAclCache.canWrite(noteId, username)) {
             throw new RuntimeException("Non hai i permessi per modificare questa nota");
         }
 
@@ -366,6 +573,9 @@ public class NoteService {
 
         String changeDescription = buildChangeDescription(oldTitle, oldContent, request.getTitolo().trim(), request.getContenuto().trim());
         noteVersionService.createVersion(savedNote, username, changeDescription);
+        noteSearchService.indexNote(savedNote);
+        noteSuggestionService.noteChanged(savedNote);
+        noteChangeService.noteChanged(noteId);
 
         System.out.println("Nota aggiornata: " + noteId + " da " + username + " (versione " + note.getVersionNumber() + ")");
         return NoteDto.fromNote(savedNote, username);
@@ -410,6 +620,8 @@ public class NoteService {
 
         //  Usa saveAndFlush per forzare il salvataggio immediato
         Note savedNote = noteRepository.saveAndFlush(note);
+        noteAccessService.refresh(noteId);
+        noteSuggestionService.noteChanged(savedNote);
 
         // Log stato DOPO il salvataggio
         System.out.println("DOPO SAVE - Tipo permesso: " + savedNote.getTipoPermesso());
@@ -442,13 +654,7 @@ public class NoteService {
      */
 
     public List<NoteVersionDto> getNoteVersionHistory(Long noteId, String username) {
-        Note note = noteRepository.findById(noteId)
-                .orElseThrow(() -> new RuntimeException("Nota non trovata"));
-
-        boolean hasAccess = note.hasReadAccess(username);
-        if (!hasAccess) {
-            throw new RuntimeException("Non hai accesso a questa nota");
-        }
+        checkReadAccess(noteId, username);
 
         List<NoteVersion> versions = noteVersionService.getVersionHistory(noteId);
         return versions.stream()
@@ -466,13 +672,7 @@ public class NoteService {
      */
 
     public Optional<NoteVersionDto> getNoteVersion(Long noteId, Integer versionNumber, String username) {
-        Note note = noteRepository.findById(noteId)
-                .orElseThrow(() -> new RuntimeException("Nota non trovata"));
-
-        boolean hasAccess = note.hasReadAccess(username);
-        if (!hasAccess) {
-            throw new RuntimeException("Non hai accesso a questa nota");
-        }
+        checkReadAccess(noteId, username);
 
         Optional<NoteVersion> version = noteVersionService.getVersion(noteId, versionNumber);
         return version.map(NoteVersionDto::new);
@@ -494,10 +694,7 @@ public class NoteService {
                 .orElseThrow(() -> new RuntimeException("Nota non trovata"));
 
         // Verifica che l'utente abbia i permessi di scrittura
-        boolean canEdit = note.isAutore(username)
-                || note.getPermessiScrittura().contains(username);
-
-        if (!canEdit) {
+        if (!noteAclCache.canWrite(noteId, username)) {
             throw new RuntimeException("Non hai i permessi per ripristinare versioni di questa nota");
         }
 
@@ -524,6 +721,9 @@ public class NoteService {
         // Crea una nuova versione per il ripristino
         String changeDescription = String.format("Ripristino alla versione %d", versionNumber);
         noteVersionService.createVersion(savedNote, username, changeDescription);
+        noteSearchService.indexNote(savedNote);
+        noteSuggestionService.noteChanged(savedNote);
+        noteChangeService.noteChanged(noteId);
 
         System.out.println("Versione " + versionNumber + " ripristinata per nota " + noteId
                 + " da " + username + " (nuova versione " + note.getVersionNumber() + ")");
@@ -543,13 +743,7 @@ public class NoteService {
      */
 
     public VersionComparisonDto compareNoteVersions(Long noteId, Integer version1, Integer version2, String username) {
-        Note note = noteRepository.findById(noteId)
-                .orElseThrow(() -> new RuntimeException("Nota non trovata"));
-
-        boolean hasAccess = note.hasReadAccess(username);
-        if (!hasAccess) {
-            throw new RuntimeException("Non hai accesso a questa nota");
-        }
+        checkReadAccess(noteId, username);
 
         // Recupera le due versioni
         Optional<NoteVersion> v1 = noteVersionService.getVersion(noteId, version1);
@@ -632,141 +826,176 @@ public class NoteService {
         }
     }
 
-
-     /**
-     * Recupera le note filtrate per autore e filtro tipo (own, shared, all).
-     * 
+    /**
+     * Recupera le note accessibili all'utente combinando in un'unica query tutti i filtri
+     * valorizzati (ambito own/shared/all, tag, cartella, autore, intervallo di date).
+     * I criteri su tag e cartella vengono risolti prima con le bitmap in memoria, intersecate
+     * con quella delle note accessibili: al database arrivano solo gli id che li soddisfano,
+     * oppure, se sono troppi per una query, i criteri stessi come predicato SQL.
+     * Se è presente una ricerca testuale, il motore di ricerca restituisce gli id candidati
+     * che vengono aggiunti alla stessa query, e il risultato mantiene l'ordine di rilevanza;
+     * altrimenti le note sono ordinate per data di modifica decrescente.
+     * Le query sul filtro leggono solo gli id: i DTO vengono costruiti con le proiezioni
+     * di {@link NoteReadService}, senza caricare le entità.
+     *
      * @param username nome utente richiedente
-     * @param autore nome utente autore da filtrare
-     * @param filter tipo di filtro ("own", "shared", "all")
+     * @param filter criteri di filtro
      * @return lista di DTO delle note filtrate
      */
+    @Transactional(readOnly = true)
+    public List<NoteDto> findNotes(String username, NoteFilter filter) {
+        return noteReadService.findByIds(username, findNoteIds(username, filter));
+    }
 
-public List<NoteDto> getNotesByAutore(String username, String autore, String filter) {
-    System.out.println("Recupero note per autore: " + autore + ", filtro: " + filter);
-
-    try {
-        List<Note> notes;
+    /**
+     * Come {@link #findNotes(String, NoteFilter)}, ma restituisce la rappresentazione ridotta
+     * degli elenchi con {@code view=summary}: anteprima del contenuto, tag e flag dei permessi,
+     * letti con una proiezione più stretta.
+     *
+     * @param username nome utente richiedente
+     * @param filter criteri di filtro
+     * @return note filtrate in forma ridotta
+     */
+    @Transactional(readOnly = true)
+    public List<NoteSummaryDto> findNoteSummaries(String username, NoteFilter filter) {
+        return noteReadService.findSummariesByIds(username, findNoteIds(username, filter));
+    }
 
-        switch (filter.toLowerCase()) {
-            case "own":
-                notes = noteRepository.findByAutoreUsernameAndAutoreUsernameOrderByDataModificaDesc(autore, username);
-                break;
-            case "shared":
-                notes = noteRepository.findSharedNotesByAutore(username, autore);
-                break;
-            default: // "all"
-                notes = noteRepository.findAccessibleNotesByAutore(username, autore);
-                break;
+    /**
+     * Id delle note che soddisfano i filtri, nell'ordine di {@link #findNotes(String, NoteFilter)}.
+     */
+    private List<Long> findNoteIds(String username, NoteFilter filter) {
+        Roaring64NavigableMap tagCandidates = findTagCandidates(username, filter);
+        Specification<Note> spec;
+        if (tagCandidates != null) {
+            if (tagCandidates.isEmpty()) {
+                return List.of();
+            }
+            spec = NoteSpecifications.fromFilter(username, filter.withoutTagAndCartella());
+        } else {
+            spec = NoteSpecifications.fromFilter(username, filter);
         }
 
-        System.out.println("Note trovate per autore " + autore + ": " + notes.size());
+        List<Long> ids;
+        if (filter.hasSearch()) {
+            List<Long> rankedIds = noteSearchService.findRankedIds(filter.getSearch().trim(), username);
+            if (tagCandidates != null) {
+                rankedIds = rankedIds.stream().filter(tagCandidates::contains).toList();
+            }
+            ids = retainInOrder(rankedIds, batch -> ids(noteRepository.findKeys(spec.and(NoteSpecifications.idIn(batch)))));
+        } else if (tagCandidates != null) {
+            ids = ids(noteRepository.findKeys(spec.and(NoteSpecifications.idIn(toList(tagCandidates)))));
+        } else {
+            ids = ids(noteRepository.findKeys(spec));
+        }
+        return ids;
+    }
 
-        return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
-                .collect(Collectors.toList());
+    /**
+     * Risolve i criteri su tag e cartella con le bitmap in memoria, limitate alle note
+     * accessibili all'utente. Se restano più id di quanti ne stanno in una query, i criteri
+     * vengono lasciati al predicato SQL di {@link NoteSpecifications#fromFilter(String, NoteFilter)}.
+     *
+     * @return id candidati, null se il filtro non ha criteri su tag e cartella o se i candidati sono troppi
+     */
+    private Roaring64NavigableMap findTagCandidates(String username, NoteFilter filter) {
+        if (!filter.hasTagOrCartellaCriteria()) {
+            return null;
+        }
+        Roaring64NavigableMap candidates = noteSearchService.findIdsByTagsAndCartella(filter);
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        candidates.and(noteSearchService.findAccessibleIds(username));
+        return candidates.getLongCardinality() > ID_BATCH_SIZE ? null : candidates;
+    }
 
-    } catch (Exception e) {
-        System.err.println("Errore ricerca per autore: " + e.getMessage());
-        throw new RuntimeException("Errore durante la ricerca per autore");
+    private static List<Long> toList(Roaring64NavigableMap bitmap) {
+        return Arrays.stream(bitmap.toArray()).boxed().toList();
     }
-}
 
     /**
-     * Recupera le note filtrate per intervallo di date e filtro tipo (own, shared, all).
-     * 
+     * Pagina delle note accessibili che soddisfano i filtri, con gli stessi criteri di
+     * {@link #findNotes(String, NoteFilter)}. Le note sono sempre ordinate per data di modifica
+     * e id decrescenti, anche con una ricerca testuale: la pagina successiva riprende dal
+     * cursore con una condizione sull'indice, senza OFFSET né query di conteggio.
+     *
      * @param username nome utente richiedente
-     * @param dataInizio data inizio filtro (yyyy-MM-dd) o null
-     * @param dataFine data fine filtro (yyyy-MM-dd) o null
-     * @param filter tipo di filtro ("own", "shared", "all")
-     * @return lista di DTO delle note filtrate
+     * @param filter   criteri di filtro
+     * @param cursor   posizione da cui riprendere, null per la prima pagina
+     * @param limit    dimensione della pagina
+     * @return pagina di note filtrate
      */
+    @Transactional(readOnly = true)
+    public NotePageDto<NoteDto> findNotesPage(String username, NoteFilter filter, NoteCursor cursor, int limit) {
+        List<NoteCursor> keys = findPageKeys(username, filter, cursor, limit);
+        return NotePageDto.of(keys, limit, ids -> noteReadService.findByIds(username, ids));
+    }
 
-public List<NoteDto> getNotesByDateRange(String username, String dataInizio, String dataFine, String filter) {
-    System.out.println("Ricerca note per periodo: " + dataInizio + " - " + dataFine + ", filtro: " + filter);
+    /**
+     * Pagina delle note filtrate in forma ridotta, per gli elenchi con {@code view=summary}.
+     *
+     * @param username nome utente richiedente
+     * @param filter   criteri di filtro
+     * @param cursor   posizione da cui riprendere, null per la prima pagina
+     * @param limit    dimensione della pagina
+     * @return pagina di note filtrate in forma ridotta
+     */
+    @Transactional(readOnly = true)
+    public NotePageDto<NoteSummaryDto> findNoteSummariesPage(String username, NoteFilter filter, NoteCursor cursor, int limit) {
+        List<NoteCursor> keys = findPageKeys(username, filter, cursor, limit);
+        return NotePageDto.of(keys, limit, ids -> noteReadService.findSummariesByIds(username, ids));
+    }
 
-    try {
-        final LocalDateTime finalStartDate;
-        final LocalDateTime finalEndDate;
-        
-        if (dataInizio != null && !dataInizio.trim().isEmpty()) {
-            finalStartDate = LocalDate.parse(dataInizio).atStartOfDay();
-        } else {
-            finalStartDate = null;
-        }
-        
-        if (dataFine != null && !dataFine.trim().isEmpty()) {
-            finalEndDate = LocalDate.parse(dataFine).atTime(23, 59, 59);
-        } else {
-            finalEndDate = null;
-        }
-
-        List<Note> notes;
-
-        // Gestione condizionale basata sui parametri delle date
-        if (finalStartDate == null && finalEndDate == null) {
-            // Nessun filtro data - usa query normali esistenti
-            switch (filter.toLowerCase()) {
-                case "own":
-                    // Cerca note proprie dell'utente
-                    User user = userRepository.findByUsername(username)
-                            .orElseThrow(() -> new RuntimeException("Utente non trovato"));
-                    notes = noteRepository.findByAutoreOrderByDataModificaDesc(user);
-                    break;
-                case "shared":
-                    // Note condivise a cui l'utente ha accesso (escluse quelle proprie)
-                    List<Note> allAccessible = noteRepository.findAllAccessibleNotes(username);
-                    notes = allAccessible.stream()
-                            .filter(note -> !note.getAutore().getUsername().equals(username))
-                            .collect(Collectors.toList());
-                    break;
-                default: // "all"
-                    notes = noteRepository.findAllAccessibleNotes(username);
-                    break;
+    /**
+     * Chiavi della pagina di note che soddisfano i filtri, con una in più del limite.
+     */
+    private List<NoteCursor> findPageKeys(String username, NoteFilter filter, NoteCursor cursor, int limit) {
+        Roaring64NavigableMap tagCandidates = findTagCandidates(username, filter);
+        Specification<Note> spec = tagCandidates != null
+                ? NoteSpecifications.fromFilter(username, filter.withoutTagAndCartella())
+                : NoteSpecifications.fromFilter(username, filter);
+
+        List<Long> candidateIds = null;
+        if (filter.hasSearch()) {
+            candidateIds = noteSearchService.findRankedIds(filter.getSearch().trim(), username);
+            if (tagCandidates != null) {
+                candidateIds = candidateIds.stream().filter(tagCandidates::contains).toList();
             }
+        } else if (tagCandidates != null) {
+            candidateIds = toList(tagCandidates);
+        }
+        return findPageKeys(spec, candidateIds, cursor, limit);
+    }
+
+    /**
+     * Legge le chiavi di una pagina di note, con una riga in più per sapere se ne esiste un'altra.
+     * Se gli id candidati sono già noti (ricerca, tag, cartella) sono limitati alle note accessibili
+     * e di norma stanno in un solo blocco; con più blocchi ognuno restituisce al massimo una pagina,
+     * e i blocchi vengono uniti e ordinati in memoria.
+     *
+     * @param spec         filtro sulle note
+     * @param candidateIds id a cui limitare la pagina, null per nessun limite
+     * @param cursor       posizione da cui riprendere, null per la prima pagina
+     * @param limit        dimensione della pagina
+     * @return chiavi della pagina, al massimo {@code limit + 1}
+     */
+    private List<NoteCursor> findPageKeys(Specification<Note> spec, List<Long> candidateIds, NoteCursor cursor, int limit) {
+        Specification<Note> pageSpec = cursor == null ? spec : spec.and(NoteSpecifications.before(cursor));
+        List<NoteCursor> keys;
+        if (candidateIds == null) {
+            keys = noteRepository.findKeys(pageSpec, limit + 1);
         } else {
-            // Applica filtro manuale sui risultati
-            // Prima recupera tutte le note in base al filtro
-            List<Note> allNotes;
-            switch (filter.toLowerCase()) {
-                case "own":
-                    User user = userRepository.findByUsername(username)
-                            .orElseThrow(() -> new RuntimeException("Utente non trovato"));
-                    allNotes = noteRepository.findByAutoreOrderByDataModificaDesc(user);
-                    break;
-                case "shared":
-                    List<Note> allAccessible = noteRepository.findAllAccessibleNotes(username);
-                    allNotes = allAccessible.stream()
-                            .filter(note -> !note.getAutore().getUsername().equals(username))
-                            .collect(Collectors.toList());
-                    break;
-                default: // "all"
-                    allNotes = noteRepository.findAllAccessibleNotes(username);
-                    break;
+            keys = new ArrayList<>();
+            for (int from = 0; from < candidateIds.size(); from += ID_BATCH_SIZE) {
+                List<Long> batch = candidateIds.subList(from, Math.min(from + ID_BATCH_SIZE, candidateIds.size()));
+                keys.addAll(noteRepository.findKeys(pageSpec.and(NoteSpecifications.idIn(batch)), limit + 1));
             }
-
-            // Poi filtra per date in memoria
-            notes = allNotes.stream()
-                    .filter(note -> {
-                        LocalDateTime dataCreazione = note.getDataCreazione();
-                        boolean afterStart = finalStartDate == null || !dataCreazione.isBefore(finalStartDate);
-                        boolean beforeEnd = finalEndDate == null || !dataCreazione.isAfter(finalEndDate);
-                        return afterStart && beforeEnd;
-                    })
-                    .collect(Collectors.toList());
+            keys.sort(NoteCursor.ORDER);
+            keys = keys.subList(0, Math.min(keys.size(), limit + 1));
         }
-
-        System.out.println("Note trovate per periodo: " + notes.size());
-
-        return notes.stream()
-                .map(note -> NoteDto.fromNote(note, username))
-                .collect(Collectors.toList());
-
-    } catch (Exception e) {
-        System.err.println("Errore ricerca per date: " + e.getMessage());
-        throw new RuntimeException("Errore durante la ricerca per date: " + e.getMessage());
+        return keys;
     }
-}
 
     /**
      * Recupera statistiche riepilogative per un utente,
@@ -777,8 +1006,7 @@ public List<NoteDto> getNotesByDateRange(String username, String dataInizio, Str
      */
 
     public UserStatsDto getUserStats(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Utente non trovato: " + username));
+        User user = userCache.getReference(username);
 
         long noteCreate = noteRepository.countByAutore(user);
         long noteCondivise = noteRepository.countSharedNotes(username);
@@ -827,6 +1055,23 @@ public List<NoteDto> getNotesByDateRange(String username, String dataInizio, Str
         return description.toString();
     }
 
+    /**
+     * Verifica che la nota esista e che l'utente possa leggerla,
+     * usando la cache dei permessi invece di caricare la nota.
+     *
+     * @param noteId ID della nota
+     * @param username nome utente richiedente
+     */
+
+    private void checkReadAccess(Long noteId, String username) {
+        if (!noteAclCache.exists(noteId)) {
+            throw new RuntimeException("Nota non trovata");
+        }
+        if (!noteAclCache.canRead(noteId, username)) {
+            throw new RuntimeException("Non hai accesso a questa nota");
+        }
+    }
+
     /**
      * Configura i permessi di una nota in base ai dati ricevuti
      * nel DTO dei permessi.
@@ -842,18 +1087,20 @@ public List<NoteDto> getNotesByDateRange(String username, String dataInizio, Str
         System.out.println("Utenti scrittura ricevuti: " + permissionDto.getUtentiScrittura());
 
 
-        if (note.getPermessiLettura() == null) {
-            note.setPermessiLettura(new HashSet<>());
-            System.out.println("Inizializzato permessiLettura (era null)");
+        if (note.getLettori() == null) {
+            note.setLettori(new HashSet<>());
+            System.out.println("Inizializzato lettori (era null)");
         }
-        if (note.getPermessiScrittura() == null) {
-            note.setPermessiScrittura(new HashSet<>());
-            System.out.println("Inizializzato permessiScrittura (era null)");
+        if (note.getScrittori() == null) {
+            note.setScrittori(new HashSet<>());
+            System.out.println("Inizializzato scrittori (era null)");
         }
 
         // Pulisci sempre i set prima di configurare
-        note.getPermessiLettura().clear();
-        note.getPermessiScrittura().clear();
+        note.getLettori().clear();
+        note.getScrittori().clear();
+        note.getGruppiLettura().clear();
+        note.getGruppiScrittura().clear();
         System.out.println("Set puliti");
 
         // Imposta il tipo di permesso
@@ -870,11 +1117,15 @@ public List<NoteDto> getNotesByDateRange(String username, String dataInizio, Str
             case CONDIVISA_LETTURA:
                 System.out.println(">>> Configurazione CONDIVISA_LETTURA");
                 if (permissionDto.getUtentiLettura() != null && !permissionDto.getUtentiLettura().isEmpty()) {
-                    note.getPermessiLettura().addAll(permissionDto.getUtentiLettura());
+                    note.getLettori().addAll(findUsers(permissionDto.getUtentiLettura()));
                     System.out.println("Aggiunti utenti lettura: " + note.getPermessiLettura());
                 } else {
                     System.out.println("Nessun utente lettura specificato");
                 }
+                if (permissionDto.getGruppiLettura() != null && !permissionDto.getGruppiLettura().isEmpty()) {
+                    note.getGruppiLettura().addAll(findGruppi(permissionDto.getGruppiLettura()));
+                    System.out.println("Aggiunti gruppi lettura: " + note.getNomiGruppiLettura());
+                }
                 break;
 
             case CONDIVISA_SCRITTURA:
@@ -882,15 +1133,25 @@ public List<NoteDto> getNotesByDateRange(String username, String dataInizio, Str
 
                 // Aggiungi utenti con permessi di lettura
                 if (permissionDto.getUtentiLettura() != null && !permissionDto.getUtentiLettura().isEmpty()) {
-                    note.getPermessiLettura().addAll(permissionDto.getUtentiLettura());
+                    note.getLettori().addAll(findUsers(permissionDto.getUtentiLettura()));
                     System.out.println("Aggiunti utenti lettura: " + note.getPermessiLettura());
                 }
 
                 // Aggiungi utenti con permessi di scrittura
                 if (permissionDto.getUtentiScrittura() != null && !permissionDto.getUtentiScrittura().isEmpty()) {
-                    note.getPermessiScrittura().addAll(permissionDto.getUtentiScrittura());
+                    note.getScrittori().addAll(findUsers(permissionDto.getUtentiScrittura()));
                     System.out.println("Aggiunti utenti scrittura: " + note.getPermessiScrittura());
                 }
+
+                // Aggiungi gruppi con permessi di lettura e di scrittura
+                if (permissionDto.getGruppiLettura() != null && !permissionDto.getGruppiLettura().isEmpty()) {
+                    note.getGruppiLettura().addAll(findGruppi(permissionDto.getGruppiLettura()));
+                    System.out.println("Aggiunti gruppi lettura: " + note.getNomiGruppiLettura());
+                }
+                if (permissionDto.getGruppiScrittura() != null && !permissionDto.getGruppiScrittura().isEmpty()) {
+                    note.getGruppiScrittura().addAll(findGruppi(permissionDto.getGruppiScrittura()));
+                    System.out.println("Aggiunti gruppi scrittura: " + note.getNomiGruppiScrittura());
+                }
                 break;
 
             default:
@@ -905,7 +1166,39 @@ public List<NoteDto> getNotesByDateRange(String username, String dataInizio, Str
         System.out.println(">>> configurePermissions END");
     }
 
-    // Classe interna DTO per statistiche utente
+    /**
+     * Converte gli username ricevuti dall'API negli utenti corrispondenti.
+     * Gli username che non corrispondono a nessun utente vengono ignorati.
+     *
+     * @param usernames username da cercare
+     * @return utenti trovati
+     */
+
+    private List<User> findUsers(List<String> usernames) {
+        List<User> users = userRepository.findByUsernameIn(usernames);
+        if (users.size() < new HashSet<>(usernames).size()) {
+            System.out.println("Utenti inesistenti ignorati nei permessi: " + usernames);
+        }
+        return users;
+    }
+
+    /**
+     * Converte i nomi dei gruppi ricevuti dall'API nei gruppi corrispondenti.
+     * I nomi che non corrispondono a nessun gruppo vengono ignorati.
+     *
+     * @param nomi nomi dei gruppi da cercare
+     * @return gruppi trovati
+     */
+
+    private List<Gruppo> findGruppi(List<String> nomi) {
+        List<Gruppo> gruppi = gruppoRepository.findByNomeIn(nomi);
+        if (gruppi.size() < new HashSet<>(nomi).size()) {
+            System.out.println("Gruppi inesistenti ignorati nei permessi: " + nomi);
+        }
+        return gruppi;
+    }
+
+        // Classe interna DTO per statistiche utente
 
     public static class UserStatsDto {
 
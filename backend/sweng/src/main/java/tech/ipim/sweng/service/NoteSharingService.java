@@ -0,0 +1,194 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import tech.ipim.sweng.dto.BulkPermissionRequest;
+import tech.ipim.sweng.dto.BulkPermissionResultDto;
+import tech.ipim.sweng.dto.BulkPermissionResultDto.Esito;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.repository.GruppoRepository;
+import tech.ipim.sweng.repository.NotePermissionBatchRepository;
+import tech.ipim.sweng.repository.NotePermissionBatchRepository.Tabella;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.repository.UserRepository;
+
+/**
+ * Condivisione di molte note in una sola operazione.
+ * <p>
+ * Invece di applicare {@link NoteService#updateNotePermissions} nota per nota (che svuota
+ * e riscrive le collezioni dei permessi di ciascuna), legge i permessi attuali di tutte le
+ * note con una query per tabella, calcola le differenze rispetto ai permessi richiesti e le
+ * scrive con INSERT e DELETE in batch JDBC, tutto in un'unica transazione. Le note che non
+ * esistono o di cui l'utente non è proprietario vengono saltate e segnalate nell'esito.
+ */
+@Service
+public class NoteSharingService {
+
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    private final GruppoRepository gruppoRepository;
+    private final NotePermissionBatchRepository permissionBatchRepository;
+    private final NoteAccessService noteAccessService;
+    private final NoteSuggestionService noteSuggestionService;
+
+    @Autowired
+    public NoteSharingService(NoteRepository noteRepository, UserRepository userRepository, GruppoRepository gruppoRepository,
+                              NotePermissionBatchRepository permissionBatchRepository,
+                              NoteAccessService noteAccessService, NoteSuggestionService noteSuggestionService) {
+        this.noteRepository = noteRepository;
+        this.userRepository = userRepository;
+        this.gruppoRepository = gruppoRepository;
+        this.permissionBatchRepository = permissionBatchRepository;
+        this.noteAccessService = noteAccessService;
+        this.noteSuggestionService = noteSuggestionService;
+    }
+
+    /**
+     * Applica a tutte le note indicate lo stesso tipo di permesso e le stesse liste di utenti
+     * e di gruppi, con le regole di {@link NoteService#updateNotePermissions}.
+     *
+     * @param request  note e permessi da applicare
+     * @param username utente che richiede la modifica, deve essere il proprietario delle note
+     * @return esito per ogni nota, nell'ordine della richiesta
+     */
+    @Transactional
+    public List<BulkPermissionResultDto> updatePermissions(BulkPermissionRequest request, String username) {
+        TipoPermesso tipoPermesso = request.getTipoPermesso();
+        if (tipoPermesso == null) {
+            throw new RuntimeException("Tipo di permesso non valido: " + tipoPermesso);
+        }
+        Set<Long> noteIds = new LinkedHashSet<>(request.getNoteIds());
+
+        Map<Long, String> owners = new HashMap<>();
+        Map<Long, TipoPermesso> currentTipi = new HashMap<>();
+        for (Object[] row : noteRepository.findOwnersByIds(noteIds)) {
+            owners.put((Long) row[0], (String) row[1]);
+            currentTipi.put((Long) row[0], (TipoPermesso) row[2]);
+        }
+        List<Long> ownedIds = noteIds.stream().filter(id -> username.equals(owners.get(id))).toList();
+
+        Map<Tabella, Set<Long>> targets = new EnumMap<>(Tabella.class);
+        boolean shared = tipoPermesso != TipoPermesso.PRIVATA;
+        boolean writable = tipoPermesso == TipoPermesso.CONDIVISA_SCRITTURA;
+        targets.put(Tabella.LETTURA, shared ? findUserIds(request.getUtentiLettura()) : Set.of());
+        targets.put(Tabella.SCRITTURA, writable ? findUserIds(request.getUtentiScrittura()) : Set.of());
+        targets.put(Tabella.GRUPPI_LETTURA, shared ? findGruppoIds(request.getGruppiLettura()) : Set.of());
+        targets.put(Tabella.GRUPPI_SCRITTURA, writable ? findGruppoIds(request.getGruppiScrittura()) : Set.of());
+
+        Map<Tabella, Map<Long, Set<Long>>> current = new EnumMap<>(Tabella.class);
+        Map<Tabella, List<long[]>> toAdd = new EnumMap<>(Tabella.class);
+        Map<Tabella, List<long[]>> toRemove = new EnumMap<>(Tabella.class);
+        for (Tabella tabella : Tabella.values()) {
+            current.put(tabella, ownedIds.isEmpty() ? Map.of() : permissionBatchRepository.findPrincipalIds(tabella, ownedIds));
+            toAdd.put(tabella, new ArrayList<>());
+            toRemove.put(tabella, new ArrayList<>());
+        }
+
+        List<Long> changedIds = new ArrayList<>();
+        Set<Long> affectedUsers = new HashSet<>();
+        Set<Long> affectedGruppi = new HashSet<>();
+        Map<Long, BulkPermissionResultDto> results = new HashMap<>();
+
+        for (Long noteId : ownedIds) {
+            int added = 0;
+            int removed = 0;
+            for (Tabella tabella : Tabella.values()) {
+                Set<Long> target = targets.get(tabella);
+                Set<Long> old = current.get(tabella).getOrDefault(noteId, Set.of());
+                added += diff(noteId, target, old, toAdd.get(tabella));
+                removed += diff(noteId, old, target, toRemove.get(tabella));
+            }
+
+            boolean changed = added + removed > 0 || currentTipi.get(noteId) != tipoPermesso;
+            if (changed) {
+                changedIds.add(noteId);
+                for (Tabella tabella : Tabella.values()) {
+                    Set<Long> affected = isGruppi(tabella) ? affectedGruppi : affectedUsers;
+                    affected.addAll(current.get(tabella).getOrDefault(noteId, Set.of()));
+                    affected.addAll(targets.get(tabella));
+                }
+            }
+            results.put(noteId, new BulkPermissionResultDto(noteId, changed ? Esito.AGGIORNATA : Esito.INVARIATA, added, removed));
+        }
+
+        for (Tabella tabella : Tabella.values()) {
+            permissionBatchRepository.delete(tabella, toRemove.get(tabella));
+        }
+        for (Tabella tabella : Tabella.values()) {
+            permissionBatchRepository.insert(tabella, toAdd.get(tabella));
+        }
+        permissionBatchRepository.updateTipoPermesso(changedIds, tipoPermesso, LocalDateTime.now());
+        noteAccessService.refresh(changedIds);
+
+        Set<String> affectedUsernames = new HashSet<>();
+        if (!affectedUsers.isEmpty()) {
+            affectedUsernames.addAll(userRepository.findUsernamesByIdIn(affectedUsers));
+        }
+        if (!affectedGruppi.isEmpty()) {
+            affectedUsernames.addAll(gruppoRepository.findMemberUsernames(affectedGruppi));
+        }
+        if (!affectedUsernames.isEmpty()) {
+            noteSuggestionService.accessChanged(affectedUsernames);
+        }
+
+        System.out.println("Condivisione multipla da " + username + ": " + changedIds.size() + " note aggiornate su "
+                + noteIds.size() + " richieste");
+
+        List<BulkPermissionResultDto> ordered = new ArrayList<>();
+        for (Long noteId : noteIds) {
+            BulkPermissionResultDto result = results.get(noteId);
+            if (result == null) {
+                result = BulkPermissionResultDto.skipped(noteId,
+                        owners.containsKey(noteId) ? Esito.NON_AUTORIZZATA : Esito.NON_TROVATA);
+            }
+            ordered.add(result);
+        }
+        return ordered;
+    }
+
+    private Set<Long> findUserIds(List<String> usernames) {
+        if (usernames == null || usernames.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(userRepository.findIdsByUsernameIn(usernames));
+    }
+
+    private Set<Long> findGruppoIds(List<String> nomi) {
+        if (nomi == null || nomi.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(gruppoRepository.findIdsByNomeIn(nomi));
+    }
+
+    private static boolean isGruppi(Tabella tabella) {
+        return tabella == Tabella.GRUPPI_LETTURA || tabella == Tabella.GRUPPI_SCRITTURA;
+    }
+
+    /**
+     * Aggiunge a {@code target} le coppie (nota, utente o gruppo) presenti in {@code from} ma non in {@code except}.
+     *
+     * @return numero di coppie aggiunte
+     */
+    private static int diff(Long noteId, Set<Long> from, Set<Long> except, List<long[]> target) {
+        int count = 0;
+        for (Long principalId : from) {
+            if (!except.contains(principalId)) {
+                target.add(new long[]{noteId, principalId});
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,189 @@
+package tech.ipim.sweng.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.search.Suggestion;
+import tech.ipim.sweng.search.SuggestionIndex;
+
+/**
+ * Servizio di autocompletamento (search-as-you-type) su titoli, tag e cartelle.
+ * <p>
+ * Ogni utente ha un proprio {@link SuggestionIndex} limitato alle note che può leggere;
+ * le cartelle sono indicizzate solo per le note proprie, come in {@code NoteDto}.
+ * Gli indici sono costruiti dal database alla prima richiesta e conservati in una cache LRU
+ * di al massimo {@code app.search.suggest.max-users} utenti. {@link NoteService} notifica ogni
+ * scrittura: al commit la nota viene aggiornata negli indici già caricati degli utenti che
+ * la possono leggere e rimossa da quelli che non la possono più leggere, senza
+ * ricostruzioni. Chi può leggere la nota è deciso da {@link NoteAclCache}, che risolve i gruppi
+ * con {@link GroupMembershipCache} senza caricare i membri dei gruppi della nota.
+ * Una richiesta di suggerimenti quindi non tocca il database.
+ */
+@Service
+public class NoteSuggestionService {
+
+    private final NoteRepository noteRepository;
+    private final NoteAclCache noteAclCache;
+    private final int maxUsers;
+    private final Map<String, SuggestionIndex> indexes;
+    private final AtomicLong writeSequence = new AtomicLong();
+
+    @Autowired
+    public NoteSuggestionService(NoteRepository noteRepository, NoteAclCache noteAclCache,
+                                 @Value("${app.search.suggest.max-users:1000}") int maxUsers) {
+        this.noteRepository = noteRepository;
+        this.noteAclCache = noteAclCache;
+        this.maxUsers = maxUsers;
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SuggestionIndex> eldest) {
+                return size() > NoteSuggestionService.this.maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Restituisce i completamenti del prefisso tra titoli, tag e cartelle delle note accessibili.
+     *
+     * @param username nome utente richiedente
+     * @param prefix   prefisso digitato
+     * @param limit    numero massimo di suggerimenti
+     * @return suggerimenti distinti
+     */
+    @Transactional(readOnly = true)
+    public List<Suggestion> suggest(String username, String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return indexFor(username).suggest(prefix, limit);
+    }
+
+    /**
+     * Aggiorna gli indici caricati al commit della transazione dopo la creazione
+     * o la modifica di una nota (contenuto, tag, cartelle o permessi).
+     *
+     * @param note nota salvata
+     */
+    public void noteChanged(Note note) {
+        if (note.getId() == null) {
+            return;
+        }
+        final long noteId = note.getId();
+        final String titolo = note.getTitolo();
+        final List<String> tags = new ArrayList<>(note.getTags());
+        final List<String> cartelle = new ArrayList<>(note.getCartelle());
+        final String owner = note.getAutore().getUsername();
+
+        AfterCommit.run(() -> {
+            writeSequence.incrementAndGet();
+            for (Map.Entry<String, SuggestionIndex> entry : loadedIndexes().entrySet()) {
+                // i permessi modificati nella stessa transazione sono già stati invalidati nella cache
+                if (noteAclCache.canRead(noteId, entry.getKey())) {
+                    // le cartelle di una nota condivisa restano private del proprietario
+                    entry.getValue().put(noteId, titolo, tags, owner.equals(entry.getKey()) ? cartelle : List.of());
+                } else {
+                    entry.getValue().remove(noteId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Rimuove una nota dagli indici caricati al commit della transazione.
+     *
+     * @param noteId id della nota eliminata
+     */
+    public void noteRemoved(Long noteId) {
+        if (noteId == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            writeSequence.incrementAndGet();
+            for (SuggestionIndex index : loadedIndexes().values()) {
+                index.remove(noteId);
+            }
+        });
+    }
+
+    /**
+     * Scarta al commit della transazione gli indici caricati degli utenti indicati, dopo una
+     * modifica dei permessi di molte note: verranno ricostruiti alla prossima richiesta.
+     *
+     * @param usernames utenti che hanno ottenuto o perso l'accesso ad almeno una nota
+     */
+    public void accessChanged(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        final Set<String> affected = new HashSet<>(usernames);
+        AfterCommit.run(() -> {
+            writeSequence.incrementAndGet();
+            synchronized (indexes) {
+                indexes.keySet().removeAll(affected);
+            }
+        });
+    }
+
+    private SuggestionIndex indexFor(String username) {
+        synchronized (indexes) {
+            SuggestionIndex cached = indexes.get(username);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long sequence = writeSequence.get();
+        SuggestionIndex index = buildIndex(username);
+
+        synchronized (indexes) {
+            // se nel frattempo è stata salvata una nota, l'indice potrebbe essere già vecchio:
+            // lo usiamo per questa richiesta ma non lo mettiamo in cache
+            if (sequence == writeSequence.get()) {
+                indexes.putIfAbsent(username, index);
+                return indexes.get(username);
+            }
+        }
+        return index;
+    }
+
+    private SuggestionIndex buildIndex(String username) {
+        Map<Long, String> titles = new HashMap<>();
+        Map<Long, List<String>> tags = new HashMap<>();
+        Map<Long, List<String>> cartelle = new HashMap<>();
+
+        for (Object[] row : noteRepository.findAccessibleTitles(username)) {
+            titles.put((Long) row[0], (String) row[1]);
+        }
+        for (Object[] row : noteRepository.findAccessibleTags(username)) {
+            tags.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        for (Object[] row : noteRepository.findOwnCartelle(username)) {
+            cartelle.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        SuggestionIndex index = new SuggestionIndex();
+        titles.forEach((noteId, titolo) -> index.put(noteId, titolo,
+                tags.getOrDefault(noteId, List.of()), cartelle.getOrDefault(noteId, List.of())));
+        return index;
+    }
+
+    private Map<String, SuggestionIndex> loadedIndexes() {
+        synchronized (indexes) {
+            return new HashMap<>(indexes);
+        }
+    }
+}
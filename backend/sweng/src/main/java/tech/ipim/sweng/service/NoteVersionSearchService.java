@@ -0,0 +1,145 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import tech.ipim.sweng.dto.VersionSearchHitDto;
+import tech.ipim.sweng.model.NoteVersion;
+import tech.ipim.sweng.repository.NoteVersionRepository;
+import tech.ipim.sweng.search.InvertedIndex;
+
+/**
+ * Indice di ricerca full-text sulla cronologia delle versioni delle note.
+ * <p>
+ * Ogni versione è un documento di un {@link InvertedIndex} in memoria, identificato
+ * dall'id della versione, con titolo e contenuto come campi. Accanto all'indice vengono
+ * mantenuti i dati da restituire per ogni versione (nota, numero, titolo, data, autore)
+ * e le versioni di ogni nota, per rimuoverle tutte quando la nota viene eliminata.
+ * <p>
+ * L'indice viene costruito all'avvio e aggiornato da {@link NoteVersionService} a ogni
+ * nuova versione; come per le note, gli aggiornamenti sono applicati solo al commit.
+ * La ricerca non applica i permessi: lo fa {@link NoteService} sulle note correnti.
+ */
+@Service
+public class NoteVersionSearchService {
+
+    private final NoteVersionRepository noteVersionRepository;
+    private final InvertedIndex index = new InvertedIndex();
+    private final Map<Long, VersionSearchHitDto> hits = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> versionsByNote = new ConcurrentHashMap<>();
+
+    @Autowired
+    public NoteVersionSearchService(NoteVersionRepository noteVersionRepository) {
+        this.noteVersionRepository = noteVersionRepository;
+    }
+
+    /**
+     * Costruisce l'indice leggendo titolo e contenuto di tutte le versioni.
+     * Viene eseguito automaticamente all'avvio.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = noteVersionRepository.findAllSearchableContent();
+
+        index.clear();
+        hits.clear();
+        versionsByNote.clear();
+        for (Object[] row : rows) {
+            add((Long) row[0], (Long) row[1], (Integer) row[2], (String) row[3], (String) row[4],
+                    (LocalDateTime) row[5], (String) row[6]);
+        }
+
+        System.out.println("Indice di ricerca delle versioni costruito: " + rows.size() + " versioni, "
+                + index.termCount() + " termini in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Indicizza una versione al commit della transazione corrente.
+     *
+     * @param version versione salvata
+     */
+    public void indexVersion(NoteVersion version) {
+        if (version.getId() == null || version.getNote() == null || version.getNote().getId() == null) {
+            return;
+        }
+        final Long versionId = version.getId();
+        final Long noteId = version.getNote().getId();
+        final Integer versionNumber = version.getVersionNumber();
+        final String titolo = version.getTitolo();
+        final String contenuto = version.getContenuto();
+        final LocalDateTime createdAt = version.getCreatedAt();
+        final String createdBy = version.getCreatedBy();
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                add(versionId, noteId, versionNumber, titolo, contenuto, createdAt, createdBy);
+            }
+        });
+    }
+
+    /**
+     * Rimuove dall'indice tutte le versioni di una nota al commit della transazione corrente.
+     *
+     * @param noteId id della nota eliminata
+     */
+    public void removeNote(Long noteId) {
+        if (noteId == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                Set<Long> versionIds = versionsByNote.remove(noteId);
+                if (versionIds == null) {
+                    return;
+                }
+                for (Long versionId : versionIds) {
+                    index.remove(versionId);
+                    hits.remove(versionId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cerca le versioni che contengono tutte le parole della ricerca nel titolo o nel
+     * contenuto, ordinate per rilevanza e senza applicare i permessi.
+     *
+     * @param keyword testo della ricerca
+     * @return versioni trovate ordinate per rilevanza
+     */
+    public List<VersionSearchHitDto> search(String keyword) {
+        List<VersionSearchHitDto> result = new ArrayList<>();
+        for (Long versionId : index.searchRanked(keyword)) {
+            VersionSearchHitDto hit = hits.get(versionId);
+            if (hit != null) {
+                result.add(hit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return numero di versioni indicizzate
+     */
+    public int size() {
+        return index.size();
+    }
+
+    private void add(Long versionId, Long noteId, Integer versionNumber, String titolo, String contenuto,
+                     LocalDateTime createdAt, String createdBy) {
+        index.index(versionId, titolo, contenuto);
+        hits.put(versionId, new VersionSearchHitDto(noteId, versionNumber, titolo, createdAt, createdBy));
+        versionsByNote.computeIfAbsent(noteId, id -> ConcurrentHashMap.newKeySet()).add(versionId);
+    }
+}
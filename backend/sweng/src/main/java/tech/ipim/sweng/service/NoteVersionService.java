@@ -2,6 +2,7 @@ package tech.ipim.sweng.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import tech.ipim.sweng.dto.VersionSearchHitDto;
 import tech.ipim.sweng.model.Note;
 import tech.ipim.sweng.model.NoteVersion;
 import tech.ipim.sweng.repository.NoteVersionRepository;
@@ -14,14 +15,17 @@ import java.util.Optional;
 public class NoteVersionService {
 
     private final NoteVersionRepository noteVersionRepository;
+    private final NoteVersionSearchService noteVersionSearchService;
 
     @Autowired
-    public NoteVersionService(NoteVersionRepository noteVersionRepository) {
+    public NoteVersionService(NoteVersionRepository noteVersionRepository, NoteVersionSearchService noteVersionSearchService) {
         this.noteVersionRepository = noteVersionRepository;
+        this.noteVersionSearchService = noteVersionSearchService;
     }
 
     /**
-     * Crea una nuova versione della nota specificata.
+     * Crea una nuova versione della nota specificata e la aggiunge all'indice di ricerca
+     * della cronologia al commit della transazione.
      *
      * @param note               La nota di cui creare la versione
      * @param username           L'utente che ha effettuato la modifica
@@ -41,7 +45,9 @@ public class NoteVersionService {
                 changeDescription
         );
 
-        return noteVersionRepository.save(version);
+        NoteVersion savedVersion = noteVersionRepository.save(version);
+        noteVersionSearchService.indexVersion(savedVersion);
+        return savedVersion;
     }
 
     /**
@@ -54,6 +60,17 @@ public class NoteVersionService {
         return noteVersionRepository.findVersionHistory(noteId);
     }
 
+    /**
+     * Cerca le parole indicate nel titolo e nel contenuto di tutte le versioni,
+     * senza applicare i permessi.
+     *
+     * @param keyword testo della ricerca
+     * @return versioni trovate ordinate per rilevanza
+     */
+    public List<VersionSearchHitDto> searchVersions(String keyword) {
+        return noteVersionSearchService.search(keyword);
+    }
+
     /**
      * Recupera una specifica versione di una nota.
      *
@@ -85,6 +102,7 @@ public class NoteVersionService {
             } else {
                 System.out.println("ℹ Nessuna versione trovata per la nota " + noteId);
             }
+            noteVersionSearchService.removeNote(noteId);
 
         } catch (Exception e) {
             System.err.println(" Errore eliminazione versioni per nota " + noteId + ": " + e.getMessage());
@@ -0,0 +1,136 @@
+package tech.ipim.sweng.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tech.ipim.sweng.search.IndexedNote;
+import tech.ipim.sweng.search.NoteIndexes;
+import tech.ipim.sweng.search.TokenizedNote;
+
+/**
+ * Ricostruzione in corso di un insieme di indici, alimentata sia dai blocchi letti
+ * dal database (o dai file su disco all'avvio) sia dalle scritture che arrivano nel frattempo.
+ * <p>
+ * Una scrittura applicata dopo il commit è sempre la versione più recente di una nota,
+ * mentre un blocco può essere stato letto prima di quel commit. Per questo una nota
+ * già toccata da una scrittura non viene più sovrascritta dai blocchi. Il controllo e
+ * l'aggiornamento avvengono sotto il lock della nota (lock a strisce per id), così i
+ * blocchi di note diverse vengono indicizzati in parallelo.
+ */
+final class ReindexRebuild {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final NoteIndexes indexes;
+    private final Map<Long, TokenizedNote> notes;
+    private final Set<Long> liveIds = ConcurrentHashMap.newKeySet();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param indexes   indici vuoti da popolare
+     * @param keepNotes true per conservare le note ricostruite, da salvare poi su disco
+     */
+    ReindexRebuild(NoteIndexes indexes, boolean keepNotes) {
+        this.indexes = indexes;
+        this.notes = keepNotes ? new ConcurrentHashMap<>() : null;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Applica una nota salvata durante la ricostruzione.
+     *
+     * @param note nota salvata, già scomposta in termini
+     */
+    void putLive(TokenizedNote note) {
+        synchronized (lockFor(note.getId())) {
+            liveIds.add(note.getId());
+            indexes.index(note);
+            if (notes != null) {
+                notes.put(note.getId(), note);
+            }
+        }
+    }
+
+    /**
+     * Applica una nota eliminata durante la ricostruzione.
+     *
+     * @param noteId id della nota eliminata
+     */
+    void removeLive(long noteId) {
+        synchronized (lockFor(noteId)) {
+            liveIds.add(noteId);
+            indexes.remove(noteId);
+            if (notes != null) {
+                notes.remove(noteId);
+            }
+        }
+    }
+
+    /**
+     * Indicizza un blocco letto dal database, saltando le note già aggiornate da una scrittura.
+     *
+     * @param chunk note del blocco
+     */
+    void applyChunk(List<IndexedNote> chunk) {
+        for (IndexedNote note : chunk) {
+            apply(TokenizedNote.of(note));
+        }
+    }
+
+    /**
+     * Indicizza una nota letta dal database o dai file su disco, se non è già stata
+     * aggiornata da una scrittura.
+     *
+     * @param note nota scomposta in termini
+     * @return false se la nota è stata saltata
+     */
+    boolean apply(TokenizedNote note) {
+        synchronized (lockFor(note.getId())) {
+            if (liveIds.contains(note.getId())) {
+                return false;
+            }
+            indexes.index(note);
+            if (notes != null) {
+                notes.put(note.getId(), note);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Rimuove una nota eliminata secondo i file su disco o il database, se non è già
+     * stata aggiornata da una scrittura.
+     *
+     * @param noteId id della nota
+     * @return false se la nota è stata saltata
+     */
+    boolean applyRemove(long noteId) {
+        synchronized (lockFor(noteId)) {
+            if (liveIds.contains(noteId)) {
+                return false;
+            }
+            indexes.remove(noteId);
+            if (notes != null) {
+                notes.remove(noteId);
+            }
+            return true;
+        }
+    }
+
+    NoteIndexes getIndexes() {
+        return indexes;
+    }
+
+    Collection<TokenizedNote> getNotes() {
+        return notes == null ? List.of() : notes.values();
+    }
+
+    private Object lockFor(long noteId) {
+        return locks[(int) Math.floorMod(noteId, (long) LOCK_STRIPES)];
+    }
+}
@@ -0,0 +1,205 @@
+package tech.ipim.sweng.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import tech.ipim.sweng.dto.ReindexStatusDto;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.search.IndexedNote;
+
+/**
+ * Reindicizzazione completa degli indici di ricerca, avviata da un amministratore
+ * ed eseguita in background senza interrompere il servizio.
+ * <p>
+ * L'intervallo degli id delle note viene diviso in blocchi di {@code app.search.reindex.chunk-size}
+ * id, elaborati da un ForkJoinPool con {@code app.search.reindex.parallelism} thread. Ogni blocco
+ * legge dal database solo le proprie righe (titolo, contenuto, tag e cartelle per intervallo di id)
+ * e dopo ogni blocco il thread attende {@code app.search.reindex.throttle-ms} millisecondi,
+ * per limitare il carico sul database.
+ * <p>
+ * Gli indici vengono ricostruiti a parte: le ricerche continuano sugli indici correnti e le
+ * scritture sono applicate a entrambi (vedi {@link ReindexRebuild}). Al termine
+ * {@link NoteSearchService} sostituisce gli indici in un colpo solo.
+ */
+@Service
+public class SearchReindexService {
+
+    private final NoteRepository noteRepository;
+    private final NoteSearchService noteSearchService;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long throttleMillis;
+    private Job job;
+
+    @Autowired
+    public SearchReindexService(NoteRepository noteRepository, NoteSearchService noteSearchService,
+                                @Value("${app.search.reindex.chunk-size:500}") int chunkSize,
+                                @Value("${app.search.reindex.parallelism:4}") int parallelism,
+                                @Value("${app.search.reindex.throttle-ms:10}") long throttleMillis) {
+        if (chunkSize <= 0 || parallelism <= 0 || throttleMillis < 0) {
+            throw new IllegalArgumentException("Configurazione della reindicizzazione non valida");
+        }
+        this.noteRepository = noteRepository;
+        this.noteSearchService = noteSearchService;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.throttleMillis = throttleMillis;
+    }
+
+    /**
+     * Avvia la reindicizzazione in background, se non ce n'è già una in corso.
+     *
+     * @return true se la reindicizzazione è stata avviata, false se era già in corso
+     */
+    public synchronized boolean start() {
+        if (job != null && job.stato == ReindexStatusDto.Stato.IN_CORSO) {
+            return false;
+        }
+        Job started = new Job();
+        ReindexRebuild rebuild = noteSearchService.beginRebuild();
+        job = started;
+
+        Thread thread = new Thread(() -> run(started, rebuild), "search-reindex");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * @return stato dell'ultima reindicizzazione avviata
+     */
+    public synchronized ReindexStatusDto getStatus() {
+        return job == null ? ReindexStatusDto.inattivo() : job.toDto();
+    }
+
+    /**
+     * Esegue la reindicizzazione nel thread corrente.
+     */
+    void run(Job current, ReindexRebuild rebuild) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Long minId = noteRepository.findMinId();
+            Long maxId = noteRepository.findMaxId();
+            if (minId != null) {
+                current.totalChunks = (maxId - minId) / chunkSize + 1;
+                pool.invoke(new ChunkTask(current, rebuild, minId, 0, current.totalChunks));
+            }
+            noteSearchService.completeRebuild(rebuild, current.startedAtMillis);
+            current.finish(ReindexStatusDto.Stato.COMPLETATO, null);
+            System.out.println("Reindicizzazione completata: " + current.processedNotes.get() + " note in "
+                    + (current.finishedAtMillis - current.startedAtMillis) + " ms");
+        } catch (RuntimeException e) {
+            noteSearchService.abortRebuild(rebuild);
+            current.finish(ReindexStatusDto.Stato.FALLITO, e.getMessage());
+            System.err.println("Reindicizzazione fallita: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void processChunk(Job current, ReindexRebuild rebuild, long fromId) {
+        long toId = fromId + chunkSize - 1;
+        List<IndexedNote> notes = NoteSearchService.toIndexedNotes(
+                noteRepository.findSearchableContentByIdBetween(fromId, toId),
+                noteRepository.findTagPairsByIdBetween(fromId, toId),
+                noteRepository.findCartellaPairsByIdBetween(fromId, toId));
+        rebuild.applyChunk(notes);
+        current.processedNotes.addAndGet(notes.size());
+        current.completedChunks.incrementAndGet();
+
+        if (throttleMillis > 0) {
+            try {
+                Thread.sleep(throttleMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Divide l'intervallo di blocchi a metà finché resta un solo blocco da elaborare.
+     */
+    private final class ChunkTask extends RecursiveAction {
+
+        private final Job current;
+        private final ReindexRebuild rebuild;
+        private final long minId;
+        private final long fromChunk;
+        private final long toChunk;
+
+        ChunkTask(Job current, ReindexRebuild rebuild, long minId, long fromChunk, long toChunk) {
+            this.current = current;
+            this.rebuild = rebuild;
+            this.minId = minId;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk <= 1) {
+                processChunk(current, rebuild, minId + fromChunk * chunkSize);
+                return;
+            }
+            long middle = (fromChunk + toChunk) >>> 1;
+            invokeAll(new ChunkTask(current, rebuild, minId, fromChunk, middle),
+                    new ChunkTask(current, rebuild, minId, middle, toChunk));
+        }
+    }
+
+    /**
+     * Avanzamento di una reindicizzazione, aggiornato dai thread del pool.
+     */
+    static final class Job {
+
+        private final long startedAtMillis = System.currentTimeMillis();
+        private final AtomicLong completedChunks = new AtomicLong();
+        private final AtomicLong processedNotes = new AtomicLong();
+        private volatile long totalChunks;
+        private volatile long finishedAtMillis;
+        private volatile ReindexStatusDto.Stato stato = ReindexStatusDto.Stato.IN_CORSO;
+        private volatile String errore;
+
+        void finish(ReindexStatusDto.Stato result, String message) {
+            finishedAtMillis = System.currentTimeMillis();
+            errore = message;
+            stato = result;
+        }
+
+        ReindexStatusDto toDto() {
+            ReindexStatusDto dto = new ReindexStatusDto();
+            long completed = completedChunks.get();
+            long processed = processedNotes.get();
+            long end = finishedAtMillis > 0 ? finishedAtMillis : System.currentTimeMillis();
+            long elapsed = Math.max(1, end - startedAtMillis);
+
+            dto.setStato(stato);
+            dto.setTotalChunks(totalChunks);
+            dto.setCompletedChunks(completed);
+            dto.setProcessedNotes(processed);
+            dto.setPercentuale(totalChunks == 0 ? (stato == ReindexStatusDto.Stato.IN_CORSO ? 0 : 100)
+                    : Math.round(completed * 1000.0 / totalChunks) / 10.0);
+            dto.setNoteAlSecondo(Math.round(processed * 10000.0 / elapsed) / 10.0);
+            if (stato == ReindexStatusDto.Stato.IN_CORSO && completed > 0) {
+                dto.setEtaSeconds((totalChunks - completed) * elapsed / completed / 1000);
+            }
+            dto.setStartedAt(toLocalDateTime(startedAtMillis));
+            dto.setFinishedAt(finishedAtMillis > 0 ? toLocalDateTime(finishedAtMillis) : null);
+            dto.setErrore(errore);
+            return dto;
+        }
+
+        private static LocalDateTime toLocalDateTime(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+    }
+}
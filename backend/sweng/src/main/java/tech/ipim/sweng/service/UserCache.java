@@ -0,0 +1,123 @@
+package tech.ipim.sweng.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.UserRepository;
+
+/**
+ * Cache in memoria della corrispondenza username → id utente, per le operazioni che
+ * a ogni richiesta devono solo riconoscere l'utente autenticato.
+ * <p>
+ * Invece di leggere l'utente con {@code findByUsername}, i percorsi di scrittura usano
+ * {@link #getReference(String)}: un riferimento JPA ({@code getReferenceById}) che basta per
+ * impostare autore o proprietario e per le query per utente, senza una SELECT. Le entità non
+ * vengono tenute in cache, perché appartengono al contesto di persistenza della richiesta.
+ * <p>
+ * Le voci scadono dopo {@code app.users.cache.ttl-seconds} secondi e vengono rimosse a ogni
+ * registrazione o modifica dell'utente con {@link #invalidate(String)}; come in
+ * {@link GroupMembershipCache}, un caricamento iniziato prima di un'invalidazione non viene
+ * messo in cache. Gli utenti inesistenti non vengono memorizzati. Raggiunti
+ * {@code app.users.cache.max-users} utenti la cache viene svuotata.
+ */
+@Service
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxUsers;
+    private final Map<String, CachedId> ids = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    @Autowired
+    public UserCache(UserRepository userRepository,
+                     @Value("${app.users.cache.ttl-seconds:300}") long ttlSeconds,
+                     @Value("${app.users.cache.max-users:100000}") int maxUsers) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxUsers = maxUsers;
+    }
+
+    /**
+     * @param username nome utente
+     * @return id dell'utente, null se l'utente non esiste
+     */
+    public Long findId(String username) {
+        if (username == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        CachedId cached = ids.get(username);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.id;
+        }
+
+        long loadEpoch = epoch.get();
+        Long userId = userRepository.findIdByUsername(username).orElse(null);
+        if (userId == null) {
+            ids.remove(username);
+            return null;
+        }
+        if (ids.size() >= maxUsers) {
+            ids.clear();
+        }
+        CachedId loaded = new CachedId(userId, now + ttlMillis);
+        ids.put(username, loaded);
+        // un'invalidazione avvenuta durante il caricamento rende i dati letti non affidabili
+        if (epoch.get() != loadEpoch) {
+            ids.remove(username, loaded);
+        }
+        return userId;
+    }
+
+    /**
+     * Restituisce un riferimento all'utente senza leggerlo dal database: i campi vengono
+     * caricati solo se usati.
+     *
+     * @param username nome utente
+     * @return riferimento all'utente nel contesto di persistenza corrente
+     * @throws RuntimeException se l'utente non esiste
+     */
+    public User getReference(String username) {
+        Long userId = findId(username);
+        if (userId == null) {
+            throw new RuntimeException("Utente non trovato: " + username);
+        }
+        return userRepository.getReferenceById(userId);
+    }
+
+    /**
+     * Invalida l'utente dopo una registrazione o una modifica del profilo: la voce viene
+     * rimossa subito, perché le letture successive nella stessa transazione vedano l'utente
+     * salvato, e di nuovo al commit, per scartare quanto letto nel frattempo da altre richieste.
+     *
+     * @param username nome utente registrato o modificato
+     */
+    public void invalidate(String username) {
+        epoch.incrementAndGet();
+        ids.remove(username);
+        AfterCommit.run(() -> {
+            epoch.incrementAndGet();
+            ids.remove(username);
+        });
+    }
+
+    /**
+     * Id di un utente e istante di scadenza della voce in millisecondi.
+     */
+    private static final class CachedId {
+        private final long id;
+        private final long expiresAt;
+
+        CachedId(long id, long expiresAt) {
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -26,13 +26,16 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final UserCache userCache;
 
     
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil,
+                       UserCache userCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.userCache = userCache;
     }
 
     /**
@@ -65,6 +68,7 @@ public class UserService {
         user.setDataNascita(request.getDataNascita());
 
         User savedUser = userRepository.save(user);
+        userCache.invalidate(savedUser.getUsername());
 
         return RegistrationResponse.success(
                 savedUser.getId(),
@@ -1,12 +1,21 @@
 package tech.ipim.sweng.util;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import javax.crypto.SecretKey;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
@@ -18,6 +27,15 @@ import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
 import tech.ipim.sweng.model.User;
 
+/**
+ * Generazione, verifica e parsing dei token JWT.
+ * <p>
+ * I claims dei token già verificati sono tenuti in una cache in memoria indicizzata dal
+ * digest SHA-256 del token, fino alla scadenza del token: le richieste successive con lo
+ * stesso token non ripetono la verifica della firma e il parsing. Raggiunti
+ * {@code app.jwt.cache.max-tokens} token vengono eliminati quelli scaduti e, se la cache
+ * è ancora piena, viene svuotata; con 0 la cache è disattivata.
+ */
 @Component
 public class JwtUtil {
     
@@ -27,14 +45,27 @@ public class JwtUtil {
     // Durata token: 24 ore
     private static final long JWT_TOKEN_VALIDITY = 24 * 60 * 60 * 1000;
     
+    private static final int DEFAULT_MAX_CACHED_TOKENS = 10_000;
+
     private final SecretKey key;
+    private final int maxCachedTokens;
+    private final Map<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
     
     /**
      * Costruttore che inizializza la chiave segreta per la firma dei JWT.
      */
 
     public JwtUtil() {
+        this(DEFAULT_MAX_CACHED_TOKENS);
+    }
+
+    /**
+     * @param maxCachedTokens numero massimo di token verificati tenuti in cache, 0 per disattivarla
+     */
+    @Autowired
+    public JwtUtil(@Value("${app.jwt.cache.max-tokens:10000}") int maxCachedTokens) {
         this.key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        this.maxCachedTokens = maxCachedTokens;
     }
     
     /**
@@ -115,13 +146,104 @@ public class JwtUtil {
     }
     
     /**
-     * Estrae tutti i claims dal token JWT.
+     * Verifica il token una sola volta e ne restituisce lo username.
+     *
+     * @param token Token JWT
+     * @return Username contenuto nel token, null se il token non è valido o è scaduto
+     */
+    public String extractValidUsername(String token) {
+        try {
+            return extractAllClaims(token).getSubject();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Restituisce l'utente autenticato nel SecurityContext da {@code JwtAuthenticationFilter}
+     * con lo stesso token, senza verificarlo di nuovo.
+     *
+     * @param token Token JWT della richiesta
+     * @return Username autenticato con il token, null se la richiesta non è stata autenticata con quel token
+     */
+    public static String authenticatedUsername(String token) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (token != null && authentication != null && token.equals(authentication.getCredentials())) {
+            return authentication.getName();
+        }
+        return null;
+    }
+
+    /**
+     * Username della richiesta per i controller che leggono l'header Authorization: quello
+     * autenticato dal filtro JWT con lo stesso token, senza nuova verifica, altrimenti quello
+     * del token se valido. Statico perché nei test dei controller {@code JwtUtil} è un mock.
+     *
+     * @param jwtUtil utility con cui verificare il token se la richiesta non è già autenticata
+     * @param authHeader header Authorization con JWT
+     * @return username, null se l'header manca o il token non è valido
+     */
+    public static String usernameFromHeader(JwtUtil jwtUtil, String authHeader) {
+        try {
+            String token = jwtUtil.extractTokenFromHeader(authHeader);
+            String username = authenticatedUsername(token);
+            if (username != null) {
+                return username;
+            }
+            if (token != null && jwtUtil.isTokenValid(token)) {
+                return jwtUtil.extractUsername(token);
+            }
+        } catch (Exception e) {
+            System.err.println("Errore validazione token: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Estrae tutti i claims dal token JWT, dalla cache se il token è già stato verificato
+     * e non è ancora scaduto.
      *
      * @param token Token JWT
      * @return Claims contenuti nel token
      * @throws RuntimeException se il token è scaduto, malformato o invalido
      */
     private Claims extractAllClaims(String token) {
+        if (maxCachedTokens <= 0 || token == null) {
+            return parseClaims(token);
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedClaims cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            verified.remove(digest);
+            throw new RuntimeException("Token scaduto");
+        }
+
+        Claims claims = parseClaims(token);
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            if (verified.size() >= maxCachedTokens) {
+                verified.values().removeIf(entry -> entry.expiresAt <= now);
+                if (verified.size() >= maxCachedTokens) {
+                    verified.clear();
+                }
+            }
+            verified.put(digest, new VerifiedClaims(claims, expiration.getTime()));
+        }
+        return claims;
+    }
+
+    /**
+     * Verifica la firma del token JWT e ne legge i claims.
+     *
+     * @param token Token JWT
+     * @return Claims contenuti nel token
+     * @throws RuntimeException se il token è scaduto, malformato o invalido
+     */
+    private Claims parseClaims(String token) {
         try {
             return Jwts.parserBuilder()
                     .setSigningKey(key)
@@ -169,8 +291,8 @@ public class JwtUtil {
      */
     public Boolean validateToken(String token, User user) {
         try {
-            final String username = extractUsername(token);
-            return (username.equals(user.getUsername()) && !isTokenExpired(token));
+            final Claims claims = extractAllClaims(token);
+            return claims.getSubject().equals(user.getUsername()) && claims.getExpiration().after(new Date());
         } catch (Exception e) {
             System.err.println("Errore validazione token: " + e.getMessage());
             return false;
@@ -185,8 +307,7 @@ public class JwtUtil {
      */
     public Boolean isTokenValid(String token) {
         try {
-            extractAllClaims(token);
-            return !isTokenExpired(token);
+            return extractAllClaims(token).getExpiration().after(new Date());
         } catch (Exception e) {
             return false;
         }
@@ -204,4 +325,33 @@ public class JwtUtil {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return numero di token verificati in cache
+     */
+    int cachedTokens() {
+        return verified.size();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
+    /**
+     * Claims di un token con firma verificata e relativa scadenza in millisecondi.
+     */
+    private static final class VerifiedClaims {
+        private final Claims claims;
+        private final long expiresAt;
+
+        VerifiedClaims(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
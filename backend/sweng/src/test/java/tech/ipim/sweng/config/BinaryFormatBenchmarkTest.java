@@ -0,0 +1,96 @@
+package tech.ipim.sweng.config;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.model.TipoPermesso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark di dimensione e tempo di serializzazione di un elenco di note in JSON, CBOR e Smile.
+ * <p>
+ * Serializza la stessa risposta di {@code GET /api/notes} con un elenco sintetico di note,
+ * di default 10.000, usando gli stessi mapper di {@link BinaryFormatConfig}, e stampa i byte
+ * prodotti e il tempo medio per formato.
+ * <p>
+ * Il benchmark è disattivato nella build normale. Per eseguirlo:
+ * <pre>
+ * mvn test -Dtest=BinaryFormatBenchmarkTest -Dbenchmark=true [-Dbenchmark.notes=10000]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("BinaryFormatConfig - Benchmark JSON vs CBOR vs Smile")
+class BinaryFormatBenchmarkTest {
+
+    private static final int NOTE_COUNT = Integer.getInteger("benchmark.notes", 10_000);
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 30;
+
+    private static Map<String, Object> response;
+    private static ObjectMapper json;
+
+    @BeforeAll
+    static void buildResponse() {
+        json = Jackson2ObjectMapperBuilder.json().build();
+        List<NoteDto> notes = new ArrayList<>(NOTE_COUNT);
+        LocalDateTime data = LocalDateTime.of(2024, 1, 15, 10, 30);
+        for (int i = 0; i < NOTE_COUNT; i++) {
+            NoteDto note = new NoteDto();
+            note.setId((long) i);
+            note.setTitolo("Riunione di progetto " + i);
+            note.setContenuto("Ordine del giorno: \"budget\" e scadenze del cliente.\nPortare le slide e la relazione " + i);
+            note.setAutore("utente" + (i % 50));
+            note.setDataCreazione(data.plusMinutes(i));
+            note.setDataModifica(data.plusMinutes(i + 5));
+            note.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA.name());
+            note.setTags(Set.of("lavoro", "progetto"));
+            note.setCartelle(Set.of("Progetti"));
+            note.setPermessiLettura(Set.of("utente" + ((i + 1) % 50)));
+            notes.add(note);
+        }
+        response = new HashMap<>();
+        response.put("success", true);
+        response.put("notes", notes);
+        response.put("count", notes.size());
+    }
+
+    @Test
+    void compareFormats() throws Exception {
+        int jsonBytes = measure("JSON", json);
+        int cborBytes = measure("CBOR", json.copyWith(new CBORFactory()));
+        int smileBytes = measure("Smile", json.copyWith(new SmileFactory()));
+
+        assertThat(cborBytes).isLessThan(jsonBytes);
+        assertThat(smileBytes).isLessThan(jsonBytes);
+    }
+
+    private static int measure(String format, ObjectMapper mapper) throws Exception {
+        int size = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            size = mapper.writeValueAsBytes(response).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(response);
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+        System.out.printf("%s: %d note | %d byte | %.2f ms%n", format, NOTE_COUNT, size, millis);
+        return size;
+    }
+}
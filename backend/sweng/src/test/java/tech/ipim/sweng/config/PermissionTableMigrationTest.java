@@ -0,0 +1,76 @@
+package tech.ipim.sweng.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test della migrazione in place delle tabelle dei permessi su un database H2 dedicato.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldConvertUsernamesToUserIdsInBatches} – Le righe ricevono l'id utente, quelle orfane vengono eliminate</li>
+ *   <li>{@code shouldIgnoreAlreadyMigratedTables} – Una seconda esecuzione non modifica nulla</li>
+ * </ul>
+ */
+@DisplayName("PermissionTableMigration - Test migrazione dei permessi")
+class PermissionTableMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:permission-migration;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(50) NOT NULL)");
+        for (String table : PermissionTableMigration.TABLES) {
+            jdbcTemplate.execute("CREATE TABLE " + table + " (note_id BIGINT NOT NULL, username VARCHAR(255) NOT NULL, "
+                    + "PRIMARY KEY (note_id, username))");
+        }
+        jdbcTemplate.update("INSERT INTO users VALUES (1, 'alice'), (2, 'bob')");
+        jdbcTemplate.update("INSERT INTO note_permessi_lettura VALUES (1, 'alice'), (1, 'bob'), (7, 'bob'), (7, 'ghost')");
+        jdbcTemplate.update("INSERT INTO note_permessi_scrittura VALUES (3, 'bob')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void shouldConvertUsernamesToUserIdsInBatches() {
+        new PermissionTableMigration(dataSource, 2).migrate();
+
+        List<Map<String, Object>> readers = jdbcTemplate.queryForList(
+                "SELECT note_id, user_id FROM note_permessi_lettura ORDER BY note_id, user_id");
+        assertThat(readers).extracting(row -> row.get("NOTE_ID") + ":" + row.get("USER_ID"))
+                .containsExactly("1:1", "1:2", "7:2");
+        assertThat(jdbcTemplate.queryForObject("SELECT user_id FROM note_permessi_scrittura", Long.class)).isEqualTo(2L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_NAME = 'NOTE_PERMESSI_LETTURA' AND COLUMN_NAME = 'USERNAME'", Integer.class)).isZero();
+
+        // la nuova colonna è una chiave esterna su users
+        assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO note_permessi_lettura VALUES (9, 99)"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void shouldIgnoreAlreadyMigratedTables() throws Exception {
+        PermissionTableMigration migration = new PermissionTableMigration(dataSource, 1000);
+        migration.migrate();
+
+        assertThat(migration.migrateTable("note_permessi_lettura")).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM note_permessi_lettura", Integer.class)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,118 @@
+package tech.ipim.sweng.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tech.ipim.sweng.config.TestConfig;
+import tech.ipim.sweng.dto.ReindexStatusDto;
+import tech.ipim.sweng.service.SearchReindexService;
+import tech.ipim.sweng.util.JwtUtil;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test per {@link AdminController} tramite {@link WebMvcTest}.
+ * <p>
+ * Riepilogo dei test:
+ * <ul>
+ *   <li>{@code shouldStartReindexForAdmin} – Un amministratore avvia la reindicizzazione</li>
+ *   <li>{@code shouldRejectSecondReindexWhileRunning} – Una seconda richiesta durante l'esecuzione restituisce 409</li>
+ *   <li>{@code shouldReturnReindexStatus} – Lo stato riporta avanzamento e stima</li>
+ *   <li>{@code shouldForbidNonAdminUsers} – Gli utenti non amministratori ricevono 403</li>
+ * </ul>
+ */
+@WebMvcTest(AdminController.class)
+@DisplayName("AdminController - Test API di amministrazione")
+@Import(TestConfig.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.admin.usernames=admin, root")
+class AdminControllerTest {
+
+    private static final String ADMIN_TOKEN = "Bearer admin.jwt.token";
+    private static final String USER_TOKEN = "Bearer user.jwt.token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SearchReindexService searchReindexService;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    private ReindexStatusDto runningStatus;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtUtil.extractTokenFromHeader(ADMIN_TOKEN)).thenReturn("admin.jwt.token");
+        when(jwtUtil.isTokenValid("admin.jwt.token")).thenReturn(true);
+        when(jwtUtil.extractUsername("admin.jwt.token")).thenReturn("admin");
+        when(jwtUtil.extractTokenFromHeader(USER_TOKEN)).thenReturn("user.jwt.token");
+        when(jwtUtil.isTokenValid("user.jwt.token")).thenReturn(true);
+        when(jwtUtil.extractUsername("user.jwt.token")).thenReturn("testuser");
+
+        runningStatus = new ReindexStatusDto();
+        runningStatus.setStato(ReindexStatusDto.Stato.IN_CORSO);
+        runningStatus.setTotalChunks(10);
+        runningStatus.setCompletedChunks(4);
+        runningStatus.setPercentuale(40.0);
+        runningStatus.setEtaSeconds(12L);
+    }
+
+    @Test
+    void shouldStartReindexForAdmin() throws Exception {
+        when(searchReindexService.start()).thenReturn(true);
+        when(searchReindexService.getStatus()).thenReturn(runningStatus);
+
+        mockMvc.perform(post("/api/admin/search/reindex").header("Authorization", ADMIN_TOKEN))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.status.stato").value("IN_CORSO"));
+
+        verify(searchReindexService).start();
+    }
+
+    @Test
+    void shouldRejectSecondReindexWhileRunning() throws Exception {
+        when(searchReindexService.start()).thenReturn(false);
+        when(searchReindexService.getStatus()).thenReturn(runningStatus);
+
+        mockMvc.perform(post("/api/admin/search/reindex").header("Authorization", ADMIN_TOKEN))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void shouldReturnReindexStatus() throws Exception {
+        when(searchReindexService.getStatus()).thenReturn(runningStatus);
+
+        mockMvc.perform(get("/api/admin/search/reindex").header("Authorization", ADMIN_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status.completedChunks").value(4))
+                .andExpect(jsonPath("$.status.percentuale").value(40.0))
+                .andExpect(jsonPath("$.status.etaSeconds").value(12));
+    }
+
+    @Test
+    void shouldForbidNonAdminUsers() throws Exception {
+        mockMvc.perform(post("/api/admin/search/reindex").header("Authorization", USER_TOKEN))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.success").value(false));
+
+        verify(searchReindexService, never()).start();
+    }
+}
@@ -1,6 +1,9 @@
 package tech.ipim.sweng.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -9,29 +12,50 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tech.ipim.sweng.config.BinaryFormatConfig;
 import tech.ipim.sweng.config.TestConfig;
+import tech.ipim.sweng.dto.BulkPermissionRequest;
+import tech.ipim.sweng.dto.BulkPermissionResultDto;
 import tech.ipim.sweng.dto.CreateNoteRequest;
+import tech.ipim.sweng.dto.NoteChangesDto;
+import tech.ipim.sweng.dto.NoteCursor;
 import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.dto.NotePageDto;
+import tech.ipim.sweng.dto.NoteSummaryDto;
+import tech.ipim.sweng.dto.NoteSyncToken;
 import tech.ipim.sweng.dto.LockStatusDto;
+import tech.ipim.sweng.dto.SearchHighlightDto;
 import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.search.Suggestion;
+import tech.ipim.sweng.search.TermMatch;
 import tech.ipim.sweng.service.NoteService;
+import tech.ipim.sweng.service.NoteChangeService;
+import tech.ipim.sweng.service.NoteExportService;
 import tech.ipim.sweng.service.NoteLockService;
+import tech.ipim.sweng.service.NoteSharingService;
 import tech.ipim.sweng.util.JwtUtil;
 import tech.ipim.sweng.dto.UpdateNoteRequest;
 import tech.ipim.sweng.dto.PermissionDto;
 import tech.ipim.sweng.dto.NoteVersionDto;
 import tech.ipim.sweng.dto.VersionComparisonDto;
+import tech.ipim.sweng.dto.VersionSearchHitDto;
 import static org.hamcrest.Matchers.containsString;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -39,18 +63,24 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -68,8 +98,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * <ul>
  *   <li>{@code shouldCreateNoteSuccessfully} – Creazione nota riuscita</li>
  *   <li>{@code shouldGetUserStats} – Statistiche dell’utente</li>
+ *   <li>{@code shouldReadUsernameFromSecurityContext} – Utente già autenticato dal filtro JWT, senza nuova verifica del token</li>
  *   <li>{@code shouldHandleServiceException} – Gestione eccezioni lato service</li>
  *   <li>{@code shouldGetAllNotesSuccessfully} – Recupero note accessibili</li>
+ *   <li>{@code shouldReturnNotesPage}, {@code shouldClampPageLimit}, {@code shouldRejectInvalidCursor},
+ *       {@code shouldPageNotesByTag} – Elenchi paginati con cursore</li>
+ *   <li>{@code shouldReturnNoteSummaries}, {@code shouldPageNoteSummariesByCartella}, {@code shouldRejectUnknownView} – Elenchi in forma ridotta con {@code view=summary}</li>
+ *   <li>{@code shouldReturnEtagWithNoteList}, {@code shouldReturnNotModifiedWhenListEtagMatches}, {@code shouldReturnNotModifiedWhenNoteEtagMatches},
+ *       {@code shouldNotReuseJsonEtagForCbor} – GET condizionali con {@code If-None-Match}</li>
+ *   <li>{@code shouldStreamNdjsonExport}, {@code shouldRejectUnsupportedExportFormat} – Esportazione NDJSON in streaming</li>
+ *   <li>{@code shouldReturnNoteChangesSinceToken}, {@code shouldRejectInvalidSyncToken} – Sincronizzazione incrementale delle note</li>
+ *   <li>{@code shouldReturnNoteListAsCbor}, {@code shouldReturnVersionHistoryAsSmile}, {@code shouldExportCborWhenAccepted} – Risposte binarie con l'header Accept</li>
  *   <li>{@code shouldDeleteNote} – Eliminazione nota</li>
  *   <li>{@code shouldDuplicateNote} – Duplicazione nota</li>
  *   <li>{@code shouldSearchNotes} – Ricerca per keyword</li>
@@ -86,7 +125,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *   <li>{@code testGetNotesByCartella} – Filtro cartella endpoint test</li>
  *   <li>{@code testLockNote}, {@code testLockNoteConflict}, {@code testUnlockNote}, {@code testGetLockStatus} – Test lock/sblocco note</li>
  *   <li>{@code shouldUpdatePermissionsSuccessfully}, {@code shouldFailPermissionsUpdateWhenNotOwner} – Test aggiornamento permessi</li>
+ *   <li>{@code shouldUpdatePermissionsInBulk}, {@code shouldRejectBulkPermissionsWithoutNotes} – Condivisione multipla</li>
  *   <li>{@code shouldGetNoteVersionHistory}, {@code shouldReturn404WhenNoteNotFoundForVersionHistory}, {@code shouldReturn403WhenUserHasNoAccessToVersionHistory} – Cronologia versioni</li>
+ *   <li>{@code shouldSearchNoteVersions} – Ricerca nella cronologia delle versioni</li>
  *   <li>{@code shouldGetSpecificNoteVersion}, {@code shouldReturn404WhenVersionNotFound} – Recupero versione specifica</li>
  *   <li>{@code shouldRestoreNoteVersion}, {@code shouldReturn404WhenRestoringNonExistentVersion}, {@code shouldReturn403WhenRestoringWithoutWriteAccess} – Ripristino versioni</li>
  *   <li>{@code shouldCompareTwoVersions}, {@code shouldReturn404WhenComparingNonExistentVersion}, {@code shouldReturn400ForInvalidComparisonParameters} – Confronto versioni</li>
@@ -96,7 +137,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  */
 
 @WebMvcTest(NoteController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, BinaryFormatConfig.class})
 @ActiveProfiles("test")
 class NoteControllerTest {
 
@@ -112,6 +153,15 @@ class NoteControllerTest {
     @MockBean
     private NoteLockService noteLockService;
 
+    @MockBean
+    private NoteSharingService noteSharingService;
+
+    @MockBean
+    private NoteExportService noteExportService;
+
+    @MockBean
+    private NoteChangeService noteChangeService;
+
     @MockBean
     private JwtUtil jwtUtil;
 
@@ -213,6 +263,26 @@ class NoteControllerTest {
         verify(noteService).getUserStats(testUsername);
     }
 
+    /**
+     * Verifica che, con la richiesta già autenticata dal filtro JWT con lo stesso token,
+     * il controller legga l'utente dal SecurityContext senza verificare di nuovo il token.
+     */
+    @Test
+    void shouldReadUsernameFromSecurityContext() throws Exception {
+        when(jwtUtil.extractTokenFromHeader("Bearer filtered.jwt.token")).thenReturn("filtered.jwt.token");
+        when(noteService.getUserStats(testUsername)).thenReturn(
+                new NoteService.UserStatsDto(1L, 0L, 0L, 0L, List.of(), List.of()));
+
+        mockMvc.perform(get("/api/notes/stats")
+                        .header("Authorization", "Bearer filtered.jwt.token")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(testUsername, "filtered.jwt.token", List.of()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stats.noteCreate").value(1));
+
+        verify(jwtUtil, never()).isTokenValid("filtered.jwt.token");
+        verify(jwtUtil, never()).extractUsername("filtered.jwt.token");
+    }
+
     /**
      * Verifica che eventuali eccezioni sollevate dal service durante la creazione
      * della nota vengano gestite con errore 500 e messaggio appropriato.
@@ -241,7 +311,7 @@ class NoteControllerTest {
     @WithMockUser(username = "testuser")
     void shouldGetAllNotesSuccessfully() throws Exception {
         List<NoteDto> notes = Arrays.asList(testNoteDto);
-        when(noteService.getAllAccessibleNotes(testUsername)).thenReturn(notes);
+        when(noteService.findNotes(eq(testUsername), any(NoteFilter.class))).thenReturn(notes);
 
         mockMvc.perform(get("/api/notes")
                         .header("Authorization", validToken))
@@ -252,7 +322,440 @@ class NoteControllerTest {
                 .andExpect(jsonPath("$.count").value(1))
                 .andExpect(jsonPath("$.notes[0].titolo").value("Test Note"));
 
-        verify(noteService).getAllAccessibleNotes(testUsername);
+        verify(noteService).findNotes(eq(testUsername), argThat(f -> "all".equals(f.getFilter())
+                && f.getTags().isEmpty() && f.getSearch() == null && f.getDataInizio() == null));
+    }
+
+    /**
+     * Verifica che tutti i filtri indicati vengano passati insieme al servizio,
+     * invece di applicare solo il primo valorizzato.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldCombineAllNoteFilters() throws Exception {
+        when(noteService.findNotes(eq(testUsername), any(NoteFilter.class))).thenReturn(Arrays.asList(testNoteDto));
+
+        mockMvc.perform(get("/api/notes")
+                        .param("filter", "shared")
+                        .param("search", "budget")
+                        .param("tag", "lavoro")
+                        .param("cartella", "Progetti")
+                        .param("autore", "mario")
+                        .param("dataInizio", "2025-01-01")
+                        .param("dataFine", "2025-01-31")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.tag[0]").value("lavoro"));
+
+        verify(noteService).findNotes(eq(testUsername), argThat(f -> "shared".equals(f.getFilter())
+                && "budget".equals(f.getSearch())
+                && List.of("lavoro").equals(f.getTags())
+                && "Progetti".equals(f.getCartella())
+                && "mario".equals(f.getAutore())
+                && LocalDate.of(2025, 1, 1).equals(f.getDataInizio())
+                && LocalDate.of(2025, 1, 31).equals(f.getDataFine())));
+    }
+
+    /**
+     * Verifica che i parametri tag, anyTag e notTag ripetuti formino un'espressione booleana sui tag.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldPassBooleanTagExpression() throws Exception {
+        when(noteService.findNotes(eq(testUsername), any(NoteFilter.class))).thenReturn(Arrays.asList(testNoteDto));
+
+        mockMvc.perform(get("/api/notes?tag=work&tag=urgent&anyTag=casa&anyTag=team&notTag=done")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tag", hasSize(2)))
+                .andExpect(jsonPath("$.notTag[0]").value("done"));
+
+        verify(noteService).findNotes(eq(testUsername), argThat(f -> List.of("work", "urgent").equals(f.getTags())
+                && List.of("casa", "team").equals(f.getAnyTags())
+                && List.of("done").equals(f.getNotTags())));
+    }
+
+    /**
+     * Verifica che con {@code limit} la risposta sia una pagina con il cursore della successiva,
+     * e che il cursore ricevuto venga decodificato e passato al servizio.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnNotesPage() throws Exception {
+        NoteCursor cursor = new NoteCursor(LocalDateTime.of(2024, 1, 15, 10, 30), 42L);
+        when(noteService.findNotesPage(eq(testUsername), any(NoteFilter.class), any(NoteCursor.class), eq(1)))
+                .thenReturn(new NotePageDto<>(List.of(testNoteDto), "next", true));
+
+        mockMvc.perform(get("/api/notes")
+                        .param("limit", "1")
+                        .param("cursor", cursor.encode())
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes", hasSize(1)))
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(noteService).findNotesPage(eq(testUsername), any(NoteFilter.class),
+                argThat(c -> c.getId() == 42L && cursor.getDataModifica().equals(c.getDataModifica())), eq(1));
+        verify(noteService, never()).findNotes(anyString(), any(NoteFilter.class));
+    }
+
+    /**
+     * Verifica che una pagina più grande del massimo configurato venga ridotta al massimo.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldClampPageLimit() throws Exception {
+        when(noteService.findNotesPage(eq(testUsername), any(NoteFilter.class), eq(null), anyInt()))
+                .thenReturn(NotePageDto.empty());
+
+        mockMvc.perform(get("/api/notes")
+                        .param("limit", "100000")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(noteService).findNotesPage(eq(testUsername), any(NoteFilter.class), eq(null), eq(200));
+    }
+
+    /**
+     * Verifica che un cursore non prodotto dal server restituisca 400.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldRejectInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/notes")
+                        .param("cursor", "non-un-cursore")
+                        .header("Authorization", validToken))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursore non valido"));
+
+        verify(noteService, never()).findNotesPage(anyString(), any(NoteFilter.class), any(), anyInt());
+    }
+
+    /**
+     * Verifica che anche il filtro per tag accetti la paginazione.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldPageNotesByTag() throws Exception {
+        when(noteService.getNotesByTag(testUsername, "lavoro", null, 10))
+                .thenReturn(new NotePageDto<>(List.of(testNoteDto), null, false));
+
+        mockMvc.perform(get("/api/notes/filter/tag/lavoro")
+                        .param("limit", "10")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tag").value("lavoro"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(noteService, never()).getNotesByTag(testUsername, "lavoro");
+    }
+
+    /**
+     * Verifica che con {@code view=summary} l'elenco restituisca le note ridotte, senza
+     * contenuto completo né utenti della condivisione.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnNoteSummaries() throws Exception {
+        NoteSummaryDto summary = new NoteSummaryDto(1L, "Test Note", "Anteprima", testUsername,
+                LocalDateTime.of(2024, 1, 15, 10, 30), TipoPermesso.PRIVATA);
+        summary.applyAccess(testUsername, false);
+        when(noteService.findNoteSummaries(eq(testUsername), any(NoteFilter.class))).thenReturn(List.of(summary));
+
+        mockMvc.perform(get("/api/notes")
+                        .param("view", "summary")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.notes[0].anteprima").value("Anteprima"))
+                .andExpect(jsonPath("$.notes[0].canDelete").value(true))
+                .andExpect(jsonPath("$.notes[0].contenuto").doesNotExist())
+                .andExpect(jsonPath("$.notes[0].permessiLettura").doesNotExist());
+
+        verify(noteService, never()).findNotes(anyString(), any(NoteFilter.class));
+    }
+
+    /**
+     * Verifica che anche le pagine del filtro per cartella accettino la forma ridotta.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldPageNoteSummariesByCartella() throws Exception {
+        when(noteService.findNoteSummariesPage(eq(testUsername), argThat(f -> "Lavoro".equals(f.getCartella())), eq(null), eq(10)))
+                .thenReturn(NotePageDto.empty());
+
+        mockMvc.perform(get("/api/notes/filter/cartella/Lavoro")
+                        .param("limit", "10")
+                        .param("view", "summary")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cartella").value("Lavoro"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(noteService, never()).getNotesByCartella(anyString(), anyString(), any(), anyInt());
+    }
+
+    /**
+     * Verifica che l'elenco delle note porti l'header {@code ETag} calcolato dal servizio.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnEtagWithNoteList() throws Exception {
+        when(noteService.getNotesEtag(testUsername)).thenReturn("\"abc\"");
+        when(noteService.findNotes(eq(testUsername), any(NoteFilter.class))).thenReturn(List.of(testNoteDto));
+
+        mockMvc.perform(get("/api/notes")
+                        .header("Authorization", validToken)
+                        .header("If-None-Match", "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andExpect(jsonPath("$.count").value(1));
+    }
+
+    /**
+     * Verifica che con un {@code If-None-Match} corrispondente l'elenco risponda 304 senza
+     * leggere le note.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnNotModifiedWhenListEtagMatches() throws Exception {
+        when(noteService.getNotesEtag(testUsername)).thenReturn("\"abc\"");
+
+        mockMvc.perform(get("/api/notes")
+                        .param("view", "summary")
+                        .header("Authorization", validToken)
+                        .header("If-None-Match", "\"old\", W/\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")))
+                .andExpect(content().string(""));
+
+        verify(noteService, never()).findNoteSummaries(anyString(), any(NoteFilter.class));
+        verify(noteService, never()).findNotes(anyString(), any(NoteFilter.class));
+    }
+
+    /**
+     * Verifica che l'ETag di un elenco JSON, rimandato chiedendo CBOR, non produca un 304:
+     * la rappresentazione CBOR ha un ETag proprio.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldNotReuseJsonEtagForCbor() throws Exception {
+        when(noteService.getNotesEtag(testUsername)).thenReturn("\"abc\"");
+        when(noteService.findNotes(eq(testUsername), any(NoteFilter.class))).thenReturn(List.of(testNoteDto));
+
+        mockMvc.perform(get("/api/notes")
+                        .accept("application/cbor")
+                        .header("Authorization", validToken)
+                        .header("If-None-Match", "\"abc\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string("ETag", "\"abc-cbor\""))
+                .andExpect(header().stringValues("Vary", hasItem("Accept")));
+
+        mockMvc.perform(get("/api/notes")
+                        .accept("application/cbor")
+                        .header("Authorization", validToken)
+                        .header("If-None-Match", "\"abc-cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues("Vary", hasItem("Accept")));
+    }
+
+    /**
+     * Verifica che il dettaglio di una nota non modificata risponda 304 senza leggere la nota.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnNotModifiedWhenNoteEtagMatches() throws Exception {
+        when(noteService.getNoteEtag(1L, testUsername)).thenReturn(Optional.of("\"v3\""));
+
+        mockMvc.perform(get("/api/notes/1")
+                        .header("Authorization", validToken)
+                        .header("If-None-Match", "\"v3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v3\""));
+
+        verify(noteService, never()).getNoteById(anyLong(), anyString());
+    }
+
+    /**
+     * Verifica che un valore di {@code view} sconosciuto restituisca 400.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldRejectUnknownView() throws Exception {
+        mockMvc.perform(get("/api/notes")
+                        .param("view", "compact")
+                        .header("Authorization", validToken))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Vista non valida, usare full o summary"));
+
+        verify(noteService, never()).findNotes(anyString(), any(NoteFilter.class));
+    }
+
+    /**
+     * Verifica che l'esportazione venga scritta in streaming come NDJSON dal servizio.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldStreamNdjsonExport() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<java.io.OutputStream>getArgument(1).write("{\"id\":1}\n".getBytes());
+            return 1L;
+        }).when(noteExportService).exportNotes(eq(testUsername), any(), eq(NoteExportService.Format.NDJSON));
+
+        MvcResult result = mockMvc.perform(get("/api/notes/export")
+                        .param("format", "ndjson")
+                        .header("Authorization", validToken))
+                .andExpect(request().asyncStarted())
+                // header già inviati prima che il corpo venga scritto
+                .andExpect(header().string("Content-Disposition", containsString("note.ndjson")))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", containsString("note.ndjson")))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+
+    /**
+     * Verifica che un formato di esportazione diverso da NDJSON restituisca 400.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldRejectUnsupportedExportFormat() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/notes/export")
+                        .param("format", "csv")
+                        .header("Authorization", validToken))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value(containsString("csv")));
+
+        verify(noteExportService, never()).exportNotes(anyString(), any(), any());
+    }
+
+    /**
+     * Verifica che con {@code Accept: application/cbor} l'elenco delle note sia serializzato in CBOR.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnNoteListAsCbor() throws Exception {
+        when(noteService.findNotes(eq(testUsername), any(NoteFilter.class))).thenReturn(List.of(testNoteDto));
+
+        MvcResult result = mockMvc.perform(get("/api/notes")
+                        .accept("application/cbor")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn();
+
+        JsonNode body = objectMapper.copyWith(new CBORFactory()).readTree(result.getResponse().getContentAsByteArray());
+        assertTrue(body.get("success").asBoolean());
+        assertEquals(1, body.get("count").asInt());
+        assertEquals(testNoteDto.getTitolo(), body.get("notes").get(0).get("titolo").asText());
+    }
+
+    /**
+     * Verifica che lo storico delle versioni sia disponibile in Smile.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnVersionHistoryAsSmile() throws Exception {
+        NoteVersionDto version = new NoteVersionDto();
+        version.setVersionNumber(1);
+        version.setTitolo("Titolo v1");
+        when(noteService.getNoteVersionHistory(1L, testUsername)).thenReturn(List.of(version));
+
+        MvcResult result = mockMvc.perform(get("/api/notes/1/versions")
+                        .accept("application/x-jackson-smile")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+
+        JsonNode body = objectMapper.copyWith(new SmileFactory()).readTree(result.getResponse().getContentAsByteArray());
+        assertEquals("Titolo v1", body.get("data").get(0).get("titolo").asText());
+    }
+
+    /**
+     * Verifica che l'esportazione segua l'header Accept quando il formato non è indicato.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldExportCborWhenAccepted() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/notes/export")
+                        .accept("application/cbor")
+                        .header("Authorization", validToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor-seq"))
+                .andExpect(header().string("Content-Disposition", containsString("note.cbor")));
+
+        verify(noteExportService).exportNotes(eq(testUsername), any(), eq(NoteExportService.Format.CBOR));
+    }
+
+    /**
+     * Verifica che la sincronizzazione restituisca note modificate, id rimossi e nuovo token.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldReturnNoteChangesSinceToken() throws Exception {
+        String since = new NoteSyncToken(10L, LocalDateTime.of(2024, 1, 15, 10, 30)).encode();
+        String next = new NoteSyncToken(12L, LocalDateTime.of(2024, 1, 15, 10, 35)).encode();
+        when(noteChangeService.getChanges(eq(testUsername), argThat(token -> token.getChangeId() == 10L)))
+                .thenReturn(new NoteChangesDto(List.of(testNoteDto), List.of(7L), false, next));
+
+        mockMvc.perform(get("/api/notes/changes")
+                        .param("since", since)
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes[0].id").value(1))
+                .andExpect(jsonPath("$.removed[0]").value(7))
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.syncToken").value(next));
+    }
+
+    /**
+     * Verifica che un token di sincronizzazione non valido restituisca 400.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldRejectInvalidSyncToken() throws Exception {
+        mockMvc.perform(get("/api/notes/changes")
+                        .param("since", "non-valido")
+                        .header("Authorization", validToken))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Token di sincronizzazione non valido"));
+
+        verify(noteChangeService, never()).getChanges(anyString(), any());
+    }
+
+    /**
+     * Verifica che una data in formato non valido restituisca 400 senza interrogare il servizio.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldRejectInvalidDateFilter() throws Exception {
+        mockMvc.perform(get("/api/notes")
+                        .param("dataInizio", "31/01/2025")
+                        .header("Authorization", validToken))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+
+        verify(noteService, never()).findNotes(anyString(), any());
     }
 
     /**
@@ -320,6 +823,85 @@ class NoteControllerTest {
         verify(noteService).searchNotes(testUsername, "test");
     }
 
+    /**
+     * Verifica che la ricerca esatta includa le evidenziazioni calcolate dal servizio.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldIncludeHighlightsInSearchResults() throws Exception {
+        List<NoteDto> notes = Arrays.asList(testNoteDto);
+        SearchHighlightDto highlight = SearchHighlightDto.of(1L, "Contenuto di test",
+                List.of(new TermMatch(1, 13, 17)));
+        when(noteService.searchNotes(testUsername, "test")).thenReturn(notes);
+        when(noteService.getSearchHighlights("test", notes)).thenReturn(List.of(highlight));
+
+        mockMvc.perform(get("/api/notes/search?q=test")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.highlights", hasSize(1)))
+                .andExpect(jsonPath("$.highlights[0].noteId").value(1))
+                .andExpect(jsonPath("$.highlights[0].snippet").value("Contenuto di test"))
+                .andExpect(jsonPath("$.highlights[0].contenutoMatches[0].start").value(13))
+                .andExpect(jsonPath("$.highlights[0].contenutoMatches[0].end").value(17));
+    }
+
+    /**
+     * Verifica che la ricerca nella cronologia restituisca nota e numero di versione dei risultati.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldSearchNoteVersions() throws Exception {
+        VersionSearchHitDto hit = new VersionSearchHitDto(1L, 2, "Test Note", LocalDateTime.now(), testUsername);
+        when(noteService.searchNoteVersions(testUsername, "budget")).thenReturn(List.of(hit));
+
+        mockMvc.perform(get("/api/notes/versions/search?q=budget")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.versions[0].noteId").value(1))
+                .andExpect(jsonPath("$.versions[0].versionNumber").value(2));
+
+        verify(noteService).searchNoteVersions(testUsername, "budget");
+    }
+
+    /**
+     * Verifica che l'autocompletamento restituisca i suggerimenti per il prefisso digitato.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldSuggestCompletions() throws Exception {
+        when(noteService.suggest(testUsername, "riu", 10))
+                .thenReturn(List.of(new Suggestion("Riunione di progetto", Suggestion.Tipo.TITOLO)));
+
+        mockMvc.perform(get("/api/notes/suggest?prefix=riu")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.suggestions", hasSize(1)))
+                .andExpect(jsonPath("$.suggestions[0].testo").value("Riunione di progetto"))
+                .andExpect(jsonPath("$.suggestions[0].tipo").value("TITOLO"));
+
+        verify(noteService).suggest(testUsername, "riu", 10);
+    }
+
+    /**
+     * Verifica che con fuzzy=true la ricerca usi la modalità tollerante agli errori.
+     */
+    @Test
+    @WithMockUser(username = "testuser")
+    void shouldSearchNotesWithFuzzyMode() throws Exception {
+        when(noteService.searchNotes(testUsername, "progeto", true)).thenReturn(Arrays.asList(testNoteDto));
+
+        mockMvc.perform(get("/api/notes/search?q=progeto&fuzzy=true")
+                        .header("Authorization", validToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes", hasSize(1)))
+                .andExpect(jsonPath("$.fuzzy").value(true));
+
+        verify(noteService).searchNotes(testUsername, "progeto", true);
+        verify(noteService, never()).getSearchHighlights(anyString(), any());
+    }
+
     /**
      * Verifica che il recupero di una nota tramite ID restituisca
      * correttamente i dati se l’utente ha accesso.
@@ -902,6 +1484,55 @@ class NoteControllerTest {
         verify(noteService).updateNotePermissions(eq(1L), any(PermissionDto.class), eq(testUsername));
     }
 
+    /**
+     * Verifica che la condivisione multipla restituisca l'esito di ogni nota.
+     */
+    @Test
+    @DisplayName("PUT /api/notes/permissions/bulk - Dovrebbe restituire l'esito per ogni nota")
+    @WithMockUser(username = "testuser")
+    void shouldUpdatePermissionsInBulk() throws Exception {
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(1L, 2L), TipoPermesso.CONDIVISA_LETTURA,
+                List.of("user1"), List.of());
+
+        when(noteSharingService.updatePermissions(any(BulkPermissionRequest.class), eq(testUsername))).thenReturn(List.of(
+                new BulkPermissionResultDto(1L, BulkPermissionResultDto.Esito.AGGIORNATA, 1, 0),
+                BulkPermissionResultDto.skipped(2L, BulkPermissionResultDto.Esito.NON_AUTORIZZATA)));
+
+        mockMvc.perform(put("/api/notes/permissions/bulk")
+                        .header("Authorization", validToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.results[0].esito").value("AGGIORNATA"))
+                .andExpect(jsonPath("$.results[0].utentiAggiunti").value(1))
+                .andExpect(jsonPath("$.results[1].esito").value("NON_AUTORIZZATA"))
+                .andExpect(jsonPath("$.results[1].success").value(false));
+    }
+
+    /**
+     * Verifica che una richiesta di condivisione multipla senza note venga rifiutata.
+     */
+    @Test
+    @DisplayName("PUT /api/notes/permissions/bulk - Dovrebbe rifiutare una richiesta senza note")
+    @WithMockUser(username = "testuser")
+    void shouldRejectBulkPermissionsWithoutNotes() throws Exception {
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(), TipoPermesso.PRIVATA, null, null);
+
+        mockMvc.perform(put("/api/notes/permissions/bulk")
+                        .header("Authorization", validToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.noteIds").exists());
+
+        verify(noteSharingService, never()).updatePermissions(any(), anyString());
+    }
+
     // TEST PER VERSIONAMENTO
     /**
      * Verifica che la cronologia delle versioni venga restituita correttamente.
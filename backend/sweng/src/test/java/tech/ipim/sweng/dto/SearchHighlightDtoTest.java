@@ -0,0 +1,60 @@
+package tech.ipim.sweng.dto;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import tech.ipim.sweng.search.TermMatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test unitari per {@link SearchHighlightDto}, che costruisce offset ed estratto
+ * delle corrispondenze di una ricerca a partire dalle occorrenze dell'indice.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldSplitMatchesByField} – Le occorrenze sono divise tra titolo e contenuto</li>
+ *   <li>{@code shouldCutSnippetAroundFirstMatch} – L'estratto parte vicino alla prima corrispondenza senza spezzare parole</li>
+ *   <li>{@code shouldUseContentStartWithoutContentMatches} – Senza corrispondenze nel contenuto l'estratto è l'inizio del testo</li>
+ * </ul>
+ */
+@DisplayName("SearchHighlightDto - Test evidenziazioni dei risultati di ricerca")
+class SearchHighlightDtoTest {
+
+    @Test
+    void shouldSplitMatchesByField() {
+        SearchHighlightDto dto = SearchHighlightDto.of(7L, "Budget del progetto",
+                List.of(new TermMatch(0, 0, 8), new TermMatch(1, 11, 19)));
+
+        assertThat(dto.getNoteId()).isEqualTo(7L);
+        assertThat(dto.getTitoloMatches()).extracting(SearchHighlightDto.Range::getStart).containsExactly(0);
+        assertThat(dto.getContenutoMatches()).extracting(SearchHighlightDto.Range::getEnd).containsExactly(19);
+        assertThat(dto.getSnippet()).isEqualTo("Budget del progetto");
+        assertThat(dto.getSnippetMatches()).extracting(SearchHighlightDto.Range::getStart).containsExactly(11);
+    }
+
+    @Test
+    void shouldCutSnippetAroundFirstMatch() {
+        String contenuto = "parola ".repeat(30) + "obiettivo " + "coda ".repeat(60);
+        int start = contenuto.indexOf("obiettivo");
+
+        SearchHighlightDto dto = SearchHighlightDto.of(1L, contenuto,
+                List.of(new TermMatch(1, start, start + "obiettivo".length())));
+
+        assertThat(dto.getSnippet()).startsWith(SearchHighlightDto.ELLIPSIS + "parola").endsWith(SearchHighlightDto.ELLIPSIS);
+        assertThat(dto.getSnippet().length()).isLessThanOrEqualTo(SearchHighlightDto.SNIPPET_LENGTH + 2);
+        SearchHighlightDto.Range range = dto.getSnippetMatches().get(0);
+        assertThat(dto.getSnippet().substring(range.getStart(), range.getEnd())).isEqualTo("obiettivo");
+    }
+
+    @Test
+    void shouldUseContentStartWithoutContentMatches() {
+        SearchHighlightDto dto = SearchHighlightDto.of(1L, "Testo breve", List.of(new TermMatch(0, 0, 5)));
+
+        assertThat(dto.getSnippet()).isEqualTo("Testo breve");
+        assertThat(dto.getSnippetMatches()).isEmpty();
+        assertThat(SearchHighlightDto.of(2L, null, List.of()).getSnippet()).isEmpty();
+    }
+}
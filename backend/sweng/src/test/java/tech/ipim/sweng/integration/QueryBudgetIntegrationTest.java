@@ -0,0 +1,184 @@
+package tech.ipim.sweng.integration;
+
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import jakarta.persistence.EntityManagerFactory;
+import tech.ipim.sweng.dto.CreateCartellaRequest;
+import tech.ipim.sweng.dto.CreateNoteRequest;
+import tech.ipim.sweng.dto.LoginRequest;
+import tech.ipim.sweng.dto.PermissionDto;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.UserRepository;
+import tech.ipim.sweng.service.CartellaService;
+import tech.ipim.sweng.service.NoteService;
+import tech.ipim.sweng.service.UserService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test di integrazione sul numero di istruzioni SQL eseguite dagli endpoint di lettura,
+ * misurato con le statistiche di Hibernate.
+ * <p>
+ * Con open-in-view disattivato ogni richiesta legge i dati solo dentro i servizi: gli elenchi
+ * devono eseguire lo stesso numero di query con poche o molte note, e restare entro il
+ * limite fissato per l'endpoint. Un aumento del conteggio al crescere delle note indica
+ * un caricamento lazy per nota (N+1).
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldListNotesWithinQueryBudget} – Elenco completo delle note con query costanti al crescere delle note</li>
+ *   <li>{@code shouldPageNotesWithinQueryBudget} – Pagina con cursore con query costanti al crescere delle note</li>
+ *   <li>{@code shouldGetNoteWithinQueryBudget} – Dettaglio di una nota condivisa entro il limite di query</li>
+ *   <li>{@code shouldListCartelleWithinQueryBudget} – Elenco delle cartelle con conteggio note in query costanti</li>
+ * </ul>
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@DisplayName("Budget di query SQL per gli endpoint di lettura")
+class QueryBudgetIntegrationTest {
+
+    private static final long MAX_LIST_STATEMENTS = 10;
+    private static final long MAX_DETAIL_STATEMENTS = 10;
+    private static final long MAX_CARTELLE_STATEMENTS = 4;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private CartellaService cartellaService;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private String bobToken;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        userRepository.save(new User("alice", passwordEncoder.encode("password123")));
+        userRepository.save(new User("bob", passwordEncoder.encode("password123")));
+        bobToken = "Bearer " + userService.authenticateUser(new LoginRequest("bob", "password123")).getToken();
+    }
+
+    @Test
+    void shouldListNotesWithinQueryBudget() throws Exception {
+        createNotes(2);
+        long few = statements(get("/api/notes"), 4);
+
+        createNotes(10);
+        long many = statements(get("/api/notes"), 24);
+
+        assertThat(many).isEqualTo(few).isLessThanOrEqualTo(MAX_LIST_STATEMENTS);
+    }
+
+    @Test
+    void shouldPageNotesWithinQueryBudget() throws Exception {
+        createNotes(2);
+        long few = statements(get("/api/notes").param("limit", "50"), 4);
+
+        createNotes(10);
+        long many = statements(get("/api/notes").param("limit", "50"), 24);
+
+        assertThat(many).isEqualTo(few).isLessThanOrEqualTo(MAX_LIST_STATEMENTS);
+    }
+
+    @Test
+    void shouldGetNoteWithinQueryBudget() throws Exception {
+        Long sharedId = createNote("alice", "Condivisa", new PermissionDto(TipoPermesso.CONDIVISA_LETTURA, List.of("bob"), List.of()));
+
+        statistics.clear();
+        mockMvc.perform(get("/api/notes/" + sharedId).header("Authorization", bobToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.note.permessiLettura[0]").value("bob"));
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_DETAIL_STATEMENTS);
+    }
+
+    @Test
+    void shouldListCartelleWithinQueryBudget() throws Exception {
+        cartellaService.createCartella(new CreateCartellaRequest("Cartella 0"), "bob");
+        long few = cartelleStatements(1);
+
+        for (int i = 1; i < 10; i++) {
+            cartellaService.createCartella(new CreateCartellaRequest("Cartella " + i), "bob");
+        }
+        long many = cartelleStatements(10);
+
+        assertThat(many).isEqualTo(few).isLessThanOrEqualTo(MAX_CARTELLE_STATEMENTS);
+    }
+
+    /**
+     * Crea per ciascuna iterazione una nota di bob e una nota di alice condivisa in lettura con bob,
+     * entrambe con tag e cartelle.
+     */
+    private void createNotes(int count) {
+        for (int i = 0; i < count; i++) {
+            createNote("bob", "Nota di bob " + i, null);
+            createNote("alice", "Nota di alice " + i, new PermissionDto(TipoPermesso.CONDIVISA_LETTURA, List.of("bob"), List.of()));
+        }
+    }
+
+    private Long createNote(String username, String titolo, PermissionDto permessi) {
+        CreateNoteRequest request = new CreateNoteRequest(titolo, "Contenuto di " + titolo);
+        request.setTags(Set.of("lavoro", "idee"));
+        request.setCartelle(Set.of("Progetti"));
+        request.setPermessi(permessi);
+        return noteService.createNote(request, username).getId();
+    }
+
+    private long statements(MockHttpServletRequestBuilder request, int expectedNotes) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request.header("Authorization", bobToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(expectedNotes));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long cartelleStatements(int expectedCartelle) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/cartelle").header("Authorization", bobToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(expectedCartelle));
+        return statistics.getPrepareStatementCount();
+    }
+}
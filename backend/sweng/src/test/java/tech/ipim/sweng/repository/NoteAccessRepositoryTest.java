@@ -0,0 +1,135 @@
+package tech.ipim.sweng.repository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import tech.ipim.sweng.model.LivelloAccesso;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.NoteAccess;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NoteAccessRepository}: calcolo delle righe della tabella
+ * materializzata degli accessi e query delle note accessibili basate su di essa.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldMaterializeAccessLevels} – Autore, utenti in scrittura e in lettura ricevono il livello corretto,
+ *       riletto insieme al tipo di permesso per la cache dei permessi</li>
+ *   <li>{@code shouldRefreshSingleNoteAfterPermissionChange} – Il ricalcolo di una nota rimuove gli accessi revocati</li>
+ *   <li>{@code shouldFollowNoteReadRules} – Le query seguono le regole di {@link Note#hasReadAccess(String)}</li>
+ *   <li>{@code shouldFindNotesWithoutOwnerRow} – Le note senza riga del proprietario vengono trovate a blocchi per id</li>
+ * </ul>
+ */
+@DataJpaTest
+@DisplayName("NoteAccessRepository - Test della tabella degli accessi")
+class NoteAccessRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    private User alice;
+    private User bob;
+    private User carol;
+    private Note writeShared;
+    private Note readShared;
+    private Note privateNote;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persistAndFlush(new User("alice", "password123"));
+        bob = entityManager.persistAndFlush(new User("bob", "password123"));
+        carol = entityManager.persistAndFlush(new User("carol", "password123"));
+
+        writeShared = persist(new Note("Lista", "Latte e pane", alice), TipoPermesso.CONDIVISA_SCRITTURA,
+                Set.of(carol), Set.of(bob));
+        // utenti in scrittura su una nota condivisa solo in lettura: non ottengono accesso
+        readShared = persist(new Note("Riunione", "Ordine del giorno", alice), TipoPermesso.CONDIVISA_LETTURA,
+                Set.of(bob), Set.of(carol));
+        privateNote = persist(new Note("Diario", "Privato", alice), TipoPermesso.PRIVATA, Set.of(), Set.of());
+    }
+
+    @Test
+    void shouldMaterializeAccessLevels() {
+        int rows = noteAccessRepository.rebuildAll();
+
+        assertThat(rows).isEqualTo(6);
+        assertThat(level(alice, writeShared)).isEqualTo(LivelloAccesso.PROPRIETARIO);
+        assertThat(level(bob, writeShared)).isEqualTo(LivelloAccesso.SCRITTURA);
+        assertThat(level(carol, writeShared)).isEqualTo(LivelloAccesso.LETTURA);
+        assertThat(level(bob, readShared)).isEqualTo(LivelloAccesso.LETTURA);
+        assertThat(level(carol, readShared)).isNull();
+        assertThat(level(bob, privateNote)).isNull();
+        assertThat(noteAccessRepository.findAclRows(writeShared.getId()))
+                .hasSize(3)
+                .allSatisfy(row -> assertThat(row[2]).isEqualTo(TipoPermesso.CONDIVISA_SCRITTURA));
+    }
+
+    @Test
+    void shouldRefreshSingleNoteAfterPermissionChange() {
+        noteAccessRepository.rebuildAll();
+
+        Note note = noteRepository.findById(writeShared.getId()).orElseThrow();
+        note.removeFromSharing("bob");
+        noteRepository.saveAndFlush(note);
+        noteAccessRepository.refresh(note.getId());
+        entityManager.clear();
+
+        assertThat(level(bob, writeShared)).isNull();
+        assertThat(level(carol, writeShared)).isEqualTo(LivelloAccesso.LETTURA);
+        assertThat(level(bob, readShared)).isEqualTo(LivelloAccesso.LETTURA);
+    }
+
+    @Test
+    void shouldFollowNoteReadRules() {
+        noteAccessRepository.rebuildAll();
+        entityManager.clear();
+
+        List<Note> carolNotes = noteRepository.findAllAccessibleNotes("carol");
+        assertThat(carolNotes).extracting(Note::getId).containsExactly(writeShared.getId());
+        assertThat(noteRepository.findAllAccessibleNotes("alice")).hasSize(3);
+        assertThat(noteRepository.countSharedNotes("bob")).isEqualTo(2);
+        assertThat(noteRepository.findAccessibleNoteById(privateNote.getId(), "bob")).isEmpty();
+    }
+
+    @Test
+    void shouldFindNotesWithoutOwnerRow() {
+        noteAccessRepository.refresh(readShared.getId());
+
+        assertThat(noteAccessRepository.findNoteIdsWithoutOwner(0, PageRequest.ofSize(10)))
+                .containsExactly(writeShared.getId(), privateNote.getId());
+        assertThat(noteAccessRepository.findNoteIdsWithoutOwner(writeShared.getId(), PageRequest.ofSize(1)))
+                .containsExactly(privateNote.getId());
+    }
+
+    private Note persist(Note note, TipoPermesso tipoPermesso, Set<User> lettura, Set<User> scrittura) {
+        note.setTipoPermesso(tipoPermesso);
+        note.setLettori(new HashSet<>(lettura));
+        note.setScrittori(new HashSet<>(scrittura));
+        return entityManager.persistAndFlush(note);
+    }
+
+    private LivelloAccesso level(User user, Note note) {
+        return noteAccessRepository.findById(new NoteAccess.Key(user.getId(), note.getId()))
+                .map(NoteAccess::getLivello)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,132 @@
+package tech.ipim.sweng.repository;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.LivelloAccesso;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.NoteGroupAccess;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NoteGroupAccessRepository}: righe di accesso dei gruppi e
+ * query delle note accessibili tramite l'appartenenza a un gruppo.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldMaterializeOneRowPerGroup} – Ogni gruppo riceve una sola riga per nota con il livello corretto</li>
+ *   <li>{@code shouldFindNotesSharedWithGroupOnce} – Le note condivise con un gruppo sono accessibili ai membri,
+ *       una sola volta anche se condivise anche direttamente</li>
+ *   <li>{@code shouldFollowMembershipWithoutRefresh} – Un nuovo membro vede le note senza ricalcolare gli accessi</li>
+ * </ul>
+ */
+@DataJpaTest
+@DisplayName("NoteGroupAccessRepository - Test degli accessi tramite gruppo")
+class NoteGroupAccessRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NoteGroupAccessRepository noteGroupAccessRepository;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    private User bob;
+    private User dave;
+    private Gruppo team;
+    private Gruppo editors;
+    private Note readShared;
+    private Note writeShared;
+
+    @BeforeEach
+    void setUp() {
+        User alice = entityManager.persistAndFlush(new User("alice", "password123"));
+        bob = entityManager.persistAndFlush(new User("bob", "password123"));
+        User carol = entityManager.persistAndFlush(new User("carol", "password123"));
+        dave = entityManager.persistAndFlush(new User("dave", "password123"));
+
+        team = new Gruppo("team", alice);
+        team.getMembri().add(bob);
+        team.getMembri().add(carol);
+        team = entityManager.persistAndFlush(team);
+        editors = entityManager.persistAndFlush(new Gruppo("editors", carol));
+
+        readShared = persist(new Note("Riunione", "Ordine del giorno", alice), TipoPermesso.CONDIVISA_LETTURA,
+                Set.of(team), Set.of());
+        readShared.getLettori().add(bob);
+        readShared = entityManager.persistAndFlush(readShared);
+        writeShared = persist(new Note("Lista", "Latte e pane", alice), TipoPermesso.CONDIVISA_SCRITTURA,
+                Set.of(), Set.of(editors));
+        persist(new Note("Diario", "Privato", alice), TipoPermesso.PRIVATA, Set.of(team), Set.of());
+
+        noteAccessRepository.rebuildAll();
+    }
+
+    @Test
+    void shouldMaterializeOneRowPerGroup() {
+        int rows = noteGroupAccessRepository.rebuildAll();
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(level(team, readShared)).isEqualTo(LivelloAccesso.LETTURA);
+        assertThat(level(editors, writeShared)).isEqualTo(LivelloAccesso.SCRITTURA);
+        assertThat(noteGroupAccessRepository.findAclRows(readShared.getId())).hasSize(1);
+    }
+
+    @Test
+    void shouldFindNotesSharedWithGroupOnce() {
+        noteGroupAccessRepository.rebuildAll();
+        entityManager.clear();
+
+        assertThat(noteRepository.findAllAccessibleNotes("bob")).extracting(Note::getId)
+                .containsExactly(readShared.getId());
+        assertThat(noteRepository.findAllAccessibleNotes("carol")).extracting(Note::getId)
+                .containsExactlyInAnyOrder(readShared.getId(), writeShared.getId());
+        assertThat(noteRepository.countSharedNotes("carol")).isEqualTo(2);
+        assertThat(noteRepository.findAll(NoteSpecifications.accessibleTo("carol"))).hasSize(2);
+        assertThat(noteRepository.findAllAccessibleNotes("dave")).isEmpty();
+    }
+
+    @Test
+    void shouldFollowMembershipWithoutRefresh() {
+        noteGroupAccessRepository.rebuildAll();
+        long rowsBefore = noteGroupAccessRepository.count() + noteAccessRepository.count();
+
+        Gruppo gruppo = entityManager.find(Gruppo.class, team.getId());
+        gruppo.getMembri().add(dave);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(noteRepository.findAllAccessibleNotes("dave")).extracting(Note::getId)
+                .containsExactly(readShared.getId());
+        assertThat(noteGroupAccessRepository.count() + noteAccessRepository.count()).isEqualTo(rowsBefore);
+    }
+
+    private Note persist(Note note, TipoPermesso tipoPermesso, Set<Gruppo> lettura, Set<Gruppo> scrittura) {
+        note.setTipoPermesso(tipoPermesso);
+        note.setGruppiLettura(new HashSet<>(lettura));
+        note.setGruppiScrittura(new HashSet<>(scrittura));
+        return entityManager.persistAndFlush(note);
+    }
+
+    private LivelloAccesso level(Gruppo gruppo, Note note) {
+        return noteGroupAccessRepository.findById(new NoteGroupAccess.Key(gruppo.getId(), note.getId()))
+                .map(NoteGroupAccess::getLivello)
+                .orElse(null);
+    }
+}
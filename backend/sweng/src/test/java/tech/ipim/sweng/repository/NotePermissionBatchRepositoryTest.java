@@ -0,0 +1,97 @@
+package tech.ipim.sweng.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NotePermissionBatchRepository.Tabella;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NotePermissionBatchRepository}: scrittura in batch dei permessi
+ * di più note e ricalcolo della tabella degli accessi per le stesse note.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldInsertAndDeletePermissionRowsInBatch} – Inserimenti e cancellazioni in batch sulle tabelle dei permessi</li>
+ *   <li>{@code shouldShareManyNotesAndRefreshAccess} – Le note condivise diventano accessibili dopo il ricalcolo</li>
+ * </ul>
+ */
+@DataJpaTest
+@Import(NotePermissionBatchRepository.class)
+@DisplayName("NotePermissionBatchRepository - Test scrittura in batch dei permessi")
+class NotePermissionBatchRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NotePermissionBatchRepository permissionBatchRepository;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    private User bob;
+    private User carol;
+    private Note first;
+    private Note second;
+
+    @BeforeEach
+    void setUp() {
+        User alice = entityManager.persistAndFlush(new User("alice", "password123"));
+        bob = entityManager.persistAndFlush(new User("bob", "password123"));
+        carol = entityManager.persistAndFlush(new User("carol", "password123"));
+        first = entityManager.persistAndFlush(new Note("Lista", "Latte e pane", alice));
+        second = entityManager.persistAndFlush(new Note("Riunione", "Ordine del giorno", alice));
+        noteAccessRepository.rebuildAll();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldInsertAndDeletePermissionRowsInBatch() {
+        permissionBatchRepository.insert(Tabella.LETTURA, List.of(
+                new long[]{first.getId(), bob.getId()},
+                new long[]{first.getId(), carol.getId()},
+                new long[]{second.getId(), bob.getId()}));
+        permissionBatchRepository.delete(Tabella.LETTURA, List.<long[]>of(new long[]{first.getId(), carol.getId()}));
+
+        Map<Long, Set<Long>> readers = permissionBatchRepository.findPrincipalIds(Tabella.LETTURA, List.of(first.getId(), second.getId()));
+        assertThat(readers).containsOnlyKeys(first.getId(), second.getId());
+        assertThat(readers.get(first.getId())).containsExactly(bob.getId());
+        assertThat(permissionBatchRepository.findPrincipalIds(Tabella.SCRITTURA, List.of(first.getId()))).isEmpty();
+    }
+
+    @Test
+    void shouldShareManyNotesAndRefreshAccess() {
+        List<Long> noteIds = List.of(first.getId(), second.getId());
+        permissionBatchRepository.insert(Tabella.SCRITTURA, List.of(
+                new long[]{first.getId(), bob.getId()},
+                new long[]{second.getId(), bob.getId()}));
+        int updated = permissionBatchRepository.updateTipoPermesso(noteIds, TipoPermesso.CONDIVISA_SCRITTURA, LocalDateTime.now());
+        noteAccessRepository.refresh(noteIds);
+        entityManager.clear();
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(noteRepository.findAllAccessibleNotes("bob")).hasSize(2);
+        assertThat(noteRepository.findAllAccessibleNotes("carol")).isEmpty();
+        Note reloaded = noteRepository.findById(first.getId()).orElseThrow();
+        assertThat(reloaded.getTipoPermesso()).isEqualTo(TipoPermesso.CONDIVISA_SCRITTURA);
+        assertThat(reloaded.hasWriteAccess("bob")).isTrue();
+    }
+}
@@ -5,10 +5,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import tech.ipim.sweng.dto.NoteCursor;
 import tech.ipim.sweng.model.Note;
 import tech.ipim.sweng.model.User;
 import tech.ipim.sweng.model.TipoPermesso;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -32,8 +36,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  *   <li>{@code shouldFindAccessibleNoteById} – Verifica il recupero di una nota per ID se accessibile dall’utente</li>
  *   <li>{@code shouldNotFindPrivateNoteForNonOwner} – Verifica che una nota privata non sia accessibile da altri utenti</li>
  *   <li>{@code shouldFindSharedNoteForAuthorizedUser} – Verifica accesso a nota condivisa per un utente autorizzato</li>
- *   <li>{@code shouldSearchNotesByKeyword} – Ricerca note per parola chiave nel titolo o contenuto</li>
- *   <li>{@code shouldSearchNotesInTitleAndContent} – Ricerca combinata nel titolo e nel contenuto</li>
+ *   <li>{@code shouldFindAccessibleIds} – Id di tutte le note accessibili all'utente, per filtrare i risultati della ricerca</li>
+ *   <li>{@code shouldFindAccessibleSuggestionSources} – Titoli, tag e cartelle delle sole note accessibili per l'autocompletamento</li>
+ *   <li>{@code shouldReadSearchableContentByIdRange} – Lettura a blocchi di id per la reindicizzazione</li>
  *   <li>{@code shouldFindNotesByTag} – Filtra le note per tag associati</li>
  *   <li>{@code shouldFindNotesByCartella} – Filtra le note per nome di cartella</li>
  *   <li>{@code shouldCountNotesByAutore} – Conta quante note appartengono a un autore</li>
@@ -42,6 +47,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  *   <li>{@code shouldFindAllCartelleByUser} – Recupera tutte le cartelle associate a note di un utente</li>
  *   <li>{@code shouldFindSharedNotesForUser} – Recupera tutte le note condivise accessibili per un utente specifico</li>
  *   <li>{@code shouldNotFindNotesForUserWithoutAccess} – Verifica che un utente senza permessi non visualizzi alcuna nota</li>
+ *   <li>{@code shouldPageWithCursorInStableOrder} – Paginazione con cursore stabile anche tra note con la stessa data di modifica</li>
+ *   <li>{@code shouldChangeWatermarkWhenAccessibleNoteChanges} – Il watermark degli elenchi cambia con le modifiche delle note accessibili</li>
+ *   <li>{@code shouldReadVersionOnlyForAccessibleNote} – Versione di una nota letta solo se accessibile all'utente</li>
  * </ul>
  */
 
@@ -54,6 +62,9 @@ class NoteRepositoryTest {
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
     private User testUser1;
     private User testUser2;
     private Note privateNote;
@@ -83,11 +94,12 @@ class NoteRepositoryTest {
         // Crea nota condivisa
         sharedNote = new Note("Nota Condivisa", "Contenuto condiviso di test", testUser1);
         sharedNote.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
-        sharedNote.setPermessiLettura(Set.of("testuser2"));
+        sharedNote.setLettori(new HashSet<>(Set.of(testUser2)));
         sharedNote.setTags(Set.of("condiviso", "team"));
         sharedNote.setCartelle(Set.of("Progetti Condivisi"));
         sharedNote = entityManager.persistAndFlush(sharedNote);
 
+        noteAccessRepository.rebuildAll();
         entityManager.clear();
     }
 
@@ -177,34 +189,59 @@ class NoteRepositoryTest {
     }
 
     /**
-     * Verifica la ricerca di note per parola chiave.
+     * Verifica che gli id accessibili siano quelli delle note proprie e condivise con l'utente.
      */
 
     @Test
-    void shouldSearchNotesByKeyword() {
+    void shouldFindAccessibleIds() {
         // When
-        List<Note> notes = noteRepository.searchNotesByKeyword("testuser1", "privato");
+        List<Long> ownerIds = noteRepository.findAccessibleIds("testuser1");
+        List<Long> otherIds = noteRepository.findAccessibleIds("testuser2");
 
         // Then
-        assertThat(notes).hasSize(1);
-        assertThat(notes.get(0).getTitolo()).isEqualTo("Nota Privata");
+        assertThat(ownerIds).containsExactlyInAnyOrder(privateNote.getId(), sharedNote.getId());
+        assertThat(otherIds).containsExactly(sharedNote.getId());
     }
 
     /**
-     * Verifica ricerca di note per keyword sia nel titolo che nel contenuto.
+     * Verifica che titoli e tag per l'autocompletamento provengano solo dalle note accessibili
+     * e le cartelle solo dalle note proprie.
      */
 
     @Test
-    void shouldSearchNotesInTitleAndContent() {
-        // When - cerca nel titolo
-        List<Note> notesByTitle = noteRepository.searchNotesByKeyword("testuser1", "Condivisa");
+    void shouldFindAccessibleSuggestionSources() {
+        // When
+        List<Object[]> titles = noteRepository.findAccessibleTitles("testuser2");
+        List<Object[]> tags = noteRepository.findAccessibleTags("testuser2");
+        List<Object[]> cartelle = noteRepository.findOwnCartelle("testuser2");
+
+        // Then
+        assertThat(titles).extracting(row -> row[1]).containsExactly("Nota Condivisa");
+        assertThat(tags).extracting(row -> row[1]).containsExactlyInAnyOrder("condiviso", "team");
+        assertThat(cartelle).isEmpty();
+        assertThat(noteRepository.findOwnCartelle("testuser1")).extracting(row -> row[1]).contains("Progetti Condivisi");
+        assertThat(noteRepository.findAccessibleTags("testuser1")).hasSize(4);
+    }
+
+    /**
+     * Verifica la lettura per intervallo di id usata dalla reindicizzazione a blocchi.
+     */
 
-        // When - cerca nel contenuto
-        List<Note> notesByContent = noteRepository.searchNotesByKeyword("testuser1", "condiviso");
+    @Test
+    void shouldReadSearchableContentByIdRange() {
+        // When
+        Long minId = noteRepository.findMinId();
+        Long maxId = noteRepository.findMaxId();
+        List<Object[]> firstBlock = noteRepository.findSearchableContentByIdBetween(minId, minId);
+        List<Object[]> tags = noteRepository.findTagPairsByIdBetween(minId, maxId);
+        List<Object[]> cartelle = noteRepository.findCartellaPairsByIdBetween(maxId, maxId);
 
         // Then
-        assertThat(notesByTitle).hasSize(1);
-        assertThat(notesByContent).hasSize(1);
+        assertThat(minId).isEqualTo(privateNote.getId());
+        assertThat(maxId).isEqualTo(sharedNote.getId());
+        assertThat(firstBlock).extracting(row -> row[1]).containsExactly("Nota Privata");
+        assertThat(tags).hasSize(4);
+        assertThat(cartelle).extracting(row -> row[1]).containsExactly("Progetti Condivisi");
     }
 
     /**
@@ -317,4 +354,69 @@ class NoteRepositoryTest {
         // Then
         assertThat(notes).isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Verifica che le pagine lette con il cursore coprano tutte le note una sola volta,
+     * ordinate per id decrescente quando la data di modifica coincide.
+     */
+
+    @Test
+    void shouldPageWithCursorInStableOrder() {
+        // Given - tre note in più, tutte con la stessa data di modifica
+        for (int i = 1; i <= 3; i++) {
+            entityManager.persist(new Note("Nota " + i, "Contenuto " + i, entityManager.find(User.class, testUser1.getId())));
+        }
+        entityManager.flush();
+        entityManager.getEntityManager().createQuery("UPDATE Note n SET n.dataModifica = :data")
+                .setParameter("data", LocalDateTime.of(2024, 1, 15, 10, 30))
+                .executeUpdate();
+        entityManager.clear();
+
+        // When
+        List<Long> seen = new ArrayList<>();
+        NoteCursor cursor = null;
+        int pages = 0;
+        do {
+            var spec = NoteSpecifications.hasAutore("testuser1");
+            List<NoteCursor> page = noteRepository.findKeys(cursor == null ? spec : spec.and(NoteSpecifications.before(cursor)), 2);
+            page.forEach(key -> seen.add(key.getId()));
+            cursor = page.size() < 2 ? null : page.get(page.size() - 1);
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void shouldChangeWatermarkWhenAccessibleNoteChanges() {
+        // Given
+        Object[] before = noteRepository.findAccessibleWatermark("testuser2").get(0);
+
+        // When - modifica della nota condivisa con testuser2
+        entityManager.getEntityManager().createQuery("UPDATE Note n SET n.dataModifica = :data WHERE n.id = :id")
+                .setParameter("data", LocalDateTime.now().plusDays(1))
+                .setParameter("id", sharedNote.getId())
+                .executeUpdate();
+        Object[] after = noteRepository.findAccessibleWatermark("testuser2").get(0);
+
+        // Then
+        assertThat(before[0]).isEqualTo(1L);
+        assertThat(after[0]).isEqualTo(1L);
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    void shouldReadVersionOnlyForAccessibleNote() {
+        // When
+        List<Object[]> owner = noteRepository.findAccessibleVersion(privateNote.getId(), "testuser1");
+        List<Object[]> other = noteRepository.findAccessibleVersion(privateNote.getId(), "testuser2");
+
+        // Then
+        assertThat(owner).hasSize(1);
+        assertThat(owner.get(0)[0]).isEqualTo(privateNote.getVersionNumber());
+        assertThat(other).isEmpty();
+    }
+}
@@ -0,0 +1,192 @@
+package tech.ipim.sweng.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NoteSpecifications}: verifica che i filtri di
+ * {@code GET /api/notes} vengano combinati in un'unica query insieme ai permessi.
+ * <p>
+ * Dati di test: "alice" ha tre note (una privata, una condivisa in lettura con "bob",
+ * una condivisa in scrittura con "bob"), "bob" ha una nota privata.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldApplyAccessPredicateWithoutFilters} – Senza filtri restituisce solo le note accessibili</li>
+ *   <li>{@code shouldApplyOwnAndSharedScope} – Gli ambiti own e shared separano note proprie e condivise</li>
+ *   <li>{@code shouldCombineTagAndCartella} – Tag e cartella sono combinati in AND</li>
+ *   <li>{@code shouldCombineAutoreAndDateRange} – Autore e intervallo di date sono combinati in AND</li>
+ *   <li>{@code shouldIncludeWholeEndDay} – La data di fine include l'intero giorno</li>
+ *   <li>{@code shouldCombineAllFiltersWithScope} – Ambito, tag, cartella, autore e date insieme</li>
+ *   <li>{@code shouldApplyAnyAndNotTags} – Tag alternativi (OR) ed esclusi (NOT) combinati con i permessi</li>
+ *   <li>{@code shouldRestrictToCandidateIds} – Gli id del motore di ricerca si combinano con gli altri filtri</li>
+ * </ul>
+ */
+@DataJpaTest
+class NoteSpecificationsTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    private Note alicePrivate;
+    private Note aliceReadShared;
+    private Note aliceWriteShared;
+    private Note bobPrivate;
+
+    @BeforeEach
+    void setUp() {
+        User alice = entityManager.persistAndFlush(new User("alice", "password123"));
+        User bob = entityManager.persistAndFlush(new User("bob", "password123"));
+
+        alicePrivate = persist(new Note("Budget privato", "Spese", alice), TipoPermesso.PRIVATA,
+                Set.of(), Set.of(), Set.of("lavoro"), Set.of("Finanze"), LocalDateTime.of(2025, 1, 10, 9, 0));
+        aliceReadShared = persist(new Note("Riunione", "Ordine del giorno", alice), TipoPermesso.CONDIVISA_LETTURA,
+                Set.of(bob), Set.of(), Set.of("lavoro", "team"), Set.of("Progetti"), LocalDateTime.of(2025, 2, 15, 23, 30));
+        aliceWriteShared = persist(new Note("Lista", "Latte e pane", alice), TipoPermesso.CONDIVISA_SCRITTURA,
+                Set.of(), Set.of(bob), Set.of("casa"), Set.of("Progetti"), LocalDateTime.of(2025, 3, 1, 12, 0));
+        bobPrivate = persist(new Note("Appunti di bob", "Privati", bob), TipoPermesso.PRIVATA,
+                Set.of(), Set.of(), Set.of("lavoro"), Set.of("Progetti"), LocalDateTime.of(2025, 2, 1, 8, 0));
+
+        noteAccessRepository.rebuildAll();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldApplyAccessPredicateWithoutFilters() {
+        assertThat(titles("alice", new NoteFilter())).containsExactlyInAnyOrder("Budget privato", "Riunione", "Lista");
+        assertThat(titles("bob", new NoteFilter())).containsExactlyInAnyOrder("Riunione", "Lista", "Appunti di bob");
+    }
+
+    @Test
+    void shouldApplyOwnAndSharedScope() {
+        NoteFilter own = new NoteFilter();
+        own.setFilter("own");
+        NoteFilter shared = new NoteFilter();
+        shared.setFilter("shared");
+
+        assertThat(titles("bob", own)).containsExactly("Appunti di bob");
+        assertThat(titles("bob", shared)).containsExactlyInAnyOrder("Riunione", "Lista");
+        assertThat(titles("alice", shared)).isEmpty();
+    }
+
+    @Test
+    void shouldCombineTagAndCartella() {
+        NoteFilter filter = new NoteFilter();
+        filter.setTags(List.of("lavoro"));
+        filter.setCartella("Progetti");
+
+        assertThat(titles("alice", filter)).containsExactly("Riunione");
+        assertThat(titles("bob", filter)).containsExactlyInAnyOrder("Riunione", "Appunti di bob");
+    }
+
+    @Test
+    void shouldCombineAutoreAndDateRange() {
+        NoteFilter filter = new NoteFilter();
+        filter.setAutore("alice");
+        filter.setDataInizio(LocalDate.of(2025, 2, 1));
+        filter.setDataFine(LocalDate.of(2025, 3, 31));
+
+        assertThat(titles("bob", filter)).containsExactlyInAnyOrder("Riunione", "Lista");
+        assertThat(titles("alice", filter)).containsExactlyInAnyOrder("Riunione", "Lista");
+    }
+
+    @Test
+    void shouldIncludeWholeEndDay() {
+        NoteFilter filter = new NoteFilter();
+        filter.setDataInizio(LocalDate.of(2025, 2, 15));
+        filter.setDataFine(LocalDate.of(2025, 2, 15));
+
+        assertThat(titles("alice", filter)).containsExactly("Riunione");
+    }
+
+    @Test
+    void shouldCombineAllFiltersWithScope() {
+        NoteFilter filter = new NoteFilter();
+        filter.setFilter("shared");
+        filter.setTags(List.of("lavoro"));
+        filter.setCartella("Progetti");
+        filter.setAutore("alice");
+        filter.setDataInizio(LocalDate.of(2025, 1, 1));
+        filter.setDataFine(LocalDate.of(2025, 12, 31));
+
+        assertThat(titles("bob", filter)).containsExactly("Riunione");
+
+        filter.setTags(List.of("casa"));
+        assertThat(titles("bob", filter)).containsExactly("Lista");
+
+        filter.setFilter("own");
+        assertThat(titles("bob", filter)).isEmpty();
+    }
+
+    @Test
+    void shouldApplyAnyAndNotTags() {
+        NoteFilter filter = new NoteFilter();
+        filter.setAnyTags(List.of("team", "casa"));
+        assertThat(titles("bob", filter)).containsExactlyInAnyOrder("Riunione", "Lista");
+
+        filter.setNotTags(List.of("lavoro"));
+        assertThat(titles("bob", filter)).containsExactly("Lista");
+
+        NoteFilter onlyNot = new NoteFilter();
+        onlyNot.setNotTags(List.of("lavoro"));
+        assertThat(titles("alice", onlyNot)).containsExactly("Lista");
+    }
+
+    @Test
+    void shouldRestrictToCandidateIds() {
+        NoteFilter filter = new NoteFilter();
+        filter.setTags(List.of("lavoro"));
+
+        List<Note> notes = noteRepository.findAll(NoteSpecifications.fromFilter("bob", filter)
+                .and(NoteSpecifications.idIn(List.of(alicePrivate.getId(), aliceReadShared.getId(), aliceWriteShared.getId()))));
+
+        assertThat(notes).extracting(Note::getTitolo).containsExactly("Riunione");
+    }
+
+    private List<String> titles(String username, NoteFilter filter) {
+        return noteRepository.findAll(NoteSpecifications.fromFilter(username, filter), Sort.by("titolo")).stream()
+                .map(Note::getTitolo)
+                .toList();
+    }
+
+    private Note persist(Note note, TipoPermesso tipoPermesso, Set<User> lettura, Set<User> scrittura,
+                         Set<String> tags, Set<String> cartelle, LocalDateTime dataCreazione) {
+        note.setTipoPermesso(tipoPermesso);
+        note.setLettori(new HashSet<>(lettura));
+        note.setScrittori(new HashSet<>(scrittura));
+        note.setTags(tags);
+        note.setCartelle(cartelle);
+        Note saved = entityManager.persistAndFlush(note);
+
+        // @PrePersist imposta la data corrente: l'update JPQL la sostituisce senza passare da @PreUpdate
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Note n SET n.dataCreazione = :data, n.dataModifica = :data WHERE n.id = :id")
+                .setParameter("data", dataCreazione)
+                .setParameter("id", saved.getId())
+                .executeUpdate();
+        return saved;
+    }
+}
@@ -0,0 +1,189 @@
+package tech.ipim.sweng.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test unitari per {@link IndexSegmentStore}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldRestoreSegmentAndJournal} – Al riavvio il segmento viene letto e il journal riapplicato</li>
+ *   <li>{@code shouldNotStoreNoteText} – Segmento e journal contengono i termini, non il testo delle note</li>
+ *   <li>{@code shouldDiscardTornJournalTail} – Una voce troncata viene scartata e il journal resta utilizzabile</li>
+ *   <li>{@code shouldCompactJournalIntoNewSegment} – La compattazione fonde segmento e journal e cancella i vecchi file</li>
+ *   <li>{@code shouldFailWithoutSegment} – Senza segmento il ripristino fallisce</li>
+ *   <li>{@code shouldReplaceUnreadableSegment} – Un nuovo segmento sostituisce anche uno illeggibile di generazione più alta</li>
+ *   <li>{@code shouldCreateDirectoryForOwnerOnly} – La cartella degli indici è accessibile solo al proprietario</li>
+ * </ul>
+ */
+@DisplayName("IndexSegmentStore - Test segmenti e journal degli indici su disco")
+class IndexSegmentStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    private IndexSegmentStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new IndexSegmentStore(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void shouldRestoreSegmentAndJournal() throws IOException {
+        store.writeSegment(List.of(note(1L, "Riunione"), note(2L, "Spesa")), 1000L);
+        store.appendPut(note(3L, "Palestra"));
+        store.appendPut(note(1L, "Riunione spostata"));
+        store.appendRemove(2L);
+        store.close();
+
+        IndexSegmentStore reopened = new IndexSegmentStore(directory);
+        Map<Long, TokenizedNote> restored = new LinkedHashMap<>();
+        long watermark = reopened.restore(collector(restored));
+        reopened.close();
+
+        assertThat(restored.keySet()).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(restored.get(1L).getTerms()).isEqualTo(note(1L, "Riunione spostata").getTerms());
+        assertThat(restored.get(1L).getOccurrences().get("spostata"))
+                .containsExactly(note(1L, "Riunione spostata").getOccurrences().get("spostata"));
+        assertThat(restored.get(3L).getTags()).containsExactly("tag3");
+        assertThat(restored.get(3L).getCartelle()).containsExactly("Lavoro");
+        assertThat(watermark).isGreaterThan(1000L);
+    }
+
+    @Test
+    void shouldDiscardTornJournalTail() throws IOException {
+        store.writeSegment(List.of(note(1L, "Riunione")), 1000L);
+        store.appendPut(note(2L, "Spesa"));
+        store.close();
+        Path journal = onlyFile("journal-");
+        Files.write(journal, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        IndexSegmentStore reopened = new IndexSegmentStore(directory);
+        Map<Long, TokenizedNote> restored = new LinkedHashMap<>();
+        reopened.restore(collector(restored));
+        reopened.appendPut(note(3L, "Palestra"));
+        reopened.close();
+
+        Map<Long, TokenizedNote> again = new LinkedHashMap<>();
+        IndexSegmentStore third = new IndexSegmentStore(directory);
+        third.restore(collector(again));
+        third.close();
+
+        assertThat(restored.keySet()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(again.keySet()).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void shouldCompactJournalIntoNewSegment() throws IOException {
+        store.writeSegment(List.of(note(1L, "Riunione"), note(2L, "Spesa")), 1000L);
+        store.appendPut(note(3L, "Palestra"));
+        store.appendRemove(1L);
+
+        store.compact();
+        store.appendPut(note(4L, "Viaggio"));
+        store.close();
+
+        assertThat(onlyFile("segment-").getFileName().toString()).isEqualTo("segment-000000000002.seg");
+        Map<Long, TokenizedNote> restored = new LinkedHashMap<>();
+        IndexSegmentStore reopened = new IndexSegmentStore(directory);
+        reopened.restore(collector(restored));
+        assertThat(reopened.journalEntries()).isEqualTo(1);
+        reopened.close();
+
+        assertThat(restored.keySet()).containsExactlyInAnyOrder(2L, 3L, 4L);
+    }
+
+    @Test
+    void shouldFailWithoutSegment() throws IOException {
+        assertThat(store.hasSegment()).isFalse();
+        assertThatThrownBy(() -> store.restore(collector(new LinkedHashMap<>())))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldNotStoreNoteText() throws IOException {
+        store.writeSegment(List.of(note(1L, "Riunione di progetto")), 1000L);
+        store.appendPut(note(2L, "Lista della spesa"));
+        store.close();
+
+        for (String prefix : List.of("segment-", "journal-")) {
+            String content = new String(Files.readAllBytes(onlyFile(prefix)), StandardCharsets.UTF_8);
+            assertThat(content).doesNotContain("Riunione di progetto").doesNotContain("Lista della spesa");
+        }
+    }
+
+    @Test
+    void shouldReplaceUnreadableSegment() throws IOException {
+        Files.write(directory.resolve("segment-000000000005.seg"), new byte[]{1, 2, 3});
+        store.writeSegment(List.of(note(1L, "Riunione")), 1000L);
+        store.close();
+
+        assertThat(onlyFile("segment-").getFileName().toString()).isEqualTo("segment-000000000006.seg");
+        Map<Long, TokenizedNote> restored = new LinkedHashMap<>();
+        IndexSegmentStore reopened = new IndexSegmentStore(directory);
+        reopened.restore(collector(restored));
+        reopened.close();
+
+        assertThat(restored.keySet()).containsExactly(1L);
+    }
+
+    @Test
+    void shouldCreateDirectoryForOwnerOnly() throws IOException {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path nested = directory.resolve("indici");
+        new IndexSegmentStore(nested).close();
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(nested))).isEqualTo("rwx------");
+    }
+
+    private Path onlyFile(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> matching = files.filter(file -> file.getFileName().toString().startsWith(prefix)).toList();
+            assertThat(matching).hasSize(1);
+            return matching.get(0);
+        }
+    }
+
+    private static TokenizedNote note(long id, String titolo) {
+        return TokenizedNote.of(new IndexedNote(id, titolo, "Contenuto " + id, List.of("tag" + id), List.of("Lavoro")));
+    }
+
+    private static IndexSegmentStore.Visitor collector(Map<Long, TokenizedNote> notes) {
+        return new IndexSegmentStore.Visitor() {
+            @Override
+            public void put(TokenizedNote note) {
+                notes.put(note.getId(), note);
+            }
+
+            @Override
+            public void remove(long noteId) {
+                notes.remove(noteId);
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package tech.ipim.sweng.search;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test unitari per {@link InvertedIndex} e {@link TextTokenizer}.
+ * <p>
+ * Verificano tokenizzazione, ricerca per prefisso, intersezione tra più parole
+ * e aggiornamento incrementale (reindicizzazione e rimozione di documenti).
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldTokenizeAndNormalizeText} – Divisione in parole, minuscolo e rimozione accenti</li>
+ *   <li>{@code shouldFindDocumentsByWord} – Ricerca di una parola nel titolo o nel contenuto</li>
+ *   <li>{@code shouldMatchWordPrefix} – Una parola della query trova i termini con quel prefisso</li>
+ *   <li>{@code shouldIntersectMultipleWords} – Più parole vengono combinate in AND</li>
+ *   <li>{@code shouldReindexDocument} – Reindicizzare un documento sostituisce i vecchi termini</li>
+ *   <li>{@code shouldRemoveDocument} – La rimozione elimina il documento e i termini orfani</li>
+ *   <li>{@code shouldReturnEmptyForBlankQuery} – Query senza parole restituisce insieme vuoto</li>
+ *   <li>{@code shouldRankByTermFrequency} – La ricerca ordinata privilegia i documenti con più occorrenze</li>
+ *   <li>{@code shouldRankOnlyDocumentsMatchingAllWords} – La ricerca ordinata mantiene l'AND tra le parole</li>
+ *   <li>{@code shouldTokenizeWithOriginalOffsets} – Gli offset dei token si riferiscono al testo originale</li>
+ *   <li>{@code shouldReturnMatchPositionsFromPostings} – Le occorrenze di una nota vengono lette dall'indice</li>
+ * </ul>
+ */
+@DisplayName("InvertedIndex - Test indice invertito delle note")
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        index.index(1L, "Riunione di progetto", "Discutere il budget del progetto Alfa");
+        index.index(2L, "Lista della spesa", "Latte, pane e caffè");
+        index.index(3L, "Programma settimanale", "Palestra lunedì e riunione venerdì");
+    }
+
+    @Test
+    void shouldTokenizeAndNormalizeText() {
+        assertThat(TextTokenizer.tokenize("Perché NON funziona? Caffè-latte, 2025!"))
+                .containsExactly("perche", "non", "funziona", "caffe", "latte", "2025");
+        assertThat(TextTokenizer.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void shouldFindDocumentsByWord() {
+        assertThat(index.search("budget")).containsExactly(1L);
+        assertThat(index.search("Riunione")).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("caffe")).containsExactly(2L);
+    }
+
+    @Test
+    void shouldMatchWordPrefix() {
+        assertThat(index.search("prog")).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("inesistente")).isEmpty();
+    }
+
+    @Test
+    void shouldIntersectMultipleWords() {
+        assertThat(index.search("riunione progetto")).containsExactly(1L);
+        assertThat(index.search("riunione spesa")).isEmpty();
+    }
+
+    @Test
+    void shouldReindexDocument() {
+        index.index(2L, "Lista aggiornata", "Solo acqua");
+
+        assertThat(index.search("latte")).isEmpty();
+        assertThat(index.search("acqua")).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRemoveDocument() {
+        int termsBefore = index.termCount();
+
+        index.remove(2L);
+
+        assertThat(index.contains(2L)).isFalse();
+        assertThat(index.search("spesa")).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.termCount()).isLessThan(termsBefore);
+    }
+
+    @Test
+    void shouldReturnEmptyForBlankQuery() {
+        assertThat(index.search("   ")).isEmpty();
+        assertThat(index.search("?!")).isEmpty();
+    }
+
+    @Test
+    void shouldRankByTermFrequency() {
+        assertThat(index.searchRanked("prog")).containsExactly(1L, 3L);
+        assertThat(index.searchRanked("riunione")).hasSize(2);
+    }
+
+    @Test
+    void shouldRankOnlyDocumentsMatchingAllWords() {
+        assertThat(index.searchRanked("riunione venerdi")).containsExactly(3L);
+        assertThat(index.searchRanked("riunione latte")).isEmpty();
+        assertThat(index.searchRanked("   ")).isEmpty();
+    }
+
+    @Test
+    void shouldTokenizeWithOriginalOffsets() {
+        List<TextTokenizer.Token> tokens = TextTokenizer.tokenizeWithOffsets("Caffè, perché no?");
+
+        assertThat(tokens).extracting(TextTokenizer.Token::getTerm).containsExactly("caffe", "perche", "no");
+        assertThat(tokens).extracting(TextTokenizer.Token::getStart).containsExactly(0, 7, 14);
+        assertThat(tokens).extracting(TextTokenizer.Token::getEnd).containsExactly(5, 13, 16);
+    }
+
+    @Test
+    void shouldReturnMatchPositionsFromPostings() {
+        assertThat(index.matches(1L, "prog budget")).containsExactly(
+                new TermMatch(0, 12, 20),
+                new TermMatch(1, 13, 19),
+                new TermMatch(1, 24, 32));
+        assertThat(index.matches(2L, "caffe")).containsExactly(new TermMatch(1, 14, 19));
+        assertThat(index.matches(2L, "riunione")).isEmpty();
+        assertThat(index.matches(99L, "riunione")).isEmpty();
+    }
+}
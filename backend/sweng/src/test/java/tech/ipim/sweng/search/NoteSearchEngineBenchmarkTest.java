@@ -0,0 +1,114 @@
+package tech.ipim.sweng.search;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark di confronto tra {@link InMemoryNoteSearchEngine} e {@link PostgresNoteSearchEngine}.
+ * <p>
+ * Popola un database PostgreSQL (Testcontainers) con un dataset sintetico di note,
+ * di default 1.000.000, costruisce l'indice in memoria sugli stessi dati e misura
+ * il tempo medio delle stesse query sui due motori.
+ * <p>
+ * Il benchmark è disattivato nella build normale perché richiede Docker e diversi minuti.
+ * Per eseguirlo:
+ * <pre>
+ * mvn test -Dtest=NoteSearchEngineBenchmarkTest -Dbenchmark=true [-Dbenchmark.notes=1000000]
+ * </pre>
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("NoteSearchEngine - Benchmark motore in memoria vs PostgreSQL")
+class NoteSearchEngineBenchmarkTest {
+
+    private static final int NOTE_COUNT = Integer.getInteger("benchmark.notes", 1_000_000);
+    private static final int ITERATIONS = 20;
+    private static final List<String> QUERIES = List.of("progetto", "riunione budget", "prog", "lista spesa", "scadenza cliente");
+
+    private static final String WORDS = "ARRAY['progetto','riunione','budget','cliente','scadenza','lista','spesa',"
+            + "'latte','pane','caffe','palestra','lunedi','venerdi','programma','relazione','esame','universita',"
+            + "'lezione','appunti','ricetta','viaggio','treno','albergo','prenotazione','fattura','pagamento',"
+            + "'bolletta','medico','farmacia','compleanno','regalo','libro','film','musica','concerto','calcio',"
+            + "'allenamento','dieta','verdura','frutta','ufficio','collega','presentazione','slide','codice',"
+            + "'server','database','backup','password','vacanza']";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static PostgresNoteSearchEngine postgresEngine;
+    private static InMemoryNoteSearchEngine memoryEngine;
+
+    @BeforeAll
+    static void seedDataset() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("CREATE TABLE notes (id BIGINT PRIMARY KEY, titolo VARCHAR(100) NOT NULL, contenuto VARCHAR(280) NOT NULL)");
+        jdbcTemplate.update("INSERT INTO notes (id, titolo, contenuto) "
+                + "SELECT g, "
+                + "  w[1 + mod(hashint8(g)::bigint + 2147483648, 50)::int] || ' ' || w[1 + mod(hashint8(-g)::bigint + 2147483648, 50)::int], "
+                + "  (SELECT string_agg(w[1 + mod(hashint8(g * 100 + k)::bigint + 2147483648, 50)::int], ' ') FROM generate_series(1, 20) k) "
+                + "FROM generate_series(1, ?) g, (SELECT " + WORDS + " AS w) words", NOTE_COUNT);
+        System.out.println("Dataset: " + NOTE_COUNT + " note inserite in " + (System.currentTimeMillis() - start) + " ms");
+
+        start = System.currentTimeMillis();
+        postgresEngine = new PostgresNoteSearchEngine(jdbcTemplate, "simple");
+        postgresEngine.initialize();
+        jdbcTemplate.execute("ANALYZE notes");
+        System.out.println("PostgreSQL: tsvector + indice GIN creati in " + (System.currentTimeMillis() - start) + " ms");
+
+        start = System.currentTimeMillis();
+        memoryEngine = new InMemoryNoteSearchEngine();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(10_000);
+                try (ResultSet rs = statement.executeQuery("SELECT id, titolo, contenuto FROM notes")) {
+                    while (rs.next()) {
+                        memoryEngine.index(rs.getLong(1), rs.getString(2), rs.getString(3));
+                    }
+                }
+            }
+        }
+        System.out.println("Memoria: indice di " + memoryEngine.size() + " note costruito in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @Test
+    void compareEngines() {
+        for (String query : QUERIES) {
+            List<Long> fromPostgres = postgresEngine.search(query);
+            List<Long> fromMemory = memoryEngine.search(query);
+            assertThat(fromMemory).hasSameSizeAs(fromPostgres);
+
+            double postgresMs = averageMillis(postgresEngine, query);
+            double memoryMs = averageMillis(memoryEngine, query);
+            System.out.printf("Query '%s': %d risultati | postgres %.2f ms | memoria %.2f ms%n",
+                    query, fromPostgres.size(), postgresMs, memoryMs);
+        }
+    }
+
+    private static double averageMillis(NoteSearchEngine engine, String query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            engine.search(query);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+}
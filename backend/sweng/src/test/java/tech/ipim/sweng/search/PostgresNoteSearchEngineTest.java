@@ -0,0 +1,51 @@
+package tech.ipim.sweng.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test unitari per la costruzione delle query di {@link PostgresNoteSearchEngine}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldBuildPrefixTsQuery} – Ogni parola diventa un prefisso in AND, senza duplicati</li>
+ *   <li>{@code shouldStripTsQueryOperators} – Gli operatori tsquery inseriti dall'utente vengono scartati, gli accenti restano come nel tsvector</li>
+ *   <li>{@code shouldHighlightFromPageText} – Le evidenziazioni vengono calcolate dal testo della nota, senza indice in memoria</li>
+ *   <li>{@code shouldRejectInvalidTextSearchConfig} – La configurazione text search viene validata</li>
+ * </ul>
+ */
+@DisplayName("PostgresNoteSearchEngine - Test costruzione tsquery")
+class PostgresNoteSearchEngineTest {
+
+    @Test
+    void shouldBuildPrefixTsQuery() {
+        assertThat(PostgresNoteSearchEngine.toTsQuery("Riunione progetto riunione"))
+                .isEqualTo("riunione:* & progetto:*");
+        assertThat(PostgresNoteSearchEngine.toTsQuery("   ")).isEmpty();
+    }
+
+    @Test
+    void shouldStripTsQueryOperators() {
+        assertThat(PostgresNoteSearchEngine.toTsQuery("caffè & !latte | (pane):*"))
+                .isEqualTo("caffè:* & latte:* & pane:*");
+        assertThat(PostgresNoteSearchEngine.toTsQuery("Città")).isEqualTo("città:*");
+    }
+
+    @Test
+    void shouldHighlightFromPageText() {
+        PostgresNoteSearchEngine engine = new PostgresNoteSearchEngine(null, "simple");
+
+        assertThat(engine.requiresRebuild()).isFalse();
+        assertThat(engine.matches(1L, "Riunione", "Budget della riunione", "riun"))
+                .containsExactly(new TermMatch(0, 0, 8), new TermMatch(1, 13, 21));
+    }
+
+    @Test
+    void shouldRejectInvalidTextSearchConfig() {
+        assertThatThrownBy(() -> new PostgresNoteSearchEngine(null, "simple'); DROP TABLE notes; --"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
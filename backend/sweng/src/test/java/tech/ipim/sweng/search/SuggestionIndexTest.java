@@ -0,0 +1,90 @@
+package tech.ipim.sweng.search;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test unitari per {@link SuggestionIndex} e {@link PrefixTrie}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldCompleteTitlesTagsAndFolders} – Il prefisso completa titoli, tag e cartelle</li>
+ *   <li>{@code shouldCompleteFromInnerWords} – Il prefisso completa anche parole successive alla prima</li>
+ *   <li>{@code shouldNormalizeCaseAndAccents} – Maiuscole e accenti non influenzano il completamento</li>
+ *   <li>{@code shouldLimitResults} – Vengono restituiti al massimo {@code limit} suggerimenti distinti</li>
+ *   <li>{@code shouldUpdateNoteIncrementally} – Aggiornare una nota sostituisce i suoi suggerimenti</li>
+ *   <li>{@code shouldKeepSharedValueUntilLastNoteIsRemoved} – Un tag condiviso da più note resta finché una lo usa</li>
+ * </ul>
+ */
+@DisplayName("SuggestionIndex - Test autocompletamento")
+class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SuggestionIndex();
+        index.put(1L, "Riunione di progetto", Set.of("lavoro"), Set.of("Progetti"));
+        index.put(2L, "Lista della spesa", Set.of("casa", "lavoro"), Set.of());
+    }
+
+    @Test
+    void shouldCompleteTitlesTagsAndFolders() {
+        assertThat(index.suggest("ri", 10)).containsExactly(new Suggestion("Riunione di progetto", Suggestion.Tipo.TITOLO));
+        assertThat(index.suggest("lav", 10)).containsExactly(new Suggestion("lavoro", Suggestion.Tipo.TAG));
+        assertThat(index.suggest("progetti", 10)).containsExactly(new Suggestion("Progetti", Suggestion.Tipo.CARTELLA));
+        assertThat(index.suggest("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldCompleteFromInnerWords() {
+        assertThat(index.suggest("spe", 10)).containsExactly(new Suggestion("Lista della spesa", Suggestion.Tipo.TITOLO));
+        assertThat(index.suggest("prog", 10)).containsExactlyInAnyOrder(
+                new Suggestion("Riunione di progetto", Suggestion.Tipo.TITOLO),
+                new Suggestion("Progetti", Suggestion.Tipo.CARTELLA));
+    }
+
+    @Test
+    void shouldNormalizeCaseAndAccents() {
+        index.put(3L, "Caffè al bar", Set.of(), Set.of());
+
+        assertThat(index.suggest("CAFFE", 10)).extracting(Suggestion::getTesto).containsExactly("Caffè al bar");
+    }
+
+    @Test
+    void shouldLimitResults() {
+        for (long id = 10; id < 30; id++) {
+            index.put(id, "Appunto " + id, Set.of(), Set.of());
+        }
+
+        List<Suggestion> suggestions = index.suggest("app", 5);
+
+        assertThat(suggestions).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldUpdateNoteIncrementally() {
+        index.put(1L, "Budget annuale", Set.of(), Set.of());
+
+        assertThat(index.suggest("riu", 10)).isEmpty();
+        assertThat(index.suggest("prog", 10)).isEmpty();
+        assertThat(index.suggest("bud", 10)).extracting(Suggestion::getTesto).containsExactly("Budget annuale");
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepSharedValueUntilLastNoteIsRemoved() {
+        index.remove(1L);
+        assertThat(index.suggest("lav", 10)).extracting(Suggestion::getTesto).containsExactly("lavoro");
+
+        index.remove(2L);
+        assertThat(index.suggest("lav", 10)).isEmpty();
+        assertThat(index.suggest("l", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package tech.ipim.sweng.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test unitari per {@link TagBitmapIndex}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldIntersectRequiredTags} – Più tag obbligatori vengono combinati in AND</li>
+ *   <li>{@code shouldUnionAlternativeTags} – I tag alternativi vengono combinati in OR</li>
+ *   <li>{@code shouldExcludeTags} – I tag esclusi vengono sottratti dal risultato</li>
+ *   <li>{@code shouldCombineCartellaWithTags} – La cartella si combina in AND con i tag</li>
+ *   <li>{@code shouldNotModifyIndexBitmaps} – Valutare un'espressione non altera l'indice</li>
+ *   <li>{@code shouldUpdateAndRemoveNotes} – Reindicizzazione e rimozione aggiornano le bitmap</li>
+ *   <li>{@code shouldRequirePositiveCriterion} – Senza criteri positivi l'espressione non è valutabile</li>
+ * </ul>
+ */
+@DisplayName("TagBitmapIndex - Test bitmap di tag e cartelle")
+class TagBitmapIndexTest {
+
+    private TagBitmapIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TagBitmapIndex();
+        index.index(1L, Set.of("work", "urgent"), Set.of("Progetti"));
+        index.index(2L, Set.of("work", "done"), Set.of("Progetti"));
+        index.index(3L, Set.of("work", "urgent", "done"), Set.of("Archivio"));
+        index.index(4L, Set.of("casa"), Set.of());
+    }
+
+    @Test
+    void shouldIntersectRequiredTags() {
+        assertThat(ids(index.evaluate(List.of("work", "urgent"), List.of(), List.of(), null))).containsExactly(1L, 3L);
+        assertThat(ids(index.evaluate(List.of("work", "assente"), List.of(), List.of(), null))).isEmpty();
+    }
+
+    @Test
+    void shouldUnionAlternativeTags() {
+        assertThat(ids(index.evaluate(List.of(), List.of("urgent", "casa"), List.of(), null))).containsExactly(1L, 3L, 4L);
+    }
+
+    @Test
+    void shouldExcludeTags() {
+        assertThat(ids(index.evaluate(List.of("work", "urgent"), List.of(), List.of("done"), null))).containsExactly(1L);
+    }
+
+    @Test
+    void shouldCombineCartellaWithTags() {
+        assertThat(ids(index.evaluate(List.of(), List.of(), List.of(), "Progetti"))).containsExactly(1L, 2L);
+        assertThat(ids(index.evaluate(List.of("urgent"), List.of(), List.of(), "Progetti"))).containsExactly(1L);
+    }
+
+    @Test
+    void shouldNotModifyIndexBitmaps() {
+        index.evaluate(List.of("work"), List.of(), List.of("done", "urgent"), null);
+
+        assertThat(ids(index.evaluate(List.of("work"), List.of(), List.of(), null))).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void shouldUpdateAndRemoveNotes() {
+        index.index(2L, Set.of("casa"), Set.of());
+        index.remove(3L);
+
+        assertThat(ids(index.evaluate(List.of("work"), List.of(), List.of(), null))).containsExactly(1L);
+        assertThat(ids(index.evaluate(List.of("casa"), List.of(), List.of(), null))).containsExactly(2L, 4L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRequirePositiveCriterion() {
+        assertThatThrownBy(() -> index.evaluate(List.of(), List.of(), List.of("done"), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Long> ids(Roaring64NavigableMap bitmap) {
+        return Arrays.stream(bitmap.toArray()).boxed().toList();
+    }
+}
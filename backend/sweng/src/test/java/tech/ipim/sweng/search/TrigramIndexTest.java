@@ -0,0 +1,72 @@
+package tech.ipim.sweng.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test unitari per {@link TrigramIndex}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldComputeTrigramSimilarity} – Somiglianza 1 per parole uguali, alta per refusi, bassa per parole diverse</li>
+ *   <li>{@code shouldFindDocumentsWithTypos} – Parole con errori di battitura trovano il termine corretto</li>
+ *   <li>{@code shouldRespectThreshold} – Una soglia alta esclude le corrispondenze deboli</li>
+ *   <li>{@code shouldIntersectMultipleWords} – Più parole vengono combinate in AND</li>
+ *   <li>{@code shouldRemoveDocumentAndOrphanTerms} – La rimozione elimina il documento e i termini orfani</li>
+ * </ul>
+ */
+@DisplayName("TrigramIndex - Test ricerca tollerante agli errori")
+class TrigramIndexTest {
+
+    private static final double THRESHOLD = 0.3;
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.index(1L, "Riunione di progetto", "Discutere il budget del progetto Alfa");
+        index.index(2L, "Lista della spesa", "Latte, pane e caffè");
+        index.index(3L, "Programma settimanale", "Palestra lunedì e riunione venerdì");
+    }
+
+    @Test
+    void shouldComputeTrigramSimilarity() {
+        assertThat(TrigramIndex.similarity("progetto", "progetto")).isEqualTo(1.0);
+        assertThat(TrigramIndex.similarity("progeto", "progetto")).isGreaterThan(0.5);
+        assertThat(TrigramIndex.similarity("latte", "progetto")).isLessThan(THRESHOLD);
+    }
+
+    @Test
+    void shouldFindDocumentsWithTypos() {
+        assertThat(index.search("progeto", THRESHOLD)).containsExactly(1L);
+        assertThat(index.search("riunoine", THRESHOLD)).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("cafe", THRESHOLD)).containsExactly(2L);
+        assertThat(index.search("zzzz", THRESHOLD)).isEmpty();
+    }
+
+    @Test
+    void shouldRespectThreshold() {
+        assertThat(index.search("progeto", 0.95)).isEmpty();
+        assertThat(index.search("progetto", 0.95)).containsExactly(1L);
+    }
+
+    @Test
+    void shouldIntersectMultipleWords() {
+        assertThat(index.search("riunione venrdi", THRESHOLD)).containsExactly(3L);
+        assertThat(index.search("riunione latte", THRESHOLD)).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveDocumentAndOrphanTerms() {
+        int termsBefore = index.termCount();
+
+        index.remove(2L);
+
+        assertThat(index.search("spesa", THRESHOLD)).isEmpty();
+        assertThat(index.termCount()).isLessThan(termsBefore);
+    }
+}
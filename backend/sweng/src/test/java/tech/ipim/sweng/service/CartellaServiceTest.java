@@ -12,11 +12,9 @@ import tech.ipim.sweng.dto.CartellaDto;
 import tech.ipim.sweng.dto.CreateCartellaRequest;
 import tech.ipim.sweng.dto.UpdateCartellaRequest;
 import tech.ipim.sweng.model.Cartella;
-import tech.ipim.sweng.model.Note;
 import tech.ipim.sweng.model.User;
 import tech.ipim.sweng.repository.CartellaRepository;
 import tech.ipim.sweng.repository.NoteRepository;
-import tech.ipim.sweng.repository.UserRepository;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -24,7 +22,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.never;
@@ -50,7 +47,7 @@ class CartellaServiceTest {
     private CartellaRepository cartellaRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserCache userCache;
 
     @Mock
     private NoteRepository noteRepository;
@@ -109,7 +106,7 @@ class CartellaServiceTest {
     @Test
     void shouldCreateCartellaSuccessfully() {
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
         when(cartellaRepository.existsByNomeAndProprietario("Nuova Cartella", testUser)).thenReturn(false);
         when(cartellaRepository.save(any(Cartella.class))).thenReturn(testCartella);
 
@@ -120,7 +117,7 @@ class CartellaServiceTest {
         assertThat(result.getProprietario()).isEqualTo("testuser");
         assertThat(result.getNumeroNote()).isEqualTo(0);
 
-        verify(userRepository).findByUsername("testuser");
+        verify(userCache).getReference("testuser");
         verify(cartellaRepository).existsByNomeAndProprietario("Nuova Cartella", testUser);
         verify(cartellaRepository).save(any(Cartella.class));
     }
@@ -137,7 +134,7 @@ class CartellaServiceTest {
     @Test
     void shouldThrowExceptionWhenUserNotFoundForCreation() {
 
-        when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+        when(userCache.getReference("nonexistent")).thenThrow(new RuntimeException("Utente non trovato: nonexistent"));
 
         assertThatThrownBy(() -> cartellaService.createCartella(createRequest, "nonexistent"))
                 .isInstanceOf(RuntimeException.class)
@@ -158,7 +155,7 @@ class CartellaServiceTest {
     @Test
     void shouldThrowExceptionWhenCartellaAlreadyExists() {
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
         when(cartellaRepository.existsByNomeAndProprietario("Nuova Cartella", testUser)).thenReturn(true);
 
         assertThatThrownBy(() -> cartellaService.createCartella(createRequest, "testuser"))
@@ -185,11 +182,11 @@ class CartellaServiceTest {
 
     @Test
     void shouldGetUserCartelle() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
         when(cartellaRepository.findByProprietarioOrderByDataModificaDesc(testUser))
                 .thenReturn(Arrays.asList(testCartella));
-        when(noteRepository.findNotesByCartella("testuser", "Test Cartella"))
-                .thenReturn(Arrays.asList(mock(Note.class), mock(Note.class))); // 2 note
+        List<Object[]> conteggi = List.<Object[]>of(new Object[] {"Test Cartella", 2L});
+        when(noteRepository.countNotesByCartelle("testuser", List.of("Test Cartella"))).thenReturn(conteggi); // 2 note
 
         List<CartellaDto> result = cartellaService.getUserCartelle("testuser");
 
@@ -197,7 +194,7 @@ class CartellaServiceTest {
         assertThat(result.get(0).getNome()).isEqualTo("Test Cartella");
         assertThat(result.get(0).getNumeroNote()).isEqualTo(2);
 
-        verify(userRepository).findByUsername("testuser");
+        verify(userCache).getReference("testuser");
         verify(cartellaRepository).findByProprietarioOrderByDataModificaDesc(testUser);
     }
 
@@ -206,7 +203,7 @@ class CartellaServiceTest {
      *
      * Sequenza:
      * - Mock ricerca cartella per id e username
-     * - Mock ricerca note della cartella
+     * - Mock conteggio note della cartella
      *
      * Valida:
      * - Presenza dell'Optional con dati corretti
@@ -219,7 +216,7 @@ class CartellaServiceTest {
     void shouldGetCartellaById() {
  
         when(cartellaRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(testCartella));
-        when(noteRepository.findNotesByCartella("testuser", "Test Cartella")).thenReturn(Arrays.asList());
+        when(noteRepository.countNotesByCartella("testuser", "Test Cartella")).thenReturn(0L);
 
 
         Optional<CartellaDto> result = cartellaService.getCartellaById(1L, "testuser");
@@ -258,7 +255,7 @@ class CartellaServiceTest {
      * - Mock ricerca cartella esistente per id e username
      * - Mock verifica non esistenza di nome duplicato (se diverso dal corrente)
      * - Mock salvataggio aggiornamento cartella
-     * - Mock ricerca note associate (per DTO)
+     * - Mock conteggio note associate (per DTO)
      *
      * Valida:
      * - DTO aggiornato non nullo
@@ -272,7 +269,7 @@ class CartellaServiceTest {
         when(cartellaRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(testCartella));
         when(cartellaRepository.existsByNomeAndProprietario("Cartella Aggiornata", testUser)).thenReturn(false);
         when(cartellaRepository.save(any(Cartella.class))).thenReturn(testCartella);
-        when(noteRepository.findNotesByCartella("testuser", "Test Cartella")).thenReturn(Arrays.asList());
+        when(noteRepository.countNotesByCartella("testuser", "Test Cartella")).thenReturn(0L);
 
         CartellaDto result = cartellaService.updateCartella(1L, updateRequest, "testuser");
 
@@ -327,7 +324,7 @@ class CartellaServiceTest {
      *
      * Sequenza:
      * - Mock ricerca cartella
-     * - Mock lista note vuota per la cartella
+     * - Mock conteggio note pari a zero per la cartella
      * - Invocazione metodo deleteCartella
      *
      * Valida:
@@ -340,7 +337,7 @@ class CartellaServiceTest {
     @Test
     void shouldDeleteEmptyCartellaSuccessfully() {
         when(cartellaRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(testCartella));
-        when(noteRepository.findNotesByCartella("testuser", "Test Cartella")).thenReturn(Arrays.asList()); // Cartella vuota
+        when(noteRepository.countNotesByCartella("testuser", "Test Cartella")).thenReturn(0L); // Cartella vuota
 
         boolean result = cartellaService.deleteCartella(1L, "testuser");
 
@@ -359,8 +356,7 @@ class CartellaServiceTest {
     @Test
     void shouldThrowExceptionWhenDeletingCartellaWithNotes() {
         when(cartellaRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(testCartella));
-        when(noteRepository.findNotesByCartella("testuser", "Test Cartella"))
-                .thenReturn(Arrays.asList(mock(Note.class), mock(Note.class))); // Cartella con 2 note
+        when(noteRepository.countNotesByCartella("testuser", "Test Cartella")).thenReturn(2L); // Cartella con 2 note
 
         assertThatThrownBy(() -> cartellaService.deleteCartella(1L, "testuser"))
                 .isInstanceOf(RuntimeException.class)
@@ -407,7 +403,7 @@ class CartellaServiceTest {
     @Test
     void shouldGetUserCartelleStats() {
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
         when(cartellaRepository.countByProprietario(testUser)).thenReturn(3L);
         when(cartellaRepository.findByUsername("testuser")).thenReturn(Arrays.asList(
                 createCartellaWithName("Lavoro"),
@@ -422,7 +418,7 @@ class CartellaServiceTest {
         assertThat(result.getNumeroCartelle()).isEqualTo(3L);
         assertThat(result.getNomiCartelle()).containsExactly("Lavoro", "Personale", "Studio");
 
-        verify(userRepository).findByUsername("testuser");
+        verify(userCache).getReference("testuser");
         verify(cartellaRepository).countByProprietario(testUser);
         verify(cartellaRepository).findByUsername("testuser");
     }
@@ -438,7 +434,7 @@ class CartellaServiceTest {
     @Test
     void shouldThrowExceptionWhenGettingStatsForNonExistentUser() {
 
-        when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+        when(userCache.getReference("nonexistent")).thenThrow(new RuntimeException("Utente non trovato: nonexistent"));
 
 
         assertThatThrownBy(() -> cartellaService.getUserCartelleStats("nonexistent"))
@@ -461,7 +457,7 @@ class CartellaServiceTest {
         updateRequest.setNome("Test Cartella");
         when(cartellaRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(testCartella));
         when(cartellaRepository.save(any(Cartella.class))).thenReturn(testCartella);
-        when(noteRepository.findNotesByCartella("testuser", "Test Cartella")).thenReturn(Arrays.asList());
+        when(noteRepository.countNotesByCartella("testuser", "Test Cartella")).thenReturn(0L);
 
         CartellaDto result = cartellaService.updateCartella(1L, updateRequest, "testuser");
 
@@ -0,0 +1,167 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.dto.CreateGruppoRequest;
+import tech.ipim.sweng.dto.GruppoDto;
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.GruppoRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+import tech.ipim.sweng.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link GruppoService}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldCreateGroupWithOwnerAsMember} – Il creatore è proprietario e membro del gruppo</li>
+ *   <li>{@code shouldRejectDuplicateGroupName} – Il nome del gruppo è univoco</li>
+ *   <li>{@code shouldAddMemberWithoutTouchingNotes} – Un nuovo membro invalida solo le sue appartenenze</li>
+ *   <li>{@code shouldNotRemoveOwner} – Il proprietario non può essere rimosso dal gruppo</li>
+ *   <li>{@code shouldRejectChangesFromNonOwner} – Solo il proprietario gestisce i membri</li>
+ *   <li>{@code shouldDeleteGroupAndInvalidateSharedNotes} – L'eliminazione rimuove le condivisioni del gruppo</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GruppoService - Test gestione dei gruppi")
+class GruppoServiceTest {
+
+    @Mock
+    private GruppoRepository gruppoRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private NoteGroupAccessRepository noteGroupAccessRepository;
+
+    @Mock
+    private GroupMembershipCache groupMembershipCache;
+
+    @Mock
+    private NoteAclCache noteAclCache;
+
+    @Mock
+    private NoteSuggestionService noteSuggestionService;
+
+    @Mock
+    private NoteChangeService noteChangeService;
+
+    private GruppoService service;
+    private User owner;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        service = new GruppoService(gruppoRepository, userRepository, noteGroupAccessRepository,
+                groupMembershipCache, noteAclCache, noteSuggestionService, noteChangeService);
+        owner = user(1L, "owner");
+        bob = user(2L, "bob");
+    }
+
+    @Test
+    void shouldCreateGroupWithOwnerAsMember() {
+        when(userRepository.findByUsername("owner")).thenReturn(Optional.of(owner));
+        when(userRepository.findByUsernameIn(List.of("bob"))).thenReturn(List.of(bob));
+        when(gruppoRepository.save(any(Gruppo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        GruppoDto result = service.createGruppo(new CreateGruppoRequest(" team ", List.of("bob")), "owner");
+
+        assertThat(result.getNome()).isEqualTo("team");
+        assertThat(result.getProprietario()).isEqualTo("owner");
+        assertThat(result.getMembri()).containsExactly("bob", "owner");
+        verify(groupMembershipCache).invalidate(1L);
+        verify(groupMembershipCache).invalidate(2L);
+    }
+
+    @Test
+    void shouldRejectDuplicateGroupName() {
+        when(userRepository.findByUsername("owner")).thenReturn(Optional.of(owner));
+        when(gruppoRepository.existsByNome("team")).thenReturn(true);
+
+        assertThatThrownBy(() -> service.createGruppo(new CreateGruppoRequest("team", null), "owner"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Esiste già un gruppo");
+        verify(gruppoRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldAddMemberWithoutTouchingNotes() {
+        Gruppo gruppo = new Gruppo("team", owner);
+        gruppo.setId(5L);
+        when(gruppoRepository.findById(5L)).thenReturn(Optional.of(gruppo));
+        when(userRepository.findByUsername("bob")).thenReturn(Optional.of(bob));
+
+        GruppoDto result = service.addMembro(5L, "bob", "owner");
+
+        assertThat(result.getMembri()).containsExactly("bob", "owner");
+        verify(groupMembershipCache).invalidate(2L);
+        verify(noteSuggestionService).accessChanged(List.of("bob"));
+        verify(noteChangeService).memberChanged(5L, 2L);
+        verifyNoInteractions(noteGroupAccessRepository, noteAclCache);
+    }
+
+    @Test
+    void shouldNotRemoveOwner() {
+        when(gruppoRepository.findById(5L)).thenReturn(Optional.of(new Gruppo("team", owner)));
+
+        assertThatThrownBy(() -> service.removeMembro(5L, "owner", "owner"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Il proprietario non può essere rimosso");
+    }
+
+    @Test
+    void shouldRejectChangesFromNonOwner() {
+        when(gruppoRepository.findById(5L)).thenReturn(Optional.of(new Gruppo("team", owner)));
+
+        assertThatThrownBy(() -> service.addMembro(5L, "bob", "bob"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Solo il proprietario");
+        verifyNoInteractions(groupMembershipCache);
+    }
+
+    @Test
+    void shouldDeleteGroupAndInvalidateSharedNotes() {
+        Gruppo gruppo = new Gruppo("team", owner);
+        gruppo.getMembri().add(bob);
+        when(gruppoRepository.findById(5L)).thenReturn(Optional.of(gruppo));
+        when(gruppoRepository.findSharedNoteIds(5L)).thenReturn(List.of(10L, 11L));
+
+        assertThat(service.deleteGruppo(5L, "owner")).isTrue();
+
+        verify(noteChangeService).groupChanging(5L);
+        verify(gruppoRepository).deleteReadShares(5L);
+        verify(gruppoRepository).deleteWriteShares(5L);
+        verify(gruppoRepository).touchNotes(eq(List.of(10L, 11L)), any(LocalDateTime.class));
+        verify(noteGroupAccessRepository).deleteByGruppoId(5L);
+        verify(gruppoRepository).delete(gruppo);
+        verify(noteAclCache).invalidate(10L);
+        verify(noteAclCache).invalidate(11L);
+        verify(groupMembershipCache).invalidateAll();
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User(username, "password123");
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,142 @@
+package tech.ipim.sweng.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.model.LivelloAccesso;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.repository.NoteAccessRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+import tech.ipim.sweng.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link NoteAclCache}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldApplyReadAndWriteRules} – Autore, scrittori e lettori ottengono i permessi corretti</li>
+ *   <li>{@code shouldResolveAccessThroughGroups} – I membri dei gruppi ottengono i permessi del gruppo</li>
+ *   <li>{@code shouldHitDatabaseOnlyOnce} – I controlli successivi non interrogano il database</li>
+ *   <li>{@code shouldReloadAfterInvalidation} – Dopo l'invalidazione i permessi vengono riletti</li>
+ *   <li>{@code shouldNotCacheMissingNotes} – Una nota inesistente non viene memorizzata</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteAclCache - Test cache dei permessi")
+class NoteAclCacheTest {
+
+    @Mock
+    private NoteAccessRepository noteAccessRepository;
+
+    @Mock
+    private NoteGroupAccessRepository noteGroupAccessRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private GroupMembershipCache groupMembershipCache;
+
+    private NoteAclCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new NoteAclCache(noteAccessRepository, noteGroupAccessRepository, new UserCache(userRepository, 300, 100),
+                groupMembershipCache, 100);
+    }
+
+    @Test
+    void shouldApplyReadAndWriteRules() {
+        when(noteAccessRepository.findAclRows(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, LivelloAccesso.PROPRIETARIO, TipoPermesso.CONDIVISA_SCRITTURA},
+                new Object[]{2L, LivelloAccesso.SCRITTURA, TipoPermesso.CONDIVISA_SCRITTURA},
+                new Object[]{3L, LivelloAccesso.LETTURA, TipoPermesso.CONDIVISA_SCRITTURA}));
+        when(userRepository.findIdByUsername("owner")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByUsername("writer")).thenReturn(Optional.of(2L));
+        when(userRepository.findIdByUsername("reader")).thenReturn(Optional.of(3L));
+        when(userRepository.findIdByUsername("other")).thenReturn(Optional.of(4L));
+
+        assertThat(cache.canWrite(1L, "owner")).isTrue();
+        assertThat(cache.canWrite(1L, "writer")).isTrue();
+        assertThat(cache.canRead(1L, "reader")).isTrue();
+        assertThat(cache.canWrite(1L, "reader")).isFalse();
+        assertThat(cache.canRead(1L, "other")).isFalse();
+    }
+
+    @Test
+    void shouldResolveAccessThroughGroups() {
+        when(noteAccessRepository.findAclRows(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, LivelloAccesso.PROPRIETARIO, TipoPermesso.CONDIVISA_SCRITTURA}));
+        when(noteGroupAccessRepository.findAclRows(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{10L, LivelloAccesso.SCRITTURA},
+                new Object[]{20L, LivelloAccesso.LETTURA}));
+        when(userRepository.findIdByUsername("writer")).thenReturn(Optional.of(2L));
+        when(userRepository.findIdByUsername("reader")).thenReturn(Optional.of(3L));
+        when(userRepository.findIdByUsername("other")).thenReturn(Optional.of(4L));
+        when(groupMembershipCache.groupIdsOf(2L)).thenReturn(new long[]{10L});
+        when(groupMembershipCache.groupIdsOf(3L)).thenReturn(new long[]{5L, 20L});
+        when(groupMembershipCache.groupIdsOf(4L)).thenReturn(new long[]{30L});
+
+        assertThat(cache.canWrite(1L, "writer")).isTrue();
+        assertThat(cache.canRead(1L, "reader")).isTrue();
+        assertThat(cache.canWrite(1L, "reader")).isFalse();
+        assertThat(cache.canRead(1L, "other")).isFalse();
+        verify(noteGroupAccessRepository, times(1)).findAclRows(1L);
+    }
+
+    @Test
+    void shouldHitDatabaseOnlyOnce() {
+        when(noteAccessRepository.findAclRows(1L)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, LivelloAccesso.PROPRIETARIO, TipoPermesso.PRIVATA}));
+        when(userRepository.findIdByUsername("owner")).thenReturn(Optional.of(1L));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.canRead(1L, "owner")).isTrue();
+        }
+
+        verify(noteAccessRepository, times(1)).findAclRows(1L);
+        verify(userRepository, times(1)).findIdByUsername("owner");
+        // senza gruppi sulla nota le appartenenze dell'utente non servono
+        verifyNoInteractions(groupMembershipCache);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        when(noteAccessRepository.findAclRows(1L))
+                .thenReturn(List.<Object[]>of(
+                        new Object[]{1L, LivelloAccesso.PROPRIETARIO, TipoPermesso.CONDIVISA_LETTURA},
+                        new Object[]{2L, LivelloAccesso.LETTURA, TipoPermesso.CONDIVISA_LETTURA}))
+                .thenReturn(List.<Object[]>of(
+                        new Object[]{1L, LivelloAccesso.PROPRIETARIO, TipoPermesso.PRIVATA}));
+        when(userRepository.findIdByUsername("reader")).thenReturn(Optional.of(2L));
+
+        assertThat(cache.canRead(1L, "reader")).isTrue();
+        cache.invalidate(1L);
+        assertThat(cache.canRead(1L, "reader")).isFalse();
+
+        verify(noteAccessRepository, times(2)).findAclRows(1L);
+    }
+
+    @Test
+    void shouldNotCacheMissingNotes() {
+        when(noteAccessRepository.findAclRows(99L)).thenReturn(List.of());
+
+        assertThat(cache.exists(99L)).isFalse();
+        assertThat(cache.exists(99L)).isFalse();
+
+        verify(noteAccessRepository, times(2)).findAclRows(99L);
+    }
+}
@@ -0,0 +1,217 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import tech.ipim.sweng.dto.NoteChangesDto;
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteSyncToken;
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteAccessRepository;
+import tech.ipim.sweng.repository.NoteChangeRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NoteChangeService}: registro delle modifiche e
+ * sincronizzazione incrementale delle note.
+ * <p>
+ * I token usati nei test sono emessi qualche minuto prima delle modifiche già presenti,
+ * così il margine per le transazioni concorrenti non rilegge le righe precedenti.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldReturnAllNotesWithoutToken} – Prima sincronizzazione con tutte le note accessibili</li>
+ *   <li>{@code shouldReturnOnlyChangedAccessibleNotes} – Solo le note accessibili modificate dopo il token</li>
+ *   <li>{@code shouldReturnUnsharedNoteAsRemoved} – Nota non più condivisa restituita tra le rimosse</li>
+ *   <li>{@code shouldReturnDeletedNoteAsRemoved} – Nota eliminata restituita tra le rimosse</li>
+ *   <li>{@code shouldTrackGroupMembershipChanges} – Aggiunta e rimozione da un gruppo con note condivise</li>
+ *   <li>{@code shouldResyncWithExpiredToken} – Token più vecchio della conservazione: di nuovo tutte le note</li>
+ *   <li>{@code shouldCompactOldChanges} – La compattazione elimina solo le modifiche scadute</li>
+ * </ul>
+ */
+@DataJpaTest
+@Import({NoteChangeService.class, NoteReadService.class})
+@DisplayName("NoteChangeService - Test sincronizzazione incrementale")
+class NoteChangeServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NoteChangeService noteChangeService;
+
+    @Autowired
+    private NoteChangeRepository noteChangeRepository;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    @Autowired
+    private NoteGroupAccessRepository noteGroupAccessRepository;
+
+    private User alice;
+    private User bob;
+    private Note privata;
+    private Note condivisa;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persist(new User("alice", "password123"));
+        bob = entityManager.persist(new User("bob", "password123"));
+        privata = entityManager.persist(new Note("Privata", "Solo alice", alice));
+        condivisa = new Note("Condivisa", "Alice e bob", alice);
+        condivisa.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
+        condivisa.setLettori(new HashSet<>(Set.of(bob)));
+        condivisa = entityManager.persist(condivisa);
+        entityManager.flush();
+        refreshAccess(List.of(privata.getId(), condivisa.getId()));
+    }
+
+    @Test
+    void shouldReturnAllNotesWithoutToken() {
+        NoteChangesDto changes = noteChangeService.getChanges("bob", null);
+
+        assertThat(changes.isFull()).isTrue();
+        assertThat(changes.getNotes()).extracting(NoteDto::getId).containsExactly(condivisa.getId());
+        assertThat(changes.getRemoved()).isEmpty();
+        assertThat(NoteSyncToken.decode(changes.getSyncToken()).getChangeId()).isEqualTo(noteChangeRepository.findLastId());
+    }
+
+    @Test
+    void shouldReturnOnlyChangedAccessibleNotes() {
+        NoteSyncToken since = pastToken();
+        noteChangeService.noteChanged(privata.getId());
+        noteChangeService.noteChanged(condivisa.getId());
+
+        NoteChangesDto bobChanges = noteChangeService.getChanges("bob", since);
+        NoteChangesDto aliceChanges = noteChangeService.getChanges("alice", since);
+
+        assertThat(bobChanges.isFull()).isFalse();
+        assertThat(bobChanges.getNotes()).extracting(NoteDto::getId).containsExactly(condivisa.getId());
+        assertThat(bobChanges.getRemoved()).isEmpty();
+        assertThat(aliceChanges.getNotes()).extracting(NoteDto::getId)
+                .containsExactlyInAnyOrder(privata.getId(), condivisa.getId());
+        assertThat(noteChangeService.getChanges("bob", NoteSyncToken.decode(bobChanges.getSyncToken())).getNotes())
+                .as("le modifiche già inviate vengono rilette solo entro il margine")
+                .extracting(NoteDto::getId).containsExactly(condivisa.getId());
+    }
+
+    @Test
+    void shouldReturnUnsharedNoteAsRemoved() {
+        NoteSyncToken since = pastToken();
+
+        Note note = entityManager.find(Note.class, condivisa.getId());
+        note.setTipoPermesso(TipoPermesso.PRIVATA);
+        note.setLettori(new HashSet<>());
+        entityManager.flush();
+        refreshAccess(List.of(condivisa.getId()));
+
+        NoteChangesDto changes = noteChangeService.getChanges("bob", since);
+
+        assertThat(changes.getNotes()).isEmpty();
+        assertThat(changes.getRemoved()).containsExactly(condivisa.getId());
+        assertThat(noteChangeService.getChanges("alice", since).getRemoved()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnDeletedNoteAsRemoved() {
+        NoteSyncToken since = pastToken();
+
+        noteChangeService.accessChanging(List.of(condivisa.getId()));
+        noteAccessRepository.deleteByNoteId(condivisa.getId());
+        entityManager.remove(entityManager.find(Note.class, condivisa.getId()));
+        entityManager.flush();
+
+        assertThat(noteChangeService.getChanges("bob", since).getRemoved()).containsExactly(condivisa.getId());
+        assertThat(noteChangeService.getChanges("alice", since).getRemoved()).containsExactly(condivisa.getId());
+    }
+
+    @Test
+    void shouldTrackGroupMembershipChanges() {
+        Gruppo team = entityManager.persist(new Gruppo("team", alice));
+        Note piano = new Note("Piano", "Obiettivi", alice);
+        piano.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
+        piano.setGruppiLettura(new HashSet<>(Set.of(team)));
+        piano = entityManager.persist(piano);
+        entityManager.flush();
+        refreshAccess(List.of(piano.getId()));
+        NoteSyncToken since = pastToken();
+
+        team.getMembri().add(bob);
+        entityManager.flush();
+        noteChangeService.memberChanged(team.getId(), bob.getId());
+        NoteChangesDto added = noteChangeService.getChanges("bob", since);
+
+        since = pastToken();
+        noteChangeService.memberChanged(team.getId(), bob.getId());
+        team.getMembri().remove(bob);
+        entityManager.flush();
+        NoteChangesDto removed = noteChangeService.getChanges("bob", since);
+
+        assertThat(added.getNotes()).extracting(NoteDto::getId).containsExactly(piano.getId());
+        assertThat(removed.getNotes()).isEmpty();
+        assertThat(removed.getRemoved()).containsExactly(piano.getId());
+    }
+
+    @Test
+    void shouldResyncWithExpiredToken() {
+        NoteSyncToken expired = new NoteSyncToken(noteChangeRepository.findLastId(), LocalDateTime.now().minusDays(31));
+
+        NoteChangesDto changes = noteChangeService.getChanges("bob", expired);
+
+        assertThat(changes.isFull()).isTrue();
+        assertThat(changes.getNotes()).extracting(NoteDto::getId).containsExactly(condivisa.getId());
+    }
+
+    @Test
+    void shouldCompactOldChanges() {
+        noteChangeService.noteChanged(privata.getId());
+        long total = noteChangeRepository.count();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE NoteChange c SET c.dataModifica = :data WHERE c.noteId = :noteId")
+                .setParameter("data", LocalDateTime.now().minusDays(40))
+                .setParameter("noteId", condivisa.getId())
+                .executeUpdate();
+
+        noteChangeService.compact();
+
+        assertThat(noteChangeRepository.count()).isPositive().isLessThan(total);
+        assertThat(noteChangeRepository.findAll()).allSatisfy(change -> assertThat(change.getNoteId()).isEqualTo(privata.getId()));
+    }
+
+    /**
+     * Ricalcola gli accessi delle note registrando le modifiche, come {@link NoteAccessService#refresh}.
+     */
+    private void refreshAccess(List<Long> noteIds) {
+        noteChangeService.accessChanging(noteIds);
+        noteAccessRepository.refresh(noteIds);
+        noteGroupAccessRepository.refresh(noteIds);
+    }
+
+    /**
+     * Token posizionato sull'ultima modifica, con le modifiche precedenti spostate indietro
+     * nel tempo oltre il margine delle transazioni concorrenti.
+     */
+    private NoteSyncToken pastToken() {
+        entityManager.getEntityManager()
+                .createQuery("UPDATE NoteChange c SET c.dataModifica = :data")
+                .setParameter("data", LocalDateTime.now().minusMinutes(10))
+                .executeUpdate();
+        return new NoteSyncToken(noteChangeRepository.findLastId(), LocalDateTime.now().minusMinutes(5));
+    }
+}
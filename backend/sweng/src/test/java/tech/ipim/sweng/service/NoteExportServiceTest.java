@@ -0,0 +1,158 @@
+package tech.ipim.sweng.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteAccessRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NoteExportService}: esportazione NDJSON delle note
+ * accessibili letta a blocchi dal database.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldExportAccessibleNotesOnePerLine} – Una riga JSON per ogni nota accessibile, nessuna nota altrui privata</li>
+ *   <li>{@code shouldExportAcrossBatches} – Le note oltre il primo blocco vengono esportate tutte, in ordine di id</li>
+ *   <li>{@code shouldWriteNothingWithoutNotes} – Un utente senza note riceve un'esportazione vuota</li>
+ *   <li>{@code shouldExportCborSequence} – Esportazione come sequenza di valori CBOR, uno per nota</li>
+ *   <li>{@code shouldNegotiateFormatByQuality} – Il formato scelto dall'header Accept rispetta le qualità, NDJSON per i tipi generici</li>
+ * </ul>
+ */
+@DataJpaTest
+@Import({NoteExportService.class, NoteReadService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@DisplayName("NoteExportService - Test esportazione NDJSON")
+class NoteExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    @Autowired
+    private NoteExportService noteExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persistAndFlush(new User("alice", "password123"));
+        bob = entityManager.persistAndFlush(new User("bob", "password123"));
+    }
+
+    @Test
+    void shouldExportAccessibleNotesOnePerLine() throws Exception {
+        Note own = entityManager.persist(new Note("Spesa", "Latte e pane", bob));
+        Note shared = new Note("Riunione", "Ordine del giorno", alice);
+        shared.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
+        shared.setLettori(new HashSet<>(Set.of(bob)));
+        shared = entityManager.persist(shared);
+        entityManager.persist(new Note("Diario", "Privato", alice));
+        entityManager.flush();
+        noteAccessRepository.rebuildAll();
+        entityManager.clear();
+
+        List<String> lines = export("bob");
+
+        assertThat(lines).hasSize(2);
+        List<NoteDto> notes = lines.stream().map(this::parse).toList();
+        assertThat(notes).extracting(NoteDto::getId).containsExactly(own.getId(), shared.getId());
+        assertThat(notes.get(1).getAutore()).isEqualTo("alice");
+        assertThat(notes.get(1).getPermessiLettura()).containsExactly("bob");
+    }
+
+    @Test
+    void shouldExportAcrossBatches() throws Exception {
+        for (int i = 0; i < NoteExportService.BATCH_SIZE + 5; i++) {
+            entityManager.persist(new Note("Nota " + i, "Contenuto " + i, alice));
+        }
+        entityManager.flush();
+        noteAccessRepository.rebuildAll();
+        entityManager.clear();
+
+        List<String> lines = export("alice");
+
+        assertThat(lines).hasSize(NoteExportService.BATCH_SIZE + 5);
+        assertThat(parse(lines.get(lines.size() - 1)).getTitolo()).isEqualTo("Nota " + (NoteExportService.BATCH_SIZE + 4));
+    }
+
+    @Test
+    void shouldWriteNothingWithoutNotes() throws Exception {
+        assertThat(export("bob")).isEmpty();
+    }
+
+    @Test
+    void shouldExportCborSequence() throws Exception {
+        Note first = entityManager.persist(new Note("Spesa", "Latte \"intero\" e pane", bob));
+        Note second = entityManager.persist(new Note("Palestra", "Lunedì e venerdì", bob));
+        entityManager.flush();
+        noteAccessRepository.rebuildAll();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = noteExportService.exportNotes("bob", out, NoteExportService.Format.CBOR);
+
+        List<NoteDto> notes;
+        try (MappingIterator<NoteDto> iterator = objectMapper.copyWith(new CBORFactory())
+                .readerFor(NoteDto.class).readValues(out.toByteArray())) {
+            notes = iterator.readAll();
+        }
+        assertThat(count).isEqualTo(2);
+        assertThat(notes).extracting(NoteDto::getId).containsExactly(first.getId(), second.getId());
+        assertThat(notes.get(0).getContenuto()).isEqualTo("Latte \"intero\" e pane");
+        assertThat(notes.get(1).getDataModifica()).isNotNull();
+    }
+
+    @Test
+    void shouldNegotiateFormatByQuality() {
+        assertThat(NoteExportService.Format.of(null, "application/x-ndjson, application/cbor;q=0.1"))
+                .isEqualTo(NoteExportService.Format.NDJSON);
+        assertThat(NoteExportService.Format.of(null, "application/cbor")).isEqualTo(NoteExportService.Format.CBOR);
+        assertThat(NoteExportService.Format.of(null, "application/cbor-seq;q=0.5, application/x-jackson-smile"))
+                .isEqualTo(NoteExportService.Format.SMILE);
+        assertThat(NoteExportService.Format.of(null, "*/*")).isEqualTo(NoteExportService.Format.NDJSON);
+        assertThat(NoteExportService.Format.of("smile", "application/cbor")).isEqualTo(NoteExportService.Format.SMILE);
+    }
+
+    private List<String> export(String username) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        noteExportService.exportNotes(username, out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private NoteDto parse(String line) {
+        try {
+            return objectMapper.readValue(line, NoteDto.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
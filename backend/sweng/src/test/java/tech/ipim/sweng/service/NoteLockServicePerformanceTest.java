@@ -47,6 +47,9 @@ class NoteLockServicePerformanceTest {
     @Mock
     private NoteService noteService;
     
+    @Mock
+    private NoteAclCache noteAclCache;
+
     @InjectMocks
     private NoteLockService noteLockService;
     
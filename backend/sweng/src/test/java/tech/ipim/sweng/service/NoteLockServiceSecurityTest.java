@@ -52,6 +52,9 @@ class NoteLockServiceSecurityTest {
     @Mock
     private NoteService noteService;
     
+    @Mock
+    private NoteAclCache noteAclCache;
+
     @InjectMocks
     private NoteLockService noteLockService;
     
@@ -80,8 +83,8 @@ class NoteLockServiceSecurityTest {
         privateNote.setContenuto("Private content");
         privateNote.setAutore(owner);
         privateNote.setTipoPermesso(TipoPermesso.PRIVATA);
-        privateNote.setPermessiLettura(new HashSet<>());
-        privateNote.setPermessiScrittura(new HashSet<>());
+        privateNote.setLettori(new HashSet<>());
+        privateNote.setScrittori(new HashSet<>());
         privateNote.setDataCreazione(LocalDateTime.now());
         privateNote.setDataModifica(LocalDateTime.now());
     }
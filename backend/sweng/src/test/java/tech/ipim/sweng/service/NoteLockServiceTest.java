@@ -56,6 +56,9 @@ class NoteLockServiceTest {
     @Mock
     private NoteService noteService;
     
+    @Mock
+    private NoteAclCache noteAclCache;
+
     @InjectMocks
     private NoteLockService noteLockService;
     
@@ -85,8 +88,8 @@ class NoteLockServiceTest {
         testNote.setContenuto("Test Content");
         testNote.setAutore(testUser);
         testNote.setTipoPermesso(TipoPermesso.CONDIVISA_SCRITTURA);
-        testNote.setPermessiLettura(new HashSet<>());
-        testNote.setPermessiScrittura(new HashSet<>());
+        testNote.setLettori(new HashSet<>());
+        testNote.setScrittori(new HashSet<>());
         testNote.setDataCreazione(LocalDateTime.now());
         testNote.setDataModifica(LocalDateTime.now());
         
@@ -0,0 +1,173 @@
+package tech.ipim.sweng.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteSummaryDto;
+import tech.ipim.sweng.model.Gruppo;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteAccessRepository;
+import tech.ipim.sweng.repository.NoteGroupAccessRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test di integrazione per {@link NoteReadService}: costruzione dei DTO degli elenchi
+ * dalle proiezioni, senza caricare le entità.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldBuildDtosInRequestedOrder} – DTO completi di tag e permessi, nell'ordine degli id ricevuti</li>
+ *   <li>{@code shouldHideCartelleFromNonOwners} – Le cartelle di una nota altrui non vengono restituite</li>
+ *   <li>{@code shouldGrantEditThroughGroup} – La modifica concessa a un gruppo vale per i suoi membri</li>
+ *   <li>{@code shouldLeaveNoManagedEntities} – Il contesto di persistenza resta vuoto dopo la lettura</li>
+ *   <li>{@code shouldBuildSummariesWithTruncatedPreview} – Forma ridotta con anteprima troncata, tag e flag dal livello di accesso</li>
+ * </ul>
+ */
+@DataJpaTest
+@Import(NoteReadService.class)
+@DisplayName("NoteReadService - Test proiezioni degli elenchi")
+class NoteReadServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NoteReadService noteReadService;
+
+    @Autowired
+    private NoteAccessRepository noteAccessRepository;
+
+    @Autowired
+    private NoteGroupAccessRepository noteGroupAccessRepository;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = entityManager.persistAndFlush(new User("alice", "password123"));
+        bob = entityManager.persistAndFlush(new User("bob", "password123"));
+    }
+
+    @Test
+    void shouldBuildDtosInRequestedOrder() {
+        Note first = new Note("Spesa", "Latte e pane", alice);
+        first.setTags(new HashSet<>(Set.of("casa", "cibo")));
+        first.setCartelle(new HashSet<>(Set.of("Personale")));
+        first = entityManager.persist(first);
+        Note second = new Note("Riunione", "Ordine del giorno", alice);
+        second.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
+        second.setLettori(new HashSet<>(Set.of(bob)));
+        second = entityManager.persist(second);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<NoteDto> result = noteReadService.findByIds("alice", List.of(second.getId(), 999L, first.getId()));
+
+        assertThat(result).extracting(NoteDto::getId).containsExactly(second.getId(), first.getId());
+        assertThat(result.get(0).getPermessiLettura()).containsExactly("bob");
+        assertThat(result.get(1).getTags()).containsExactlyInAnyOrder("casa", "cibo");
+        assertThat(result.get(1).getCartelle()).containsExactly("Personale");
+        assertThat(result.get(1).getAutore()).isEqualTo("alice");
+        assertThat(result.get(1).isOwner()).isTrue();
+        assertThat(result.get(1).isCanDelete()).isTrue();
+    }
+
+    @Test
+    void shouldHideCartelleFromNonOwners() {
+        Note shared = new Note("Riunione", "Ordine del giorno", alice);
+        shared.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
+        shared.setLettori(new HashSet<>(Set.of(bob)));
+        shared.setCartelle(new HashSet<>(Set.of("Lavoro")));
+        shared = entityManager.persist(shared);
+        entityManager.flush();
+        entityManager.clear();
+
+        NoteDto dto = noteReadService.findByIds("bob", List.of(shared.getId())).get(0);
+
+        assertThat(dto.getCartelle()).isEmpty();
+        assertThat(dto.isOwner()).isFalse();
+        assertThat(dto.canView()).isTrue();
+        assertThat(dto.isCanEdit()).isFalse();
+    }
+
+    @Test
+    void shouldGrantEditThroughGroup() {
+        Gruppo team = new Gruppo("team", alice);
+        team.getMembri().add(bob);
+        team = entityManager.persist(team);
+        Note shared = new Note("Piano", "Obiettivi", alice);
+        shared.setTipoPermesso(TipoPermesso.CONDIVISA_SCRITTURA);
+        shared.setGruppiScrittura(new HashSet<>(Set.of(team)));
+        shared = entityManager.persist(shared);
+        entityManager.flush();
+        entityManager.clear();
+
+        NoteDto dto = noteReadService.findByIds("bob", List.of(shared.getId())).get(0);
+
+        assertThat(dto.getGruppiScrittura()).containsExactly("team");
+        assertThat(dto.isCanEdit()).isTrue();
+        assertThat(dto.isCanDelete()).isFalse();
+    }
+
+    @Test
+    void shouldLeaveNoManagedEntities() {
+        Note note = entityManager.persist(new Note("Spesa", "Latte e pane", alice));
+        entityManager.flush();
+        entityManager.clear();
+
+        noteReadService.findByIds("alice", List.of(note.getId()));
+
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void shouldBuildSummariesWithTruncatedPreview() {
+        Gruppo team = new Gruppo("team", alice);
+        team.getMembri().add(bob);
+        team = entityManager.persist(team);
+        Note lunga = new Note("Lunga", "x".repeat(NoteSummaryDto.PREVIEW_LENGTH + 10), alice);
+        lunga.setTipoPermesso(TipoPermesso.CONDIVISA_SCRITTURA);
+        lunga.setGruppiScrittura(new HashSet<>(Set.of(team)));
+        lunga.setTags(new HashSet<>(Set.of("idee")));
+        lunga = entityManager.persist(lunga);
+        Note lettura = new Note("Lettura", "Breve", alice);
+        lettura.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
+        lettura.setLettori(new HashSet<>(Set.of(bob)));
+        lettura = entityManager.persist(lettura);
+        Note propria = entityManager.persist(new Note("Propria", "Mia", bob));
+        entityManager.flush();
+        noteAccessRepository.rebuildAll();
+        noteGroupAccessRepository.rebuildAll();
+        entityManager.clear();
+
+        List<NoteSummaryDto> result = noteReadService.findSummariesByIds("bob",
+                List.of(lunga.getId(), lettura.getId(), propria.getId()));
+
+        assertThat(result).extracting(NoteSummaryDto::getId).containsExactly(lunga.getId(), lettura.getId(), propria.getId());
+        assertThat(result.get(0).getAnteprima()).hasSize(NoteSummaryDto.PREVIEW_LENGTH);
+        assertThat(result.get(0).isAnteprimaTroncata()).isTrue();
+        assertThat(result.get(0).getTags()).containsExactly("idee");
+        assertThat(result.get(0).isCanEdit()).isTrue();
+        assertThat(result.get(0).isCanDelete()).isFalse();
+        assertThat(result.get(1).getAnteprima()).isEqualTo("Breve");
+        assertThat(result.get(1).isAnteprimaTroncata()).isFalse();
+        assertThat(result.get(1).isCanEdit()).isFalse();
+        assertThat(result.get(2).isOwner()).isTrue();
+        assertThat(result.get(2).isCanDelete()).isTrue();
+    }
+}
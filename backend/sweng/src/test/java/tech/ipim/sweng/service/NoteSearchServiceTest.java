@@ -0,0 +1,144 @@
+package tech.ipim.sweng.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.search.InMemoryNoteSearchEngine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link NoteSearchService}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldRestoreIndexesFromDiskOnRestart} – Al riavvio gli indici arrivano da disco e dal database si rileggono solo le note cambiate</li>
+ *   <li>{@code shouldBuildFromDatabaseWithoutIndexDir} – Senza cartella degli indici la ricostruzione legge tutte le note</li>
+ *   <li>{@code shouldKeepServingAndKeepWritesDuringRebuild} – Durante la ricostruzione le ricerche usano gli indici correnti e le scritture non vanno perse</li>
+ *   <li>{@code shouldLimitRankedIdsToAccessibleNotes} – La ricerca per utente restituisce solo note accessibili, entro il massimo di risultati</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteSearchService - Test costruzione e ripristino degli indici")
+class NoteSearchServiceTest {
+
+    @TempDir
+    private Path indexDir;
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Test
+    void shouldRestoreIndexesFromDiskOnRestart() throws IOException {
+        when(noteRepository.findAllSearchableContent()).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "Riunione di progetto", "Budget"},
+                new Object[]{2L, "Lista della spesa", "Latte e pane"}));
+        when(noteRepository.findAllTagPairs()).thenReturn(List.<Object[]>of(new Object[]{1L, "lavoro"}));
+        when(noteRepository.findAllCartellaPairs()).thenReturn(List.of());
+
+        NoteSearchService first = newService(indexDir.toString());
+        first.rebuildIndex();
+        first.close();
+        clearInvocations(noteRepository);
+
+        // mentre l'applicazione era ferma: nota 2 eliminata, nota 3 creata
+        User autore = new User("owner", "password123");
+        Note created = new Note("Palestra", "Lunedì e venerdì", autore);
+        created.setId(3L);
+        created.setTags(new HashSet<>(Set.of("sport")));
+        when(noteRepository.findIdsModifiedSince(any(LocalDateTime.class))).thenReturn(List.of(3L));
+        when(noteRepository.findAllIds()).thenReturn(List.of(1L, 3L));
+        when(noteRepository.findAllById(any())).thenReturn(List.of(created));
+
+        NoteSearchService restarted = newService(indexDir.toString());
+        restarted.rebuildIndex();
+
+        verify(noteRepository, never()).findAllSearchableContent();
+        assertThat(restarted.findRankedIds("riunione")).containsExactly(1L);
+        assertThat(restarted.findRankedIds("spesa")).isEmpty();
+        assertThat(restarted.findRankedIds("palestra")).containsExactly(3L);
+        restarted.close();
+    }
+
+    @Test
+    void shouldBuildFromDatabaseWithoutIndexDir() {
+        when(noteRepository.findAllSearchableContent()).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "Riunione di progetto", "Budget"}));
+        when(noteRepository.findAllTagPairs()).thenReturn(List.of());
+        when(noteRepository.findAllCartellaPairs()).thenReturn(List.of());
+
+        NoteSearchService service = newService("");
+        service.rebuildIndex();
+
+        assertThat(service.findRankedIds("budget")).containsExactly(1L);
+        verify(noteRepository, never()).findAllIds();
+        service.close();
+    }
+
+    @Test
+    void shouldKeepServingAndKeepWritesDuringRebuild() {
+        List<Object[]> rows = List.<Object[]>of(new Object[]{1L, "Riunione di progetto", "Budget"});
+        when(noteRepository.findAllTagPairs()).thenReturn(List.of());
+        when(noteRepository.findAllCartellaPairs()).thenReturn(List.of());
+        when(noteRepository.findAllSearchableContent()).thenReturn(rows);
+        NoteSearchService service = newService("");
+        service.rebuildIndex();
+
+        Note created = new Note("Palestra", "Lunedì e venerdì", new User("owner", "password123"));
+        created.setId(2L);
+        when(noteRepository.findAllSearchableContent()).thenAnswer(invocation -> {
+            // nota salvata dopo la lettura del database, mentre la ricostruzione è in corso
+            assertThat(service.findRankedIds("riunione")).containsExactly(1L);
+            service.indexNote(created);
+            return rows;
+        });
+        service.rebuildIndex();
+
+        assertThat(service.findRankedIds("riunione")).containsExactly(1L);
+        assertThat(service.findRankedIds("palestra")).containsExactly(2L);
+        service.close();
+    }
+
+    @Test
+    void shouldLimitRankedIdsToAccessibleNotes() {
+        when(noteRepository.findAllSearchableContent()).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "Riunione di progetto", "Budget"},
+                new Object[]{2L, "Riunione settimanale", "Budget"},
+                new Object[]{3L, "Riunione annuale", "Budget"},
+                new Object[]{4L, "Riunione privata", "Budget"}));
+        when(noteRepository.findAllTagPairs()).thenReturn(List.of());
+        when(noteRepository.findAllCartellaPairs()).thenReturn(List.of());
+        when(noteRepository.findAccessibleIds("testuser")).thenReturn(List.of(1L, 2L, 3L));
+
+        NoteSearchService service = newService("");
+        service.rebuildIndex();
+
+        assertThat(service.findRankedIds("riunione", "testuser")).hasSize(2).doesNotContain(4L);
+        assertThat(service.findFuzzyIds("riunone", "testuser")).hasSize(2).doesNotContain(4L);
+        verify(noteRepository, never()).findAccessibleIdsByIds(any(), any());
+        service.close();
+    }
+
+    private NoteSearchService newService(String dir) {
+        return new NoteSearchService(noteRepository, new InMemoryNoteSearchEngine(), 0.3, 2, dir, 10000);
+    }
+}
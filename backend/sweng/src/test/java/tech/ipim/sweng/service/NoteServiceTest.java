@@ -7,23 +7,36 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import tech.ipim.sweng.dto.CreateNoteRequest;
+import tech.ipim.sweng.dto.NoteCursor;
 import tech.ipim.sweng.dto.NoteDto;
+import tech.ipim.sweng.dto.NoteFilter;
+import tech.ipim.sweng.dto.NotePageDto;
+import tech.ipim.sweng.dto.NoteSummaryDto;
+import tech.ipim.sweng.dto.SearchHighlightDto;
 import tech.ipim.sweng.model.Note;
 import tech.ipim.sweng.model.User;
 import tech.ipim.sweng.repository.NoteRepository;
 import tech.ipim.sweng.repository.UserRepository;
+import tech.ipim.sweng.search.TermMatch;
 import tech.ipim.sweng.dto.UpdateNoteRequest;
 import tech.ipim.sweng.model.TipoPermesso;
 import tech.ipim.sweng.dto.NoteVersionDto;
 import tech.ipim.sweng.dto.VersionComparisonDto;
+import tech.ipim.sweng.dto.VersionSearchHitDto;
 import tech.ipim.sweng.model.NoteVersion;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -72,6 +85,27 @@ class NoteServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private NoteSearchService noteSearchService;
+
+    @Mock
+    private NoteSuggestionService noteSuggestionService;
+
+    @Mock
+    private NoteAccessService noteAccessService;
+
+    @Mock
+    private NoteAclCache noteAclCache;
+
+    @Mock
+    private NoteReadService noteReadService;
+
+    @Mock
+    private NoteChangeService noteChangeService;
+
+    @Mock
+    private UserCache userCache;
+
     @InjectMocks
     private NoteService noteService;
 
@@ -90,8 +124,8 @@ class NoteServiceTest {
         testNote.setCartelle(new HashSet<>(Set.of("Test Folder")));
 
         testNote.setTipoPermesso(TipoPermesso.PRIVATA);
-        testNote.setPermessiLettura(new HashSet<>());
-        testNote.setPermessiScrittura(new HashSet<>());
+        testNote.setLettori(new HashSet<>());
+        testNote.setScrittori(new HashSet<>());
 
         createRequest = new CreateNoteRequest();
         createRequest.setTitolo("New Note");
@@ -115,7 +149,7 @@ class NoteServiceTest {
     @Test
     void shouldCreateNoteSuccessfully() {
         // Setup dell'utente
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
 
         // Setup della nota che verrà restituita dal mock
         Note savedNote = new Note("New Note", "New note content", testUser);
@@ -123,8 +157,8 @@ class NoteServiceTest {
         savedNote.setTags(new HashSet<>(Set.of("new", "test")));
         savedNote.setCartelle(new HashSet<>(Set.of("New Folder")));
         savedNote.setTipoPermesso(TipoPermesso.PRIVATA);
-        savedNote.setPermessiLettura(new HashSet<>());
-        savedNote.setPermessiScrittura(new HashSet<>());
+        savedNote.setLettori(new HashSet<>());
+        savedNote.setScrittori(new HashSet<>());
 
         // CRITICAL: Mock per saveAndFlush invece di save
         when(noteRepository.saveAndFlush(any(Note.class))).thenReturn(savedNote);
@@ -148,7 +182,7 @@ class NoteServiceTest {
         assertThat(result.getAutore()).isEqualTo("testuser");
 
         // Verifica che i metodi siano stati chiamati
-        verify(userRepository).findByUsername("testuser");
+        verify(userCache).getReference("testuser");
         verify(noteRepository).saveAndFlush(any(Note.class)); // Non save!
         verify(noteVersionService).createVersion(any(Note.class), eq("testuser"), eq("Creazione nota"));
     }
@@ -163,7 +197,7 @@ class NoteServiceTest {
 
     @Test
     void shouldThrowExceptionWhenUserNotFoundForCreation() {
-        when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+        when(userCache.getReference("nonexistent")).thenThrow(new RuntimeException("Utente non trovato: nonexistent"));
 
         assertThatThrownBy(() -> noteService.createNote(createRequest, "nonexistent"))
                 .isInstanceOf(RuntimeException.class)
@@ -175,78 +209,83 @@ class NoteServiceTest {
     /**
      * Test per recuperare tutte le note accessibili da un dato utente.
      * <p>
-     * Mocka il repository note per restituire una lista contenente la nota di test.
+     * Mocka il repository note per restituire la chiave della nota di test e il servizio
+     * di lettura per costruirne il DTO dalle proiezioni.
      * Verifica che la lista restituita dal servizio contenga esattamente una nota
      * e che il titolo corrisponda a quello atteso.
-     * Controlla che il metodo findAllAccessibleNotes sia chiamato una volta con il corretto username.
+     * Controlla che le entità non vengano caricate con findAllAccessibleNotes.
      */
 
     @Test
     void shouldGetAllAccessibleNotes() {
-        List<Note> notes = Arrays.asList(testNote);
-        when(noteRepository.findAllAccessibleNotes("testuser")).thenReturn(notes);
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        stubReadModel(testNote);
 
         List<NoteDto> result = noteService.getAllAccessibleNotes("testuser");
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getTitolo()).isEqualTo("Test Note");
 
-        verify(noteRepository).findAllAccessibleNotes("testuser");
+        verify(noteReadService).findByIds("testuser", List.of(1L));
+        verify(noteRepository, never()).findAllAccessibleNotes(anyString());
     }
 
     /**
      * Test per ottenere tutte le note create da un utente specifico.
      * <p>
-     * Mocka il repository utente per restituire l'utente di test con username "testuser".
-     * Mocka il repository note per restituire la lista delle note di quell'autore ordinate per data modifica decrescente.
+     * Mocka la cache degli utenti per riconoscere l'utente di test con username "testuser".
+     * Mocka il repository note per restituire le chiavi delle note di quell'autore ordinate per data modifica decrescente.
      * Verifica che la lista contenga la nota di test con l'autore corretto.
      * Controlla che entrambi i repository vengano interrogati con i parametri corretti.
      */
 
     @Test
     void shouldGetUserNotes() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(noteRepository.findByAutoreOrderByDataModificaDesc(testUser)).thenReturn(Arrays.asList(testNote));
+        when(userCache.findId("testuser")).thenReturn(1L);
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        stubReadModel(testNote);
 
         List<NoteDto> result = noteService.getUserNotes("testuser");
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getAutore()).isEqualTo("testuser");
 
-        verify(userRepository).findByUsername("testuser");
-        verify(noteRepository).findByAutoreOrderByDataModificaDesc(testUser);
+        verify(userCache).findId("testuser");
+        verify(noteRepository, never()).findByAutoreOrderByDataModificaDesc(any());
     }
 
     /**
      * Test per ottenere una singola nota accessibile tramite ID e username.
      * <p>
-     * Mocka il repository note per restituire la nota di test in un Optional.
+     * Mocka il repository note per confermare che l'id è accessibile e il servizio di lettura
+     * per costruirne il DTO dalle proiezioni.
      * Verifica che il risultato del servizio sia presente e che l'ID corrisponda a quello atteso.
-     * Assicura che il metodo findAccessibleNoteById sia chiamato con i parametri corretti.
+     * Assicura che l'entità non venga caricata con findAccessibleNoteById.
      */
 
     @Test
     void shouldGetNoteById() {
-        when(noteRepository.findAccessibleNoteById(1L, "testuser")).thenReturn(Optional.of(testNote));
+        when(noteRepository.findAccessibleIdsByIds("testuser", List.of(1L))).thenReturn(List.of(1L));
+        stubReadModel(testNote);
 
         Optional<NoteDto> result = noteService.getNoteById(1L, "testuser");
 
         assertThat(result).isPresent();
         assertThat(result.get().getId()).isEqualTo(1L);
 
-        verify(noteRepository).findAccessibleNoteById(1L, "testuser");
+        verify(noteRepository, never()).findAccessibleNoteById(anyLong(), anyString());
     }
 
     /**
      * Test che verifica il comportamento nel caso in cui la nota con l'ID specificato non esista.
      * <p>
-     * Mocka il repository note per restituire Optional.empty().
+     * Mocka il repository note per non restituire alcun id accessibile.
      * Verifica che il servizio restituisca un Optional vuoto senza eccezioni.
      */
 
     @Test
     void shouldReturnEmptyWhenNoteNotFound() {
-        when(noteRepository.findAccessibleNoteById(999L, "testuser")).thenReturn(Optional.empty());
+        when(noteRepository.findAccessibleIdsByIds("testuser", List.of(999L))).thenReturn(List.of());
 
         Optional<NoteDto> result = noteService.getNoteById(999L, "testuser");
 
@@ -256,56 +295,281 @@ class NoteServiceTest {
     /**
      * Test per la ricerca di note tramite keyword.
      * <p>
-     * Mocka il repository note per restituire una lista contenente la nota di test filtrata per keyword.
+     * Mocka l'indice di ricerca per restituire l'id della nota di test, già limitato
+     * alle note accessibili: non servono altre query sui permessi.
      * Verifica che la lista risultante abbia dimensione uno e il titolo corrispondente.
-     * Controlla la chiamata del repository con i parametri corretti.
      */
 
     @Test
     void shouldSearchNotes() {
-        when(noteRepository.searchNotesByKeyword("testuser", "test")).thenReturn(Arrays.asList(testNote));
+        when(noteSearchService.findRankedIds("test", "testuser")).thenReturn(List.of(1L));
+        stubReadModel(testNote);
 
         List<NoteDto> result = noteService.searchNotes("testuser", "test");
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getTitolo()).isEqualTo("Test Note");
 
-        verify(noteRepository).searchNotesByKeyword("testuser", "test");
+        verify(noteRepository, never()).findAccessibleIdsByIds(anyString(), any());
+    }
+
+    /**
+     * Verifica che i risultati della ricerca mantengano l'ordine di rilevanza
+     * del motore, indipendentemente dall'ordine restituito dal database.
+     */
+    @Test
+    void shouldKeepSearchEngineRankingOrder() {
+        Note secondNote = new Note("Seconda", "Test content", testUser);
+        secondNote.setId(2L);
+        secondNote.setTipoPermesso(TipoPermesso.PRIVATA);
+
+        when(noteSearchService.findRankedIds("test", "testuser")).thenReturn(List.of(2L, 1L));
+        stubReadModel(testNote, secondNote);
+
+        List<NoteDto> result = noteService.searchNotes("testuser", "test");
+
+        assertThat(result).extracting(NoteDto::getId).containsExactly(2L, 1L);
+    }
+
+    /**
+     * Verifica che le evidenziazioni siano costruite dalle posizioni restituite dall'indice.
+     */
+    @Test
+    void shouldBuildSearchHighlightsFromIndexPositions() {
+        NoteDto dto = NoteDto.fromNote(testNote, "testuser");
+        int start = testNote.getContenuto().indexOf("test");
+        when(noteSearchService.findMatches(1L, "Test Note", testNote.getContenuto(), "test"))
+                .thenReturn(List.of(new TermMatch(1, start, start + 4)));
+
+        List<SearchHighlightDto> highlights = noteService.getSearchHighlights(" test ", List.of(dto));
+
+        assertThat(highlights).hasSize(1);
+        assertThat(highlights.get(0).getNoteId()).isEqualTo(1L);
+        assertThat(highlights.get(0).getContenutoMatches()).extracting(SearchHighlightDto.Range::getStart)
+                .containsExactly(start);
+    }
+
+    /**
+     * Verifica che la ricerca nelle versioni restituisca solo le versioni di note oggi leggibili.
+     */
+    @Test
+    void shouldSearchVersionsOnlyOfAccessibleNotes() {
+        VersionSearchHitDto own = new VersionSearchHitDto(1L, 3, "Test Note", LocalDateTime.now(), "testuser");
+        VersionSearchHitDto revoked = new VersionSearchHitDto(2L, 1, "Altra nota", LocalDateTime.now(), "altro");
+        VersionSearchHitDto ownOlder = new VersionSearchHitDto(1L, 1, "Test Note", LocalDateTime.now(), "testuser");
+        when(noteVersionService.searchVersions("budget")).thenReturn(List.of(own, revoked, ownOlder));
+        when(noteRepository.findAccessibleIdsByIds("testuser", List.of(1L, 2L))).thenReturn(List.of(1L));
+
+        List<VersionSearchHitDto> result = noteService.searchNoteVersions("testuser", " budget ");
+
+        assertThat(result).containsExactly(own, ownOlder);
+    }
+
+    /**
+     * Verifica che la ricerca fuzzy usi l'indice di trigrammi e non quello esatto.
+     */
+    @Test
+    void shouldSearchNotesWithFuzzyMode() {
+        when(noteSearchService.findFuzzyIds("tset", "testuser")).thenReturn(List.of(1L));
+        stubReadModel(testNote);
+
+        List<NoteDto> result = noteService.searchNotes("testuser", "tset", true);
+
+        assertThat(result).hasSize(1);
+        verify(noteSearchService, never()).findRankedIds(anyString(), anyString());
+    }
+
+    /**
+     * Verifica che senza ricerca testuale i filtri vengano risolti con una sola query
+     * ordinata per data di modifica.
+     */
+    @Test
+    void shouldFindNotesWithCombinedFiltersInSingleQuery() {
+        NoteFilter filter = new NoteFilter();
+        filter.setAutore("testuser");
+        filter.setDataInizio(LocalDate.of(2025, 1, 1));
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        stubReadModel(testNote);
+
+        List<NoteDto> result = noteService.findNotes("testuser", filter);
+
+        assertThat(result).extracting(NoteDto::getId).containsExactly(1L);
+        verify(noteRepository).findKeys(any(Specification.class));
+        verify(noteRepository, never()).findAll(any(Specification.class), any(Sort.class));
+        verify(noteSearchService, never()).findRankedIds(anyString(), anyString());
+    }
+
+    /**
+     * Verifica che la forma ridotta usi gli stessi filtri dell'elenco completo ma costruisca
+     * le note con la proiezione ridotta.
+     */
+    @Test
+    void shouldFindNoteSummariesWithSameFilters() {
+        NoteFilter filter = new NoteFilter();
+        filter.setAutore("testuser");
+        NoteSummaryDto summary = new NoteSummaryDto(1L, "Test Note", "Test content", "testuser",
+                testNote.getDataModifica(), TipoPermesso.PRIVATA);
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        when(noteReadService.findSummariesByIds("testuser", List.of(1L))).thenReturn(List.of(summary));
+
+        List<NoteSummaryDto> result = noteService.findNoteSummaries("testuser", filter);
+
+        assertThat(result).containsExactly(summary);
+        verify(noteReadService, never()).findByIds(anyString(), any());
+    }
+
+    /**
+     * Verifica che con una ricerca testuale gli id del motore vengano combinati con gli
+     * altri filtri e che il risultato mantenga l'ordine di rilevanza.
+     */
+    @Test
+    void shouldFindNotesWithSearchKeepingRanking() {
+        Note secondNote = new Note("Seconda", "Test content", testUser);
+        secondNote.setId(2L);
+        secondNote.setTipoPermesso(TipoPermesso.PRIVATA);
+        NoteFilter filter = new NoteFilter();
+        filter.setSearch("test");
+        filter.setFilter("own");
+        when(noteSearchService.findRankedIds("test", "testuser")).thenReturn(List.of(2L, 1L));
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote, secondNote));
+        stubReadModel(testNote, secondNote);
+
+        List<NoteDto> result = noteService.findNotes("testuser", filter);
+
+        assertThat(result).extracting(NoteDto::getId).containsExactly(2L, 1L);
+    }
+
+    /**
+     * Verifica che una ricerca senza candidati nel motore non interroghi il database.
+     */
+    @Test
+    void shouldNotQueryDatabaseWhenFilteredSearchHasNoCandidates() {
+        NoteFilter filter = new NoteFilter();
+        filter.setSearch("assente");
+        when(noteSearchService.findRankedIds("assente", "testuser")).thenReturn(List.of());
+
+        assertThat(noteService.findNotes("testuser", filter)).isEmpty();
+        verify(noteRepository, never()).findKeys(any(Specification.class));
+    }
+
+    /**
+     * Verifica che una ricerca senza candidati nell'indice non interroghi il database.
+     */
+    @Test
+    void shouldNotQueryDatabaseWhenSearchHasNoCandidates() {
+        when(noteSearchService.findRankedIds("assente", "testuser")).thenReturn(List.of());
+
+        List<NoteDto> result = noteService.searchNotes("testuser", "assente");
+
+        assertThat(result).isEmpty();
+        verify(noteRepository, never()).findAccessibleIdsByIds(anyString(), any());
+        verify(noteReadService, never()).findByIds(anyString(), any());
     }
 
     /**
      * Test per il recupero di note filtrate tramite tag.
      * <p>
-     * Mocka il repository per restituire la lista di note che contengono il tag specificato.
-     * Verifica che la lista risultante contenga la nota di test.
-     * Controlla la corretta chiamata al repository con username e tag.
+     * Mocka l'indice di tag per restituire la bitmap con l'id della nota di test
+     * e il repository per leggere solo le chiavi delle note accessibili tra quelle candidate.
+     * Verifica che la lista risultante contenga la nota di test e che non venga
+     * usata la query con JOIN sui tag.
      */
     @Test
     void shouldGetNotesByTag() {
-        when(noteRepository.findNotesByTag("testuser", "test")).thenReturn(Arrays.asList(testNote));
+        when(noteSearchService.findIdsByTagsAndCartella(any(NoteFilter.class))).thenReturn(Roaring64NavigableMap.bitmapOf(1L));
+        when(noteSearchService.findAccessibleIds("testuser")).thenReturn(Roaring64NavigableMap.bitmapOf(1L));
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        stubReadModel(testNote);
 
         List<NoteDto> result = noteService.getNotesByTag("testuser", "test");
 
         assertThat(result).hasSize(1);
-        verify(noteRepository).findNotesByTag("testuser", "test");
+        verify(noteSearchService).findIdsByTagsAndCartella(argThat(f -> List.of("test").equals(f.getTags())));
+        verify(noteRepository, never()).findNotesByTag(anyString(), anyString());
     }
 
     /**
      * Test per il recupero di note filtrate tramite cartella.
      * <p>
-     * Mocka il repository per restituire la lista di note nella cartella specificata.
+     * Mocka l'indice di cartelle per restituire la bitmap con l'id della nota di test.
      * Verifica che la lista risultante contenga la nota di test.
-     * Controlla la chiamata del repository con i parametri attesi.
      */
 
     @Test
     void shouldGetNotesByCartella() {
-        when(noteRepository.findNotesByCartella("testuser", "Test Folder")).thenReturn(Arrays.asList(testNote));
+        when(noteSearchService.findIdsByTagsAndCartella(any(NoteFilter.class))).thenReturn(Roaring64NavigableMap.bitmapOf(1L));
+        when(noteSearchService.findAccessibleIds("testuser")).thenReturn(Roaring64NavigableMap.bitmapOf(1L));
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        stubReadModel(testNote);
 
         List<NoteDto> result = noteService.getNotesByCartella("testuser", "Test Folder");
 
         assertThat(result).hasSize(1);
-        verify(noteRepository).findNotesByCartella("testuser", "Test Folder");
+        verify(noteSearchService).findIdsByTagsAndCartella(argThat(f -> "Test Folder".equals(f.getCartella())));
+        verify(noteRepository, never()).findNotesByCartella(anyString(), anyString());
+    }
+
+    /**
+     * Verifica che un'espressione sui tag senza note corrispondenti nelle bitmap
+     * non interroghi il database.
+     */
+    @Test
+    void shouldNotQueryDatabaseWhenTagExpressionMatchesNothing() {
+        NoteFilter filter = new NoteFilter();
+        filter.setTags(List.of("work", "urgent"));
+        filter.setNotTags(List.of("done"));
+        when(noteSearchService.findIdsByTagsAndCartella(filter)).thenReturn(new Roaring64NavigableMap());
+
+        assertThat(noteService.findNotes("testuser", filter)).isEmpty();
+        verify(noteRepository, never()).findKeys(any(Specification.class));
+    }
+
+    /**
+     * Verifica che con più note accessibili nel tag di quante stiano in una query
+     * il filtro passi al predicato SQL, con una sola query invece di una per blocco di id.
+     */
+    @Test
+    void shouldUseSqlTagPredicateForLargeCandidateSets() {
+        Roaring64NavigableMap candidates = new Roaring64NavigableMap();
+        candidates.add(1L, 2501L);
+        Roaring64NavigableMap accessible = new Roaring64NavigableMap();
+        accessible.add(1L, 2001L);
+        when(noteSearchService.findIdsByTagsAndCartella(any(NoteFilter.class))).thenReturn(candidates);
+        when(noteSearchService.findAccessibleIds("testuser")).thenReturn(accessible);
+        when(noteRepository.findKeys(any(Specification.class))).thenReturn(keys(testNote));
+        stubReadModel(testNote);
+
+        List<NoteDto> result = noteService.getNotesByTag("testuser", "test");
+
+        assertThat(result).extracting(NoteDto::getId).containsExactly(1L);
+        verify(noteRepository).findKeys(any(Specification.class));
+    }
+
+    /**
+     * Verifica che la pagina delle note di un tag legga una riga in più del limite,
+     * ordini per data di modifica e id decrescenti e restituisca il cursore dell'ultima nota.
+     */
+    @Test
+    void shouldPageNotesByTagWithCursor() {
+        LocalDateTime data = LocalDateTime.of(2024, 1, 15, 10, 30);
+        Note older = new Note("Vecchia", "Contenuto", testUser);
+        older.setId(2L);
+        older.setDataModifica(data.minusDays(1));
+        Note sameTime = new Note("Stesso istante", "Contenuto", testUser);
+        sameTime.setId(3L);
+        sameTime.setDataModifica(data);
+        testNote.setDataModifica(data);
+        when(noteSearchService.findIdsByTagsAndCartella(any(NoteFilter.class))).thenReturn(Roaring64NavigableMap.bitmapOf(1L, 2L, 3L));
+        when(noteSearchService.findAccessibleIds("testuser")).thenReturn(Roaring64NavigableMap.bitmapOf(1L, 2L, 3L, 4L));
+        when(noteRepository.findKeys(any(Specification.class), eq(3))).thenReturn(keys(older, testNote, sameTime));
+        stubReadModel(older, testNote, sameTime);
+
+        NotePageDto<NoteDto> page = noteService.getNotesByTag("testuser", "test", null, 2);
+
+        assertThat(page.getNotes()).extracting(NoteDto::getId).containsExactly(3L, 1L);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(NoteCursor.decode(page.getNextCursor()).getId()).isEqualTo(1L);
+        verify(noteReadService).findByIds("testuser", List.of(3L, 1L));
     }
 
     /**
@@ -321,12 +585,13 @@ class NoteServiceTest {
     @Test
     void shouldDuplicateNote() {
         when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
 
         Note duplicatedNote = new Note("Test Note (Copia)", "Test content", testUser);
         duplicatedNote.setId(2L);
         when(noteRepository.save(any(Note.class))).thenReturn(duplicatedNote);
 
+        when(noteAclCache.canRead(1L, "testuser")).thenReturn(true);
         NoteDto result = noteService.duplicateNote(1L, "testuser");
 
         assertThat(result).isNotNull();
@@ -334,7 +599,7 @@ class NoteServiceTest {
         assertThat(result.getContenuto()).isEqualTo("Test content");
 
         verify(noteRepository).findById(1L);
-        verify(userRepository).findByUsername("testuser");
+        verify(userCache).getReference("testuser");
         verify(noteRepository).save(any(Note.class));
     }
 
@@ -356,7 +621,7 @@ class NoteServiceTest {
 
 
         verify(noteRepository).findById(1L);
-        verify(userRepository, never()).findByUsername(anyString());
+        verify(userCache, never()).getReference(anyString());
         verify(noteRepository, never()).save(any(Note.class));
     }
 
@@ -383,7 +648,7 @@ class NoteServiceTest {
 
 
         verify(noteRepository).findById(1L);
-        verify(userRepository, never()).findByUsername(anyString());
+        verify(userCache, never()).getReference(anyString());
         verify(noteRepository, never()).save(any(Note.class));
     }
 
@@ -403,6 +668,9 @@ class NoteServiceTest {
 
         assertThat(result).isTrue();
         verify(noteRepository).delete(testNote);
+        verify(noteAccessService).remove(1L);
+        verify(noteSearchService).removeNote(1L);
+        verify(noteSuggestionService).noteRemoved(1L);
     }
 
     /**
@@ -436,7 +704,7 @@ class NoteServiceTest {
 
     @Test
     void shouldGetUserStats() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userCache.getReference("testuser")).thenReturn(testUser);
         when(noteRepository.countByAutore(testUser)).thenReturn(5L);
         when(noteRepository.countSharedNotes("testuser")).thenReturn(3L);
         when(noteRepository.findAllTagsByUser("testuser")).thenReturn(Arrays.asList("tag1", "tag2"));
@@ -462,7 +730,7 @@ class NoteServiceTest {
 
     @Test
     void shouldThrowExceptionWhenGettingStatsForNonExistentUser() {
-        when(userRepository.findByUsername("nonexistent")).thenReturn(Optional.empty());
+        when(userCache.getReference("nonexistent")).thenThrow(new RuntimeException("Utente non trovato: nonexistent"));
 
         assertThatThrownBy(() -> noteService.getUserStats("nonexistent"))
                 .isInstanceOf(RuntimeException.class)
@@ -487,7 +755,7 @@ class NoteServiceTest {
         User owner = createTestUser("owner", "owner@test.com");
 
         Note note = createTestNote(owner);
-        note.getPermessiLettura().add("shared");
+        note.getLettori().addAll(users("shared"));
 
         when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
         when(noteRepository.save(any(Note.class))).thenReturn(note);
@@ -518,8 +786,8 @@ class NoteServiceTest {
         User owner = createTestUser("owner", "owner@test.com");
 
         Note note = createTestNote(owner);
-        note.getPermessiLettura().add("shared");
-        note.getPermessiScrittura().add("shared");
+        note.getLettori().addAll(users("shared"));
+        note.getScrittori().addAll(users("shared"));
 
         when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
         when(noteRepository.save(any(Note.class))).thenReturn(note);
@@ -622,7 +890,7 @@ class NoteServiceTest {
         // Arrange
         User owner = createTestUser("owner", "owner@test.com");
         Note note = createTestNote(owner);
-        note.getPermessiLettura().add("shared");
+        note.getLettori().addAll(users("shared"));
         LocalDateTime originalModDate = note.getDataModifica();
 
         when(noteRepository.findById(1L)).thenReturn(Optional.of(note));
@@ -665,6 +933,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "owner")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, request, "owner");
 
         // Assert
@@ -677,6 +946,8 @@ class NoteServiceTest {
 
         verify(noteRepository).findById(1L);
         verify(noteRepository).save(note);
+        verify(noteSearchService).indexNote(note);
+        verify(noteSuggestionService).noteChanged(note);
     }
 
     /**
@@ -695,7 +966,7 @@ class NoteServiceTest {
         // Arrange
         User owner = createTestUser("owner", "owner@test.com");
         Note note = createTestNote(owner);
-        note.getPermessiScrittura().add("editor");
+        note.getScrittori().addAll(users("editor"));
 
         UpdateNoteRequest request = new UpdateNoteRequest();
         request.setTitolo("Titolo Modificato");
@@ -705,6 +976,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "editor")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, request, "editor");
 
         // Assert
@@ -802,6 +1074,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "owner")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, request, "owner");
 
         // Assert
@@ -837,6 +1110,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "owner")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, request, "owner");
 
         // Assert
@@ -869,6 +1143,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "owner")).thenReturn(true);
         noteService.updateNote(1L, request, "owner");
 
         // Assert
@@ -897,8 +1172,8 @@ class NoteServiceTest {
         note.setAutore(author);
         note.setDataCreazione(LocalDateTime.now().minusHours(1));
         note.setDataModifica(LocalDateTime.now().minusHours(1));
-        note.setPermessiLettura(new HashSet<>());
-        note.setPermessiScrittura(new HashSet<>());
+        note.setLettori(new HashSet<>());
+        note.setScrittori(new HashSet<>());
         note.setTags(new HashSet<>());
         note.setCartelle(new HashSet<>());
         return note;
@@ -914,7 +1189,8 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe ottenere la cronologia delle versioni per una nota accessibile")
     void shouldGetVersionHistoryForAccessibleNote() {
         // Given
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.exists(1L)).thenReturn(true);
+        when(noteAclCache.canRead(1L, "testuser")).thenReturn(true);
 
         NoteVersion version1 = new NoteVersion(testNote, 1, "Contenuto v1", "Titolo v1", "testuser", "Prima versione");
         NoteVersion version2 = new NoteVersion(testNote, 2, "Contenuto v2", "Titolo v2", "testuser", "Seconda versione");
@@ -930,7 +1206,7 @@ class NoteServiceTest {
         assertThat(result.get(0).getVersionNumber()).isEqualTo(2);
         assertThat(result.get(1).getVersionNumber()).isEqualTo(1);
 
-        verify(noteRepository).findById(1L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService).getVersionHistory(1L);
     }
 
@@ -942,14 +1218,14 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe fallire l'ottenimento cronologia se nota non trovata")
     void shouldFailGetVersionHistoryIfNoteNotFound() {
         // Given
-        when(noteRepository.findById(999L)).thenReturn(Optional.empty());
+        when(noteAclCache.exists(999L)).thenReturn(false);
 
         // When & Then
         assertThatThrownBy(() -> noteService.getNoteVersionHistory(999L, "testuser"))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Nota non trovata");
 
-        verify(noteRepository).findById(999L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService, never()).getVersionHistory(anyLong());
     }
 
@@ -962,18 +1238,15 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe fallire l'ottenimento cronologia se utente non ha accesso")
     void shouldFailGetVersionHistoryIfUserHasNoAccess() {
         // Given
-        Note privateNote = new Note("Nota Privata", "Contenuto Privato", testUser);
-        privateNote.setId(1L);
-        // Nota privata - solo l'autore ha accesso
-
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(privateNote));
+        when(noteAclCache.exists(1L)).thenReturn(true);
+        when(noteAclCache.canRead(1L, "altrouser")).thenReturn(false);
 
         // When & Then
         assertThatThrownBy(() -> noteService.getNoteVersionHistory(1L, "altrouser"))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Non hai accesso a questa nota");
 
-        verify(noteRepository).findById(1L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService, never()).getVersionHistory(anyLong());
     }
 
@@ -986,7 +1259,8 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe ottenere una versione specifica se accessibile")
     void shouldGetSpecificVersionIfAccessible() {
         // Given
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.exists(1L)).thenReturn(true);
+        when(noteAclCache.canRead(1L, "testuser")).thenReturn(true);
 
         NoteVersion version = new NoteVersion(testNote, 2, "Contenuto v2", "Titolo v2", "testuser", "Seconda versione");
         when(noteVersionService.getVersion(1L, 2)).thenReturn(Optional.of(version));
@@ -1000,7 +1274,7 @@ class NoteServiceTest {
         assertThat(result.get().getContenuto()).isEqualTo("Contenuto v2");
         assertThat(result.get().getTitolo()).isEqualTo("Titolo v2");
 
-        verify(noteRepository).findById(1L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService).getVersion(1L, 2);
     }
 
@@ -1012,7 +1286,8 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe restituire vuoto se versione non esiste")
     void shouldReturnEmptyIfVersionNotExists() {
         // Given
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.exists(1L)).thenReturn(true);
+        when(noteAclCache.canRead(1L, "testuser")).thenReturn(true);
         when(noteVersionService.getVersion(1L, 999)).thenReturn(Optional.empty());
 
         // When
@@ -1021,7 +1296,7 @@ class NoteServiceTest {
         // Then
         assertThat(result).isEmpty();
 
-        verify(noteRepository).findById(1L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService).getVersion(1L, 999);
     }
 
@@ -1039,6 +1314,7 @@ class NoteServiceTest {
         testNote.setContenuto("Contenuto Corrente");
 
         when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.canWrite(1L, "testuser")).thenReturn(true);
 
         NoteVersion versionToRestore = new NoteVersion(testNote, 2, "Contenuto v2", "Titolo v2", "testuser", "Seconda versione");
         when(noteVersionService.getVersion(1L, 2)).thenReturn(Optional.of(versionToRestore));
@@ -1074,6 +1350,7 @@ class NoteServiceTest {
     void shouldFailRestoreIfVersionNotExists() {
         // Given
         when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.canWrite(1L, "testuser")).thenReturn(true);
         when(noteVersionService.getVersion(1L, 999)).thenReturn(Optional.empty());
 
         // When & Then
@@ -1096,6 +1373,7 @@ class NoteServiceTest {
     void shouldFailRestoreIfUserHasNoWriteAccess() {
         // Given
         when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.canWrite(1L, "altrouser")).thenReturn(false);
 
 
         assertThatThrownBy(() -> noteService.restoreNoteVersion(1L, 2, "altrouser"))
@@ -1115,7 +1393,8 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe confrontare due versioni di una nota")
     void shouldCompareTwoVersionsOfNote() {
         // Given
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.exists(1L)).thenReturn(true);
+        when(noteAclCache.canRead(1L, "testuser")).thenReturn(true);
 
         NoteVersion version1 = new NoteVersion(testNote, 1, "Contenuto v1", "Titolo v1", "testuser", "Prima versione");
         NoteVersion version2 = new NoteVersion(testNote, 2, "Contenuto v2", "Titolo v2", "testuser", "Seconda versione");
@@ -1135,7 +1414,7 @@ class NoteServiceTest {
         assertThat(result.getDifferences().isTitleChanged()).isTrue();
         assertThat(result.getDifferences().isContentChanged()).isTrue();
 
-        verify(noteRepository).findById(1L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService).getVersion(1L, 1);
         verify(noteVersionService).getVersion(1L, 2);
     }
@@ -1150,7 +1429,8 @@ class NoteServiceTest {
     @DisplayName("Dovrebbe fallire il confronto se una delle versioni non esiste")
     void shouldFailCompareIfVersionNotExists() {
         // Given
-        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(noteAclCache.exists(1L)).thenReturn(true);
+        when(noteAclCache.canRead(1L, "testuser")).thenReturn(true);
 
         NoteVersion version1 = new NoteVersion(testNote, 1, "Contenuto v1", "Titolo v1", "testuser", "Prima versione");
         when(noteVersionService.getVersion(1L, 1)).thenReturn(Optional.of(version1));
@@ -1161,7 +1441,7 @@ class NoteServiceTest {
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Versione 999 non trovata");
 
-        verify(noteRepository).findById(1L);
+        verify(noteRepository, never()).findById(anyLong());
         verify(noteVersionService).getVersion(1L, 1);
         verify(noteVersionService).getVersion(1L, 999);
     }
@@ -1187,6 +1467,7 @@ class NoteServiceTest {
         when(noteVersionService.createVersion(any(Note.class), eq("testuser"), anyString())).thenReturn(newVersion);
 
         // When
+        when(noteAclCache.canWrite(1L, "testuser")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, updateRequest, "testuser");
 
         // Then
@@ -1197,6 +1478,27 @@ class NoteServiceTest {
         verify(noteVersionService).createVersion(any(Note.class), eq("testuser"), anyString());
     }
 
+    /**
+     * Verifica che gli username ricevuti nei permessi vengano convertiti negli utenti
+     * corrispondenti e che quelli inesistenti vengano ignorati.
+     */
+
+    @Test
+    @DisplayName("Dovrebbe salvare i permessi come riferimenti agli utenti")
+    void shouldResolveSharedUsernamesToUsers() {
+        User reader = new User("user1", "password123");
+        reader.setId(5L);
+        when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
+        when(userRepository.findByUsernameIn(List.of("user1", "ghost"))).thenReturn(List.of(reader));
+        when(noteRepository.saveAndFlush(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        PermissionDto permissionDto = new PermissionDto(TipoPermesso.CONDIVISA_LETTURA, List.of("user1", "ghost"), List.of());
+        NoteDto result = noteService.updateNotePermissions(1L, permissionDto, "testuser");
+
+        assertThat(testNote.getLettori()).containsExactly(reader);
+        assertThat(result.getPermessiLettura()).containsExactly("user1");
+    }
+
     /**
      * Verifica che l'aggiornamento dei permessi della nota non comporti la creazione
      * di una nuova versione.
@@ -1207,8 +1509,8 @@ class NoteServiceTest {
     void shouldUpdatePermissionsWithoutCreatingVersion() {
         // Setup della nota esistente con permessi inizializzati
         testNote.setTipoPermesso(TipoPermesso.PRIVATA);
-        testNote.setPermessiLettura(new HashSet<>());
-        testNote.setPermessiScrittura(new HashSet<>());
+        testNote.setLettori(new HashSet<>());
+        testNote.setScrittori(new HashSet<>());
 
         when(noteRepository.findById(1L)).thenReturn(Optional.of(testNote));
 
@@ -1216,8 +1518,8 @@ class NoteServiceTest {
         Note updatedNote = new Note(testNote.getTitolo(), testNote.getContenuto(), testNote.getAutore());
         updatedNote.setId(1L);
         updatedNote.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
-        updatedNote.setPermessiLettura(new HashSet<>(Arrays.asList("user1", "user2")));
-        updatedNote.setPermessiScrittura(new HashSet<>());
+        updatedNote.setLettori(users("user1", "user2"));
+        updatedNote.setScrittori(new HashSet<>());
 
         // Mock per saveAndFlush (metodo usato in updateNotePermissions)
         when(noteRepository.saveAndFlush(any(Note.class))).thenReturn(updatedNote);
@@ -1239,7 +1541,7 @@ class NoteServiceTest {
         // Verifica che i metodi siano stati chiamati
         verify(noteRepository).findById(1L);
         verify(noteRepository).saveAndFlush(any(Note.class));
-
+        verify(noteAccessService).refresh(1L);
 
         verify(noteVersionService, never()).createVersion(
                 any(Note.class),
@@ -1282,7 +1584,7 @@ class NoteServiceTest {
 
         Note note = new Note("Test Note", "Test content", testUser);
         note.setId(1L);
-        note.setPermessiScrittura(Set.of("collaborator"));
+        note.setScrittori(users("collaborator"));
         note.setTipoPermesso(TipoPermesso.CONDIVISA_SCRITTURA);
 
         UpdateNoteRequest updateRequest = new UpdateNoteRequest();
@@ -1295,6 +1597,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "collaborator")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, updateRequest, "collaborator");
 
         // Assert
@@ -1319,7 +1622,7 @@ class NoteServiceTest {
         Note note = new Note("Private Note", "Private content", testUser);
         note.setId(1L);
         note.setTipoPermesso(TipoPermesso.PRIVATA);
-        note.setPermessiScrittura(new HashSet<>());
+        note.setScrittori(new HashSet<>());
 
         UpdateNoteRequest updateRequest = new UpdateNoteRequest();
         updateRequest.setTitolo("Tentativo Modifica");
@@ -1355,6 +1658,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "testuser")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, updateRequest, "testuser");
 
         // Assert
@@ -1374,8 +1678,8 @@ class NoteServiceTest {
         Note note = new Note("Shared Note", "Shared content", testUser);
         note.setId(1L);
         note.setTipoPermesso(TipoPermesso.CONDIVISA_LETTURA);
-        note.setPermessiLettura(Set.of("reader"));
-        note.setPermessiScrittura(new HashSet<>());
+        note.setLettori(users("reader"));
+        note.setScrittori(new HashSet<>());
 
         UpdateNoteRequest updateRequest = new UpdateNoteRequest();
         updateRequest.setTitolo("Tentativo Modifica");
@@ -1412,6 +1716,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "testuser")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, updateRequest, "testuser");
 
         // Assert
@@ -1438,7 +1743,7 @@ class NoteServiceTest {
         Note sharedNote = new Note("Shared Note", "Shared content", owner);
         sharedNote.setId(1L);
         sharedNote.setTipoPermesso(TipoPermesso.CONDIVISA_SCRITTURA);
-        sharedNote.setPermessiScrittura(Set.of("writer1", "writer2"));
+        sharedNote.setScrittori(users("writer1", "writer2"));
 
         UpdateNoteRequest updateRequest = new UpdateNoteRequest();
         updateRequest.setTitolo("Modified by Writer");
@@ -1448,6 +1753,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(sharedNote);
 
         // Act
+        when(noteAclCache.canWrite(1L, "writer1")).thenReturn(true);
         NoteDto result = noteService.updateNote(1L, updateRequest, "writer1");
 
         // Assert
@@ -1468,8 +1774,8 @@ class NoteServiceTest {
         Note note = new Note("Shared Note", "Content", testUser);
         note.setId(1L);
         note.setTipoPermesso(TipoPermesso.CONDIVISA_SCRITTURA);
-        note.setPermessiLettura(Set.of("reader1", "reader2"));
-        note.setPermessiScrittura(Set.of("writer1"));
+        note.setLettori(users("reader1", "reader2"));
+        note.setScrittori(users("writer1"));
 
         UpdateNoteRequest updateRequest = new UpdateNoteRequest();
         updateRequest.setTitolo("Updated Title");
@@ -1479,6 +1785,7 @@ class NoteServiceTest {
         when(noteRepository.save(any(Note.class))).thenReturn(note);
 
         // Act
+        when(noteAclCache.canWrite(1L, "testuser")).thenReturn(true);
         noteService.updateNote(1L, updateRequest, "testuser");
 
         // Assert
@@ -1490,5 +1797,26 @@ class NoteServiceTest {
         ));
     }
 
+    private static Set<User> users(String... usernames) {
+        Set<User> users = new HashSet<>();
+        for (String username : usernames) {
+            users.add(new User(username, "password123"));
+        }
+        return users;
+    }
+
+    private static List<NoteCursor> keys(Note... notes) {
+        return Arrays.stream(notes).map(note -> new NoteCursor(note.getDataModifica(), note.getId())).toList();
+    }
 
-}
\ No newline at end of file
+    /**
+     * Il servizio di lettura restituisce i DTO delle note indicate, nell'ordine degli id ricevuti.
+     */
+    private void stubReadModel(Note... notes) {
+        Map<Long, Note> byId = Arrays.stream(notes).collect(Collectors.toMap(Note::getId, note -> note));
+        when(noteReadService.findByIds(anyString(), any())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(1).stream()
+                .filter(byId::containsKey)
+                .map(id -> NoteDto.fromNote(byId.get(id), invocation.getArgument(0)))
+                .toList());
+    }
+}
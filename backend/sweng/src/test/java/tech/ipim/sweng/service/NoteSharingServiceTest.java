@@ -0,0 +1,176 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.dto.BulkPermissionRequest;
+import tech.ipim.sweng.dto.BulkPermissionResultDto;
+import tech.ipim.sweng.dto.BulkPermissionResultDto.Esito;
+import tech.ipim.sweng.model.TipoPermesso;
+import tech.ipim.sweng.repository.GruppoRepository;
+import tech.ipim.sweng.repository.NotePermissionBatchRepository;
+import tech.ipim.sweng.repository.NotePermissionBatchRepository.Tabella;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link NoteSharingService}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldWriteOnlyDifferences} – Vengono inseriti e rimossi solo gli utenti cambiati</li>
+ *   <li>{@code shouldShareWithGroupsUsingOneRowPerNote} – Un gruppo costa una riga per nota, i suoi membri perdono l'indice</li>
+ *   <li>{@code shouldReportSkippedNotesInRequestOrder} – Note inesistenti o di altri utenti vengono segnalate</li>
+ *   <li>{@code shouldReportUnchangedNotes} – Note con gli stessi permessi non vengono riscritte</li>
+ *   <li>{@code shouldRejectMissingPermissionType} – Il tipo di permesso è obbligatorio</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteSharingService - Test condivisione multipla")
+class NoteSharingServiceTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private GruppoRepository gruppoRepository;
+
+    @Mock
+    private NotePermissionBatchRepository permissionBatchRepository;
+
+    @Mock
+    private NoteAccessService noteAccessService;
+
+    @Mock
+    private NoteSuggestionService noteSuggestionService;
+
+    private NoteSharingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new NoteSharingService(noteRepository, userRepository, gruppoRepository, permissionBatchRepository,
+                noteAccessService, noteSuggestionService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldWriteOnlyDifferences() {
+        when(noteRepository.findOwnersByIds(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "owner", TipoPermesso.CONDIVISA_LETTURA},
+                new Object[]{2L, "owner", TipoPermesso.PRIVATA}));
+        when(userRepository.findIdsByUsernameIn(List.of("bob", "carol"))).thenReturn(List.of(20L, 30L));
+        // la nota 1 è già condivisa con bob e con dave, che va rimosso
+        when(permissionBatchRepository.findPrincipalIds(Tabella.LETTURA, List.of(1L, 2L)))
+                .thenReturn(Map.of(1L, Set.of(20L, 40L)));
+        when(permissionBatchRepository.findPrincipalIds(Tabella.SCRITTURA, List.of(1L, 2L))).thenReturn(Map.of());
+        when(userRepository.findUsernamesByIdIn(anyCollection())).thenReturn(List.of("bob", "carol", "dave"));
+
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(1L, 2L), TipoPermesso.CONDIVISA_LETTURA,
+                List.of("bob", "carol"), List.of("ignorato"));
+        List<BulkPermissionResultDto> results = service.updatePermissions(request, "owner");
+
+        assertThat(results).extracting(BulkPermissionResultDto::getEsito).containsExactly(Esito.AGGIORNATA, Esito.AGGIORNATA);
+        assertThat(results.get(0).getUtentiAggiunti()).isEqualTo(1);
+        assertThat(results.get(0).getUtentiRimossi()).isEqualTo(1);
+        assertThat(results.get(1).getUtentiAggiunti()).isEqualTo(2);
+
+        ArgumentCaptor<List<long[]>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(permissionBatchRepository).insert(eq(Tabella.LETTURA), inserted.capture());
+        assertThat(inserted.getValue()).extracting(row -> row[0] + ":" + row[1])
+                .containsExactlyInAnyOrder("1:30", "2:20", "2:30");
+
+        ArgumentCaptor<List<long[]>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(permissionBatchRepository).delete(eq(Tabella.LETTURA), deleted.capture());
+        assertThat(deleted.getValue()).extracting(row -> row[0] + ":" + row[1]).containsExactly("1:40");
+
+        verify(permissionBatchRepository).updateTipoPermesso(eq(List.of(1L, 2L)), eq(TipoPermesso.CONDIVISA_LETTURA),
+                any(LocalDateTime.class));
+        verify(noteAccessService).refresh(List.of(1L, 2L));
+        verify(noteSuggestionService).accessChanged(Set.of("bob", "carol", "dave"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldShareWithGroupsUsingOneRowPerNote() {
+        when(noteRepository.findOwnersByIds(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "owner", TipoPermesso.PRIVATA},
+                new Object[]{2L, "owner", TipoPermesso.PRIVATA}));
+        when(gruppoRepository.findIdsByNomeIn(List.of("team"))).thenReturn(List.of(7L));
+        when(gruppoRepository.findMemberUsernames(Set.of(7L))).thenReturn(List.of("bob", "carol"));
+
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(1L, 2L), TipoPermesso.CONDIVISA_LETTURA, null, null);
+        request.setGruppiLettura(List.of("team"));
+        List<BulkPermissionResultDto> results = service.updatePermissions(request, "owner");
+
+        assertThat(results).extracting(BulkPermissionResultDto::getUtentiAggiunti).containsExactly(1, 1);
+        ArgumentCaptor<List<long[]>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(permissionBatchRepository).insert(eq(Tabella.GRUPPI_LETTURA), inserted.capture());
+        assertThat(inserted.getValue()).extracting(row -> row[0] + ":" + row[1]).containsExactly("1:7", "2:7");
+        verify(permissionBatchRepository).insert(Tabella.LETTURA, List.of());
+        verify(userRepository, never()).findUsernamesByIdIn(anyCollection());
+        verify(noteSuggestionService).accessChanged(Set.of("bob", "carol"));
+    }
+
+    @Test
+    void shouldReportSkippedNotesInRequestOrder() {
+        when(noteRepository.findOwnersByIds(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{5L, "altro", TipoPermesso.PRIVATA}));
+
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(9L, 5L, 9L), TipoPermesso.PRIVATA, null, null);
+        List<BulkPermissionResultDto> results = service.updatePermissions(request, "owner");
+
+        assertThat(results).extracting(BulkPermissionResultDto::getNoteId).containsExactly(9L, 5L);
+        assertThat(results).extracting(BulkPermissionResultDto::getEsito)
+                .containsExactly(Esito.NON_TROVATA, Esito.NON_AUTORIZZATA);
+        verify(permissionBatchRepository, never()).findPrincipalIds(any(), anyCollection());
+        verify(noteAccessService).refresh(List.of());
+    }
+
+    @Test
+    void shouldReportUnchangedNotes() {
+        when(noteRepository.findOwnersByIds(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{1L, "owner", TipoPermesso.CONDIVISA_SCRITTURA}));
+        when(userRepository.findIdsByUsernameIn(List.of("bob"))).thenReturn(List.of(20L));
+        when(permissionBatchRepository.findPrincipalIds(Tabella.LETTURA, List.of(1L))).thenReturn(Map.of());
+        when(permissionBatchRepository.findPrincipalIds(Tabella.SCRITTURA, List.of(1L))).thenReturn(Map.of(1L, Set.of(20L)));
+
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(1L), TipoPermesso.CONDIVISA_SCRITTURA,
+                List.of(), List.of("bob"));
+        List<BulkPermissionResultDto> results = service.updatePermissions(request, "owner");
+
+        assertThat(results.get(0).getEsito()).isEqualTo(Esito.INVARIATA);
+        verify(permissionBatchRepository).insert(Tabella.SCRITTURA, List.of());
+        verify(noteSuggestionService, never()).accessChanged(anyCollection());
+    }
+
+    @Test
+    void shouldRejectMissingPermissionType() {
+        BulkPermissionRequest request = new BulkPermissionRequest(List.of(1L), null, null, null);
+
+        assertThatThrownBy(() -> service.updatePermissions(request, "owner"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Tipo di permesso non valido");
+    }
+}
@@ -0,0 +1,160 @@
+package tech.ipim.sweng.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.search.Suggestion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link NoteSuggestionService}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldBuildIndexOnceFromDatabase} – L'indice dell'utente viene letto dal database una sola volta</li>
+ *   <li>{@code shouldApplyWritesToLoadedIndexes} – Una nota salvata aggiorna gli indici già caricati</li>
+ *   <li>{@code shouldNotSuggestOwnerFoldersToReaders} – Le cartelle di una nota condivisa vanno solo nell'indice del proprietario</li>
+ *   <li>{@code shouldResolveReadersWithAclCache} – Chi vede la nota (anche tramite un gruppo) è deciso dalla cache dei permessi</li>
+ *   <li>{@code shouldRemoveNoteWhenAccessIsRevoked} – Una nota non più condivisa sparisce dai suggerimenti</li>
+ *   <li>{@code shouldRemoveDeletedNote} – Una nota eliminata sparisce dai suggerimenti</li>
+ *   <li>{@code shouldReturnNothingForBlankPrefix} – Un prefisso vuoto non produce suggerimenti</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteSuggestionService - Test autocompletamento per utente")
+class NoteSuggestionServiceTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private NoteAclCache noteAclCache;
+
+    private NoteSuggestionService suggestionService;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        suggestionService = new NoteSuggestionService(noteRepository, noteAclCache, 10);
+        owner = new User("owner", "password123");
+        owner.setId(1L);
+    }
+
+    @Test
+    void shouldBuildIndexOnceFromDatabase() {
+        stubDatabase("owner", List.<Object[]>of(new Object[]{1L, "Riunione di progetto"}),
+                List.<Object[]>of(new Object[]{1L, "lavoro"}), List.of());
+
+        assertThat(suggestionService.suggest("owner", "riu", 10))
+                .extracting(Suggestion::getTesto).containsExactly("Riunione di progetto");
+        assertThat(suggestionService.suggest("owner", "lav", 10))
+                .extracting(Suggestion::getTesto).containsExactly("lavoro");
+
+        verify(noteRepository, times(1)).findAccessibleTitles("owner");
+    }
+
+    @Test
+    void shouldApplyWritesToLoadedIndexes() {
+        stubDatabase("owner", List.of(), List.of(), List.of());
+        stubDatabase("reader", List.of(), List.of(), List.of());
+        suggestionService.suggest("owner", "x", 10);
+        suggestionService.suggest("reader", "x", 10);
+
+        readers(5L, "owner", "reader");
+        suggestionService.noteChanged(note(5L, "Budget annuale"));
+
+        assertThat(suggestionService.suggest("owner", "bud", 10)).hasSize(1);
+        assertThat(suggestionService.suggest("reader", "bud", 10)).hasSize(1);
+    }
+
+    @Test
+    void shouldNotSuggestOwnerFoldersToReaders() {
+        stubDatabase("owner", List.of(), List.of(), List.of());
+        stubDatabase("reader", List.of(), List.of(), List.of());
+        suggestionService.suggest("owner", "x", 10);
+        suggestionService.suggest("reader", "x", 10);
+
+        readers(5L, "owner", "reader");
+        Note note = note(5L, "Budget annuale");
+        note.setCartelle(new HashSet<>(List.of("Riservato")));
+        suggestionService.noteChanged(note);
+
+        assertThat(suggestionService.suggest("owner", "ris", 10)).hasSize(1);
+        assertThat(suggestionService.suggest("reader", "ris", 10)).isEmpty();
+        assertThat(suggestionService.suggest("reader", "bud", 10)).hasSize(1);
+    }
+
+    @Test
+    void shouldResolveReadersWithAclCache() {
+        stubDatabase("member", List.<Object[]>of(new Object[]{5L, "Budget annuale"}), List.of(), List.of());
+        assertThat(suggestionService.suggest("member", "bud", 10)).hasSize(1);
+
+        // nota condivisa con un gruppo dell'utente: nessun lettore diretto sulla nota
+        readers(5L, "member");
+        suggestionService.noteChanged(note(5L, "Budget rivisto"));
+
+        assertThat(suggestionService.suggest("member", "bud", 10))
+                .extracting(Suggestion::getTesto).containsExactly("Budget rivisto");
+        verify(noteAclCache).canRead(5L, "member");
+    }
+
+    @Test
+    void shouldRemoveNoteWhenAccessIsRevoked() {
+        stubDatabase("reader", List.<Object[]>of(new Object[]{5L, "Budget annuale"}), List.of(), List.of());
+        assertThat(suggestionService.suggest("reader", "bud", 10)).hasSize(1);
+
+        suggestionService.noteChanged(note(5L, "Budget annuale"));
+
+        assertThat(suggestionService.suggest("reader", "bud", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveDeletedNote() {
+        stubDatabase("owner", List.<Object[]>of(new Object[]{5L, "Budget annuale"}), List.of(), List.of());
+        assertThat(suggestionService.suggest("owner", "bud", 10)).hasSize(1);
+
+        suggestionService.noteRemoved(5L);
+
+        assertThat(suggestionService.suggest("owner", "bud", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReturnNothingForBlankPrefix() {
+        assertThat(suggestionService.suggest("owner", "  ", 10)).isEmpty();
+    }
+
+    private void stubDatabase(String username, List<Object[]> titles, List<Object[]> tags, List<Object[]> cartelle) {
+        when(noteRepository.findAccessibleTitles(username)).thenReturn(new ArrayList<>(titles));
+        when(noteRepository.findAccessibleTags(username)).thenReturn(new ArrayList<>(tags));
+        when(noteRepository.findOwnCartelle(username)).thenReturn(new ArrayList<>(cartelle));
+    }
+
+    private void readers(Long noteId, String... usernames) {
+        for (String username : usernames) {
+            when(noteAclCache.canRead(noteId, username)).thenReturn(true);
+        }
+    }
+
+    private Note note(Long id, String titolo) {
+        Note note = new Note(titolo, "contenuto", owner);
+        note.setId(id);
+        note.setTags(new HashSet<>());
+        note.setCartelle(new HashSet<>());
+        return note;
+    }
+}
@@ -0,0 +1,75 @@
+package tech.ipim.sweng.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.dto.VersionSearchHitDto;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.NoteVersion;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteVersionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link NoteVersionSearchService}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldFindOlderVersionsAfterRebuild} – Dopo la costruzione si trovano anche testi non più presenti nella nota</li>
+ *   <li>{@code shouldIndexNewVersionsAndRemoveDeletedNotes} – Le nuove versioni entrano nell'indice, quelle di note eliminate escono</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NoteVersionSearchService - Test ricerca nella cronologia")
+class NoteVersionSearchServiceTest {
+
+    @Mock
+    private NoteVersionRepository noteVersionRepository;
+
+    @Test
+    void shouldFindOlderVersionsAfterRebuild() {
+        LocalDateTime lastMonth = LocalDateTime.now().minusMonths(1);
+        when(noteVersionRepository.findAllSearchableContent()).thenReturn(List.<Object[]>of(
+                new Object[]{10L, 1L, 1, "Riunione", "Budget del trimestre", lastMonth, "owner"},
+                new Object[]{11L, 1L, 2, "Riunione", "Ordine del giorno", LocalDateTime.now(), "owner"},
+                new Object[]{12L, 2L, 1, "Spesa", "Latte e pane", lastMonth, "altro"}));
+
+        NoteVersionSearchService service = new NoteVersionSearchService(noteVersionRepository);
+        service.rebuildIndex();
+
+        List<VersionSearchHitDto> hits = service.search("budget");
+        assertThat(hits).hasSize(1);
+        assertThat(hits.get(0).getNoteId()).isEqualTo(1L);
+        assertThat(hits.get(0).getVersionNumber()).isEqualTo(1);
+        assertThat(hits.get(0).getCreatedAt()).isEqualTo(lastMonth);
+        assertThat(service.search("riunione")).extracting(VersionSearchHitDto::getVersionNumber)
+                .containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void shouldIndexNewVersionsAndRemoveDeletedNotes() {
+        when(noteVersionRepository.findAllSearchableContent()).thenReturn(List.of());
+        NoteVersionSearchService service = new NoteVersionSearchService(noteVersionRepository);
+        service.rebuildIndex();
+
+        Note note = new Note("Palestra", "Lunedì", new User("owner", "password123"));
+        note.setId(5L);
+        NoteVersion version = new NoteVersion(note, 1, "Lunedì e venerdì", "Palestra", "owner", "Creazione nota");
+        version.setId(20L);
+
+        service.indexVersion(version);
+        assertThat(service.search("venerdì")).extracting(VersionSearchHitDto::getNoteId).containsExactly(5L);
+
+        service.removeNote(5L);
+        assertThat(service.search("venerdì")).isEmpty();
+        assertThat(service.size()).isZero();
+    }
+}
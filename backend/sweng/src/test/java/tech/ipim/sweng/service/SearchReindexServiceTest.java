@@ -0,0 +1,123 @@
+package tech.ipim.sweng.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.dto.ReindexStatusDto;
+import tech.ipim.sweng.model.Note;
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.NoteRepository;
+import tech.ipim.sweng.search.InMemoryNoteSearchEngine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link SearchReindexService}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldRebuildIndexesInChunksAndSwap} – Le note vengono lette a blocchi di id e gli indici sostituiti al termine</li>
+ *   <li>{@code shouldKeepLiveWritesDuringRebuild} – Una scrittura durante la ricostruzione non viene sovrascritta da un blocco già letto</li>
+ *   <li>{@code shouldKeepCurrentIndexesWhenRebuildFails} – Se la ricostruzione fallisce gli indici correnti restano in uso</li>
+ *   <li>{@code shouldReportIdleStatusBeforeFirstRun} – Prima di un avvio lo stato è inattivo</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SearchReindexService - Test reindicizzazione completa in background")
+class SearchReindexServiceTest {
+
+    private static final Map<Long, Object[]> DATABASE = Map.of(
+            1L, new Object[]{1L, "Riunione di progetto", "Budget"},
+            2L, new Object[]{2L, "Lista della spesa", "Latte"},
+            5L, new Object[]{5L, "Palestra", "Lunedì"});
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    private NoteSearchService noteSearchService;
+    private SearchReindexService reindexService;
+
+    @BeforeEach
+    void setUp() {
+        noteSearchService = new NoteSearchService(noteRepository, new InMemoryNoteSearchEngine(), 0.3, 1000, "", 10000);
+        reindexService = new SearchReindexService(noteRepository, noteSearchService, 2, 2, 0);
+
+        lenient().when(noteRepository.findMinId()).thenReturn(1L);
+        lenient().when(noteRepository.findMaxId()).thenReturn(5L);
+        lenient().when(noteRepository.findSearchableContentByIdBetween(anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            long to = invocation.getArgument(1);
+            return DATABASE.values().stream()
+                    .filter(row -> (Long) row[0] >= from && (Long) row[0] <= to)
+                    .toList();
+        });
+        lenient().when(noteRepository.findTagPairsByIdBetween(anyLong(), anyLong())).thenReturn(List.of());
+        lenient().when(noteRepository.findCartellaPairsByIdBetween(anyLong(), anyLong())).thenReturn(List.of());
+    }
+
+    @Test
+    void shouldRebuildIndexesInChunksAndSwap() {
+        SearchReindexService.Job job = new SearchReindexService.Job();
+        ReindexRebuild rebuild = noteSearchService.beginRebuild();
+
+        assertThat(noteSearchService.findRankedIds("palestra")).isEmpty();
+        reindexService.run(job, rebuild);
+
+        ReindexStatusDto status = job.toDto();
+        assertThat(status.getStato()).isEqualTo(ReindexStatusDto.Stato.COMPLETATO);
+        assertThat(status.getTotalChunks()).isEqualTo(3);
+        assertThat(status.getCompletedChunks()).isEqualTo(3);
+        assertThat(status.getProcessedNotes()).isEqualTo(3);
+        assertThat(status.getPercentuale()).isEqualTo(100.0);
+        assertThat(noteSearchService.findRankedIds("palestra")).containsExactly(5L);
+        assertThat(noteSearchService.findRankedIds("riunione")).containsExactly(1L);
+    }
+
+    @Test
+    void shouldKeepLiveWritesDuringRebuild() {
+        SearchReindexService.Job job = new SearchReindexService.Job();
+        ReindexRebuild rebuild = noteSearchService.beginRebuild();
+
+        // la nota 2 viene modificata dopo l'avvio: il blocco letto dal database ha ancora il vecchio titolo
+        Note updated = new Note("Lista per il viaggio", "Passaporto", new User("owner", "password123"));
+        updated.setId(2L);
+        noteSearchService.indexNote(updated);
+
+        reindexService.run(job, rebuild);
+
+        assertThat(noteSearchService.findRankedIds("viaggio")).containsExactly(2L);
+        assertThat(noteSearchService.findRankedIds("spesa")).isEmpty();
+    }
+
+    @Test
+    void shouldKeepCurrentIndexesWhenRebuildFails() {
+        Note existing = new Note("Appunti", "Vecchio indice", new User("owner", "password123"));
+        existing.setId(9L);
+        noteSearchService.indexNote(existing);
+        when(noteRepository.findMaxId()).thenThrow(new RuntimeException("Database non raggiungibile"));
+
+        SearchReindexService.Job job = new SearchReindexService.Job();
+        reindexService.run(job, noteSearchService.beginRebuild());
+
+        assertThat(job.toDto().getStato()).isEqualTo(ReindexStatusDto.Stato.FALLITO);
+        assertThat(job.toDto().getErrore()).isEqualTo("Database non raggiungibile");
+        assertThat(noteSearchService.findRankedIds("appunti")).containsExactly(9L);
+        // una nuova ricostruzione può essere avviata
+        assertThat(noteSearchService.beginRebuild()).isNotNull();
+    }
+
+    @Test
+    void shouldReportIdleStatusBeforeFirstRun() {
+        assertThat(reindexService.getStatus().getStato()).isEqualTo(ReindexStatusDto.Stato.INATTIVO);
+    }
+}
@@ -0,0 +1,106 @@
+package tech.ipim.sweng.service;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import tech.ipim.sweng.model.User;
+import tech.ipim.sweng.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test unitari per {@link UserCache}.
+ * <p>
+ * Riepilogo dei test implementati:
+ * <ul>
+ *   <li>{@code shouldHitDatabaseOnlyOnce} – Le ricerche successive dello stesso utente non interrogano il database</li>
+ *   <li>{@code shouldReturnReferenceWithoutSelect} – Il riferimento all'utente è ottenuto senza leggere l'utente per username</li>
+ *   <li>{@code shouldReloadAfterInvalidation} – Dopo l'invalidazione l'utente viene riletto</li>
+ *   <li>{@code shouldReloadAfterTtl} – Le voci scadute vengono rilette</li>
+ *   <li>{@code shouldNotCacheMissingUsers} – Un utente inesistente non viene memorizzato</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserCache - Test cache degli utenti")
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserCache(userRepository, 300, 100);
+    }
+
+    @Test
+    void shouldHitDatabaseOnlyOnce() {
+        when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.findId("testuser")).isEqualTo(1L);
+        }
+
+        verify(userRepository, times(1)).findIdByUsername("testuser");
+    }
+
+    @Test
+    void shouldReturnReferenceWithoutSelect() {
+        User reference = new User();
+        reference.setId(1L);
+        when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+        when(userRepository.getReferenceById(1L)).thenReturn(reference);
+
+        assertThat(cache.getReference("testuser")).isSameAs(reference);
+        assertThat(cache.getReference("testuser")).isSameAs(reference);
+
+        verify(userRepository, times(1)).findIdByUsername("testuser");
+        verify(userRepository, never()).findByUsername("testuser");
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+
+        cache.findId("testuser");
+        cache.invalidate("testuser");
+        cache.findId("testuser");
+
+        verify(userRepository, times(2)).findIdByUsername("testuser");
+    }
+
+    @Test
+    void shouldReloadAfterTtl() {
+        UserCache expiring = new UserCache(userRepository, 0, 100);
+        when(userRepository.findIdByUsername("testuser")).thenReturn(Optional.of(1L));
+
+        expiring.findId("testuser");
+        expiring.findId("testuser");
+
+        verify(userRepository, times(2)).findIdByUsername("testuser");
+    }
+
+    @Test
+    void shouldNotCacheMissingUsers() {
+        when(userRepository.findIdByUsername("nonexistent")).thenReturn(Optional.empty());
+
+        assertThat(cache.findId("nonexistent")).isNull();
+        assertThatThrownBy(() -> cache.getReference("nonexistent"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Utente non trovato: nonexistent");
+
+        verify(userRepository, times(2)).findIdByUsername("nonexistent");
+    }
+}
@@ -48,6 +48,9 @@ public class UserRegistrationTest {
     
     @Mock
     private JwtUtil jwtUtil;
+
+    @Mock
+    private UserCache userCache;
     
     @InjectMocks
     private UserService userService;
@@ -99,6 +102,7 @@ public class UserRegistrationTest {
         verify(userRepository).existsByEmail("test@example.com");
         verify(passwordEncoder).encode("password123");
         verify(userRepository).save(any(User.class));
+        verify(userCache).invalidate("testuser");
     }
 
     /**
@@ -0,0 +1,72 @@
+package tech.ipim.sweng.util;
+
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import tech.ipim.sweng.model.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark del costo di autenticazione di una richiesta con e senza la cache dei token verificati.
+ * <p>
+ * Senza cache ripete le chiamate del percorso precedente (filtro: {@code extractUsername} e
+ * {@code isTokenValid}; controller: {@code isTokenValid} e {@code extractUsername}; ogni
+ * {@code isTokenValid} rileggeva il token in {@code isTokenExpired}), con sei verifiche della
+ * firma per richiesta. Con cache misura la verifica unica del filtro
+ * su un token già visto. Stampa il tempo medio per richiesta.
+ * <p>
+ * Il benchmark è disattivato nella build normale. Per eseguirlo:
+ * <pre>
+ * mvn test -Dtest=JwtUtilBenchmarkTest -Dbenchmark=true [-Dbenchmark.requests=100000]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("JwtUtil - Benchmark cache dei token verificati")
+class JwtUtilBenchmarkTest {
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 100_000);
+    private static final int WARMUP = 10_000;
+
+    @Test
+    void compareCachedVerification() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user.setNome("Mario");
+        user.setCognome("Rossi");
+
+        JwtUtil uncached = new JwtUtil(0);
+        JwtUtil cached = new JwtUtil();
+        String token = cached.generateToken(user);
+
+        double uncachedMicros = measure("Senza cache (filtro + controller)", () -> {
+            uncached.extractUsername(token);
+            uncached.isTokenValid(token);
+            uncached.isTokenExpired(token);
+            uncached.isTokenValid(token);
+            uncached.isTokenExpired(token);
+            return uncached.extractUsername(token);
+        });
+        double cachedMicros = measure("Con cache (verifica unica)", () -> cached.extractValidUsername(token));
+
+        assertThat(cachedMicros).isLessThan(uncachedMicros);
+    }
+
+    private static double measure(String label, Supplier<String> request) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertThat(request.get()).isEqualTo("testuser");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request.get();
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / REQUESTS;
+        System.out.printf("%s: %d richieste | %.2f us per richiesta%n", label, REQUESTS, micros);
+        return micros;
+    }
+}
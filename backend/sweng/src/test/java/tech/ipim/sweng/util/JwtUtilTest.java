@@ -2,9 +2,13 @@ package tech.ipim.sweng.util;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import tech.ipim.sweng.model.User;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -189,4 +193,86 @@ public class JwtUtilTest {
 
         assertNull(extractedToken);
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Verifica che extractValidUsername restituisca lo username di un token valido
+     * e che il token verificato venga tenuto in cache una sola volta.
+     */
+    @Test
+    void shouldCacheVerifiedToken() {
+        String token = jwtUtil.generateToken(testUser);
+
+        assertEquals("testuser", jwtUtil.extractValidUsername(token));
+        assertTrue(jwtUtil.isTokenValid(token));
+        assertEquals(1L, jwtUtil.extractUserId(token));
+
+        assertEquals(1, jwtUtil.cachedTokens());
+    }
+
+
+    /**
+     * Verifica che extractValidUsername restituisca null per un token non valido
+     * senza metterlo in cache.
+     */
+    @Test
+    void shouldNotCacheInvalidToken() {
+        assertNull(jwtUtil.extractValidUsername("invalid.token.format"));
+        assertNull(jwtUtil.extractValidUsername(null));
+
+        assertEquals(0, jwtUtil.cachedTokens());
+    }
+
+
+    /**
+     * Verifica che la cache non superi la dimensione massima e che i token
+     * rimossi restino validi con una nuova verifica.
+     */
+    @Test
+    void shouldBoundCachedTokens() {
+        JwtUtil boundedJwtUtil = new JwtUtil(2);
+        String[] tokens = new String[3];
+        for (int i = 0; i < tokens.length; i++) {
+            testUser.setUsername("utente" + i);
+            tokens[i] = boundedJwtUtil.generateToken(testUser);
+            assertTrue(boundedJwtUtil.isTokenValid(tokens[i]));
+        }
+
+        assertTrue(boundedJwtUtil.cachedTokens() <= 2);
+        assertEquals("utente0", boundedJwtUtil.extractValidUsername(tokens[0]));
+    }
+
+
+    /**
+     * Verifica che con dimensione 0 la cache sia disattivata.
+     */
+    @Test
+    void shouldNotCacheWhenDisabled() {
+        JwtUtil uncachedJwtUtil = new JwtUtil(0);
+        String token = uncachedJwtUtil.generateToken(testUser);
+
+        assertEquals("testuser", uncachedJwtUtil.extractValidUsername(token));
+        assertEquals(0, uncachedJwtUtil.cachedTokens());
+    }
+
+    /**
+     * Verifica che usernameFromHeader restituisca l'utente autenticato nel SecurityContext
+     * con lo stesso token, e altrimenti verifichi il token dell'header.
+     */
+    @Test
+    void shouldReadUsernameFromHeader() {
+        String token = jwtUtil.generateToken(testUser);
+        try {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken("authenticated", token, List.of()));
+            assertEquals("authenticated", JwtUtil.usernameFromHeader(jwtUtil, "Bearer " + token));
+
+            SecurityContextHolder.clearContext();
+            assertEquals("testuser", JwtUtil.usernameFromHeader(jwtUtil, "Bearer " + token));
+            assertNull(JwtUtil.usernameFromHeader(jwtUtil, "Bearer invalid.token.value"));
+            assertNull(JwtUtil.usernameFromHeader(jwtUtil, null));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
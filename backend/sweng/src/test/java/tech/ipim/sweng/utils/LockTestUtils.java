@@ -54,8 +54,8 @@ public class LockTestUtils {
         note.setDataCreazione(LocalDateTime.now());
         note.setDataModifica(LocalDateTime.now());
         // Inizializza i Set per evitare null
-        note.setPermessiLettura(new HashSet<>());
-        note.setPermessiScrittura(new HashSet<>());
+        note.setLettori(new HashSet<>());
+        note.setScrittori(new HashSet<>());
         note.setTags(new HashSet<>());
         note.setCartelle(new HashSet<>());
         return note;